@@ -0,0 +1,180 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.benchmark;
+
+import org.apache.commons.io.FileUtils;
+
+import com.rothsmith.test.ftp.FtpTestException;
+import com.rothsmith.test.ftp.FtpsTestServer;
+import com.rothsmith.test.ftp.FtpsTestServerConfig;
+import com.rothsmith.test.ftp.FtpsTestUtils;
+import com.rothsmith.test.ftp.SFtpTestServer;
+import com.rothsmith.test.ftp.SshAlgorithmProfile;
+import com.rothsmith.test.ftp.SshCompression;
+import com.rothsmith.test.ftp.TestServer;
+import com.rothsmith.test.ftp.load.FtpsLoadClient;
+import com.rothsmith.test.ftp.load.LoadClient;
+import com.rothsmith.test.ftp.load.SFtpLoadClient;
+import com.rothsmith.test.ftp.memfs.MemoryFileSystem;
+import com.rothsmith.test.ftp.memfs.MemoryFtpFileSystemFactory;
+import com.rothsmith.test.ftp.memfs.MemorySshFileSystemFactory;
+
+/**
+ * Servers and clients shared by the benchmarks. Every server listens on an
+ * ephemeral port and serves an in-memory file system, so that the benchmarks
+ * measure the protocol stacks rather than the disk.
+ * 
+ * @author drothauser
+ * 
+ */
+final class BenchmarkServers {
+
+	/**
+	 * Host the servers listen on.
+	 */
+	static final String HOST = SFtpTestServer.DEFAULT_HOST;
+
+	/**
+	 * SFTP user; any password is accepted.
+	 */
+	static final String SFTP_USER = SFtpTestServer.DEFAULT_USER;
+
+	/**
+	 * SFTP password.
+	 */
+	static final String SFTP_PASSWORD = "benchmark";
+
+	/**
+	 * FTPS user from {@link #FTPS_PROPERTIES}.
+	 */
+	static final String FTPS_USER = "user";
+
+	/**
+	 * FTPS password from {@link #FTPS_PROPERTIES}.
+	 */
+	static final String FTPS_PASSWORD = "password";
+
+	/**
+	 * Properties of the FTPS server, found in the test classpath.
+	 */
+	static final String FTPS_PROPERTIES = "ftpstest-memory.properties";
+
+	/**
+	 * Key store of the FTPS server, found in the test classpath.
+	 */
+	static final String FTPS_KEYSTORE = "testcert.jks";
+
+	/**
+	 * Password of {@link #FTPS_KEYSTORE}.
+	 */
+	static final String FTPS_KEYSTORE_PASSWORD = "changeit";
+
+	/**
+	 * Capacity of the SFTP in-memory file system in bytes.
+	 */
+	private static final long SFTP_CAPACITY = 64L * 1024 * 1024;
+
+	/**
+	 * Utility class.
+	 */
+	private BenchmarkServers() {
+	}
+
+	/**
+	 * Create a SFTP server with an in-memory file system. The server is not
+	 * started.
+	 * 
+	 * @return the server
+	 */
+	static SFtpTestServer createSftpServer() {
+		return createSftpServer(SshAlgorithmProfile.DEFAULT,
+		    SshCompression.NONE);
+	}
+
+	/**
+	 * Create a SFTP server with an in-memory file system and the given
+	 * algorithms. The server is not started.
+	 * 
+	 * @param algorithms
+	 *            ciphers, MACs and key exchanges of the server
+	 * @param compression
+	 *            compression of the server
+	 * @return the server
+	 */
+	static SFtpTestServer createSftpServer(SshAlgorithmProfile algorithms,
+	    SshCompression compression) {
+		return new SFtpTestServer(HOST, SFtpTestServer.EPHEMERAL_PORT,
+		    SFTP_USER, new MemorySshFileSystemFactory(new MemoryFileSystem(
+		        MemoryFileSystem.StorageType.HEAP, SFTP_CAPACITY)), algorithms,
+		    compression);
+	}
+
+	/**
+	 * Create a FTPS server with an in-memory file system. The server is not
+	 * started.
+	 * 
+	 * @return the server
+	 * @throws FtpTestException
+	 *             possible error creating the server
+	 */
+	static FtpsTestServer createFtpsServer() throws FtpTestException {
+		return FtpsTestUtils.createTestFtpsServer(FTPS_PROPERTIES);
+	}
+
+	/**
+	 * Create a FTPS server with an in-memory file system and the given tuning
+	 * options. The server is not started.
+	 * 
+	 * @param config
+	 *            server tuning options
+	 * @return the server
+	 * @throws FtpTestException
+	 *             possible error creating the server
+	 */
+	static FtpsTestServer createFtpsServer(FtpsTestServerConfig config)
+	        throws FtpTestException {
+		return new FtpsTestServer(FtpsTestServer.EPHEMERAL_PORT, "JKS",
+		    FileUtils.toFile(
+		        BenchmarkServers.class.getClassLoader().getResource(
+		            FTPS_KEYSTORE)).getAbsolutePath(), FTPS_KEYSTORE_PASSWORD,
+		    FTPS_USER, FTPS_PASSWORD, "/", new MemoryFtpFileSystemFactory(),
+		    config);
+	}
+
+	/**
+	 * Create and start a server.
+	 * 
+	 * @param protocol
+	 *            "sftp" or "ftps"
+	 * @return the started server
+	 * @throws FtpTestException
+	 *             possible error starting the server
+	 */
+	static TestServer startServer(String protocol) throws FtpTestException {
+		TestServer server =
+		    "ftps".equals(protocol) ? createFtpsServer() : createSftpServer();
+		server.startServer();
+		return server;
+	}
+
+	/**
+	 * Create a client, not yet connected, for a server started by
+	 * {@link #startServer(String)}.
+	 * 
+	 * @param protocol
+	 *            "sftp" or "ftps"
+	 * @param server
+	 *            the started server
+	 * @return the client
+	 */
+	static LoadClient createClient(String protocol, TestServer server) {
+		if ("ftps".equals(protocol)) {
+			return new FtpsLoadClient(HOST, server.getPort(), FTPS_USER,
+			    FTPS_PASSWORD);
+		}
+		return new SFtpLoadClient(HOST, server.getPort(), SFTP_USER,
+		    SFTP_PASSWORD);
+	}
+
+}
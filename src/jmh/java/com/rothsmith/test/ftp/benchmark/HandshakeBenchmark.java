@@ -0,0 +1,106 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rothsmith.test.ftp.FtpTestException;
+import com.rothsmith.test.ftp.TestServer;
+import com.rothsmith.test.ftp.load.LoadClient;
+
+/**
+ * Latency of a new connection up to a logged in session: the SSH key exchange
+ * and password authentication for SFTP, the TLS handshake, login and
+ * PBSZ/PROT for FTPS. The session is closed outside of the measured time.
+ * 
+ * @author drothauser
+ * 
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HandshakeBenchmark {
+
+	/**
+	 * Protocol of the server.
+	 */
+	@Param({ "sftp", "ftps" })
+	private String protocol;
+
+	/**
+	 * Server connected to.
+	 */
+	private TestServer server;
+
+	/**
+	 * Client connected by the last invocation.
+	 */
+	private LoadClient client;
+
+	/**
+	 * Start the server.
+	 * 
+	 * @throws FtpTestException
+	 *             possible error starting the server
+	 */
+	@Setup(Level.Trial)
+	public void startServer() throws FtpTestException {
+		server = BenchmarkServers.startServer(protocol);
+	}
+
+	/**
+	 * Stop the server.
+	 * 
+	 * @throws FtpTestException
+	 *             possible error stopping the server
+	 */
+	@TearDown(Level.Trial)
+	public void stopServer() throws FtpTestException {
+		server.stopServer();
+	}
+
+	/**
+	 * Connect and log in.
+	 * 
+	 * @return the connected client
+	 * @throws IOException
+	 *             possible error connecting
+	 */
+	@Benchmark
+	public LoadClient connect() throws IOException {
+		client = BenchmarkServers.createClient(protocol, server);
+		client.connect();
+		return client;
+	}
+
+	/**
+	 * Close the session opened by the last invocation.
+	 */
+	@TearDown(Level.Invocation)
+	public void disconnect() {
+		if (client != null) {
+			client.disconnect();
+			client = null;
+		}
+	}
+
+}
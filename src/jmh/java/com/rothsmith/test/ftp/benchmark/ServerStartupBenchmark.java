@@ -0,0 +1,78 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rothsmith.test.ftp.FtpTestException;
+import com.rothsmith.test.ftp.TestServer;
+
+/**
+ * Time to construct and start a test server, i.e. what every test class that
+ * starts its own server pays up front. The server is stopped outside of the
+ * measured time.
+ * 
+ * @author drothauser
+ * 
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServerStartupBenchmark {
+
+	/**
+	 * Protocol of the server.
+	 */
+	@Param({ "sftp", "ftps" })
+	private String protocol;
+
+	/**
+	 * Server started by the last invocation.
+	 */
+	private TestServer server;
+
+	/**
+	 * Construct and start a server.
+	 * 
+	 * @return the started server
+	 * @throws FtpTestException
+	 *             possible error starting the server
+	 */
+	@Benchmark
+	public TestServer startServer() throws FtpTestException {
+		server = BenchmarkServers.startServer(protocol);
+		return server;
+	}
+
+	/**
+	 * Stop the server started by the last invocation.
+	 * 
+	 * @throws FtpTestException
+	 *             possible error stopping the server
+	 */
+	@TearDown(Level.Invocation)
+	public void stopServer() throws FtpTestException {
+		if (server != null) {
+			server.stopServer();
+			server = null;
+		}
+	}
+
+}
@@ -0,0 +1,165 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.benchmark;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rothsmith.test.ftp.FtpTestException;
+import com.rothsmith.test.ftp.SFtpTestServer;
+import com.rothsmith.test.ftp.SshAlgorithmProfile;
+import com.rothsmith.test.ftp.SshCompression;
+import com.rothsmith.test.ftp.load.SFtpLoadClient;
+
+/**
+ * SFTP upload throughput over one open session for each
+ * {@link SshAlgorithmProfile} and {@link SshCompression}, with random content
+ * that does not compress and repetitive text that does. The
+ * {@link TransferBenchmark.Bytes#bytes} counter reports file bytes per second,
+ * not bytes on the wire.
+ *
+ * @author drothauser
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SshAlgorithmBenchmark {
+
+	/**
+	 * Remote file that is uploaded over and over.
+	 */
+	private static final String UPLOAD_PATH = "upload.bin";
+
+	/**
+	 * Seed of the random content, fixed so that runs are comparable.
+	 */
+	private static final long SEED = 42;
+
+	/**
+	 * Line repeated to fill the text content.
+	 */
+	private static final String LINE =
+	    "2013-01-01,POLICY-0000001,FL,AUTO,1250.00,ACTIVE\n";
+
+	/**
+	 * Algorithm profile of the server.
+	 */
+	@Param({ "default", "fast", "compat", "strict" })
+	private String algorithms;
+
+	/**
+	 * Compression of the server and the client.
+	 */
+	@Param({ "none", "zlib", "delayed_zlib" })
+	private String compression;
+
+	/**
+	 * "random" or "text" content.
+	 */
+	@Param({ "random", "text" })
+	private String payload;
+
+	/**
+	 * File size in bytes.
+	 */
+	@Param({ "4194304" })
+	private int size;
+
+	/**
+	 * Server uploaded to.
+	 */
+	private SFtpTestServer server;
+
+	/**
+	 * Client uploading.
+	 */
+	private SFtpLoadClient client;
+
+	/**
+	 * File content.
+	 */
+	private byte[] content;
+
+	/**
+	 * Start the server and open a session.
+	 *
+	 * @throws FtpTestException
+	 *             possible error starting the server
+	 * @throws IOException
+	 *             possible error connecting
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws FtpTestException, IOException {
+		content = new byte[size];
+		if ("text".equals(payload)) {
+			byte[] line = LINE.getBytes("US-ASCII");
+			for (int i = 0; i < size; i += line.length) {
+				System.arraycopy(line, 0, content, i,
+				    Math.min(line.length, size - i));
+			}
+		} else {
+			new Random(SEED).nextBytes(content);
+		}
+		SshCompression sshCompression =
+		    SshCompression.valueOf(compression.toUpperCase(Locale.US));
+		server =
+		    BenchmarkServers.createSftpServer(SshAlgorithmProfile
+		        .valueOf(algorithms.toUpperCase(Locale.US)), sshCompression);
+		server.startServer();
+		client =
+		    new SFtpLoadClient(BenchmarkServers.HOST, server.getPort(),
+		        BenchmarkServers.SFTP_USER, BenchmarkServers.SFTP_PASSWORD);
+		if (sshCompression != SshCompression.NONE) {
+			client.setCompression(sshCompression.getName());
+		}
+		client.connect();
+	}
+
+	/**
+	 * Close the session and stop the server.
+	 *
+	 * @throws FtpTestException
+	 *             possible error stopping the server
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() throws FtpTestException {
+		client.disconnect();
+		server.stopServer();
+	}
+
+	/**
+	 * Upload the file.
+	 *
+	 * @param counter
+	 *            bytes transferred
+	 * @throws IOException
+	 *             possible error uploading
+	 */
+	@Benchmark
+	public void upload(TransferBenchmark.Bytes counter) throws IOException {
+		client.put(UPLOAD_PATH, content);
+		counter.bytes += size;
+	}
+
+}
@@ -0,0 +1,143 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.benchmark;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rothsmith.test.ftp.FtpTestException;
+import com.rothsmith.test.ftp.FtpsTestServer;
+import com.rothsmith.test.ftp.FtpsTestServerConfig;
+import com.rothsmith.test.ftp.load.LatencyHistogram;
+import com.rothsmith.test.ftp.load.LoadClient;
+import com.rothsmith.test.ftp.tls.TlsProfile;
+
+/**
+ * Latency of a new FTPS connection up to a logged in session for each
+ * {@link TlsProfile}. After every iteration the server side handshake times,
+ * from the client's first TLS bytes until the server finished the handshake,
+ * are printed, since the client side latency also includes login and
+ * PBSZ/PROT.
+ *
+ * @author drothauser
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TlsProfileBenchmark {
+
+	/**
+	 * Nanoseconds per microsecond.
+	 */
+	private static final long NANOS_PER_MICRO = 1000;
+
+	/**
+	 * TLS profile of the server.
+	 */
+	@Param({ "fast", "compat", "strict" })
+	private String profile;
+
+	/**
+	 * Server connected to.
+	 */
+	private FtpsTestServer server;
+
+	/**
+	 * Client connected by the last invocation.
+	 */
+	private LoadClient client;
+
+	/**
+	 * Start the server.
+	 *
+	 * @throws FtpTestException
+	 *             possible error starting the server
+	 */
+	@Setup(Level.Trial)
+	public void startServer() throws FtpTestException {
+		FtpsTestServerConfig config = new FtpsTestServerConfig();
+		config
+		    .setSslProfile(TlsProfile.valueOf(profile.toUpperCase(Locale.US)));
+		server = BenchmarkServers.createFtpsServer(config);
+		server.startServer();
+	}
+
+	/**
+	 * Stop the server.
+	 *
+	 * @throws FtpTestException
+	 *             possible error stopping the server
+	 */
+	@TearDown(Level.Trial)
+	public void stopServer() throws FtpTestException {
+		server.stopServer();
+	}
+
+	/**
+	 * Forget the handshakes of the previous iteration.
+	 */
+	@Setup(Level.Iteration)
+	public void resetHandshakes() {
+		server.getSslConfiguration().resetStatistics();
+	}
+
+	/**
+	 * Print the server side handshake times of the iteration.
+	 */
+	@TearDown(Level.Iteration)
+	public void printHandshakes() {
+		LatencyHistogram times =
+		    server.getSslConfiguration().getControlHandshakeTimes();
+		System.out.println(String.format(Locale.US,
+		    "%n%s server handshakes: %d, p50 %d us, p99 %d us, max %d us",
+		    profile, times.getCount(), times.getP50() / NANOS_PER_MICRO,
+		    times.getP99() / NANOS_PER_MICRO, times.getMax()
+		        / NANOS_PER_MICRO));
+	}
+
+	/**
+	 * Connect and log in.
+	 *
+	 * @return the connected client
+	 * @throws IOException
+	 *             possible error connecting
+	 */
+	@Benchmark
+	public LoadClient connect() throws IOException {
+		client = BenchmarkServers.createClient("ftps", server);
+		client.connect();
+		return client;
+	}
+
+	/**
+	 * Close the session opened by the last invocation.
+	 */
+	@TearDown(Level.Invocation)
+	public void disconnect() {
+		if (client != null) {
+			client.disconnect();
+			client = null;
+		}
+	}
+
+}
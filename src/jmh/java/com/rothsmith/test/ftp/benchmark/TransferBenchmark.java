@@ -0,0 +1,235 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.sshd.ClientSession;
+import org.apache.sshd.SshClient;
+import org.apache.sshd.client.ScpClient;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rothsmith.test.ftp.FtpTestException;
+import com.rothsmith.test.ftp.TestServer;
+import com.rothsmith.test.ftp.load.LoadClient;
+
+/**
+ * Sustained upload and download throughput over one open session, per
+ * protocol and file size. Besides operations per second, the
+ * {@link Bytes#bytes} counter reports bytes per second. SFTP and FTPS
+ * transfer from and to memory; SCP, whose client only copies files, from and
+ * to a local temp file.
+ * 
+ * @author drothauser
+ * 
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransferBenchmark {
+
+	/**
+	 * Remote file that is uploaded over and over.
+	 */
+	private static final String UPLOAD_PATH = "upload.bin";
+
+	/**
+	 * Remote file that is downloaded over and over.
+	 */
+	private static final String DOWNLOAD_PATH = "download.bin";
+
+	/**
+	 * Seed of the file content, fixed so that runs are comparable.
+	 */
+	private static final long SEED = 42;
+
+	/**
+	 * Transfer protocol; SCP runs against the SFTP server.
+	 */
+	@Param({ "sftp", "scp", "ftps" })
+	private String protocol;
+
+	/**
+	 * File size in bytes.
+	 */
+	@Param({ "1024", "1048576", "4194304" })
+	private int size;
+
+	/**
+	 * Server transferred to and from.
+	 */
+	private TestServer server;
+
+	/**
+	 * File content.
+	 */
+	private byte[] content;
+
+	/**
+	 * SFTP or FTPS client.
+	 */
+	private LoadClient client;
+
+	/**
+	 * SSH client for SCP.
+	 */
+	private SshClient sshClient;
+
+	/**
+	 * SSH session for SCP.
+	 */
+	private ClientSession session;
+
+	/**
+	 * SCP client.
+	 */
+	private ScpClient scpClient;
+
+	/**
+	 * Local file uploaded by SCP.
+	 */
+	private File localUpload;
+
+	/**
+	 * Local file downloaded to by SCP.
+	 */
+	private File localDownload;
+
+	/**
+	 * Bytes transferred, reported by JMH as a rate.
+	 * 
+	 * @author drothauser
+	 * 
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Bytes {
+
+		/**
+		 * Bytes transferred in the current iteration.
+		 */
+		public long bytes;
+
+		/**
+		 * Reset the counter before every iteration.
+		 */
+		@Setup(Level.Iteration)
+		public void reset() {
+			bytes = 0;
+		}
+
+	}
+
+	/**
+	 * Start the server, open a session and upload the file to download.
+	 * 
+	 * @throws Exception
+	 *             possible error
+	 */
+	@Setup(Level.Trial)
+	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
+	public void setUp() throws Exception {
+		content = new byte[size];
+		new Random(SEED).nextBytes(content);
+		boolean scp = "scp".equals(protocol);
+		String serverProtocol = scp ? "sftp" : protocol;
+		server = BenchmarkServers.startServer(serverProtocol);
+		client = BenchmarkServers.createClient(serverProtocol, server);
+		client.connect();
+		client.put(DOWNLOAD_PATH, content);
+		if (scp) {
+			localUpload = File.createTempFile("scp-upload", ".bin");
+			localDownload = File.createTempFile("scp-download", ".bin");
+			FileUtils.writeByteArrayToFile(localUpload, content);
+			sshClient = SshClient.setUpDefaultClient();
+			sshClient.start();
+			session =
+			    sshClient.connect(BenchmarkServers.SFTP_USER,
+			        BenchmarkServers.HOST, server.getPort()).await()
+			        .getSession();
+			session.addPasswordIdentity(BenchmarkServers.SFTP_PASSWORD);
+			session.auth().verify();
+			scpClient = session.createScpClient();
+		}
+	}
+
+	/**
+	 * Close the sessions, stop the server and remove the local files.
+	 * 
+	 * @throws FtpTestException
+	 *             possible error stopping the server
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() throws FtpTestException {
+		if (session != null) {
+			session.close(true);
+			sshClient.stop();
+			FileUtils.deleteQuietly(localUpload);
+			FileUtils.deleteQuietly(localDownload);
+		}
+		client.disconnect();
+		server.stopServer();
+	}
+
+	/**
+	 * Upload the file.
+	 * 
+	 * @param counter
+	 *            bytes transferred
+	 * @throws IOException
+	 *             possible error uploading
+	 */
+	@Benchmark
+	public void upload(Bytes counter) throws IOException {
+		if (scpClient == null) {
+			client.put(UPLOAD_PATH, content);
+		} else {
+			scpClient.upload(localUpload.getPath(), UPLOAD_PATH);
+		}
+		counter.bytes += size;
+	}
+
+	/**
+	 * Download the file.
+	 * 
+	 * @param counter
+	 *            bytes transferred
+	 * @return bytes downloaded
+	 * @throws IOException
+	 *             possible error downloading
+	 */
+	@Benchmark
+	public long download(Bytes counter) throws IOException {
+		long bytes;
+		if (scpClient == null) {
+			bytes = client.get(DOWNLOAD_PATH);
+		} else {
+			scpClient.download(DOWNLOAD_PATH, localDownload.getPath());
+			bytes = localDownload.length();
+		}
+		counter.bytes += bytes;
+		return bytes;
+	}
+
+}
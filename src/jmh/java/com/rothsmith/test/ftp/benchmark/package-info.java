@@ -0,0 +1,10 @@
+/**
+ * JMH benchmarks of the FTP test servers: startup time, first connection
+ * latency, TLS profiles, SSH algorithms and compression and transfer
+ * throughput. Run them with
+ * <code>mvn -Pbenchmark verify</code>.
+ * 
+ * @author drothauser
+ */
+package com.rothsmith.test.ftp.benchmark;
+
@@ -0,0 +1,208 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.apache.sshd.common.keyprovider.AbstractKeyPairProvider;
+
+/**
+ * SSH host key provider that hands out key pairs from a JVM-wide in-memory
+ * cache. Each {@link Algorithm} is generated at most once per JVM and then
+ * shared by every {@link SFtpTestServer}, so servers start quickly and never
+ * read or write key files in the current working directory.
+ *
+ * @author drothauser
+ *
+ */
+public class CachedHostKeyProvider
+        extends AbstractKeyPairProvider {
+
+	/**
+	 * Host key algorithms supported by the SSH server. Ed25519 host keys are
+	 * not available in this version of Apache SSHD.
+	 */
+	public enum Algorithm {
+
+		/**
+		 * 1024 bit RSA, fastest to generate.
+		 */
+		RSA_1024("RSA", "1024"),
+
+		/**
+		 * 2048 bit RSA, the default.
+		 */
+		RSA_2048("RSA", "2048"),
+
+		/**
+		 * 4096 bit RSA.
+		 */
+		RSA_4096("RSA", "4096"),
+
+		/**
+		 * ECDSA on NIST curve P-256.
+		 */
+		ECDSA_256("EC", "secp256r1"),
+
+		/**
+		 * ECDSA on NIST curve P-384.
+		 */
+		ECDSA_384("EC", "secp384r1"),
+
+		/**
+		 * ECDSA on NIST curve P-521.
+		 */
+		ECDSA_521("EC", "secp521r1");
+
+		/**
+		 * JCA key pair generator algorithm.
+		 */
+		private final String generatorAlgorithm;
+
+		/**
+		 * RSA key size or EC curve name.
+		 */
+		private final String parameter;
+
+		/**
+		 * Constructor for Algorithm.
+		 *
+		 * @param generatorAlgorithm
+		 *            JCA key pair generator algorithm
+		 * @param parameter
+		 *            RSA key size or EC curve name
+		 */
+		Algorithm(String generatorAlgorithm, String parameter) {
+			this.generatorAlgorithm = generatorAlgorithm;
+			this.parameter = parameter;
+		}
+
+		/**
+		 * Generate a new key pair for this algorithm.
+		 *
+		 * @return the new key pair
+		 * @throws GeneralSecurityException
+		 *             the algorithm is not supported by the JVM
+		 */
+		KeyPair generate() throws GeneralSecurityException {
+			KeyPairGenerator generator =
+			    KeyPairGenerator.getInstance(generatorAlgorithm);
+			if ("EC".equals(generatorAlgorithm)) {
+				generator.initialize(new ECGenParameterSpec(parameter));
+			} else {
+				generator.initialize(Integer.parseInt(parameter));
+			}
+			return generator.generateKeyPair();
+		}
+	}
+
+	/**
+	 * Host key algorithm used when none is specified.
+	 */
+	public static final Algorithm DEFAULT_ALGORITHM = Algorithm.RSA_2048;
+
+	/**
+	 * Key pairs generated so far, shared by the whole JVM.
+	 */
+	private static final Map<Algorithm, KeyPair> KEY_PAIRS =
+	    new EnumMap<Algorithm, KeyPair>(Algorithm.class);
+
+	/**
+	 * Lock guarding {@link #KEY_PAIRS}.
+	 */
+	private static final Object KEY_PAIRS_LOCK = new Object();
+
+	/**
+	 * Host key algorithm served by this provider.
+	 */
+	private final Algorithm algorithm;
+
+	/**
+	 * Constructor that serves a {@link #DEFAULT_ALGORITHM} host key.
+	 */
+	public CachedHostKeyProvider() {
+		this(DEFAULT_ALGORITHM);
+	}
+
+	/**
+	 * Constructor for CachedHostKeyProvider.
+	 *
+	 * @param algorithm
+	 *            host key algorithm to serve
+	 */
+	public CachedHostKeyProvider(Algorithm algorithm) {
+		super();
+		this.algorithm = algorithm;
+	}
+
+	/**
+	 * @return host key algorithm served by this provider
+	 */
+	public Algorithm getAlgorithm() {
+		return algorithm;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Iterable<KeyPair> loadKeys() {
+		try {
+			return Collections.singletonList(getKeyPair(algorithm));
+		} catch (FtpTestException e) {
+			throw new IllegalStateException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Return the cached key pair for an algorithm, generating it on first use.
+	 *
+	 * @param algorithm
+	 *            host key algorithm
+	 * @return the JVM-wide key pair for the algorithm
+	 * @throws FtpTestException
+	 *             the algorithm is not supported by the JVM
+	 */
+	public static KeyPair getKeyPair(Algorithm algorithm)
+	        throws FtpTestException {
+
+		synchronized (KEY_PAIRS_LOCK) {
+			KeyPair keyPair = KEY_PAIRS.get(algorithm);
+			if (keyPair == null) {
+				try {
+					keyPair = algorithm.generate();
+				} catch (GeneralSecurityException e) {
+					throw new FtpTestException("Could not generate " + algorithm
+					    + " host key: " + e, e);
+				}
+				KEY_PAIRS.put(algorithm, keyPair);
+			}
+			return keyPair;
+		}
+	}
+
+	/**
+	 * Generate the key pairs for the given algorithms ahead of time, e.g. from
+	 * a test suite's setup, so that no server start pays for key generation.
+	 *
+	 * @param algorithms
+	 *            host key algorithms to generate
+	 * @throws FtpTestException
+	 *             an algorithm is not supported by the JVM
+	 */
+	public static void preload(Algorithm... algorithms)
+	        throws FtpTestException {
+
+		for (Algorithm each : algorithms) {
+			getKeyPair(each);
+		}
+	}
+
+}
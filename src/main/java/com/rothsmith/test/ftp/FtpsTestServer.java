@@ -3,31 +3,73 @@
  */
 package com.rothsmith.test.ftp;
 
-import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.security.GeneralSecurityException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.apache.commons.io.IOUtils;
 import org.apache.ftpserver.ConnectionConfigFactory;
+import org.apache.ftpserver.DataConnectionConfiguration;
+import org.apache.ftpserver.DataConnectionConfigurationFactory;
 import org.apache.ftpserver.FtpServer;
 import org.apache.ftpserver.FtpServerFactory;
+import org.apache.ftpserver.filesystem.nativefs.NativeFileSystemFactory;
 import org.apache.ftpserver.ftplet.Authority;
+import org.apache.ftpserver.ftplet.FileSystemFactory;
 import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.Ftplet;
 import org.apache.ftpserver.ftplet.UserManager;
+import org.apache.ftpserver.impl.DefaultFtpServer;
+import org.apache.ftpserver.impl.FtpIoSession;
+import org.apache.ftpserver.impl.ServerDataConnectionFactory;
+import org.apache.ftpserver.listener.Listener;
 import org.apache.ftpserver.listener.ListenerFactory;
-import org.apache.ftpserver.ssl.SslConfigurationFactory;
 import org.apache.ftpserver.usermanager.PropertiesUserManagerFactory;
 import org.apache.ftpserver.usermanager.impl.BaseUser;
 import org.apache.ftpserver.usermanager.impl.WritePermission;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.rothsmith.test.ftp.checksum.UploadChecksums;
+import com.rothsmith.test.ftp.events.EventFtpFileSystemFactory;
+import com.rothsmith.test.ftp.events.FileEvent;
+import com.rothsmith.test.ftp.events.FileEvents;
+import com.rothsmith.test.ftp.memfs.MemoryFileSystem;
+import com.rothsmith.test.ftp.memfs.MemoryFtpFileSystemFactory;
+import com.rothsmith.test.ftp.memfs.MemorySnapshot;
+import com.rothsmith.test.ftp.metrics.FtpsMetricsFtplet;
+import com.rothsmith.test.ftp.metrics.FtpsMetricsSnapshot;
+import com.rothsmith.test.ftp.tls.SessionCachingSslConfiguration;
+import com.rothsmith.test.ftp.tls.TlsProfile;
+import com.rothsmith.test.ftp.wan.WanFtpFileSystemFactory;
+import com.rothsmith.test.ftp.wan.WanFtplet;
+import com.rothsmith.test.ftp.wan.WanLink;
+
 /**
  * Creates an Apache FTPS server instance for testing.
  * 
  * @author drothauser
  * 
  */
-public class FtpsTestServer {
+public class FtpsTestServer
+        implements TestServer {
 
 	/**
 	 * SLF4J Logger for FtpsTestServer.
@@ -36,9 +78,62 @@ public class FtpsTestServer {
 	    .getLogger(FtpsTestServer.class);
 
 	/**
-	 * Maximum number of concurrent logins.
+	 * Port number that lets the operating system pick a free port. Use
+	 * {@link #getPort()} after {@link #startServer()} to find out which one.
+	 */
+	public static final int EPHEMERAL_PORT = 0;
+
+	/**
+	 * Name of the listener.
+	 */
+	private static final String LISTENER_NAME = "default";
+
+	/**
+	 * Name of the metrics Ftplet.
+	 */
+	private static final String METRICS_FTPLET_NAME = "metrics";
+
+	/**
+	 * Name of the WAN emulation Ftplet.
+	 */
+	private static final String WAN_FTPLET_NAME = "wan";
+
+	/**
+	 * How long a stop waits for the listening socket to be closed in
+	 * milliseconds.
+	 */
+	private static final long PORT_RELEASE_MILLIS = 1000;
+
+	/**
+	 * Prefix of the JMX object name the metrics are registered under.
+	 */
+	private static final String METRICS_OBJECT_NAME_PREFIX =
+	    "com.rothsmith.test.ftp:type=FtpsTestServer,port=";
+
+	/**
+	 * Records what the server serves.
+	 */
+	private final FtpsMetricsFtplet metrics = new FtpsMetricsFtplet();
+
+	/**
+	 * JMX object name of the metrics while the server runs, else null.
+	 */
+	private volatile ObjectName metricsObjectName;
+
+	/**
+	 * Checksums of the uploads, recorded if the configuration enables them.
+	 */
+	private final UploadChecksums uploadChecksums = new UploadChecksums();
+
+	/**
+	 * Uploads, renames and deletes of the clients.
 	 */
-	private static final int MAX_LOGINS = 30;
+	private final FileEvents fileEvents = new FileEvents();
+
+	/**
+	 * TLS configuration of the control and data connections.
+	 */
+	private SessionCachingSslConfiguration sslConfiguration;
 
 	/**
 	 * FtpServer instance.
@@ -49,7 +144,7 @@ public class FtpsTestServer {
 	 * Constructor that initializes the FTP server.
 	 * 
 	 * @param port
-	 *            FTP server port number
+	 *            FTP server port number or {@link #EPHEMERAL_PORT}
 	 * @param keystoreType
 	 *            Keystore file type e.g. JKS, PKCS12
 	 * @param keystoreFilePath
@@ -69,16 +164,86 @@ public class FtpsTestServer {
 	    String keystoreFilePath, String keystorePassword, String username,
 	    String password, String ftproot) throws FtpTestException {
 
+		this(port, keystoreType, keystoreFilePath, keystorePassword, username,
+		    password, ftproot, null);
+	}
+
+	/**
+	 * Constructor that initializes the FTP server with a specific file system,
+	 * e.g. a {@link MemoryFtpFileSystemFactory} so that STOR/RETR never touch
+	 * the disk.
+	 * 
+	 * @param port
+	 *            FTP server port number or {@link #EPHEMERAL_PORT}
+	 * @param keystoreType
+	 *            Keystore file type e.g. JKS, PKCS12
+	 * @param keystoreFilePath
+	 *            Keystore file path
+	 * @param keystorePassword
+	 *            password for the keystore file
+	 * @param username
+	 *            FTP user
+	 * @param password
+	 *            FTP user password
+	 * @param ftproot
+	 *            FTP user root directory, relative to the file system
+	 * @param fileSystemFactory
+	 *            file system served to clients or null for the native file
+	 *            system
+	 * @throws FtpTestException
+	 *             possible error starting the server
+	 */
+	public FtpsTestServer(int port, String keystoreType,
+	    String keystoreFilePath, String keystorePassword, String username,
+	    String password, String ftproot, FileSystemFactory fileSystemFactory)
+	        throws FtpTestException {
+
+		this(port, keystoreType, keystoreFilePath, keystorePassword, username,
+		    password, ftproot, fileSystemFactory, new FtpsTestServerConfig());
+	}
+
+	/**
+	 * Constructor that initializes the FTP server with a specific file system
+	 * and tuning options such as connection limits and idle timeouts.
+	 * 
+	 * @param port
+	 *            FTP server port number or {@link #EPHEMERAL_PORT}
+	 * @param keystoreType
+	 *            Keystore file type e.g. JKS, PKCS12
+	 * @param keystoreFilePath
+	 *            Keystore file path
+	 * @param keystorePassword
+	 *            password for the keystore file
+	 * @param username
+	 *            FTP user
+	 * @param password
+	 *            FTP user password
+	 * @param ftproot
+	 *            FTP user root directory, relative to the file system
+	 * @param fileSystemFactory
+	 *            file system served to clients or null for the native file
+	 *            system
+	 * @param config
+	 *            server tuning options
+	 * @throws FtpTestException
+	 *             possible error starting the server
+	 */
+	public FtpsTestServer(int port, String keystoreType,
+	    String keystoreFilePath, String keystorePassword, String username,
+	    String password, String ftproot, FileSystemFactory fileSystemFactory,
+	    FtpsTestServerConfig config) throws FtpTestException {
+
 		ftpServer =
 		    createFtpsServer(port, keystoreType, keystoreFilePath,
-		        keystorePassword, username, password, ftproot);
+		        keystorePassword, username, password, ftproot,
+		        fileSystemFactory, config);
 	}
 
 	/**
 	 * Create an instance of a FTPS server (FTP over SSL)
 	 * 
 	 * @param port
-	 *            FTP server port number
+	 *            FTP server port number or {@link #EPHEMERAL_PORT}
 	 * @param keystoreType
 	 *            Keystore file type e.g. JKS, PKCS12
 	 * @param keystoreFilePath
@@ -91,6 +256,11 @@ public class FtpsTestServer {
 	 *            FTP user password
 	 * @param ftproot
 	 *            FTP user root directory
+	 * @param fileSystemFactory
+	 *            file system served to clients or null for the native file
+	 *            system
+	 * @param config
+	 *            server tuning options
 	 * 
 	 * @return {@link FtpServer} instance configured for FTPS (FTP over SSL).
 	 * @throws FtpTestException
@@ -98,31 +268,79 @@ public class FtpsTestServer {
 	 */
 	private FtpServer createFtpsServer(int port, String keystoreType,
 	    String keystoreFilePath, String keystorePassword, String username,
-	    String password, String ftproot) throws FtpTestException {
+	    String password, String ftproot, FileSystemFactory fileSystemFactory,
+	    FtpsTestServerConfig config) throws FtpTestException {
 
 		FtpServerFactory serverFactory = new FtpServerFactory();
+		// the server clears the map when it stops, so it must be mutable
+		Map<String, Ftplet> ftplets = new LinkedHashMap<String, Ftplet>();
+		uploadChecksums.setEnabled(config.isUploadChecksums());
+		FileSystemFactory fileSystem =
+		    new EventFtpFileSystemFactory(fileSystemFactory == null
+		        ? new NativeFileSystemFactory() : fileSystemFactory,
+		        fileEvents, uploadChecksums);
+		if (config.getWanEmulation() == null) {
+			serverFactory.setFileSystem(fileSystem);
+		} else {
+			// delay commands before they are timed by the metrics
+			WanLink link = new WanLink(config.getWanEmulation());
+			ftplets.put(WAN_FTPLET_NAME, new WanFtplet(link));
+			serverFactory.setFileSystem(new WanFtpFileSystemFactory(fileSystem,
+			    link));
+		}
+		ftplets.put(METRICS_FTPLET_NAME, metrics);
+		serverFactory.setFtplets(ftplets);
 
 		ConnectionConfigFactory connectionConfig =
 		    new ConnectionConfigFactory();
-		connectionConfig.setMaxLogins(MAX_LOGINS);
+		connectionConfig.setMaxLogins(config.getMaxLogins());
+		connectionConfig.setMaxThreads(config.getMaxThreads());
+		connectionConfig.setAnonymousLoginEnabled(config
+		    .isAnonymousLoginEnabled());
+		connectionConfig.setMaxAnonymousLogins(config.getMaxAnonymousLogins());
+		connectionConfig.setMaxLoginFailures(config.getMaxLoginFailures());
+		connectionConfig.setLoginFailureDelay(config.getLoginFailureDelay());
 		serverFactory.setConnectionConfig(connectionConfig
 		    .createConnectionConfig());
 
 		ListenerFactory factory = new ListenerFactory();
 		// set the port of the listener
 		factory.setPort(port);
+		factory.setIdleTimeout(config.getIdleTimeout());
+		factory.setDataConnectionConfiguration(
+		    createDataConnectionConfiguration(config));
 
-		// define SSL configuration
-		SslConfigurationFactory ssl = new SslConfigurationFactory();
-		ssl.setKeystoreType(keystoreType);
-		ssl.setKeystoreFile(new File(keystoreFilePath));
-		ssl.setKeystorePassword(keystorePassword);
-		// set the SSL configuration for the listener
-		factory.setSslConfiguration(ssl.createSslConfiguration());
-		factory.setImplicitSsl(false);
+		// set the SSL configuration for the listener; the keys are shared with
+		// every other server using the same keystore, the TLS sessions are not
+		TlsProfile profile = config.getSslProfile();
+		String[] protocols = config.getSslProtocols();
+		if (protocols == null && profile != null) {
+			protocols = profile.getProtocols();
+		}
+		String[] cipherSuites = config.getSslCipherSuites();
+		if (cipherSuites == null && profile != null) {
+			cipherSuites = profile.getCipherSuites();
+		}
+		sslConfiguration =
+		    new SessionCachingSslConfiguration(
+		        SslConfigurationCache.getSslConfiguration(keystoreType,
+		            keystoreFilePath, keystorePassword),
+		        config.getSslSessionReuse(), config.getSslSessionCacheSize(),
+		        config.getSslSessionTimeout(), protocols, cipherSuites);
+		try {
+			// fail now rather than on the first connection if none of the
+			// protocols or cipher suites is supported
+			sslConfiguration.getSSLContext();
+		} catch (GeneralSecurityException e) {
+			String message = "Invalid TLS configuration: " + e;
+			LOGGER.error(message, e);
+			throw new FtpTestException(message, e);
+		}
+		factory.setSslConfiguration(sslConfiguration);
+		factory.setImplicitSsl(config.isImplicitSsl());
 
 		// replace the default listener
-		serverFactory.addListener("default", factory.createListener());
+		serverFactory.addListener(LISTENER_NAME, factory.createListener());
 		PropertiesUserManagerFactory userManagerFactory =
 		    new PropertiesUserManagerFactory();
 
@@ -135,6 +353,7 @@ public class FtpsTestServer {
 		user.setName(username);
 		user.setPassword(password);
 		user.setHomeDirectory(ftproot);
+		user.setMaxIdleTime(config.getUserMaxIdleTime());
 		List<Authority> authorities = new ArrayList<Authority>();
 		authorities.add(new WritePermission());
 		user.setAuthorities(authorities);
@@ -151,12 +370,38 @@ public class FtpsTestServer {
 
 	}
 
+	/**
+	 * Create the data connection settings of the listener. Data connections
+	 * use the SSL configuration of the listener and are always protected in
+	 * implicit SSL mode.
+	 * 
+	 * @param config
+	 *            server tuning options
+	 * @return passive port range, addresses and idle timeout of the data
+	 *         connections
+	 */
+	private static DataConnectionConfiguration
+	        createDataConnectionConfiguration(FtpsTestServerConfig config) {
+
+		DataConnectionConfigurationFactory factory =
+		    new DataConnectionConfigurationFactory();
+		if (config.getPassivePorts() != null) {
+			factory.setPassivePorts(config.getPassivePorts());
+		}
+		factory.setPassiveAddress(config.getPassiveAddress());
+		factory.setPassiveExternalAddress(config.getPassiveExternalAddress());
+		factory.setIdleTime(config.getDataConnectionIdleTimeout());
+		factory.setImplicitSsl(config.isImplicitSsl());
+		return factory.createDataConnectionConfiguration();
+	}
+
 	/**
 	 * Start the server.
 	 * 
 	 * @throws FtpTestException
 	 *             Possible error starting the server
 	 */
+	@Override
 	public void startServer() throws FtpTestException {
 
 		try {
@@ -166,6 +411,7 @@ public class FtpsTestServer {
 			LOGGER.error(message, e);
 			throw new FtpTestException(message, e);
 		}
+		registerMetrics();
 	}
 
 	/**
@@ -174,7 +420,10 @@ public class FtpsTestServer {
 	 * @throws FtpTestException
 	 *             Possible error starting the server
 	 */
+	@Override
 	public void stopServer() throws FtpTestException {
+		unregisterMetrics();
+		int port = ftpServer.isStopped() ? 0 : getPort();
 		try {
 			ftpServer.stop();
 		} catch (Exception e) {
@@ -182,6 +431,201 @@ public class FtpsTestServer {
 			LOGGER.error(message, e);
 			throw new FtpTestException(message, e);
 		}
+		awaitPortRelease(port, System.nanoTime()
+		    + TimeUnit.MILLISECONDS.toNanos(PORT_RELEASE_MILLIS));
+	}
+
+	/**
+	 * Stop the server without waiting for its clients: open sessions are
+	 * closed at once and at most the timeout is spent on the teardown, which
+	 * otherwise waits up to five seconds for busy command threads. The
+	 * listening port is released first.
+	 * 
+	 * @param timeout
+	 *            maximum time to spend on the teardown
+	 * @param unit
+	 *            unit of the timeout
+	 * @return whether the teardown finished in time
+	 * @throws FtpTestException
+	 *             possible error stopping the server
+	 */
+	@Override
+	public boolean stopServer(long timeout, TimeUnit unit)
+	        throws FtpTestException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		unregisterMetrics();
+		int port = 0;
+		if (!ftpServer.isStopped()) {
+			port = getPort();
+			for (FtpIoSession session : getListener().getActiveSessions()) {
+				session.close(true);
+			}
+		}
+		Future<?> stopping =
+		    TestServers.getExecutor().submit(new Runnable() {
+			    @Override
+			    public void run() {
+				    ftpServer.stop();
+			    }
+		    });
+		try {
+			stopping.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+			return awaitPortRelease(port, deadline);
+		} catch (TimeoutException e) {
+			LOGGER.warn("FTPS server teardown still running after "
+			    + timeout + " " + unit.toString().toLowerCase(Locale.US));
+			return false;
+		} catch (ExecutionException e) {
+			String message = "Could not stop FTPS server: " + e.getCause();
+			LOGGER.error(message, e.getCause());
+			throw new FtpTestException(message, e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			String message = "Interrupted stopping FTPS server: " + e;
+			LOGGER.error(message, e);
+			throw new FtpTestException(message, e);
+		}
+	}
+
+	/**
+	 * Wait for the listening socket to be closed. The listener closes it
+	 * asynchronously after the server has stopped, so it may accept
+	 * connections for a moment. The port is tested by binding it, which does
+	 * not open a session.
+	 * 
+	 * @param port
+	 *            the listening port or 0 if the server was not running
+	 * @param deadline
+	 *            {@link System#nanoTime()} to give up at
+	 * @return whether the port was released before the deadline
+	 */
+	private static boolean awaitPortRelease(int port, long deadline) {
+		if (port == 0) {
+			return true;
+		}
+		while (!isPortFree(port)) {
+			if (System.nanoTime() - deadline >= 0) {
+				LOGGER.warn("FTPS server port " + port + " is still bound");
+				return false;
+			}
+			try {
+				Thread.sleep(1);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param port
+	 *            a local port
+	 * @return whether a server socket can be bound to the port
+	 */
+	private static boolean isPortFree(int port) {
+		ServerSocket socket = null;
+		try {
+			socket = new ServerSocket();
+			socket.setReuseAddress(true);
+			socket.bind(new InetSocketAddress(port));
+			return true;
+		} catch (IOException e) {
+			return false;
+		} finally {
+			IOUtils.closeQuietly(socket);
+		}
+	}
+
+	/**
+	 * Start the server in the background, e.g. in parallel with other
+	 * servers. See {@link TestServers}.
+	 * 
+	 * @return a future completed with this server once it accepts
+	 *         connections
+	 */
+	public CompletableFuture<FtpsTestServer> start() {
+		return TestServers.start(this);
+	}
+
+	/**
+	 * Stop the server in the background. See {@link TestServers}.
+	 * 
+	 * @return a future completed once the server has stopped
+	 */
+	public CompletableFuture<Void> stop() {
+		return TestServers.stop(this);
+	}
+
+	/**
+	 * Register the metrics with the platform MBean server under the name
+	 * returned by {@link #getMetricsObjectName()}. A failure is logged only,
+	 * the metrics stay available through {@link #getMetrics()}.
+	 */
+	private void registerMetrics() {
+		try {
+			ObjectName objectName =
+			    new ObjectName(METRICS_OBJECT_NAME_PREFIX + getPort());
+			ManagementFactory.getPlatformMBeanServer().registerMBean(metrics,
+			    objectName);
+			metricsObjectName = objectName;
+		} catch (JMException e) {
+			LOGGER.warn("Could not register FTPS server metrics: " + e, e);
+		}
+	}
+
+	/**
+	 * Unregister the metrics from the platform MBean server.
+	 */
+	private void unregisterMetrics() {
+		ObjectName objectName = metricsObjectName;
+		if (objectName == null) {
+			return;
+		}
+		metricsObjectName = null;
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(
+			    objectName);
+		} catch (JMException e) {
+			LOGGER.warn("Could not unregister FTPS server metrics: " + e, e);
+		}
+	}
+
+	/**
+	 * Return what the server has served so far: per command counts and
+	 * latencies, bytes in and out, sessions and data connection setup times.
+	 * 
+	 * @return snapshot of the server side metrics
+	 */
+	public FtpsMetricsSnapshot getMetrics() {
+		return metrics.getSnapshot();
+	}
+
+	/**
+	 * Reset the command, byte and total session counters of the metrics and
+	 * the TLS handshake statistics, e.g. after warming up.
+	 */
+	public void resetMetrics() {
+		metrics.reset();
+		sslConfiguration.resetStatistics();
+	}
+
+	/**
+	 * @return JMX object name of the metrics, of the form
+	 *         <code>com.rothsmith.test.ftp:type=FtpsTestServer,port=2221</code>
+	 *         , or null while the server is not running
+	 */
+	public ObjectName getMetricsObjectName() {
+		return metricsObjectName;
+	}
+
+	/**
+	 * @return TLS configuration of the control and data connections, which
+	 *         also counts full and resumed data connection handshakes and
+	 *         times all handshakes
+	 */
+	public SessionCachingSslConfiguration getSslConfiguration() {
+		return sslConfiguration;
 	}
 
 	/**
@@ -191,4 +635,202 @@ public class FtpsTestServer {
 		return ftpServer;
 	}
 
+	/**
+	 * Return the control port the server listens on. When the server was
+	 * created with {@link #EPHEMERAL_PORT} this is the port picked by the
+	 * operating system, available once {@link #startServer()} has returned.
+	 * 
+	 * @return the bound control connection port
+	 */
+	@Override
+	public int getPort() {
+		return getListener().getPort();
+	}
+
+	/**
+	 * Return the passive mode data ports most recently bound for the connected
+	 * clients. Passive ports are picked by the operating system unless
+	 * {@link FtpsTestServerConfig#setPassivePorts(String)} restricts them.
+	 * 
+	 * @return the bound passive data ports
+	 */
+	public Set<Integer> getPassivePorts() {
+		Set<Integer> ports = new TreeSet<Integer>();
+		for (FtpIoSession session : getListener().getActiveSessions()) {
+			ServerDataConnectionFactory dataConnection =
+			    session.getDataConnection();
+			if (dataConnection != null && dataConnection.getPort() > 0) {
+				ports.add(dataConnection.getPort());
+			}
+		}
+		return ports;
+	}
+
+	/**
+	 * @return the FTPS listener
+	 */
+	private Listener getListener() {
+		return ((DefaultFtpServer) ftpServer).getListener(LISTENER_NAME);
+	}
+
+	/**
+	 * @return the file system served to clients
+	 */
+	public FileSystemFactory getFileSystemFactory() {
+		FileSystemFactory fileSystem =
+		    ((DefaultFtpServer) ftpServer).getFileSystem();
+		if (fileSystem instanceof WanFtpFileSystemFactory) {
+			fileSystem = ((WanFtpFileSystemFactory) fileSystem).getFileSystem();
+		}
+		return fileSystem instanceof EventFtpFileSystemFactory
+		    ? ((EventFtpFileSystemFactory) fileSystem).getFileSystem()
+		    : fileSystem;
+	}
+
+	/**
+	 * Return the checksums of the files uploaded since the server was created
+	 * or the checksums were cleared, keyed by the path the client sees. Empty
+	 * unless enabled with {@link FtpsTestServerConfig#setUploadChecksums}.
+	 * 
+	 * @return checksums of the uploads
+	 */
+	public UploadChecksums getUploadChecksums() {
+		return uploadChecksums;
+	}
+
+	/**
+	 * Wait for an upload to a path to finish, i.e. for the server to close the
+	 * file, instead of polling for it.
+	 * 
+	 * @param path
+	 *            path of the file as the client sees it, e.g. /dir/data.txt
+	 * @return a future completed with the upload event, at once if the latest
+	 *         event of the path is an upload; see {@link FileEvents}
+	 */
+	public CompletableFuture<FileEvent> awaitTransfer(String path) {
+		return fileEvents.await(path, FileEvent.Type.UPLOADED);
+	}
+
+	/**
+	 * Wait for an upload to a path to finish, blocking up to a timeout.
+	 * 
+	 * @param path
+	 *            path of the file as the client sees it, e.g. /dir/data.txt
+	 * @param timeout
+	 *            maximum time to wait
+	 * @param unit
+	 *            unit of the timeout
+	 * @return the upload event
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 * @throws TimeoutException
+	 *             if the upload did not finish in time
+	 */
+	public FileEvent awaitTransfer(String path, long timeout, TimeUnit unit)
+	        throws InterruptedException, TimeoutException {
+		return fileEvents.await(path, timeout, unit, FileEvent.Type.UPLOADED);
+	}
+
+	/**
+	 * Wait for a path to be uploaded, renamed from or to, or deleted.
+	 * 
+	 * @param path
+	 *            path of the file as the client sees it, e.g. /dir/data.txt
+	 * @param types
+	 *            events to wait for, none for any event
+	 * @return a future completed with the event, at once if the latest event
+	 *         of the path is one of the types; see {@link FileEvents}
+	 */
+	public CompletableFuture<FileEvent> awaitFile(String path,
+	    FileEvent.Type... types) {
+		return fileEvents.await(path, types);
+	}
+
+	/**
+	 * Wait for a path to be uploaded, renamed from or to, or deleted, blocking
+	 * up to a timeout.
+	 * 
+	 * @param path
+	 *            path of the file as the client sees it, e.g. /dir/data.txt
+	 * @param timeout
+	 *            maximum time to wait
+	 * @param unit
+	 *            unit of the timeout
+	 * @param types
+	 *            events to wait for, none for any event
+	 * @return the event
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 * @throws TimeoutException
+	 *             if no such event happened in time
+	 */
+	public FileEvent awaitFile(String path, long timeout, TimeUnit unit,
+	    FileEvent.Type... types) throws InterruptedException,
+	        TimeoutException {
+		return fileEvents.await(path, timeout, unit, types);
+	}
+
+	/**
+	 * @return the file events of the clients, e.g. to clear them between
+	 *         tests
+	 */
+	public FileEvents getFileEvents() {
+		return fileEvents;
+	}
+
+	/**
+	 * @return the in-memory file system served to clients or null if the
+	 *         server uses another file system
+	 */
+	public MemoryFileSystem getMemoryFileSystem() {
+		FileSystemFactory fileSystem = getFileSystemFactory();
+		return fileSystem instanceof MemoryFtpFileSystemFactory
+		    ? ((MemoryFtpFileSystemFactory) fileSystem).getFileSystem() : null;
+	}
+
+	/**
+	 * Take a snapshot of the in-memory file system served to clients, e.g. of
+	 * the fixture files a test class starts from. See
+	 * {@link MemoryFileSystem#snapshot()}.
+	 * 
+	 * @return the snapshot
+	 * @throws FtpTestException
+	 *             if the server does not use an in-memory file system
+	 */
+	public MemorySnapshot snapshot() throws FtpTestException {
+		return requireMemoryFileSystem().snapshot();
+	}
+
+	/**
+	 * Put the in-memory file system served to clients back the way it was
+	 * when the snapshot was taken. The file events and upload checksums are
+	 * not cleared.
+	 * 
+	 * @param snapshot
+	 *            a snapshot taken with {@link #snapshot()}
+	 * @throws FtpTestException
+	 *             if the server does not use an in-memory file system
+	 */
+	public void restore(MemorySnapshot snapshot) throws FtpTestException {
+		requireMemoryFileSystem().restore(snapshot);
+	}
+
+	/**
+	 * @return the in-memory file system served to clients
+	 * @throws FtpTestException
+	 *             if the server does not use an in-memory file system
+	 */
+	private MemoryFileSystem requireMemoryFileSystem()
+	        throws FtpTestException {
+		MemoryFileSystem fileSystem = getMemoryFileSystem();
+		if (fileSystem == null) {
+			String message =
+			    "Snapshots need an in-memory file system: "
+			        + getFileSystemFactory();
+			LOGGER.error(message);
+			throw new FtpTestException(message);
+		}
+		return fileSystem;
+	}
+
 }
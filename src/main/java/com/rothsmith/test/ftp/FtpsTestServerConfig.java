@@ -0,0 +1,511 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp;
+
+import com.rothsmith.test.ftp.tls.TlsProfile;
+import com.rothsmith.test.ftp.tls.TlsSessionReuse;
+import com.rothsmith.test.ftp.wan.WanEmulation;
+
+/**
+ * Tuning options of an {@link FtpsTestServer}. The defaults match the
+ * settings the server has always used; raise the limits to drive hundreds or
+ * thousands of concurrent sessions against one server.
+ * <p>
+ * The number of MINA I/O processors is fixed by Apache FtpServer to the
+ * number of available processors; {@link #setMaxThreads(int)} sizes the pool
+ * that executes FTP commands.
+ * </p>
+ *
+ * @author drothauser
+ *
+ */
+public class FtpsTestServerConfig {
+
+	/**
+	 * Default maximum number of concurrent logins.
+	 */
+	public static final int DEFAULT_MAX_LOGINS = 30;
+
+	/**
+	 * Default maximum number of concurrent anonymous logins.
+	 */
+	public static final int DEFAULT_MAX_ANONYMOUS_LOGINS = 10;
+
+	/**
+	 * Default number of failed logins before a client is disconnected.
+	 */
+	public static final int DEFAULT_MAX_LOGIN_FAILURES = 3;
+
+	/**
+	 * Default delay after a failed login in milliseconds.
+	 */
+	public static final int DEFAULT_LOGIN_FAILURE_DELAY = 500;
+
+	/**
+	 * Default control connection idle timeout in seconds.
+	 */
+	public static final int DEFAULT_IDLE_TIMEOUT = 300;
+
+	/**
+	 * Default data connection idle timeout in seconds.
+	 */
+	public static final int DEFAULT_DATA_CONNECTION_IDLE_TIMEOUT = 300;
+
+	/**
+	 * Maximum number of concurrent logins.
+	 */
+	private int maxLogins = DEFAULT_MAX_LOGINS;
+
+	/**
+	 * Size of the command execution pool, 0 to derive it from maxLogins.
+	 */
+	private int maxThreads;
+
+	/**
+	 * Whether anonymous logins are allowed.
+	 */
+	private boolean anonymousLoginEnabled = true;
+
+	/**
+	 * Maximum number of concurrent anonymous logins.
+	 */
+	private int maxAnonymousLogins = DEFAULT_MAX_ANONYMOUS_LOGINS;
+
+	/**
+	 * Number of failed logins before a client is disconnected.
+	 */
+	private int maxLoginFailures = DEFAULT_MAX_LOGIN_FAILURES;
+
+	/**
+	 * Delay after a failed login in milliseconds.
+	 */
+	private int loginFailureDelay = DEFAULT_LOGIN_FAILURE_DELAY;
+
+	/**
+	 * Control connection idle timeout in seconds, 0 for none.
+	 */
+	private int idleTimeout = DEFAULT_IDLE_TIMEOUT;
+
+	/**
+	 * Idle time in seconds after which the test user is logged out, 0 for
+	 * none.
+	 */
+	private int userMaxIdleTime;
+
+	/**
+	 * Ports offered for passive data connections, e.g. "2300-2399", or null
+	 * to let the operating system pick them.
+	 */
+	private String passivePorts;
+
+	/**
+	 * Local address passive data connections are bound to or null for the
+	 * address of the control connection.
+	 */
+	private String passiveAddress;
+
+	/**
+	 * Address announced to clients in PASV replies or null for the bound
+	 * passive address.
+	 */
+	private String passiveExternalAddress;
+
+	/**
+	 * Data connection idle timeout in seconds, 0 for none.
+	 */
+	private int dataConnectionIdleTimeout =
+	    DEFAULT_DATA_CONNECTION_IDLE_TIMEOUT;
+
+	/**
+	 * Whether clients start TLS right after connecting instead of with AUTH.
+	 */
+	private boolean implicitSsl;
+
+	/**
+	 * Whether data connections may or must resume the TLS session of their
+	 * control connection.
+	 */
+	private TlsSessionReuse sslSessionReuse = TlsSessionReuse.ALLOWED;
+
+	/**
+	 * Maximum number of cached TLS sessions, 0 for the JSSE default.
+	 */
+	private int sslSessionCacheSize;
+
+	/**
+	 * Lifetime of cached TLS sessions in seconds, 0 for the JSSE default.
+	 */
+	private int sslSessionTimeout;
+
+	/**
+	 * Named protocols and cipher suites or null for the JVM defaults.
+	 */
+	private TlsProfile sslProfile;
+
+	/**
+	 * Protocols overriding those of the profile or null.
+	 */
+	private String[] sslProtocols;
+
+	/**
+	 * Cipher suites overriding those of the profile or null.
+	 */
+	private String[] sslCipherSuites;
+
+	/**
+	 * Emulated link to the clients or null for full loopback speed.
+	 */
+	private WanEmulation wanEmulation;
+
+	/**
+	 * Whether to compute the checksums of uploads as they are written.
+	 */
+	private boolean uploadChecksums;
+
+	/**
+	 * @return maximum number of concurrent logins
+	 */
+	public int getMaxLogins() {
+		return maxLogins;
+	}
+
+	/**
+	 * @param maxLogins
+	 *            maximum number of concurrent logins
+	 */
+	public void setMaxLogins(int maxLogins) {
+		this.maxLogins = maxLogins;
+	}
+
+	/**
+	 * @return size of the command execution pool, 0 to derive it from the
+	 *         maximum number of logins
+	 */
+	public int getMaxThreads() {
+		return maxThreads;
+	}
+
+	/**
+	 * @param maxThreads
+	 *            size of the command execution pool, 0 to derive it from the
+	 *            maximum number of logins
+	 */
+	public void setMaxThreads(int maxThreads) {
+		this.maxThreads = maxThreads;
+	}
+
+	/**
+	 * @return whether anonymous logins are allowed
+	 */
+	public boolean isAnonymousLoginEnabled() {
+		return anonymousLoginEnabled;
+	}
+
+	/**
+	 * @param anonymousLoginEnabled
+	 *            whether anonymous logins are allowed
+	 */
+	public void setAnonymousLoginEnabled(boolean anonymousLoginEnabled) {
+		this.anonymousLoginEnabled = anonymousLoginEnabled;
+	}
+
+	/**
+	 * @return maximum number of concurrent anonymous logins
+	 */
+	public int getMaxAnonymousLogins() {
+		return maxAnonymousLogins;
+	}
+
+	/**
+	 * @param maxAnonymousLogins
+	 *            maximum number of concurrent anonymous logins
+	 */
+	public void setMaxAnonymousLogins(int maxAnonymousLogins) {
+		this.maxAnonymousLogins = maxAnonymousLogins;
+	}
+
+	/**
+	 * @return number of failed logins before a client is disconnected
+	 */
+	public int getMaxLoginFailures() {
+		return maxLoginFailures;
+	}
+
+	/**
+	 * @param maxLoginFailures
+	 *            number of failed logins before a client is disconnected
+	 */
+	public void setMaxLoginFailures(int maxLoginFailures) {
+		this.maxLoginFailures = maxLoginFailures;
+	}
+
+	/**
+	 * @return delay after a failed login in milliseconds
+	 */
+	public int getLoginFailureDelay() {
+		return loginFailureDelay;
+	}
+
+	/**
+	 * @param loginFailureDelay
+	 *            delay after a failed login in milliseconds
+	 */
+	public void setLoginFailureDelay(int loginFailureDelay) {
+		this.loginFailureDelay = loginFailureDelay;
+	}
+
+	/**
+	 * @return control connection idle timeout in seconds, 0 for none
+	 */
+	public int getIdleTimeout() {
+		return idleTimeout;
+	}
+
+	/**
+	 * @param idleTimeout
+	 *            control connection idle timeout in seconds, 0 for none
+	 */
+	public void setIdleTimeout(int idleTimeout) {
+		this.idleTimeout = idleTimeout;
+	}
+
+	/**
+	 * @return idle time in seconds after which the test user is logged out,
+	 *         0 for none
+	 */
+	public int getUserMaxIdleTime() {
+		return userMaxIdleTime;
+	}
+
+	/**
+	 * @param userMaxIdleTime
+	 *            idle time in seconds after which the test user is logged
+	 *            out, 0 for none
+	 */
+	public void setUserMaxIdleTime(int userMaxIdleTime) {
+		this.userMaxIdleTime = userMaxIdleTime;
+	}
+
+	/**
+	 * @return ports offered for passive data connections, e.g. "2300-2399",
+	 *         or null to let the operating system pick them
+	 */
+	public String getPassivePorts() {
+		return passivePorts;
+	}
+
+	/**
+	 * Set the ports offered for passive data connections in Apache FtpServer
+	 * syntax: single ports and ranges separated by commas, e.g.
+	 * "2300-2399,2500". Each port serves one passive transfer at a time, so
+	 * the range limits how many clients can transfer concurrently; a PASV or
+	 * EPSV command finding no free port fails with reply 425.
+	 * 
+	 * @param passivePorts
+	 *            the ports or null to let the operating system pick them
+	 */
+	public void setPassivePorts(String passivePorts) {
+		this.passivePorts = passivePorts;
+	}
+
+	/**
+	 * @return local address passive data connections are bound to or null for
+	 *         the address of the control connection
+	 */
+	public String getPassiveAddress() {
+		return passiveAddress;
+	}
+
+	/**
+	 * @param passiveAddress
+	 *            local address passive data connections are bound to or null
+	 *            for the address of the control connection
+	 */
+	public void setPassiveAddress(String passiveAddress) {
+		this.passiveAddress = passiveAddress;
+	}
+
+	/**
+	 * @return address announced to clients in PASV replies or null for the
+	 *         bound passive address
+	 */
+	public String getPassiveExternalAddress() {
+		return passiveExternalAddress;
+	}
+
+	/**
+	 * @param passiveExternalAddress
+	 *            address announced to clients in PASV replies, e.g. of a NAT
+	 *            gateway or container host, or null for the bound passive
+	 *            address
+	 */
+	public void setPassiveExternalAddress(String passiveExternalAddress) {
+		this.passiveExternalAddress = passiveExternalAddress;
+	}
+
+	/**
+	 * @return data connection idle timeout in seconds, 0 for none
+	 */
+	public int getDataConnectionIdleTimeout() {
+		return dataConnectionIdleTimeout;
+	}
+
+	/**
+	 * @param dataConnectionIdleTimeout
+	 *            data connection idle timeout in seconds, 0 for none
+	 */
+	public void setDataConnectionIdleTimeout(int dataConnectionIdleTimeout) {
+		this.dataConnectionIdleTimeout = dataConnectionIdleTimeout;
+	}
+
+	/**
+	 * @return whether clients start TLS right after connecting instead of
+	 *         with AUTH
+	 */
+	public boolean isImplicitSsl() {
+		return implicitSsl;
+	}
+
+	/**
+	 * Choose implicit FTPS, where clients start TLS right after connecting
+	 * and data connections are always protected, instead of explicit FTPS,
+	 * where clients send AUTH TLS first.
+	 * 
+	 * @param implicitSsl
+	 *            whether clients start TLS right after connecting
+	 */
+	public void setImplicitSsl(boolean implicitSsl) {
+		this.implicitSsl = implicitSsl;
+	}
+
+	/**
+	 * @return whether data connections may or must resume the TLS session of
+	 *         their control connection
+	 */
+	public TlsSessionReuse getSslSessionReuse() {
+		return sslSessionReuse;
+	}
+
+	/**
+	 * @param sslSessionReuse
+	 *            whether data connections may or must resume the TLS session
+	 *            of their control connection
+	 */
+	public void setSslSessionReuse(TlsSessionReuse sslSessionReuse) {
+		this.sslSessionReuse = sslSessionReuse;
+	}
+
+	/**
+	 * @return maximum number of cached TLS sessions, 0 for the JSSE default
+	 */
+	public int getSslSessionCacheSize() {
+		return sslSessionCacheSize;
+	}
+
+	/**
+	 * @param sslSessionCacheSize
+	 *            maximum number of cached TLS sessions, 0 for the JSSE default
+	 */
+	public void setSslSessionCacheSize(int sslSessionCacheSize) {
+		this.sslSessionCacheSize = sslSessionCacheSize;
+	}
+
+	/**
+	 * @return lifetime of cached TLS sessions in seconds, 0 for the JSSE
+	 *         default
+	 */
+	public int getSslSessionTimeout() {
+		return sslSessionTimeout;
+	}
+
+	/**
+	 * @param sslSessionTimeout
+	 *            lifetime of cached TLS sessions in seconds, 0 for the JSSE
+	 *            default
+	 */
+	public void setSslSessionTimeout(int sslSessionTimeout) {
+		this.sslSessionTimeout = sslSessionTimeout;
+	}
+
+	/**
+	 * @return named protocols and cipher suites or null for the JVM defaults
+	 */
+	public TlsProfile getSslProfile() {
+		return sslProfile;
+	}
+
+	/**
+	 * @param sslProfile
+	 *            named protocols and cipher suites or null for the JVM
+	 *            defaults
+	 */
+	public void setSslProfile(TlsProfile sslProfile) {
+		this.sslProfile = sslProfile;
+	}
+
+	/**
+	 * @return protocols overriding those of the profile or null
+	 */
+	public String[] getSslProtocols() {
+		return sslProtocols == null ? null : sslProtocols.clone();
+	}
+
+	/**
+	 * @param sslProtocols
+	 *            protocols overriding those of the profile, e.g. TLSv1.2, or
+	 *            null
+	 */
+	public void setSslProtocols(String... sslProtocols) {
+		this.sslProtocols = sslProtocols == null ? null : sslProtocols.clone();
+	}
+
+	/**
+	 * @return cipher suites overriding those of the profile or null
+	 */
+	public String[] getSslCipherSuites() {
+		return sslCipherSuites == null ? null : sslCipherSuites.clone();
+	}
+
+	/**
+	 * @param sslCipherSuites
+	 *            cipher suites overriding those of the profile in order of
+	 *            preference or null
+	 */
+	public void setSslCipherSuites(String... sslCipherSuites) {
+		this.sslCipherSuites =
+		    sslCipherSuites == null ? null : sslCipherSuites.clone();
+	}
+
+	/**
+	 * @return emulated link to the clients or null for full loopback speed
+	 */
+	public WanEmulation getWanEmulation() {
+		return wanEmulation;
+	}
+
+	/**
+	 * @param wanEmulation
+	 *            emulated link to the clients or null for full loopback speed
+	 */
+	public void setWanEmulation(WanEmulation wanEmulation) {
+		this.wanEmulation = wanEmulation;
+	}
+
+	/**
+	 * @return whether to compute the checksums of uploads as they are written
+	 */
+	public boolean isUploadChecksums() {
+		return uploadChecksums;
+	}
+
+	/**
+	 * @param uploadChecksums
+	 *            whether to compute the SHA-256 and CRC-32C of uploads as they
+	 *            are written, see {@link FtpsTestServer#getUploadChecksums()}
+	 */
+	public void setUploadChecksums(boolean uploadChecksums) {
+		this.uploadChecksums = uploadChecksums;
+	}
+
+}
@@ -4,15 +4,24 @@
 package com.rothsmith.test.ftp;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.URL;
+import java.util.Locale;
 import java.util.Properties;
 
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.ftpserver.ftplet.FileSystemFactory;
 import org.apache.ftpserver.ftplet.FtpException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.rothsmith.properties.PropertyFileInitializer;
+import com.rothsmith.test.ftp.memfs.MemoryFileSystem;
+import com.rothsmith.test.ftp.memfs.MemoryFtpFileSystemFactory;
+import com.rothsmith.test.ftp.tls.TlsProfile;
+import com.rothsmith.test.ftp.tls.TlsSessionReuse;
+import com.rothsmith.test.ftp.wan.WanEmulation;
 
 /**
  * Convenience methods for running FTPS tests.
@@ -28,6 +37,11 @@ public final class FtpsTestUtils {
 	private static final Logger LOGGER = LoggerFactory
 	    .getLogger(FtpsTestUtils.class);
 
+	/**
+	 * Parts of a generated file entry with a seed: path, size and seed.
+	 */
+	private static final int GENERATED_SEEDED_PARTS = 3;
+
 	/**
 	 * Private constructor to thwart instantiation of a utility class.
 	 */
@@ -64,7 +78,8 @@ public final class FtpsTestUtils {
 			        .get("keystore.file"));
 			String storePass = (String) properties.get("keystore.password");
 			return new FtpsTestServer(port, storeType, storePath, storePass,
-			    user, password, homedir);
+			    user, password, homedir, createFileSystemFactory(properties),
+			    createServerConfig(properties));
 
 		} catch (org.apache.ftpserver.ftplet.FtpException e) {
 			String message = "Unable to configure FtpsTestServer: " + e;
@@ -73,6 +88,243 @@ public final class FtpsTestUtils {
 		}
 	}
 
+	/**
+	 * Create the FTPS test server tuning options from the optional properties
+	 * below; missing properties keep the {@link FtpsTestServerConfig}
+	 * defaults:
+	 * <ul>
+	 * <li>ftp.max.logins - maximum number of concurrent logins</li>
+	 * <li>ftp.max.threads - size of the command execution pool</li>
+	 * <li>ftp.anonymous.enabled - whether anonymous logins are allowed</li>
+	 * <li>ftp.max.anonymous.logins - maximum number of concurrent anonymous
+	 * logins</li>
+	 * <li>ftp.max.login.failures - failed logins before disconnecting</li>
+	 * <li>ftp.login.failure.delay - delay after a failed login in
+	 * milliseconds</li>
+	 * <li>ftp.idle.timeout - control connection idle timeout in seconds</li>
+	 * <li>ftp.user.idle.timeout - idle time in seconds after which the user
+	 * is logged out</li>
+	 * <li>ftp.passive.ports - passive data ports, e.g. 2300-2399</li>
+	 * <li>ftp.passive.address - local address of passive data connections</li>
+	 * <li>ftp.passive.external.address - address announced in PASV
+	 * replies</li>
+	 * <li>ftp.data.idle.timeout - data connection idle timeout in
+	 * seconds</li>
+	 * <li>ftp.implicit.ssl - true for implicit instead of explicit FTPS</li>
+	 * <li>ftp.ssl.session.reuse - whether data connections resume the TLS
+	 * session of the control connection: disabled, allowed or required</li>
+	 * <li>ftp.ssl.session.cache.size - maximum number of cached TLS
+	 * sessions</li>
+	 * <li>ftp.ssl.session.timeout - lifetime of cached TLS sessions in
+	 * seconds</li>
+	 * <li>ftp.ssl.profile - named TLS protocols and cipher suites: fast,
+	 * compat or strict</li>
+	 * <li>ftp.ssl.protocols - comma separated TLS protocols overriding those
+	 * of the profile, e.g. TLSv1.3,TLSv1.2</li>
+	 * <li>ftp.ssl.cipher.suites - comma separated cipher suites overriding
+	 * those of the profile, in order of preference</li>
+	 * <li>wan.latency - emulated one way latency in milliseconds</li>
+	 * <li>wan.jitter - emulated random extra latency in milliseconds</li>
+	 * <li>wan.session.bandwidth - emulated bandwidth per session and
+	 * direction in bytes per second</li>
+	 * <li>wan.global.bandwidth - emulated bandwidth of all sessions per
+	 * direction in bytes per second</li>
+	 * <li>ftp.upload.checksums - true to compute the SHA-256 and CRC-32C of
+	 * uploads as they are written</li>
+	 * </ul>
+	 * WAN emulation is enabled when any of the wan properties is set.
+	 * 
+	 * @param properties
+	 *            FTPS test properties
+	 * @return the server tuning options
+	 */
+	private static FtpsTestServerConfig createServerConfig(
+	    Properties properties) {
+
+		FtpsTestServerConfig config = new FtpsTestServerConfig();
+		config.setMaxLogins(NumberUtils.toInt(
+		    properties.getProperty("ftp.max.logins"), config.getMaxLogins()));
+		config.setMaxThreads(NumberUtils.toInt(
+		    properties.getProperty("ftp.max.threads"), config.getMaxThreads()));
+		config.setAnonymousLoginEnabled(Boolean.parseBoolean(properties
+		    .getProperty("ftp.anonymous.enabled",
+		        String.valueOf(config.isAnonymousLoginEnabled()))));
+		config.setMaxAnonymousLogins(NumberUtils.toInt(
+		    properties.getProperty("ftp.max.anonymous.logins"),
+		    config.getMaxAnonymousLogins()));
+		config.setMaxLoginFailures(NumberUtils.toInt(
+		    properties.getProperty("ftp.max.login.failures"),
+		    config.getMaxLoginFailures()));
+		config.setLoginFailureDelay(NumberUtils.toInt(
+		    properties.getProperty("ftp.login.failure.delay"),
+		    config.getLoginFailureDelay()));
+		config.setIdleTimeout(NumberUtils.toInt(
+		    properties.getProperty("ftp.idle.timeout"),
+		    config.getIdleTimeout()));
+		config.setUserMaxIdleTime(NumberUtils.toInt(
+		    properties.getProperty("ftp.user.idle.timeout"),
+		    config.getUserMaxIdleTime()));
+		config.setPassivePorts(properties.getProperty("ftp.passive.ports"));
+		config.setPassiveAddress(properties.getProperty("ftp.passive.address"));
+		config.setPassiveExternalAddress(properties
+		    .getProperty("ftp.passive.external.address"));
+		config.setDataConnectionIdleTimeout(NumberUtils.toInt(
+		    properties.getProperty("ftp.data.idle.timeout"),
+		    config.getDataConnectionIdleTimeout()));
+		config.setImplicitSsl(Boolean.parseBoolean(properties.getProperty(
+		    "ftp.implicit.ssl", String.valueOf(config.isImplicitSsl()))));
+		config.setSslSessionReuse(TlsSessionReuse.valueOf(properties
+		    .getProperty("ftp.ssl.session.reuse",
+		        config.getSslSessionReuse().name()).toUpperCase(Locale.US)));
+		config.setSslSessionCacheSize(NumberUtils.toInt(
+		    properties.getProperty("ftp.ssl.session.cache.size"),
+		    config.getSslSessionCacheSize()));
+		config.setSslSessionTimeout(NumberUtils.toInt(
+		    properties.getProperty("ftp.ssl.session.timeout"),
+		    config.getSslSessionTimeout()));
+		String profile = properties.getProperty("ftp.ssl.profile");
+		if (StringUtils.isNotBlank(profile)) {
+			config.setSslProfile(TlsProfile.valueOf(profile.trim().toUpperCase(
+			    Locale.US)));
+		}
+		config.setSslProtocols(splitList(properties
+		    .getProperty("ftp.ssl.protocols")));
+		config.setSslCipherSuites(splitList(properties
+		    .getProperty("ftp.ssl.cipher.suites")));
+		config.setWanEmulation(createWanEmulation(properties));
+		config.setUploadChecksums(Boolean.parseBoolean(properties
+		    .getProperty("ftp.upload.checksums",
+		        String.valueOf(config.isUploadChecksums()))));
+		return config;
+	}
+
+	/**
+	 * Split a comma separated property value.
+	 *
+	 * @param value
+	 *            property value or null
+	 * @return the trimmed, non-empty elements or null if there are none
+	 */
+	private static String[] splitList(String value) {
+
+		String[] elements = StringUtils.split(value, ", ");
+		return elements == null || elements.length == 0 ? null : elements;
+	}
+
+	/**
+	 * Create the emulated link from the "wan" properties.
+	 * 
+	 * @param properties
+	 *            FTPS test properties
+	 * @return the emulated link or null if no wan property is set
+	 */
+	private static WanEmulation createWanEmulation(Properties properties) {
+
+		if (properties.getProperty("wan.latency") == null
+		    && properties.getProperty("wan.jitter") == null
+		    && properties.getProperty("wan.session.bandwidth") == null
+		    && properties.getProperty("wan.global.bandwidth") == null) {
+			return null;
+		}
+		WanEmulation wan = new WanEmulation();
+		wan.setLatencyMillis(NumberUtils.toInt(properties
+		    .getProperty("wan.latency")));
+		wan.setJitterMillis(NumberUtils.toInt(properties
+		    .getProperty("wan.jitter")));
+		wan.setSessionBytesPerSecond(NumberUtils.toLong(
+		    properties.getProperty("wan.session.bandwidth"),
+		    WanEmulation.UNLIMITED));
+		wan.setGlobalBytesPerSecond(NumberUtils.toLong(
+		    properties.getProperty("wan.global.bandwidth"),
+		    WanEmulation.UNLIMITED));
+		return wan;
+	}
+
+	/**
+	 * Create the file system served by the FTPS test server from the
+	 * "ftp.filesystem" properties:
+	 * <ul>
+	 * <li>ftp.filesystem - "native" (default) or "memory"</li>
+	 * <li>ftp.filesystem.storage - "heap" (default) or "direct" for off-heap
+	 * memory</li>
+	 * <li>ftp.filesystem.capacity - memory cap in bytes (optional)</li>
+	 * <li>ftp.filesystem.generated - comma separated generated files of the
+	 * memory file system as path:size[:seed], e.g. /big/1g.bin:1073741824:42
+	 * (optional)</li>
+	 * </ul>
+	 * 
+	 * @param properties
+	 *            FTPS test properties
+	 * @return the file system factory or null for the native file system
+	 * @throws FtpException
+	 *             if a generated file can not be created
+	 */
+	private static FileSystemFactory createFileSystemFactory(
+	    Properties properties) throws FtpException {
+
+		String fileSystem = properties.getProperty("ftp.filesystem", "native");
+		if ("native".equalsIgnoreCase(fileSystem)) {
+			return null;
+		}
+		if (!"memory".equalsIgnoreCase(fileSystem)) {
+			throw new IllegalArgumentException(
+			    "Unknown ftp.filesystem value: " + fileSystem);
+		}
+		MemoryFileSystem.StorageType storage =
+		    MemoryFileSystem.StorageType.valueOf(properties.getProperty(
+		        "ftp.filesystem.storage", "heap").toUpperCase(Locale.US));
+		long capacity =
+		    NumberUtils.toLong(
+		        properties.getProperty("ftp.filesystem.capacity"),
+		        MemoryFileSystem.UNLIMITED);
+		MemoryFileSystem memoryFileSystem =
+		    new MemoryFileSystem(storage, capacity);
+		String[] generated =
+		    splitList(properties.getProperty("ftp.filesystem.generated"));
+		if (generated != null) {
+			for (String spec : generated) {
+				createGeneratedFile(memoryFileSystem, spec);
+			}
+		}
+		return new MemoryFtpFileSystemFactory(memoryFileSystem);
+	}
+
+	/**
+	 * Add a generated file, creating its parent directories.
+	 * 
+	 * @param fileSystem
+	 *            the memory file system
+	 * @param spec
+	 *            path:size[:seed], the seed defaults to 0
+	 * @throws FtpException
+	 *             if the file can not be created
+	 */
+	private static void createGeneratedFile(MemoryFileSystem fileSystem,
+	    String spec) throws FtpException {
+
+		String[] parts = StringUtils.split(spec, ':');
+		if (parts.length < GENERATED_SEEDED_PARTS - 1
+		    || parts.length > GENERATED_SEEDED_PARTS
+		    || !NumberUtils.isDigits(parts[1])) {
+			throw new IllegalArgumentException(
+			    "Invalid ftp.filesystem.generated entry: " + spec);
+		}
+		String path = MemoryFileSystem.normalize(parts[0]);
+		try {
+			fileSystem.mkdirs(MemoryFileSystem.parentOf(path));
+		} catch (IOException e) {
+			throw new FtpException("Cannot create generated file :: " + path,
+			    e);
+		}
+		long seed =
+		    parts.length == GENERATED_SEEDED_PARTS ? Long.parseLong(parts[2])
+		        : 0;
+		if (fileSystem.createGeneratedFile(path, Long.parseLong(parts[1]),
+		    seed) == null) {
+			throw new FtpException("Cannot create generated file :: " + path);
+		}
+	}
+
 	/**
 	 * Given the keystore file name, return the absolute file path found in the
 	 * classpath.
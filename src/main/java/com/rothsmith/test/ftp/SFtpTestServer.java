@@ -8,6 +8,12 @@ import java.io.IOException;
 import java.security.PublicKey;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -20,24 +26,38 @@ import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.sshd.SshServer;
 import org.apache.sshd.common.NamedFactory;
+import org.apache.sshd.common.file.FileSystemFactory;
 import org.apache.sshd.common.file.virtualfs.VirtualFileSystemFactory;
 import org.apache.sshd.server.Command;
 import org.apache.sshd.server.PasswordAuthenticator;
 import org.apache.sshd.server.PublickeyAuthenticator;
 import org.apache.sshd.server.command.ScpCommandFactory;
-import org.apache.sshd.server.keyprovider.SimpleGeneratorHostKeyProvider;
 import org.apache.sshd.server.session.ServerSession;
-import org.apache.sshd.server.sftp.SftpSubsystem;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.rothsmith.test.ftp.checksum.UploadChecksums;
+import com.rothsmith.test.ftp.events.EventSshFileSystemFactory;
+import com.rothsmith.test.ftp.events.FileEvent;
+import com.rothsmith.test.ftp.events.FileEvents;
+import com.rothsmith.test.ftp.memfs.MemoryFileSystem;
+import com.rothsmith.test.ftp.memfs.MemorySnapshot;
+import com.rothsmith.test.ftp.memfs.MemorySshFileSystemFactory;
+import com.rothsmith.test.ftp.metrics.InstrumentedSftpSubsystem;
+import com.rothsmith.test.ftp.metrics.SftpMetrics;
+import com.rothsmith.test.ftp.metrics.SftpMetricsSnapshot;
+import com.rothsmith.test.ftp.wan.WanEmulation;
+import com.rothsmith.test.ftp.wan.WanIoServiceFactoryFactory;
+import com.rothsmith.test.ftp.wan.WanLink;
+
 /**
  * Creates an Apache Mina SSH server for testing.
  * 
  * @author drothauser
  * 
  */
-public class SFtpTestServer {
+public class SFtpTestServer
+        implements TestServer {
 
 	/**
 	 * SLF4J Logger for SFtpTestServer.
@@ -50,6 +70,12 @@ public class SFtpTestServer {
 	 */
 	public static final int DEFAULT_PORT = 22;
 
+	/**
+	 * Port number that lets the operating system pick a free port. Use
+	 * {@link #getPort()} after {@link #startServer()} to find out which one.
+	 */
+	public static final int EPHEMERAL_PORT = 0;
+
 	/**
 	 * Default SFTP server host.
 	 */
@@ -65,6 +91,27 @@ public class SFtpTestServer {
 	 */
 	private SshServer sshd;
 
+	/**
+	 * Accounts allowed to log in, keyed by user name.
+	 */
+	private final Map<String, Account> accounts =
+	    new ConcurrentHashMap<String, Account>();
+
+	/**
+	 * Metrics of the SFTP requests served.
+	 */
+	private final SftpMetrics metrics = new SftpMetrics();
+
+	/**
+	 * Checksums of the uploads, recorded once enabled.
+	 */
+	private final UploadChecksums uploadChecksums = new UploadChecksums();
+
+	/**
+	 * Uploads, renames and deletes of SFTP and SCP clients.
+	 */
+	private final FileEvents fileEvents = new FileEvents();
+
 	/**
 	 * Constructor that initializes the SFTP server using the default server
 	 * host (localhost), SSH port and a user id.
@@ -98,7 +145,7 @@ public class SFtpTestServer {
 	 * @param host
 	 *            SFTP server host
 	 * @param port
-	 *            SSH/SFTP server port number
+	 *            SSH/SFTP server port number or {@link #EPHEMERAL_PORT}
 	 * @param user
 	 *            FTP user account id
 	 * @throws FtpTestException
@@ -107,19 +154,69 @@ public class SFtpTestServer {
 	public SFtpTestServer(final String host, final int port, final String user)
 	        throws FtpTestException {
 
+		this(host, port, user, createHomeDirFileSystemFactory());
+	}
+
+	/**
+	 * Constructor that initializes the SFTP server with a specific file system
+	 * for SFTP and SCP, e.g. a {@link MemorySshFileSystemFactory} so that
+	 * transfers never touch the disk.
+	 * 
+	 * @param host
+	 *            SFTP server host
+	 * @param port
+	 *            SSH/SFTP server port number or {@link #EPHEMERAL_PORT}
+	 * @param user
+	 *            FTP user account id
+	 * @param fileSystemFactory
+	 *            file system served to SFTP and SCP clients
+	 */
+	public SFtpTestServer(final String host, final int port, final String user,
+	    FileSystemFactory fileSystemFactory) {
+
+		this(host, port, user, fileSystemFactory, SshAlgorithmProfile.DEFAULT,
+		    SshCompression.NONE);
+	}
+
+	/**
+	 * Constructor that initializes the SFTP server with a specific file
+	 * system, set of algorithms and compression, e.g. to find the fastest
+	 * algorithms for bulk transfers or to measure what compression gains on
+	 * compressible files.
+	 * 
+	 * @param host
+	 *            SFTP server host
+	 * @param port
+	 *            SSH/SFTP server port number or {@link #EPHEMERAL_PORT}
+	 * @param user
+	 *            FTP user account id
+	 * @param fileSystemFactory
+	 *            file system served to SFTP and SCP clients
+	 * @param algorithms
+	 *            ciphers, MACs and key exchanges offered to clients
+	 * @param compression
+	 *            compression offered to clients
+	 */
+	public SFtpTestServer(final String host, final int port, final String user,
+	    FileSystemFactory fileSystemFactory, SshAlgorithmProfile algorithms,
+	    SshCompression compression) {
+
 		sshd = SshServer.setUpDefaultServer();
 		sshd.setHost(host);
 		sshd.setPort(port);
-		sshd.setKeyPairProvider(
-		    new SimpleGeneratorHostKeyProvider("hostkey.ser"));
+		sshd.setKeyPairProvider(new CachedHostKeyProvider());
+		algorithms.apply(sshd);
+		compression.apply(sshd);
+
+		accounts.put(user, new Account(null));
 
 		sshd.setPasswordAuthenticator(new PasswordAuthenticator() {
 			@Override
 			public boolean authenticate(String username, String pwd,
 		        ServerSession session) {
-				LOGGER.info("Authenticating user...");
-				// Very lenient authentication process :-) no password check.
-				return StringUtils.equals(username, user);
+				LOGGER.debug("Authenticating user...");
+				Account account = accounts.get(username);
+				return account != null && account.acceptsPassword(pwd);
 			}
 		});
 
@@ -127,9 +224,9 @@ public class SFtpTestServer {
 			@Override
 			public boolean authenticate(String username, PublicKey key,
 		        ServerSession session) {
-				LOGGER.info("Authenticating user and public key...");
+				LOGGER.debug("Authenticating user and public key...");
 				// Very lenient authentication process :-) no key verification.
-				return StringUtils.equals(username, user);
+				return accounts.containsKey(username);
 			}
 		});
 
@@ -137,9 +234,25 @@ public class SFtpTestServer {
 
 		List<NamedFactory<Command>> namedFactoryList =
 		    new ArrayList<NamedFactory<Command>>();
-		namedFactoryList.add(new SftpSubsystem.Factory());
+		namedFactoryList.add(new InstrumentedSftpSubsystem.Factory(metrics));
 		sshd.setSubsystemFactories(namedFactoryList);
 
+		sshd.setFileSystemFactory(new EventSshFileSystemFactory(
+		    fileSystemFactory, fileEvents, uploadChecksums));
+
+	}
+
+	/**
+	 * Create the default file system that roots users in the "sftp-test"
+	 * directory under the system temp directory.
+	 * 
+	 * @return {@link VirtualFileSystemFactory} for the home directory
+	 * @throws FtpTestException
+	 *             possible error creating the home directory
+	 */
+	private static FileSystemFactory createHomeDirFileSystemFactory()
+	        throws FtpTestException {
+
 		String defaultHomeDir = FileUtils.getTempDirectoryPath() + "sftp-test";
 		try {
 			FileUtils.forceMkdir(new File(defaultHomeDir));
@@ -148,8 +261,87 @@ public class SFtpTestServer {
 			throw new FtpTestException(e.getMessage(), e);
 		}
 
-		sshd.setFileSystemFactory(new VirtualFileSystemFactory(defaultHomeDir));
+		return new VirtualFileSystemFactory(defaultHomeDir) {
+			@Override
+			protected String computeRootDir(String userName) {
+				// home directories of added users are created on first login
+				String rootDir = super.computeRootDir(userName);
+				if (!new File(rootDir).isDirectory()
+				    && !new File(rootDir).mkdirs()) {
+					LOGGER.warn("Could not create home directory: " + rootDir);
+				}
+				return rootDir;
+			}
+		};
+	}
+
+	/**
+	 * Add a user, or replace the password of an existing one, while the server
+	 * is running or not. Unless the server uses a custom file system, the user
+	 * gets an isolated home directory named after the user below the default
+	 * home, created on first login. Users are looked up by name in constant
+	 * time, so thousands of users can be served by one server.
+	 * 
+	 * @param user
+	 *            user id, which must be usable as a directory name
+	 * @param password
+	 *            the user's password or null to accept any password
+	 */
+	public void addUser(String user, String password) {
+
+		if (StringUtils.isEmpty(user) || StringUtils.containsAny(user, "/\\")
+		    || "..".equals(user) || ".".equals(user)) {
+			throw new IllegalArgumentException("Invalid SFTP user id: " + user);
+		}
+		FileSystemFactory fileSystemFactory = getFileSystemFactory();
+		if (fileSystemFactory instanceof VirtualFileSystemFactory) {
+			VirtualFileSystemFactory nativeFactory =
+			    (VirtualFileSystemFactory) fileSystemFactory;
+			nativeFactory.setUserHomeDir(user, new File(
+			    nativeFactory.getDefaultHomeDir(), user).getPath());
+		} else if (fileSystemFactory instanceof MemorySshFileSystemFactory) {
+			MemorySshFileSystemFactory memoryFactory =
+			    (MemorySshFileSystemFactory) fileSystemFactory;
+			memoryFactory.setUserHomeDir(user, MemoryFileSystem.resolve(
+			    memoryFactory.getDefaultHomeDir(), user));
+		}
+		accounts.put(user, new Account(password));
+	}
+
+	/**
+	 * Add generated users named prefix0, prefix1, ... all sharing a password,
+	 * e.g. for load testing. See {@link #addUser(String, String)}.
+	 * 
+	 * @param prefix
+	 *            user id prefix
+	 * @param count
+	 *            number of users to add
+	 * @param password
+	 *            the users' password or null to accept any password
+	 */
+	public void addUsers(String prefix, int count, String password) {
+		for (int i = 0; i < count; i++) {
+			addUser(prefix + i, password);
+		}
+	}
+
+	/**
+	 * Remove a user. Sessions already logged in are not affected and the
+	 * user's files are kept.
+	 * 
+	 * @param user
+	 *            user id
+	 * @return true if the user existed
+	 */
+	public boolean removeUser(String user) {
+		return accounts.remove(user) != null;
+	}
 
+	/**
+	 * @return number of users allowed to log in
+	 */
+	public int getUserCount() {
+		return accounts.size();
 	}
 
 	/**
@@ -158,6 +350,7 @@ public class SFtpTestServer {
 	 * @throws FtpTestException
 	 *             Possible error starting the server
 	 */
+	@Override
 	public void startServer() throws FtpTestException {
 
 		try {
@@ -175,6 +368,7 @@ public class SFtpTestServer {
 	 * @throws FtpTestException
 	 *             Possible error starting the server
 	 */
+	@Override
 	public void stopServer() throws FtpTestException {
 		try {
 			sshd.stop();
@@ -185,6 +379,299 @@ public class SFtpTestServer {
 		}
 	}
 
+	/**
+	 * Stop the server without waiting for its clients: open sessions are
+	 * closed at once and at most the timeout is spent on the teardown.
+	 * 
+	 * @param timeout
+	 *            maximum time to spend on the teardown
+	 * @param unit
+	 *            unit of the timeout
+	 * @return whether the teardown finished in time
+	 * @throws FtpTestException
+	 *             if interrupted while stopping
+	 */
+	@Override
+	public boolean stopServer(long timeout, TimeUnit unit)
+	        throws FtpTestException {
+		try {
+			return sshd.close(true).await(timeout, unit);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			String message = "Interrupted stopping SFTP server: " + e;
+			LOGGER.error(message, e);
+			throw new FtpTestException(message, e);
+		}
+	}
+
+	/**
+	 * Start the server in the background, e.g. in parallel with other
+	 * servers. See {@link TestServers}.
+	 * 
+	 * @return a future completed with this server once it accepts
+	 *         connections
+	 */
+	public CompletableFuture<SFtpTestServer> start() {
+		return TestServers.start(this);
+	}
+
+	/**
+	 * Stop the server in the background. See {@link TestServers}.
+	 * 
+	 * @return a future completed once the server has stopped
+	 */
+	public CompletableFuture<Void> stop() {
+		return TestServers.stop(this);
+	}
+
+	/**
+	 * Select the host key algorithm. Host keys come from the JVM-wide
+	 * {@link CachedHostKeyProvider} cache, so only the first server using an
+	 * algorithm pays for generating its key. Call before {@link #startServer()}.
+	 * 
+	 * @param algorithm
+	 *            host key algorithm
+	 */
+	public void setHostKeyAlgorithm(CachedHostKeyProvider.Algorithm algorithm) {
+		sshd.setKeyPairProvider(new CachedHostKeyProvider(algorithm));
+	}
+
+	/**
+	 * Select the ciphers, MACs and key exchanges offered to clients. Call
+	 * before {@link #startServer()}.
+	 * 
+	 * @param algorithms
+	 *            the algorithm profile
+	 */
+	public void setAlgorithmProfile(SshAlgorithmProfile algorithms) {
+		algorithms.apply(sshd);
+	}
+
+	/**
+	 * Select the compression offered to clients. Call before
+	 * {@link #startServer()}.
+	 * 
+	 * @param compression
+	 *            the compression
+	 */
+	public void setCompression(SshCompression compression) {
+		compression.apply(sshd);
+	}
+
+	/**
+	 * Emulate a wide area network link between the server and its clients:
+	 * every connection, from the key exchange to SFTP and SCP transfers, is
+	 * delayed by the latency and paced to the bandwidth caps. Call before
+	 * {@link #startServer()}.
+	 * 
+	 * @param wanEmulation
+	 *            the link to emulate or null for full loopback speed
+	 */
+	public void setWanEmulation(WanEmulation wanEmulation) {
+		sshd.setIoServiceFactoryFactory(wanEmulation == null ? null
+		    : new WanIoServiceFactoryFactory(new WanLink(wanEmulation)));
+	}
+
+	/**
+	 * Compute the SHA-256 and CRC-32C of SFTP and SCP uploads as the bytes
+	 * are written, so that tests can verify uploads through
+	 * {@link #getUploadChecksums()} instead of reading the files back. Off by
+	 * default because it costs CPU time on every upload. Applies to uploads
+	 * opened afterwards.
+	 * 
+	 * @param enabled
+	 *            whether to compute upload checksums
+	 */
+	public void setUploadChecksums(boolean enabled) {
+		uploadChecksums.setEnabled(enabled);
+	}
+
+	/**
+	 * Return the checksums of the files uploaded since the server was created
+	 * or the checksums were cleared, keyed by the path the client sees. Empty
+	 * unless enabled with {@link #setUploadChecksums(boolean)}.
+	 * 
+	 * @return checksums of the uploads
+	 */
+	public UploadChecksums getUploadChecksums() {
+		return uploadChecksums;
+	}
+
+	/**
+	 * Wait for an upload to a path to finish, i.e. for the server to close the
+	 * file, instead of polling for it.
+	 * 
+	 * @param path
+	 *            path of the file as the client sees it, e.g. /dir/data.txt
+	 * @return a future completed with the upload event, at once if the latest
+	 *         event of the path is an upload; see {@link FileEvents}
+	 */
+	public CompletableFuture<FileEvent> awaitTransfer(String path) {
+		return fileEvents.await(path, FileEvent.Type.UPLOADED);
+	}
+
+	/**
+	 * Wait for an upload to a path to finish, blocking up to a timeout.
+	 * 
+	 * @param path
+	 *            path of the file as the client sees it, e.g. /dir/data.txt
+	 * @param timeout
+	 *            maximum time to wait
+	 * @param unit
+	 *            unit of the timeout
+	 * @return the upload event
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 * @throws TimeoutException
+	 *             if the upload did not finish in time
+	 */
+	public FileEvent awaitTransfer(String path, long timeout, TimeUnit unit)
+	        throws InterruptedException, TimeoutException {
+		return fileEvents.await(path, timeout, unit, FileEvent.Type.UPLOADED);
+	}
+
+	/**
+	 * Wait for a path to be uploaded, renamed from or to, or deleted.
+	 * 
+	 * @param path
+	 *            path of the file as the client sees it, e.g. /dir/data.txt
+	 * @param types
+	 *            events to wait for, none for any event
+	 * @return a future completed with the event, at once if the latest event
+	 *         of the path is one of the types; see {@link FileEvents}
+	 */
+	public CompletableFuture<FileEvent> awaitFile(String path,
+	    FileEvent.Type... types) {
+		return fileEvents.await(path, types);
+	}
+
+	/**
+	 * Wait for a path to be uploaded, renamed from or to, or deleted, blocking
+	 * up to a timeout.
+	 * 
+	 * @param path
+	 *            path of the file as the client sees it, e.g. /dir/data.txt
+	 * @param timeout
+	 *            maximum time to wait
+	 * @param unit
+	 *            unit of the timeout
+	 * @param types
+	 *            events to wait for, none for any event
+	 * @return the event
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 * @throws TimeoutException
+	 *             if no such event happened in time
+	 */
+	public FileEvent awaitFile(String path, long timeout, TimeUnit unit,
+	    FileEvent.Type... types) throws InterruptedException,
+	        TimeoutException {
+		return fileEvents.await(path, timeout, unit, types);
+	}
+
+	/**
+	 * @return the file events of SFTP and SCP clients, e.g. to clear them
+	 *         between tests
+	 */
+	public FileEvents getFileEvents() {
+		return fileEvents;
+	}
+
+	/**
+	 * @return the file system served to clients
+	 */
+	public FileSystemFactory getFileSystemFactory() {
+		FileSystemFactory fileSystemFactory = sshd.getFileSystemFactory();
+		return fileSystemFactory instanceof EventSshFileSystemFactory
+		    ? ((EventSshFileSystemFactory) fileSystemFactory)
+		        .getFileSystem() : fileSystemFactory;
+	}
+
+	/**
+	 * @return the in-memory file system served to clients or null if the
+	 *         server uses another file system
+	 */
+	public MemoryFileSystem getMemoryFileSystem() {
+		FileSystemFactory fileSystem = getFileSystemFactory();
+		return fileSystem instanceof MemorySshFileSystemFactory
+		    ? ((MemorySshFileSystemFactory) fileSystem).getFileSystem() : null;
+	}
+
+	/**
+	 * Take a snapshot of the in-memory file system served to clients, e.g. of
+	 * the fixture files a test class starts from. See
+	 * {@link MemoryFileSystem#snapshot()}.
+	 * 
+	 * @return the snapshot
+	 * @throws FtpTestException
+	 *             if the server does not use an in-memory file system
+	 */
+	public MemorySnapshot snapshot() throws FtpTestException {
+		return requireMemoryFileSystem().snapshot();
+	}
+
+	/**
+	 * Put the in-memory file system served to clients back the way it was
+	 * when the snapshot was taken. The file events and upload checksums are
+	 * not cleared.
+	 * 
+	 * @param snapshot
+	 *            a snapshot taken with {@link #snapshot()}
+	 * @throws FtpTestException
+	 *             if the server does not use an in-memory file system
+	 */
+	public void restore(MemorySnapshot snapshot) throws FtpTestException {
+		requireMemoryFileSystem().restore(snapshot);
+	}
+
+	/**
+	 * @return the in-memory file system served to clients
+	 * @throws FtpTestException
+	 *             if the server does not use an in-memory file system
+	 */
+	private MemoryFileSystem requireMemoryFileSystem()
+	        throws FtpTestException {
+		MemoryFileSystem fileSystem = getMemoryFileSystem();
+		if (fileSystem == null) {
+			String message =
+			    "Snapshots need an in-memory file system: "
+			        + getFileSystemFactory();
+			LOGGER.error(message);
+			throw new FtpTestException(message);
+		}
+		return fileSystem;
+	}
+
+	/**
+	 * Return the port the server listens on. When the server was created with
+	 * {@link #EPHEMERAL_PORT} this is the port picked by the operating system,
+	 * available once {@link #startServer()} has returned.
+	 * 
+	 * @return the bound SSH/SFTP port
+	 */
+	@Override
+	public int getPort() {
+		return sshd.getPort();
+	}
+
+	/**
+	 * Return what the SFTP subsystem has served so far: per operation request
+	 * counts and latency histograms, outstanding request depths and per
+	 * session byte totals. SCP transfers are not included.
+	 * 
+	 * @return snapshot of the server side SFTP metrics
+	 */
+	public SftpMetricsSnapshot getMetrics() {
+		return metrics.getSnapshot();
+	}
+
+	/**
+	 * Reset the SFTP metrics, e.g. after warming up.
+	 */
+	public void resetMetrics() {
+		metrics.reset();
+	}
+
 	/**
 	 * @return The instance of the SFTP/SSH server
 	 */
@@ -192,6 +679,36 @@ public class SFtpTestServer {
 		return sshd;
 	}
 
+	/**
+	 * Login credentials of a user.
+	 */
+	private static final class Account {
+
+		/**
+		 * The password or null to accept any password.
+		 */
+		private final String password;
+
+		/**
+		 * Constructor for Account.
+		 * 
+		 * @param password
+		 *            the password or null to accept any password
+		 */
+		Account(String password) {
+			this.password = password;
+		}
+
+		/**
+		 * @param pwd
+		 *            password given by the client
+		 * @return true if the password is accepted
+		 */
+		boolean acceptsPassword(String pwd) {
+			return password == null || password.equals(pwd);
+		}
+	}
+
 	/**
 	 * Manually start up a SFTP server.
 	 * 
@@ -210,6 +727,17 @@ public class SFtpTestServer {
 		    .build());
 		options.addOption(Option.builder("u").argName("user").longOpt("user")
 		    .hasArg().desc("Server user id").required(false).build());
+		options.addOption(Option.builder("m").longOpt("memory")
+		    .desc("Serve files from an in-memory file system")
+		    .required(false).build());
+		options.addOption(Option.builder("a").argName("profile")
+		    .longOpt("algorithms").hasArg()
+		    .desc("Algorithm profile: default, fast, compat or strict")
+		    .required(false).build());
+		options.addOption(Option.builder("z").argName("compression")
+		    .longOpt("compression").hasArg()
+		    .desc("Compression: none, zlib or delayed_zlib").required(false)
+		    .build());
 		CommandLineParser parser = new DefaultParser();
 
 		try {
@@ -221,18 +749,35 @@ public class SFtpTestServer {
 			String user =
 			    cmd.hasOption('u') ? cmd.getOptionValue('u') : DEFAULT_USER;
 
-			SFtpTestServer sshServer = new SFtpTestServer(host, port, user);
+			SshAlgorithmProfile algorithms =
+			    SshAlgorithmProfile.valueOf(cmd.getOptionValue('a',
+			        SshAlgorithmProfile.DEFAULT.name()).toUpperCase(Locale.US));
+			SshCompression compression =
+			    SshCompression.valueOf(cmd.getOptionValue('z',
+			        SshCompression.NONE.name()).toUpperCase(Locale.US));
+
+			SFtpTestServer sshServer = cmd.hasOption('m')
+			    ? new SFtpTestServer(host, port, user,
+			        new MemorySshFileSystemFactory(), algorithms, compression)
+			    : new SFtpTestServer(host, port, user,
+			        createHomeDirFileSystemFactory(), algorithms, compression);
 			sshServer.startServer();
 
 			SshServer sshd = sshServer.getSshd();
 			LOGGER.info(String.format(
 			    "%nStarted SSH Server, Version %s%n"
-			        + "host=%s%nport=%s%nuser=%s%n",
-			    sshd.getVersion(), host, port, user));
+			        + "host=%s%nport=%s%nuser=%s%nalgorithms=%s%n"
+			        + "compression=%s%n", sshd.getVersion(), host,
+			    sshServer.getPort(), user, algorithms, compression));
 		} catch (ParseException e) {
 			HelpFormatter formatter = new HelpFormatter();
 			formatter.printHelp("SFtpTestServer", options);
 			throw new FtpTestException("Unable to parse commandline arguments");
+		} catch (IllegalArgumentException e) {
+			HelpFormatter formatter = new HelpFormatter();
+			formatter.printHelp("SFtpTestServer", options);
+			throw new FtpTestException("Invalid commandline argument: "
+			    + e.getMessage(), e);
 		}
 	}
 
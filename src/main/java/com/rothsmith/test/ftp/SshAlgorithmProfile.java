@@ -0,0 +1,222 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.sshd.SshServer;
+import org.apache.sshd.common.Cipher;
+import org.apache.sshd.common.KeyExchange;
+import org.apache.sshd.common.Mac;
+import org.apache.sshd.common.NamedFactory;
+import org.apache.sshd.common.cipher.AES128CBC;
+import org.apache.sshd.common.cipher.AES128CTR;
+import org.apache.sshd.common.cipher.AES192CBC;
+import org.apache.sshd.common.cipher.AES256CBC;
+import org.apache.sshd.common.cipher.AES256CTR;
+import org.apache.sshd.common.cipher.ARCFOUR128;
+import org.apache.sshd.common.cipher.ARCFOUR256;
+import org.apache.sshd.common.cipher.BlowfishCBC;
+import org.apache.sshd.common.cipher.TripleDESCBC;
+import org.apache.sshd.common.mac.HMACMD5;
+import org.apache.sshd.common.mac.HMACMD596;
+import org.apache.sshd.common.mac.HMACSHA1;
+import org.apache.sshd.common.mac.HMACSHA196;
+import org.apache.sshd.common.mac.HMACSHA256;
+import org.apache.sshd.common.mac.HMACSHA512;
+import org.apache.sshd.common.util.SecurityUtils;
+import org.apache.sshd.server.kex.DHG1;
+import org.apache.sshd.server.kex.DHG14;
+import org.apache.sshd.server.kex.DHGEX;
+import org.apache.sshd.server.kex.DHGEX256;
+import org.apache.sshd.server.kex.ECDHP256;
+import org.apache.sshd.server.kex.ECDHP384;
+import org.apache.sshd.server.kex.ECDHP521;
+
+/**
+ * Named sets of SSH ciphers, MACs and key exchanges for the
+ * {@link SFtpTestServer}. SSH clients pick the first algorithm of their own
+ * list that the server offers, so a profile restricts what clients can
+ * negotiate rather than imposing an order. Algorithms the JVM cannot run,
+ * e.g. 256 bit AES without the unlimited strength policy, are left out.
+ *
+ * @author drothauser
+ *
+ */
+public enum SshAlgorithmProfile {
+
+	/**
+	 * The algorithms Apache SSHD enables out of the box.
+	 */
+	DEFAULT(null, null, null),
+
+	/**
+	 * The cheapest algorithms for bulk transfers: 128 bit AES in counter mode
+	 * or RC4, HMAC-MD5 or HMAC-SHA1 and ECDH on P-256 or 1024 bit
+	 * Diffie-Hellman.
+	 */
+	FAST(new String[] {"aes128-ctr", "arcfour128" }, new String[] {
+	    "hmac-md5", "hmac-sha1" }, new String[] {"ecdh-sha2-nistp256",
+	    "diffie-hellman-group1-sha1" }),
+
+	/**
+	 * Every algorithm this version of Apache SSHD implements, for old
+	 * clients.
+	 */
+	COMPAT(new String[] {"aes128-ctr", "aes256-ctr", "aes128-cbc",
+	    "aes192-cbc", "aes256-cbc", "3des-cbc", "blowfish-cbc", "arcfour128",
+	    "arcfour256" }, new String[] {"hmac-sha2-256", "hmac-sha2-512",
+	    "hmac-sha1", "hmac-sha1-96", "hmac-md5", "hmac-md5-96" },
+	    new String[] {"diffie-hellman-group-exchange-sha256",
+	        "diffie-hellman-group-exchange-sha1", "ecdh-sha2-nistp256",
+	        "ecdh-sha2-nistp384", "ecdh-sha2-nistp521",
+	        "diffie-hellman-group14-sha1", "diffie-hellman-group1-sha1" }),
+
+	/**
+	 * AES in counter mode, SHA-2 MACs and key exchanges of 2048 bits or
+	 * more. The 2048 bit Diffie-Hellman group is kept for clients such as
+	 * JSch 0.1.51 that lack ECDH.
+	 */
+	STRICT(new String[] {"aes256-ctr", "aes128-ctr" }, new String[] {
+	    "hmac-sha2-512", "hmac-sha2-256" }, new String[] {
+	    "ecdh-sha2-nistp521", "ecdh-sha2-nistp384", "ecdh-sha2-nistp256",
+	    "diffie-hellman-group-exchange-sha256",
+	    "diffie-hellman-group14-sha1" });
+
+	/**
+	 * Cipher names or null for the Apache SSHD defaults.
+	 */
+	private final String[] ciphers;
+
+	/**
+	 * MAC names or null for the Apache SSHD defaults.
+	 */
+	private final String[] macs;
+
+	/**
+	 * Key exchange names or null for the Apache SSHD defaults.
+	 */
+	private final String[] keyExchanges;
+
+	/**
+	 * Constructor for SshAlgorithmProfile.
+	 *
+	 * @param ciphers
+	 *            cipher names or null for the Apache SSHD defaults
+	 * @param macs
+	 *            MAC names or null for the Apache SSHD defaults
+	 * @param keyExchanges
+	 *            key exchange names or null for the Apache SSHD defaults
+	 */
+	private SshAlgorithmProfile(String[] ciphers, String[] macs,
+	    String[] keyExchanges) {
+		this.ciphers = ciphers;
+		this.macs = macs;
+		this.keyExchanges = keyExchanges;
+	}
+
+	/**
+	 * Enable the algorithms of this profile on a server that has not been
+	 * started yet.
+	 *
+	 * @param sshd
+	 *            the server
+	 */
+	void apply(SshServer sshd) {
+		if (ciphers == null) {
+			return;
+		}
+		sshd.setCipherFactories(select(availableCiphers(), ciphers));
+		sshd.setMacFactories(select(availableMacs(), macs));
+		sshd.setKeyExchangeFactories(select(availableKeyExchanges(),
+		    keyExchanges));
+	}
+
+	/**
+	 * Pick factories by name. Every profile names at least one algorithm of
+	 * each kind that all JVMs can run.
+	 *
+	 * @param <T>
+	 *            type of the objects created by the factories
+	 * @param available
+	 *            factories the JVM can run
+	 * @param names
+	 *            names of the factories to pick
+	 * @return the factories found, in the order of the names
+	 */
+	private static <T> List<NamedFactory<T>> select(
+	    List<NamedFactory<T>> available, String[] names) {
+		List<NamedFactory<T>> selected = new ArrayList<NamedFactory<T>>();
+		for (String name : names) {
+			NamedFactory<T> factory = NamedFactory.Utils.get(available, name);
+			if (factory != null) {
+				selected.add(factory);
+			}
+		}
+		return selected;
+	}
+
+	/**
+	 * Return the ciphers the JVM can initialize, testing them the way
+	 * {@link SshServer#setUpDefaultServer()} does.
+	 *
+	 * @return the cipher factories
+	 */
+	@SuppressWarnings("PMD.AvoidCatchingGenericException")
+	private static List<NamedFactory<Cipher>> availableCiphers() {
+		List<NamedFactory<Cipher>> available =
+		    new ArrayList<NamedFactory<Cipher>>();
+		List<NamedFactory<Cipher>> all =
+		    Arrays.<NamedFactory<Cipher>> asList(new AES128CTR.Factory(),
+		        new AES256CTR.Factory(), new AES128CBC.Factory(),
+		        new AES192CBC.Factory(), new AES256CBC.Factory(),
+		        new TripleDESCBC.Factory(), new BlowfishCBC.Factory(),
+		        new ARCFOUR128.Factory(), new ARCFOUR256.Factory());
+		for (NamedFactory<Cipher> factory : all) {
+			Cipher cipher = factory.create();
+			try {
+				cipher.init(Cipher.Mode.Encrypt,
+				    new byte[cipher.getBlockSize()],
+				    new byte[cipher.getIVSize()]);
+				available.add(factory);
+			} catch (Exception e) {
+				// e.g. 256 bit keys without the unlimited strength policy
+				continue;
+			}
+		}
+		return available;
+	}
+
+	/**
+	 * @return the MAC factories
+	 */
+	private static List<NamedFactory<Mac>> availableMacs() {
+		return Arrays.<NamedFactory<Mac>> asList(new HMACSHA256.Factory(),
+		    new HMACSHA512.Factory(), new HMACSHA1.Factory(),
+		    new HMACSHA196.Factory(), new HMACMD5.Factory(),
+		    new HMACMD596.Factory());
+	}
+
+	/**
+	 * @return the key exchange factories, with ECDH only if the JVM supports
+	 *         elliptic curves
+	 */
+	private static List<NamedFactory<KeyExchange>> availableKeyExchanges() {
+		List<NamedFactory<KeyExchange>> available =
+		    new ArrayList<NamedFactory<KeyExchange>>();
+		available.add(new DHGEX256.Factory());
+		available.add(new DHGEX.Factory());
+		if (SecurityUtils.hasEcc()) {
+			available.add(new ECDHP256.Factory());
+			available.add(new ECDHP384.Factory());
+			available.add(new ECDHP521.Factory());
+		}
+		available.add(new DHG14.Factory());
+		available.add(new DHG1.Factory());
+		return available;
+	}
+
+}
@@ -0,0 +1,73 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp;
+
+import java.util.Collections;
+
+import org.apache.sshd.SshServer;
+import org.apache.sshd.common.Compression;
+import org.apache.sshd.common.NamedFactory;
+import org.apache.sshd.common.compression.CompressionDelayedZlib;
+import org.apache.sshd.common.compression.CompressionNone;
+import org.apache.sshd.common.compression.CompressionZlib;
+
+/**
+ * Compression of the SSH connections of the {@link SFtpTestServer}. The
+ * server offers exactly the chosen algorithm, so clients must support it:
+ * with JSch, set the compression.s2c and compression.c2s options to
+ * {@link #getName()} and put jzlib on the classpath.
+ *
+ * @author drothauser
+ *
+ */
+public enum SshCompression {
+
+	/**
+	 * No compression, the Apache SSHD default.
+	 */
+	NONE(new CompressionNone.Factory()),
+
+	/**
+	 * zlib compression from the key exchange on.
+	 */
+	ZLIB(new CompressionZlib.Factory()),
+
+	/**
+	 * zlib compression once the user has authenticated, as OpenSSH prefers.
+	 */
+	DELAYED_ZLIB(new CompressionDelayedZlib.Factory());
+
+	/**
+	 * Factory of the algorithm.
+	 */
+	private final NamedFactory<Compression> factory;
+
+	/**
+	 * Constructor for SshCompression.
+	 *
+	 * @param factory
+	 *            factory of the algorithm
+	 */
+	private SshCompression(NamedFactory<Compression> factory) {
+		this.factory = factory;
+	}
+
+	/**
+	 * @return SSH name of the algorithm, e.g. zlib@openssh.com
+	 */
+	public String getName() {
+		return factory.getName();
+	}
+
+	/**
+	 * Enable this compression on a server that has not been started yet.
+	 *
+	 * @param sshd
+	 *            the server
+	 */
+	void apply(SshServer sshd) {
+		sshd.setCompressionFactories(Collections.singletonList(factory));
+	}
+
+}
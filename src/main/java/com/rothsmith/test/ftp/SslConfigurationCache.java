@@ -0,0 +1,188 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.ftpserver.ssl.SslConfiguration;
+import org.apache.ftpserver.ssl.SslConfigurationFactory;
+
+/**
+ * JVM-wide cache of FTPS {@link SslConfiguration}s keyed by keystore path,
+ * type and password. Loading a keystore and initializing its key managers is
+ * done once per key; every later {@link FtpsTestServer} using the same
+ * keystore shares the configuration. TLS contexts and session caches are per
+ * server, see
+ * {@link com.rothsmith.test.ftp.tls.SessionCachingSslConfiguration}.
+ *
+ * @author drothauser
+ *
+ */
+public final class SslConfigurationCache {
+
+	/**
+	 * Cached configurations.
+	 */
+	private static final Map<Key, SslConfiguration> CONFIGURATIONS =
+	    new HashMap<Key, SslConfiguration>();
+
+	/**
+	 * Lock guarding {@link #CONFIGURATIONS}.
+	 */
+	private static final Object CONFIGURATIONS_LOCK = new Object();
+
+	/**
+	 * Number of lookups answered from the cache.
+	 */
+	private static final AtomicLong HITS = new AtomicLong();
+
+	/**
+	 * Number of lookups that had to load the keystore.
+	 */
+	private static final AtomicLong MISSES = new AtomicLong();
+
+	/**
+	 * Private constructor for utility class.
+	 */
+	private SslConfigurationCache() {
+		// static methods only
+	}
+
+	/**
+	 * Return the SSL configuration for a keystore, loading the keystore only
+	 * the first time it is asked for.
+	 *
+	 * @param keystoreType
+	 *            Keystore file type e.g. JKS, PKCS12
+	 * @param keystoreFilePath
+	 *            Keystore file path
+	 * @param keystorePassword
+	 *            password for the keystore file
+	 * @return the shared SSL configuration
+	 */
+	public static SslConfiguration getSslConfiguration(String keystoreType,
+	    String keystoreFilePath, String keystorePassword) {
+
+		File keystoreFile = new File(keystoreFilePath).getAbsoluteFile();
+		Key key =
+		    new Key(keystoreType, keystoreFile.getPath(), keystorePassword);
+
+		synchronized (CONFIGURATIONS_LOCK) {
+			SslConfiguration configuration = CONFIGURATIONS.get(key);
+			if (configuration != null) {
+				HITS.incrementAndGet();
+				return configuration;
+			}
+			MISSES.incrementAndGet();
+			SslConfigurationFactory ssl = new SslConfigurationFactory();
+			ssl.setKeystoreType(keystoreType);
+			ssl.setKeystoreFile(keystoreFile);
+			ssl.setKeystorePassword(keystorePassword);
+			configuration = ssl.createSslConfiguration();
+			CONFIGURATIONS.put(key, configuration);
+			return configuration;
+		}
+	}
+
+	/**
+	 * @return number of lookups answered from the cache
+	 */
+	public static long getHitCount() {
+		return HITS.get();
+	}
+
+	/**
+	 * @return number of lookups that had to load the keystore
+	 */
+	public static long getMissCount() {
+		return MISSES.get();
+	}
+
+	/**
+	 * @return number of cached configurations
+	 */
+	public static int size() {
+		synchronized (CONFIGURATIONS_LOCK) {
+			return CONFIGURATIONS.size();
+		}
+	}
+
+	/**
+	 * Discard all cached configurations and reset the hit and miss counts,
+	 * e.g. after a keystore file has been replaced.
+	 */
+	public static void clear() {
+		synchronized (CONFIGURATIONS_LOCK) {
+			CONFIGURATIONS.clear();
+			HITS.set(0);
+			MISSES.set(0);
+		}
+	}
+
+	/**
+	 * Cache key made of the keystore path, type and password.
+	 */
+	private static final class Key {
+
+		/**
+		 * Keystore file type.
+		 */
+		private final String type;
+
+		/**
+		 * Absolute keystore file path.
+		 */
+		private final String path;
+
+		/**
+		 * Keystore password.
+		 */
+		private final String password;
+
+		/**
+		 * Constructor for Key.
+		 *
+		 * @param type
+		 *            keystore file type
+		 * @param path
+		 *            absolute keystore file path
+		 * @param password
+		 *            keystore password
+		 */
+		Key(String type, String path, String password) {
+			this.type = type;
+			this.path = path;
+			this.password = password;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return new EqualsBuilder().append(type, other.type)
+			    .append(path, other.path).append(password, other.password)
+			    .isEquals();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int hashCode() {
+			return new HashCodeBuilder().append(type).append(path)
+			    .append(password).toHashCode();
+		}
+	}
+
+}
@@ -0,0 +1,53 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Common life cycle of the FTPS and SFTP test servers.
+ *
+ * @author drothauser
+ *
+ */
+public interface TestServer {
+
+	/**
+	 * Start the server.
+	 *
+	 * @throws FtpTestException
+	 *             Possible error starting the server
+	 */
+	void startServer() throws FtpTestException;
+
+	/**
+	 * Stop the server.
+	 *
+	 * @throws FtpTestException
+	 *             Possible error stopping the server
+	 */
+	void stopServer() throws FtpTestException;
+
+	/**
+	 * Stop the server without waiting for its clients: open sessions are
+	 * closed at once and at most the timeout is spent on the teardown. The
+	 * port is released first; teardown that takes longer goes on in the
+	 * background.
+	 *
+	 * @param timeout
+	 *            maximum time to spend on the teardown
+	 * @param unit
+	 *            unit of the timeout
+	 * @return whether the teardown finished in time
+	 * @throws FtpTestException
+	 *             Possible error stopping the server
+	 */
+	boolean stopServer(long timeout, TimeUnit unit) throws FtpTestException;
+
+	/**
+	 * @return the port the server listens on
+	 */
+	int getPort();
+
+}
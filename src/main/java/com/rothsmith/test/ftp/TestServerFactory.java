@@ -0,0 +1,27 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp;
+
+/**
+ * Creates a {@link TestServer} for a {@link TestServerRegistry} the first time
+ * its configuration is leased.
+ *
+ * @param <T>
+ *            type of server created
+ *
+ * @author drothauser
+ *
+ */
+public interface TestServerFactory<T extends TestServer> {
+
+	/**
+	 * Create a new, not yet started, server.
+	 *
+	 * @return the new server
+	 * @throws FtpTestException
+	 *             possible error configuring the server
+	 */
+	T createServer() throws FtpTestException;
+
+}
@@ -0,0 +1,90 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp;
+
+import java.io.Closeable;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A lease on a running server handed out by a {@link TestServerRegistry}. The
+ * server stays up while at least one lease on it is held. Release the lease,
+ * typically in {@code @AfterClass}, when done with the server.
+ *
+ * @param <T>
+ *            type of server leased
+ *
+ * @author drothauser
+ *
+ */
+public final class TestServerLease<T extends TestServer>
+        implements Closeable {
+
+	/**
+	 * Registry that issued the lease.
+	 */
+	private final TestServerRegistry registry;
+
+	/**
+	 * Configuration key of the server.
+	 */
+	private final Object key;
+
+	/**
+	 * The leased server.
+	 */
+	private final T server;
+
+	/**
+	 * Set once the lease has been released.
+	 */
+	private final AtomicBoolean released = new AtomicBoolean();
+
+	/**
+	 * Constructor for TestServerLease.
+	 *
+	 * @param registry
+	 *            registry that issued the lease
+	 * @param key
+	 *            configuration key of the server
+	 * @param server
+	 *            the leased server
+	 */
+	TestServerLease(TestServerRegistry registry, Object key, T server) {
+		this.registry = registry;
+		this.key = key;
+		this.server = server;
+	}
+
+	/**
+	 * @return the leased, running server
+	 */
+	public T getServer() {
+		return server;
+	}
+
+	/**
+	 * @return configuration key of the server
+	 */
+	public Object getKey() {
+		return key;
+	}
+
+	/**
+	 * Give the lease back. Releasing a lease more than once has no effect.
+	 */
+	public void release() {
+		if (released.compareAndSet(false, true)) {
+			registry.release(key);
+		}
+	}
+
+	/**
+	 * Same as {@link #release()}.
+	 */
+	@Override
+	public void close() {
+		release();
+	}
+
+}
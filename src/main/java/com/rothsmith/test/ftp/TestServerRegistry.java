@@ -0,0 +1,365 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registry of running test servers shared between test classes. A server is
+ * identified by a configuration key, created and started on its first lease
+ * and kept running while leases on it are held. Once the last lease is
+ * released the server is stopped after an idle grace period unless it is
+ * leased again in the meantime, so consecutive test classes reuse a warm
+ * server:
+ *
+ * <pre>
+ * &#064;BeforeClass
+ * public static void setUpBeforeClass() throws FtpTestException {
+ * 	lease =
+ * 	    TestServerRegistry.getDefault().leaseFtpsServer(
+ * 	        &quot;ftpstest.properties&quot;);
+ * }
+ *
+ * &#064;AfterClass
+ * public static void tearDownAfterClass() {
+ * 	lease.release();
+ * }
+ * </pre>
+ *
+ * Servers still running when the JVM exits are stopped by a shutdown hook
+ * of the default registry.
+ *
+ * @author drothauser
+ *
+ */
+public class TestServerRegistry {
+
+	/**
+	 * SLF4J Logger for TestServerRegistry.
+	 */
+	private static final Logger LOGGER =
+	    LoggerFactory.getLogger(TestServerRegistry.class);
+
+	/**
+	 * Idle grace period of the default registry in milliseconds.
+	 */
+	public static final long DEFAULT_GRACE_MILLIS = 5000;
+
+	/**
+	 * The default registry.
+	 */
+	private static final TestServerRegistry DEFAULT =
+	    new TestServerRegistry(DEFAULT_GRACE_MILLIS);
+
+	static {
+		Runtime.getRuntime().addShutdownHook(
+		    new Thread("test-server-registry-shutdown") {
+			    @Override
+			    public void run() {
+				    DEFAULT.shutdown();
+			    }
+		    });
+	}
+
+	/**
+	 * How long an unleased server keeps running in milliseconds.
+	 */
+	private final long graceMillis;
+
+	/**
+	 * Registered servers by configuration key.
+	 */
+	private final Map<Object, Entry> entries = new HashMap<Object, Entry>();
+
+	/**
+	 * Lock guarding {@link #entries} and the lease counts.
+	 */
+	private final Object entriesLock = new Object();
+
+	/**
+	 * Stops idle servers once their grace period is over.
+	 */
+	private final ScheduledExecutorService reaper;
+
+	/**
+	 * Constructor for TestServerRegistry.
+	 *
+	 * @param graceMillis
+	 *            how long an unleased server keeps running in milliseconds
+	 */
+	public TestServerRegistry(long graceMillis) {
+		this.graceMillis = graceMillis;
+		this.reaper =
+		    Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			    @Override
+			    public Thread newThread(Runnable runnable) {
+				    Thread thread =
+				        new Thread(runnable, "test-server-registry-reaper");
+				    thread.setDaemon(true);
+				    return thread;
+			    }
+		    });
+	}
+
+	/**
+	 * @return the JVM-wide registry
+	 */
+	public static TestServerRegistry getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Lease the server for a configuration key, creating and starting it with
+	 * the factory if it is not running yet. The same key must always be used
+	 * with the same type of server.
+	 *
+	 * @param <T>
+	 *            type of server
+	 * @param key
+	 *            configuration key, compared with equals()
+	 * @param factory
+	 *            creates the server if it is not running yet
+	 * @return lease on the running server
+	 * @throws FtpTestException
+	 *             possible error creating or starting the server
+	 */
+	@SuppressWarnings("unchecked")
+	public <T extends TestServer> TestServerLease<T> lease(Object key,
+	    TestServerFactory<T> factory) throws FtpTestException {
+
+		Entry entry;
+		synchronized (entriesLock) {
+			entry = entries.get(key);
+			if (entry == null) {
+				entry = new Entry();
+				entries.put(key, entry);
+			}
+			entry.leases++;
+			entry.cancelStop();
+		}
+
+		synchronized (entry.serverLock) {
+			if (entry.server == null) {
+				T server = null;
+				boolean started = false;
+				try {
+					server = factory.createServer();
+					server.startServer();
+					started = true;
+				} finally {
+					// give back the lease on any failure, checked or not
+					if (!started) {
+						if (server != null) {
+							stopFailed(key, server);
+						}
+						release(key);
+					}
+				}
+				entry.server = server;
+				LOGGER.info("Started shared test server " + key);
+			}
+			return new TestServerLease<T>(this, key, (T) entry.server);
+		}
+	}
+
+	/**
+	 * Lease an FTPS server configured from a properties file, see
+	 * {@link FtpsTestUtils#createTestFtpsServer(String)}.
+	 *
+	 * @param propsFile
+	 *            properties file name expected to be found in the classpath
+	 * @return lease on the running server
+	 * @throws FtpTestException
+	 *             possible error creating or starting the server
+	 */
+	public TestServerLease<FtpsTestServer> leaseFtpsServer(
+	    final String propsFile) throws FtpTestException {
+
+		return lease("ftps:" + propsFile,
+		    new TestServerFactory<FtpsTestServer>() {
+			    @Override
+			    public FtpsTestServer createServer() throws FtpTestException {
+				    return FtpsTestUtils.createTestFtpsServer(propsFile);
+			    }
+		    });
+	}
+
+	/**
+	 * Lease an SFTP server for a user on an ephemeral port of the default
+	 * host.
+	 *
+	 * @param user
+	 *            SFTP user account id
+	 * @return lease on the running server
+	 * @throws FtpTestException
+	 *             possible error creating or starting the server
+	 */
+	public TestServerLease<SFtpTestServer> leaseSFtpServer(final String user)
+	        throws FtpTestException {
+
+		return lease("sftp:" + user, new TestServerFactory<SFtpTestServer>() {
+			@Override
+			public SFtpTestServer createServer() throws FtpTestException {
+				return new SFtpTestServer(SFtpTestServer.DEFAULT_HOST,
+				    SFtpTestServer.EPHEMERAL_PORT, user);
+			}
+		});
+	}
+
+	/**
+	 * Give back a lease. When no leases remain the server is stopped after
+	 * the grace period.
+	 *
+	 * @param key
+	 *            configuration key of the leased server
+	 */
+	void release(final Object key) {
+		synchronized (entriesLock) {
+			final Entry entry = entries.get(key);
+			if (entry == null || --entry.leases > 0) {
+				return;
+			}
+			entry.pendingStop = reaper.schedule(new Runnable() {
+				@Override
+				public void run() {
+					stopIfIdle(key, entry);
+				}
+			}, graceMillis, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Stop and remove a server whose grace period is over, unless it has been
+	 * leased again.
+	 *
+	 * @param key
+	 *            configuration key of the server
+	 * @param entry
+	 *            the registered server
+	 */
+	private void stopIfIdle(Object key, Entry entry) {
+		synchronized (entriesLock) {
+			if (entry.leases > 0 || entries.get(key) != entry) {
+				return;
+			}
+			entries.remove(key);
+		}
+		stop(key, entry);
+	}
+
+	/**
+	 * Stop a registered server.
+	 *
+	 * @param key
+	 *            configuration key of the server
+	 * @param entry
+	 *            the registered server
+	 */
+	private void stop(Object key, Entry entry) {
+		synchronized (entry.serverLock) {
+			if (entry.server == null) {
+				return;
+			}
+			try {
+				entry.server.stopServer();
+				LOGGER.info("Stopped shared test server " + key);
+			} catch (FtpTestException e) {
+				LOGGER.warn("Could not stop shared test server " + key, e);
+			}
+			entry.server = null;
+		}
+	}
+
+	/**
+	 * Stop a server that failed to start, so that nothing it did start keeps
+	 * running, e.g. its threads or its listening port.
+	 *
+	 * @param key
+	 *            configuration key of the server
+	 * @param server
+	 *            the server that failed to start
+	 */
+	private static void stopFailed(Object key, TestServer server) {
+		try {
+			server.stopServer();
+		} catch (FtpTestException e) {
+			LOGGER.warn("Could not stop failed test server " + key, e);
+		} catch (RuntimeException e) {
+			// a half-started server may not be able to stop cleanly
+			LOGGER.warn("Could not stop failed test server " + key, e);
+		}
+	}
+
+	/**
+	 * @return number of servers currently registered, running or starting
+	 */
+	public int size() {
+		synchronized (entriesLock) {
+			return entries.size();
+		}
+	}
+
+	/**
+	 * Stop all registered servers immediately, whether leased or not.
+	 */
+	public void shutdown() {
+		Map<Object, Entry> stopping;
+		synchronized (entriesLock) {
+			stopping = new HashMap<Object, Entry>(entries);
+			for (Entry entry : entries.values()) {
+				entry.cancelStop();
+			}
+			entries.clear();
+		}
+		for (Map.Entry<Object, Entry> each : stopping.entrySet()) {
+			stop(each.getKey(), each.getValue());
+		}
+	}
+
+	/**
+	 * A registered server and its leases.
+	 */
+	private static final class Entry {
+
+		/**
+		 * Lock guarding {@link #server} while it starts and stops.
+		 */
+		private final Object serverLock = new Object();
+
+		/**
+		 * The running server or null while not started.
+		 */
+		private TestServer server;
+
+		/**
+		 * Number of leases held, guarded by the registry's entries lock.
+		 */
+		private int leases;
+
+		/**
+		 * Scheduled stop after the last lease was released or null.
+		 */
+		private ScheduledFuture<?> pendingStop;
+
+		/**
+		 * Cancel a scheduled stop, if any.
+		 */
+		void cancelStop() {
+			if (pendingStop != null) {
+				pendingStop.cancel(false);
+				pendingStop = null;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,244 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Starts and stops test servers without blocking the caller, alone or many
+ * in parallel:
+ *
+ * <pre>
+ * TestServers.startAll(sftpServer, ftpsServer, otherFtpsServer).join();
+ * ...
+ * TestServers.stopAll(1, TimeUnit.SECONDS, sftpServer, ftpsServer,
+ *     otherFtpsServer).join();
+ * </pre>
+ *
+ * Both servers bind their listening socket before
+ * {@link TestServer#startServer()} returns, so a start future completes when
+ * the server accepts connections and there is no need to probe the port.
+ * The work is done by a shared pool of daemon threads.
+ *
+ * @author drothauser
+ *
+ */
+public final class TestServers {
+
+	/**
+	 * SLF4J Logger for TestServers.
+	 */
+	private static final Logger LOGGER = LoggerFactory
+	    .getLogger(TestServers.class);
+
+	/**
+	 * Number of the next life cycle thread.
+	 */
+	private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+	/**
+	 * Threads starting and stopping servers.
+	 */
+	private static final ExecutorService EXECUTOR = Executors
+	    .newCachedThreadPool(new ThreadFactory() {
+		    @Override
+		    public Thread newThread(Runnable runnable) {
+			    Thread thread =
+			        new Thread(runnable, "test-server-lifecycle-"
+			            + THREAD_NUMBER.incrementAndGet());
+			    thread.setDaemon(true);
+			    return thread;
+		    }
+	    });
+
+	/**
+	 * Utility class.
+	 */
+	private TestServers() {
+		// static methods only
+	}
+
+	/**
+	 * @return threads starting and stopping servers
+	 */
+	static ExecutorService getExecutor() {
+		return EXECUTOR;
+	}
+
+	/**
+	 * Start a server in the background.
+	 *
+	 * @param <T>
+	 *            type of the server
+	 * @param server
+	 *            the server
+	 * @return a future completed with the server once it accepts
+	 *         connections, or with the {@link FtpTestException} if it could
+	 *         not start
+	 */
+	public static <T extends TestServer> CompletableFuture<T> start(
+	    final T server) {
+		return CompletableFuture.supplyAsync(new Supplier<T>() {
+			@Override
+			public T get() {
+				try {
+					server.startServer();
+					return server;
+				} catch (FtpTestException e) {
+					throw new CompletionException(e);
+				}
+			}
+		}, EXECUTOR);
+	}
+
+	/**
+	 * Stop a server in the background, waiting for its clients as
+	 * {@link TestServer#stopServer()} does.
+	 *
+	 * @param server
+	 *            the server
+	 * @return a future completed once the server has stopped
+	 */
+	public static CompletableFuture<Void> stop(final TestServer server) {
+		return CompletableFuture.runAsync(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					server.stopServer();
+				} catch (FtpTestException e) {
+					throw new CompletionException(e);
+				}
+			}
+		}, EXECUTOR);
+	}
+
+	/**
+	 * Stop a server in the background without waiting for its clients, see
+	 * {@link TestServer#stopServer(long, TimeUnit)}.
+	 *
+	 * @param server
+	 *            the server
+	 * @param timeout
+	 *            maximum time to spend on the teardown
+	 * @param unit
+	 *            unit of the timeout
+	 * @return a future completed with whether the teardown finished in time
+	 */
+	public static CompletableFuture<Boolean> stop(final TestServer server,
+	    final long timeout, final TimeUnit unit) {
+		return CompletableFuture.supplyAsync(new Supplier<Boolean>() {
+			@Override
+			public Boolean get() {
+				try {
+					return server.stopServer(timeout, unit);
+				} catch (FtpTestException e) {
+					throw new CompletionException(e);
+				}
+			}
+		}, EXECUTOR);
+	}
+
+	/**
+	 * Start servers in parallel. If any of them cannot start, those that did
+	 * are stopped again.
+	 *
+	 * @param servers
+	 *            the servers
+	 * @return a future completed once all servers accept connections, or with
+	 *         the first failure
+	 */
+	public static CompletableFuture<Void> startAll(
+	    final TestServer... servers) {
+		final List<CompletableFuture<TestServer>> starts =
+		    new ArrayList<CompletableFuture<TestServer>>();
+		for (TestServer server : servers) {
+			starts.add(start(server));
+		}
+		return CompletableFuture.allOf(
+		    starts.toArray(new CompletableFuture<?>[starts.size()]))
+		    .handle(new BiFunction<Void, Throwable, Void>() {
+			    @Override
+			    public Void apply(Void result, Throwable failure) {
+				    if (failure != null) {
+					    stopStarted(starts);
+					    throw failure instanceof CompletionException
+					        ? (CompletionException) failure
+					        : new CompletionException(failure);
+				    }
+				    return null;
+			    }
+		    });
+	}
+
+	/**
+	 * Stop servers in parallel without waiting for their clients, see
+	 * {@link TestServer#stopServer(long, TimeUnit)}.
+	 *
+	 * @param timeout
+	 *            maximum time to spend on the teardown of each server
+	 * @param unit
+	 *            unit of the timeout
+	 * @param servers
+	 *            the servers
+	 * @return a future completed with whether all teardowns finished in time,
+	 *         or with the first failure
+	 */
+	public static CompletableFuture<Boolean> stopAll(long timeout,
+	    TimeUnit unit, TestServer... servers) {
+		final List<CompletableFuture<Boolean>> stops =
+		    new ArrayList<CompletableFuture<Boolean>>();
+		for (TestServer server : servers) {
+			stops.add(stop(server, timeout, unit));
+		}
+		return CompletableFuture.allOf(
+		    stops.toArray(new CompletableFuture<?>[stops.size()]))
+		    .thenApply(new Function<Void, Boolean>() {
+			    @Override
+			    public Boolean apply(Void result) {
+				    boolean inTime = true;
+				    for (CompletableFuture<Boolean> stop : stops) {
+					    inTime &= stop.join();
+				    }
+				    return inTime;
+			    }
+		    });
+	}
+
+	/**
+	 * Stop the servers whose start succeeded, after another one failed.
+	 *
+	 * @param starts
+	 *            the completed starts
+	 */
+	private static void stopStarted(
+	    List<CompletableFuture<TestServer>> starts) {
+		for (CompletableFuture<TestServer> start : starts) {
+			if (start.isCompletedExceptionally()) {
+				continue;
+			}
+			TestServer server = start.join();
+			try {
+				server.stopServer();
+			} catch (FtpTestException e) {
+				LOGGER.warn("Could not stop test server on port "
+				    + server.getPort() + ": " + e, e);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,149 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.checksum;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+
+/**
+ * Output stream of an upload that updates the checksums with every byte
+ * written and publishes them to its {@link UploadChecksums} when closed.
+ * 
+ * @author drothauser
+ * 
+ */
+class ChecksumOutputStream
+        extends FilterOutputStream {
+
+	/**
+	 * Registry the checksums are published to.
+	 */
+	private final UploadChecksums registry;
+
+	/**
+	 * Path of the file as the client sees it.
+	 */
+	private final String path;
+
+	/**
+	 * SHA-256 of the content so far or null if not written sequentially.
+	 */
+	private final MessageDigest sha256;
+
+	/**
+	 * CRC-32C of the content so far.
+	 */
+	private final Crc32c crc32c;
+
+	/**
+	 * Bytes received so far.
+	 */
+	private long bytes;
+
+	/**
+	 * Whether the stream has been closed.
+	 */
+	private boolean closed;
+
+	/**
+	 * Constructor for ChecksumOutputStream.
+	 * 
+	 * @param out
+	 *            stream of the file
+	 * @param registry
+	 *            registry the checksums are published to
+	 * @param path
+	 *            path of the file as the client sees it
+	 * @param sha256
+	 *            SHA-256 of the content before the first byte written or null
+	 *            if the file is not written sequentially
+	 * @param crc32c
+	 *            CRC-32C of the content before the first byte written
+	 * @param bytes
+	 *            bytes received before the first byte written
+	 */
+	ChecksumOutputStream(OutputStream out, UploadChecksums registry,
+	    String path, MessageDigest sha256, Crc32c crc32c, long bytes) {
+		super(out);
+		this.registry = registry;
+		this.path = path;
+		this.sha256 = sha256;
+		this.crc32c = crc32c;
+		this.bytes = bytes;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void write(int b) throws IOException {
+		out.write(b);
+		if (sha256 != null) {
+			sha256.update((byte) b);
+			crc32c.update(b);
+		}
+		bytes++;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		out.write(b, off, len);
+		if (sha256 != null) {
+			sha256.update(b, off, len);
+			crc32c.update(b, off, len);
+		}
+		bytes += len;
+	}
+
+	/**
+	 * Close the file and publish the checksums.
+	 * 
+	 * @throws IOException
+	 *             {@inheritDoc}
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		super.close();
+		registry.publish(this);
+	}
+
+	/**
+	 * @return path of the file as the client sees it
+	 */
+	String getPath() {
+		return path;
+	}
+
+	/**
+	 * @return SHA-256 of the content so far or null if not written
+	 *         sequentially
+	 */
+	MessageDigest getSha256() {
+		return sha256;
+	}
+
+	/**
+	 * @return CRC-32C of the content so far
+	 */
+	Crc32c getCrc32c() {
+		return crc32c;
+	}
+
+	/**
+	 * @return bytes received so far
+	 */
+	long getBytes() {
+		return bytes;
+	}
+
+}
@@ -0,0 +1,156 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.checksum;
+
+import java.util.zip.Checksum;
+
+/**
+ * CRC-32C (Castagnoli) checksum, as used by iSCSI, ext4 and several object
+ * stores. The JVM only ships CRC-32C from Java 9 on, so this is a table
+ * driven implementation that processes eight bytes per step.
+ * 
+ * @author drothauser
+ * 
+ */
+public final class Crc32c
+        implements Checksum {
+
+	/**
+	 * Reversed Castagnoli polynomial.
+	 */
+	private static final int POLYNOMIAL = 0x82F63B78;
+
+	/**
+	 * Bytes processed per step of the sliced update.
+	 */
+	private static final int SLICES = 8;
+
+	/**
+	 * Entries per table.
+	 */
+	private static final int TABLE_SIZE = 256;
+
+	/**
+	 * Bytes per int.
+	 */
+	private static final int INT_BYTES = 4;
+
+	/**
+	 * Bits per byte.
+	 */
+	private static final int BYTE_BITS = 8;
+
+	/**
+	 * Mask of the low byte.
+	 */
+	private static final int BYTE_MASK = 0xff;
+
+	/**
+	 * Mask of the low 32 bits of a long.
+	 */
+	private static final long INT_MASK = 0xffffffffL;
+
+	/**
+	 * Lookup tables: entry [k][b] is the CRC of byte b followed by k zero
+	 * bytes.
+	 */
+	private static final int[][] TABLES = createTables();
+
+	/**
+	 * Inverted running CRC.
+	 */
+	private int crc = ~0;
+
+	/**
+	 * Constructor for an empty checksum.
+	 */
+	public Crc32c() {
+		// starts empty
+	}
+
+	/**
+	 * Copy constructor, e.g. to continue a checksum without changing the
+	 * original.
+	 * 
+	 * @param other
+	 *            checksum to copy
+	 */
+	public Crc32c(Crc32c other) {
+		crc = other.crc;
+	}
+
+	/**
+	 * @return the lookup tables
+	 */
+	private static int[][] createTables() {
+		int[][] tables = new int[SLICES][TABLE_SIZE];
+		for (int b = 0; b < TABLE_SIZE; b++) {
+			int value = b;
+			for (int bit = 0; bit < BYTE_BITS; bit++) {
+				value = (value & 1) == 0 ? value >>> 1
+				    : value >>> 1 ^ POLYNOMIAL;
+			}
+			tables[0][b] = value;
+		}
+		for (int b = 0; b < TABLE_SIZE; b++) {
+			for (int k = 1; k < SLICES; k++) {
+				int previous = tables[k - 1][b];
+				tables[k][b] =
+				    previous >>> BYTE_BITS ^ tables[0][previous & BYTE_MASK];
+			}
+		}
+		return tables;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void update(int b) {
+		crc = crc >>> BYTE_BITS ^ TABLES[0][(crc ^ b) & BYTE_MASK];
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void update(byte[] b, int off, int len) {
+		int value = crc;
+		int i = off;
+		int end = off + len;
+		int[][] t = TABLES;
+		for (; end - i >= SLICES; i += SLICES) {
+			// the first four bytes are combined with the running CRC
+			int next = 0;
+			for (int j = 0; j < SLICES; j++) {
+				int index =
+				    j < INT_BYTES ? (value >>> j * BYTE_BITS ^ b[i + j])
+				        & BYTE_MASK : b[i + j] & BYTE_MASK;
+				next ^= t[SLICES - 1 - j][index];
+			}
+			value = next;
+		}
+		for (; i < end; i++) {
+			value = value >>> BYTE_BITS ^ t[0][(value ^ b[i]) & BYTE_MASK];
+		}
+		crc = value;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getValue() {
+		return ~crc & INT_MASK;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void reset() {
+		crc = ~0;
+	}
+
+}
@@ -0,0 +1,136 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.checksum;
+
+/**
+ * Checksums and byte count of the upload of one path, computed by the server
+ * as the bytes arrived. Checksums are only available when the file was
+ * written sequentially from offset 0, possibly resumed at its end; a write
+ * at any other offset leaves only the byte count.
+ * 
+ * @author drothauser
+ * 
+ */
+public final class UploadChecksum {
+
+	/**
+	 * Hexadecimal digits.
+	 */
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	/**
+	 * Bits per hexadecimal digit.
+	 */
+	private static final int HEX_BITS = 4;
+
+	/**
+	 * Mask of a hexadecimal digit.
+	 */
+	private static final int HEX_MASK = 0xf;
+
+	/**
+	 * Path of the file as the client sees it.
+	 */
+	private final String path;
+
+	/**
+	 * Bytes received since the upload started at offset 0.
+	 */
+	private final long bytes;
+
+	/**
+	 * SHA-256 of the content or null.
+	 */
+	private final byte[] sha256;
+
+	/**
+	 * CRC-32C of the content or -1.
+	 */
+	private final long crc32c;
+
+	/**
+	 * Constructor for UploadChecksum.
+	 * 
+	 * @param path
+	 *            path of the file as the client sees it
+	 * @param bytes
+	 *            bytes received
+	 * @param sha256
+	 *            SHA-256 of the content or null if the file was not written
+	 *            sequentially
+	 * @param crc32c
+	 *            CRC-32C of the content, ignored without a SHA-256
+	 */
+	UploadChecksum(String path, long bytes, byte[] sha256, long crc32c) {
+		this.path = path;
+		this.bytes = bytes;
+		this.sha256 = sha256;
+		this.crc32c = sha256 == null ? -1 : crc32c;
+	}
+
+	/**
+	 * @return path of the file as the client sees it, e.g. /dir/data.txt
+	 */
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * @return bytes received since the upload started at offset 0, which is
+	 *         the file size if it was written sequentially
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * @return whether the file was written sequentially so that the
+	 *         checksums are available
+	 */
+	public boolean isSequential() {
+		return sha256 != null;
+	}
+
+	/**
+	 * @return SHA-256 of the content or null if the file was not written
+	 *         sequentially
+	 */
+	public byte[] getSha256() {
+		return sha256 == null ? null : sha256.clone();
+	}
+
+	/**
+	 * @return SHA-256 of the content in lower case hexadecimal or null if the
+	 *         file was not written sequentially
+	 */
+	public String getSha256Hex() {
+		if (sha256 == null) {
+			return null;
+		}
+		StringBuilder hex = new StringBuilder(sha256.length * 2);
+		for (byte b : sha256) {
+			hex.append(HEX_DIGITS[b >>> HEX_BITS & HEX_MASK]).append(
+			    HEX_DIGITS[b & HEX_MASK]);
+		}
+		return hex.toString();
+	}
+
+	/**
+	 * @return CRC-32C of the content, see {@link Crc32c}, or -1 if the file
+	 *         was not written sequentially
+	 */
+	public long getCrc32c() {
+		return crc32c;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return "UploadChecksum[path=" + path + ",bytes=" + bytes + ",sha256="
+		    + getSha256Hex() + ",crc32c=" + Long.toHexString(crc32c) + "]";
+	}
+
+}
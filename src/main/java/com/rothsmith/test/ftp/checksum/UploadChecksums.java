@@ -0,0 +1,214 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.checksum;
+
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Checksums of the files uploaded to a server, keyed by the path the client
+ * sees. The SHA-256 and CRC-32C are computed as the bytes are written, so a
+ * test can verify an upload of any size without reading it back. The
+ * checksums of an upload are published when its stream is closed, i.e. by the
+ * time the server has answered the transfer.
+ * <p>
+ * An upload from offset 0 starts new checksums for its path. An upload that
+ * resumes a sequential upload at its end, e.g. FTP REST/APPE or an SFTP
+ * write continuing a closed handle, continues them. An upload at any other
+ * offset only counts bytes, see {@link UploadChecksum#isSequential()}.
+ * Entries are kept when a file is renamed or deleted, until {@link #clear()}.
+ * <p>
+ * Checksums cost CPU time on every upload, so they are only computed once
+ * enabled with {@link #setEnabled(boolean)}.
+ * 
+ * @author drothauser
+ * 
+ */
+public class UploadChecksums {
+
+	/**
+	 * SLF4J Logger for UploadChecksums.
+	 */
+	private static final Logger LOGGER = LoggerFactory
+	    .getLogger(UploadChecksums.class);
+
+	/**
+	 * Digest algorithm.
+	 */
+	private static final String SHA_256 = "SHA-256";
+
+	/**
+	 * Last closed upload of each path.
+	 */
+	private final ConcurrentMap<String, Upload> uploads =
+	    new ConcurrentHashMap<String, Upload>();
+
+	/**
+	 * Whether uploads are checksummed.
+	 */
+	private volatile boolean enabled;
+
+	/**
+	 * @return whether uploads are checksummed
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * @param enabled
+	 *            whether uploads opened from now on are checksummed
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Return the checksums of the last upload of a path.
+	 * 
+	 * @param path
+	 *            path of the file as the client sees it, e.g. /dir/data.txt
+	 * @return the checksums or null if nothing was uploaded to the path
+	 */
+	public UploadChecksum get(String path) {
+		Upload upload = uploads.get(path);
+		return upload == null ? null : upload.checksum;
+	}
+
+	/**
+	 * @return checksums of all uploaded paths, sorted by path
+	 */
+	public SortedMap<String, UploadChecksum> getAll() {
+		SortedMap<String, UploadChecksum> all =
+		    new TreeMap<String, UploadChecksum>();
+		for (Map.Entry<String, Upload> entry : uploads.entrySet()) {
+			all.put(entry.getKey(), entry.getValue().checksum);
+		}
+		return Collections.unmodifiableSortedMap(all);
+	}
+
+	/**
+	 * Forget all checksums, e.g. between tests.
+	 */
+	public void clear() {
+		uploads.clear();
+	}
+
+	/**
+	 * Wrap the stream of an upload, for use by file systems.
+	 * 
+	 * @param path
+	 *            path of the file as the client sees it
+	 * @param offset
+	 *            offset the upload starts at
+	 * @param out
+	 *            stream of the file
+	 * @return a stream computing the checksums, or the stream itself if
+	 *         checksums are not enabled
+	 */
+	public OutputStream wrap(String path, long offset, OutputStream out) {
+		if (!enabled) {
+			return out;
+		}
+		MessageDigest sha256 = null;
+		Crc32c crc32c = new Crc32c();
+		long bytes = 0;
+		Upload previous = uploads.get(path);
+		if (offset == 0) {
+			sha256 = newSha256();
+		} else if (previous != null) {
+			bytes = previous.stream.getBytes();
+			if (previous.checksum.isSequential() && offset == bytes) {
+				sha256 = copy(previous.stream.getSha256());
+				crc32c = new Crc32c(previous.stream.getCrc32c());
+			}
+		}
+		return new ChecksumOutputStream(out, this, path, sha256, crc32c,
+		    bytes);
+	}
+
+	/**
+	 * Publish the checksums of a closed upload.
+	 * 
+	 * @param stream
+	 *            stream of the upload
+	 */
+	void publish(ChecksumOutputStream stream) {
+		MessageDigest sha256 = copy(stream.getSha256());
+		UploadChecksum checksum =
+		    new UploadChecksum(stream.getPath(), stream.getBytes(),
+		        sha256 == null ? null : sha256.digest(), stream.getCrc32c()
+		            .getValue());
+		uploads.put(stream.getPath(), new Upload(stream, checksum));
+	}
+
+	/**
+	 * @return a new SHA-256 digest or null if the JVM lacks one
+	 */
+	private static MessageDigest newSha256() {
+		try {
+			return MessageDigest.getInstance(SHA_256);
+		} catch (NoSuchAlgorithmException e) {
+			LOGGER.warn("Upload checksums are not available: " + e, e);
+			return null;
+		}
+	}
+
+	/**
+	 * @param digest
+	 *            a digest or null
+	 * @return a copy of the digest or null if it cannot be copied
+	 */
+	private static MessageDigest copy(MessageDigest digest) {
+		if (digest == null) {
+			return null;
+		}
+		try {
+			return (MessageDigest) digest.clone();
+		} catch (CloneNotSupportedException e) {
+			LOGGER.warn("Upload checksums are not available: " + e, e);
+			return null;
+		}
+	}
+
+	/**
+	 * A closed upload and its checksums.
+	 */
+	private static final class Upload {
+
+		/**
+		 * Stream of the upload, holding the checksum state to continue from.
+		 */
+		private final ChecksumOutputStream stream;
+
+		/**
+		 * Published checksums.
+		 */
+		private final UploadChecksum checksum;
+
+		/**
+		 * Constructor for Upload.
+		 * 
+		 * @param stream
+		 *            stream of the upload
+		 * @param checksum
+		 *            published checksums
+		 */
+		Upload(ChecksumOutputStream stream, UploadChecksum checksum) {
+			this.stream = stream;
+			this.checksum = checksum;
+		}
+	}
+
+}
@@ -0,0 +1,7 @@
+/**
+ * Checksums of uploads computed by the FTP test servers as the bytes arrive,
+ * so that tests can verify an upload without reading the file back.
+ * 
+ * @author drothauser
+ */
+package com.rothsmith.test.ftp.checksum;
@@ -0,0 +1,241 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.events;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ftpserver.ftplet.FtpFile;
+
+/**
+ * FTP file that reports its uploads, renames and deletes to its view.
+ * 
+ * @author drothauser
+ * 
+ */
+class EventFtpFile
+        implements FtpFile {
+
+	/**
+	 * The file wrapped.
+	 */
+	private final FtpFile file;
+
+	/**
+	 * View of the session.
+	 */
+	private final EventFtpFileSystemView view;
+
+	/**
+	 * Constructor for EventFtpFile.
+	 * 
+	 * @param file
+	 *            the file wrapped
+	 * @param view
+	 *            view of the session
+	 */
+	EventFtpFile(FtpFile file, EventFtpFileSystemView view) {
+		this.file = file;
+		this.view = view;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public InputStream createInputStream(long offset) throws IOException {
+		return file.createInputStream(offset);
+	}
+
+	/**
+	 * Open the file for an upload that is reported when closed.
+	 * 
+	 * @param offset
+	 *            {@inheritDoc}
+	 * @return {@inheritDoc}
+	 * @throws IOException
+	 *             {@inheritDoc}
+	 */
+	@Override
+	public OutputStream createOutputStream(long offset) throws IOException {
+		return view.upload(file.getAbsolutePath(), offset,
+		    file.createOutputStream(offset));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean move(FtpFile destination) {
+		// the path of the file may change with the move
+		String path = file.getAbsolutePath();
+		boolean moved =
+		    file.move(destination instanceof EventFtpFile
+		        ? ((EventFtpFile) destination).file : destination);
+		if (moved) {
+			view.renamed(path, destination.getAbsolutePath());
+		}
+		return moved;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<FtpFile> listFiles() {
+		List<FtpFile> files = file.listFiles();
+		if (files == null) {
+			return null;
+		}
+		List<FtpFile> wrapped = new ArrayList<FtpFile>(files.size());
+		for (FtpFile each : files) {
+			wrapped.add(view.wrap(each));
+		}
+		return wrapped;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getAbsolutePath() {
+		return file.getAbsolutePath();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getName() {
+		return file.getName();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isHidden() {
+		return file.isHidden();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isDirectory() {
+		return file.isDirectory();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isFile() {
+		return file.isFile();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean doesExist() {
+		return file.doesExist();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isReadable() {
+		return file.isReadable();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isWritable() {
+		return file.isWritable();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isRemovable() {
+		return file.isRemovable();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getOwnerName() {
+		return file.getOwnerName();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getGroupName() {
+		return file.getGroupName();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getLinkCount() {
+		return file.getLinkCount();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getLastModified() {
+		return file.getLastModified();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean setLastModified(long time) {
+		return file.setLastModified(time);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getSize() {
+		return file.getSize();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean mkdir() {
+		return file.mkdir();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean delete() {
+		boolean deleted = file.delete();
+		if (deleted) {
+			view.deleted(file.getAbsolutePath());
+		}
+		return deleted;
+	}
+
+}
@@ -0,0 +1,86 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.events;
+
+import org.apache.ftpserver.ftplet.FileSystemFactory;
+import org.apache.ftpserver.ftplet.FileSystemView;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.User;
+
+import com.rothsmith.test.ftp.checksum.UploadChecksums;
+
+/**
+ * File system of an FTP server that reports finished uploads (STOR, APPE and
+ * STOU), renames and deletes as {@link FileEvents}, and computes
+ * {@link UploadChecksums} of uploads as they are written if enabled.
+ * 
+ * @author drothauser
+ * 
+ */
+public class EventFtpFileSystemFactory
+        implements FileSystemFactory {
+
+	/**
+	 * File system the files are kept in.
+	 */
+	private final FileSystemFactory fileSystem;
+
+	/**
+	 * Events the file system reports to.
+	 */
+	private final FileEvents events;
+
+	/**
+	 * Checksums of the uploads.
+	 */
+	private final UploadChecksums checksums;
+
+	/**
+	 * Constructor for EventFtpFileSystemFactory.
+	 * 
+	 * @param fileSystem
+	 *            file system the files are kept in
+	 * @param events
+	 *            events the file system reports to
+	 * @param checksums
+	 *            checksums of the uploads
+	 */
+	public EventFtpFileSystemFactory(FileSystemFactory fileSystem,
+	    FileEvents events, UploadChecksums checksums) {
+		this.fileSystem = fileSystem;
+		this.events = events;
+		this.checksums = checksums;
+	}
+
+	/**
+	 * @return file system the files are kept in
+	 */
+	public FileSystemFactory getFileSystem() {
+		return fileSystem;
+	}
+
+	/**
+	 * @return events the file system reports to
+	 */
+	public FileEvents getEvents() {
+		return events;
+	}
+
+	/**
+	 * @return checksums of the uploads
+	 */
+	public UploadChecksums getChecksums() {
+		return checksums;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public FileSystemView createFileSystemView(User user) throws FtpException {
+		return new EventFtpFileSystemView(
+		    fileSystem.createFileSystemView(user), events, checksums);
+	}
+
+}
@@ -0,0 +1,90 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.events;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Output stream of an upload that counts the bytes written and reports an
+ * {@link FileEvent.Type#UPLOADED} event when closed.
+ * 
+ * @author drothauser
+ * 
+ */
+class EventOutputStream
+        extends FilterOutputStream {
+
+	/**
+	 * Events the upload is reported to.
+	 */
+	private final FileEvents events;
+
+	/**
+	 * Path of the file as the client sees it.
+	 */
+	private final String path;
+
+	/**
+	 * Bytes written so far.
+	 */
+	private long bytes;
+
+	/**
+	 * Whether the stream has been closed.
+	 */
+	private boolean closed;
+
+	/**
+	 * Constructor for EventOutputStream.
+	 * 
+	 * @param out
+	 *            stream of the file
+	 * @param events
+	 *            events the upload is reported to
+	 * @param path
+	 *            path of the file as the client sees it
+	 */
+	EventOutputStream(OutputStream out, FileEvents events, String path) {
+		super(out);
+		this.events = events;
+		this.path = path;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void write(int b) throws IOException {
+		out.write(b);
+		bytes++;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		out.write(b, off, len);
+		bytes += len;
+	}
+
+	/**
+	 * Close the file and report the upload.
+	 * 
+	 * @throws IOException
+	 *             {@inheritDoc}
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		super.close();
+		events.fire(new FileEvent(FileEvent.Type.UPLOADED, path, null, bytes));
+	}
+
+}
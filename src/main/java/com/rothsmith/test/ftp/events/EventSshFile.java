@@ -0,0 +1,319 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.events;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.sshd.common.file.SshFile;
+
+/**
+ * SSH file that reports its uploads, renames and deletes to its view.
+ * 
+ * @author drothauser
+ * 
+ */
+class EventSshFile
+        implements SshFile {
+
+	/**
+	 * The file wrapped.
+	 */
+	private final SshFile file;
+
+	/**
+	 * View of the session.
+	 */
+	private final EventSshFileSystemView view;
+
+	/**
+	 * Constructor for EventSshFile.
+	 * 
+	 * @param file
+	 *            the file wrapped
+	 * @param view
+	 *            view of the session
+	 */
+	EventSshFile(SshFile file, EventSshFileSystemView view) {
+		this.file = file;
+		this.view = view;
+	}
+
+	/**
+	 * @param file
+	 *            a file or null
+	 * @return the file wrapped if the file is a EventSshFile, else the
+	 *         file
+	 */
+	static SshFile unwrap(SshFile file) {
+		return file instanceof EventSshFile ? ((EventSshFile) file).file
+		    : file;
+	}
+
+	/**
+	 * Open the file for an upload that is reported when closed.
+	 * 
+	 * @param offset
+	 *            {@inheritDoc}
+	 * @return {@inheritDoc}
+	 * @throws IOException
+	 *             {@inheritDoc}
+	 */
+	@Override
+	public OutputStream createOutputStream(long offset) throws IOException {
+		return view.upload(file.getAbsolutePath(), offset,
+		    file.createOutputStream(offset));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void createSymbolicLink(SshFile destination) throws IOException {
+		file.createSymbolicLink(unwrap(destination));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean move(SshFile destination) {
+		// the path of the file may change with the move
+		String path = file.getAbsolutePath();
+		boolean moved = file.move(unwrap(destination));
+		if (moved) {
+			view.renamed(path, destination.getAbsolutePath());
+		}
+		return moved;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public SshFile getParentFile() {
+		return view.wrap(file.getParentFile());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<SshFile> listSshFiles() {
+		List<SshFile> files = file.listSshFiles();
+		if (files == null) {
+			return null;
+		}
+		List<SshFile> wrapped = new ArrayList<SshFile>(files.size());
+		for (SshFile each : files) {
+			wrapped.add(view.wrap(each));
+		}
+		return wrapped;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getAbsolutePath() {
+		return file.getAbsolutePath();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getName() {
+		return file.getName();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Map<Attribute, Object> getAttributes(boolean followLinks)
+	        throws IOException {
+		return file.getAttributes(followLinks);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setAttributes(Map<Attribute, Object> attributes)
+	        throws IOException {
+		file.setAttributes(attributes);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Object getAttribute(Attribute attribute, boolean followLinks)
+	        throws IOException {
+		return file.getAttribute(attribute, followLinks);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setAttribute(Attribute attribute, Object value)
+	        throws IOException {
+		file.setAttribute(attribute, value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String readSymbolicLink() throws IOException {
+		return file.readSymbolicLink();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getOwner() {
+		return file.getOwner();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isDirectory() {
+		return file.isDirectory();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isFile() {
+		return file.isFile();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean doesExist() {
+		return file.doesExist();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isReadable() {
+		return file.isReadable();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isWritable() {
+		return file.isWritable();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isExecutable() {
+		return file.isExecutable();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isRemovable() {
+		return file.isRemovable();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getLastModified() {
+		return file.getLastModified();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean setLastModified(long time) {
+		return file.setLastModified(time);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getSize() {
+		return file.getSize();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean mkdir() {
+		return file.mkdir();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean delete() {
+		boolean deleted = file.delete();
+		if (deleted) {
+			view.deleted(file.getAbsolutePath());
+		}
+		return deleted;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean create() throws IOException {
+		return file.create();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void truncate() throws IOException {
+		file.truncate();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public InputStream createInputStream(long offset) throws IOException {
+		return file.createInputStream(offset);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void handleClose() throws IOException {
+		file.handleClose();
+	}
+
+}
@@ -0,0 +1,88 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.events;
+
+import java.io.IOException;
+
+import org.apache.sshd.common.Session;
+import org.apache.sshd.common.file.FileSystemFactory;
+import org.apache.sshd.common.file.FileSystemView;
+
+import com.rothsmith.test.ftp.checksum.UploadChecksums;
+
+/**
+ * File system of an SSH server that reports finished SFTP and SCP uploads,
+ * renames and deletes as {@link FileEvents}, and computes
+ * {@link UploadChecksums} of uploads as they are written if enabled.
+ * 
+ * @author drothauser
+ * 
+ */
+public class EventSshFileSystemFactory
+        implements FileSystemFactory {
+
+	/**
+	 * File system the files are kept in.
+	 */
+	private final FileSystemFactory fileSystem;
+
+	/**
+	 * Events the file system reports to.
+	 */
+	private final FileEvents events;
+
+	/**
+	 * Checksums of the uploads.
+	 */
+	private final UploadChecksums checksums;
+
+	/**
+	 * Constructor for EventSshFileSystemFactory.
+	 * 
+	 * @param fileSystem
+	 *            file system the files are kept in
+	 * @param events
+	 *            events the file system reports to
+	 * @param checksums
+	 *            checksums of the uploads
+	 */
+	public EventSshFileSystemFactory(FileSystemFactory fileSystem,
+	    FileEvents events, UploadChecksums checksums) {
+		this.fileSystem = fileSystem;
+		this.events = events;
+		this.checksums = checksums;
+	}
+
+	/**
+	 * @return file system the files are kept in
+	 */
+	public FileSystemFactory getFileSystem() {
+		return fileSystem;
+	}
+
+	/**
+	 * @return events the file system reports to
+	 */
+	public FileEvents getEvents() {
+		return events;
+	}
+
+	/**
+	 * @return checksums of the uploads
+	 */
+	public UploadChecksums getChecksums() {
+		return checksums;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public FileSystemView createFileSystemView(Session session)
+	        throws IOException {
+		return new EventSshFileSystemView(
+		    fileSystem.createFileSystemView(session), events, checksums);
+	}
+
+}
@@ -0,0 +1,129 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.events;
+
+import java.io.OutputStream;
+
+import org.apache.sshd.common.file.FileSystemView;
+import org.apache.sshd.common.file.SshFile;
+
+import com.rothsmith.test.ftp.checksum.UploadChecksums;
+
+/**
+ * File system view of one SSH session that reports file events and
+ * checksums uploads.
+ * 
+ * @author drothauser
+ * 
+ */
+class EventSshFileSystemView
+        implements FileSystemView {
+
+	/**
+	 * The view wrapped.
+	 */
+	private final FileSystemView view;
+
+	/**
+	 * Events the view reports to.
+	 */
+	private final FileEvents events;
+
+	/**
+	 * Checksums of the uploads.
+	 */
+	private final UploadChecksums checksums;
+
+	/**
+	 * Constructor for EventSshFileSystemView.
+	 * 
+	 * @param view
+	 *            the view wrapped
+	 * @param events
+	 *            events the view reports to
+	 * @param checksums
+	 *            checksums of the uploads
+	 */
+	EventSshFileSystemView(FileSystemView view, FileEvents events,
+	    UploadChecksums checksums) {
+		this.view = view;
+		this.events = events;
+		this.checksums = checksums;
+	}
+
+	/**
+	 * @param file
+	 *            a file of the wrapped view
+	 * @return the file reporting its events
+	 */
+	SshFile wrap(SshFile file) {
+		return file == null ? null : new EventSshFile(file, this);
+	}
+
+	/**
+	 * Wrap the stream of an upload so that it is checksummed and reported
+	 * when closed.
+	 * 
+	 * @param path
+	 *            path of the file as the client sees it
+	 * @param offset
+	 *            offset the upload starts at
+	 * @param out
+	 *            stream of the file
+	 * @return the wrapped stream
+	 */
+	OutputStream upload(String path, long offset, OutputStream out) {
+		return new EventOutputStream(checksums.wrap(path, offset, out),
+		    events, path);
+	}
+
+	/**
+	 * Report a rename.
+	 * 
+	 * @param path
+	 *            old path of the file
+	 * @param target
+	 *            new path of the file
+	 */
+	void renamed(String path, String target) {
+		events.fire(new FileEvent(FileEvent.Type.RENAMED, path, target, -1));
+	}
+
+	/**
+	 * Report a delete.
+	 * 
+	 * @param path
+	 *            path of the file
+	 */
+	void deleted(String path) {
+		events.fire(new FileEvent(FileEvent.Type.DELETED, path, null, -1));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public SshFile getFile(String file) {
+		return wrap(view.getFile(file));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public SshFile getFile(SshFile baseDir, String file) {
+		return wrap(view.getFile(EventSshFile.unwrap(baseDir), file));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public FileSystemView getNormalizedView() {
+		FileSystemView normalized = view.getNormalizedView();
+		return normalized == view ? this : new EventSshFileSystemView(
+		    normalized, events, checksums);
+	}
+
+}
@@ -0,0 +1,138 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.events;
+
+/**
+ * Something that happened to a file of a test server, reported when the
+ * server has done it.
+ * 
+ * @author drothauser
+ * 
+ */
+public final class FileEvent {
+
+	/**
+	 * What happened to the file.
+	 */
+	public enum Type {
+
+		/**
+		 * An upload to the file was closed, normally because the transfer
+		 * finished.
+		 */
+		UPLOADED,
+
+		/**
+		 * The file was renamed or moved.
+		 */
+		RENAMED,
+
+		/**
+		 * The file or directory was deleted.
+		 */
+		DELETED
+	}
+
+	/**
+	 * What happened.
+	 */
+	private final Type type;
+
+	/**
+	 * Path of the file as the client sees it.
+	 */
+	private final String path;
+
+	/**
+	 * New path of a renamed file or null.
+	 */
+	private final String target;
+
+	/**
+	 * Bytes written by an upload or -1.
+	 */
+	private final long bytes;
+
+	/**
+	 * Time of the event in milliseconds since the epoch.
+	 */
+	private final long time;
+
+	/**
+	 * Constructor for FileEvent.
+	 * 
+	 * @param type
+	 *            what happened
+	 * @param path
+	 *            path of the file as the client sees it
+	 * @param target
+	 *            new path of a renamed file or null
+	 * @param bytes
+	 *            bytes written by an upload or -1
+	 */
+	FileEvent(Type type, String path, String target, long bytes) {
+		this.type = type;
+		this.path = path;
+		this.target = target;
+		this.bytes = bytes;
+		time = System.currentTimeMillis();
+	}
+
+	/**
+	 * @return what happened
+	 */
+	public Type getType() {
+		return type;
+	}
+
+	/**
+	 * @return path of the file as the client sees it, e.g. /dir/data.txt; the
+	 *         old path of a renamed file
+	 */
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * @return new path of a renamed file or null
+	 */
+	public String getTarget() {
+		return target;
+	}
+
+	/**
+	 * @return bytes written by an upload or -1 for other events
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * @return time of the event in milliseconds since the epoch
+	 */
+	public long getTime() {
+		return time;
+	}
+
+	/**
+	 * @param otherPath
+	 *            a path as the client sees it
+	 * @return whether the event changed the file at the path, which for a
+	 *         rename is the old and the new path
+	 */
+	public boolean affects(String otherPath) {
+		return path.equals(otherPath) || otherPath.equals(target);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return "FileEvent[type=" + type + ",path=" + path
+		    + (target == null ? "" : ",target=" + target)
+		    + (bytes < 0 ? "" : ",bytes=" + bytes) + "]";
+	}
+
+}
@@ -0,0 +1,225 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.events;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * File events of a server, so that a test can wait for an upload, rename or
+ * delete instead of polling the server's files. Paths are those the client
+ * sees, e.g. /dir/data.txt.
+ * <p>
+ * The latest event of every path is kept: waiting for an event that already
+ * is the latest of its path completes at once, so a test cannot miss a
+ * transfer that finished before it started waiting. Call {@link #clear()}
+ * before reusing a path for a new transfer. Futures are completed on the
+ * server thread that reported the event, so dependent actions should be
+ * quick or use the asynchronous variants of {@link CompletableFuture}.
+ * 
+ * @author drothauser
+ * 
+ */
+public class FileEvents {
+
+	/**
+	 * Guards the latest events and the waiters.
+	 */
+	private final Object lock = new Object();
+
+	/**
+	 * Latest event of every path.
+	 */
+	private final Map<String, FileEvent> latest =
+	    new HashMap<String, FileEvent>();
+
+	/**
+	 * Futures waiting for an event.
+	 */
+	private final List<Waiter> waiters = new ArrayList<Waiter>();
+
+	/**
+	 * Wait for an event on a path.
+	 * 
+	 * @param path
+	 *            path of the file as the client sees it
+	 * @param types
+	 *            events to wait for, none for any event
+	 * @return a future completed with the event, at once if the latest event
+	 *         of the path is one of the types
+	 */
+	public CompletableFuture<FileEvent> await(String path,
+	    FileEvent.Type... types) {
+		Set<FileEvent.Type> accepted =
+		    types.length == 0 ? EnumSet.allOf(FileEvent.Type.class)
+		        : EnumSet.copyOf(Arrays.asList(types));
+		CompletableFuture<FileEvent> future =
+		    new CompletableFuture<FileEvent>();
+		FileEvent event;
+		synchronized (lock) {
+			event = latest.get(path);
+			if (event == null || !accepted.contains(event.getType())) {
+				waiters.add(new Waiter(path, accepted, future));
+				return future;
+			}
+		}
+		future.complete(event);
+		return future;
+	}
+
+	/**
+	 * Wait for an event on a path, blocking up to a timeout.
+	 * 
+	 * @param path
+	 *            path of the file as the client sees it
+	 * @param timeout
+	 *            maximum time to wait
+	 * @param unit
+	 *            unit of the timeout
+	 * @param types
+	 *            events to wait for, none for any event
+	 * @return the event
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 * @throws TimeoutException
+	 *             if no such event happened in time
+	 */
+	public FileEvent await(String path, long timeout, TimeUnit unit,
+	    FileEvent.Type... types) throws InterruptedException,
+	        TimeoutException {
+		CompletableFuture<FileEvent> future = await(path, types);
+		try {
+			return future.get(timeout, unit);
+		} catch (ExecutionException e) {
+			// futures are only ever completed normally
+			throw new IllegalStateException(e);
+		} catch (TimeoutException e) {
+			throw new TimeoutException("No " + Arrays.toString(types)
+			    + " event on " + path + " within " + timeout + " "
+			    + unit.toString().toLowerCase(Locale.US));
+		} finally {
+			if (future.cancel(false)) {
+				remove(future);
+			}
+		}
+	}
+
+	/**
+	 * Stop waiting for an event.
+	 * 
+	 * @param future
+	 *            future of the waiter
+	 */
+	private void remove(CompletableFuture<FileEvent> future) {
+		synchronized (lock) {
+			for (Iterator<Waiter> i = waiters.iterator(); i.hasNext();) {
+				if (i.next().future == future) {
+					i.remove();
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param path
+	 *            path of the file as the client sees it
+	 * @return the latest event of the path or null
+	 */
+	public FileEvent getLatest(String path) {
+		synchronized (lock) {
+			return latest.get(path);
+		}
+	}
+
+	/**
+	 * Forget the latest events, e.g. between tests. Futures still waiting are
+	 * not affected.
+	 */
+	public void clear() {
+		synchronized (lock) {
+			latest.clear();
+		}
+	}
+
+	/**
+	 * Record an event and complete the futures waiting for it.
+	 * 
+	 * @param event
+	 *            the event
+	 */
+	void fire(FileEvent event) {
+		List<CompletableFuture<FileEvent>> completed =
+		    new ArrayList<CompletableFuture<FileEvent>>();
+		synchronized (lock) {
+			latest.put(event.getPath(), event);
+			if (event.getTarget() != null) {
+				latest.put(event.getTarget(), event);
+			}
+			for (Iterator<Waiter> i = waiters.iterator(); i.hasNext();) {
+				Waiter waiter = i.next();
+				if (waiter.future.isDone()) {
+					i.remove();
+				} else if (waiter.types.contains(event.getType())
+				    && event.affects(waiter.path)) {
+					i.remove();
+					completed.add(waiter.future);
+				}
+			}
+		}
+		for (CompletableFuture<FileEvent> future : completed) {
+			future.complete(event);
+		}
+	}
+
+	/**
+	 * A future waiting for an event.
+	 */
+	private static final class Waiter {
+
+		/**
+		 * Path waited for.
+		 */
+		private final String path;
+
+		/**
+		 * Events waited for.
+		 */
+		private final Set<FileEvent.Type> types;
+
+		/**
+		 * Future to complete.
+		 */
+		private final CompletableFuture<FileEvent> future;
+
+		/**
+		 * Constructor for Waiter.
+		 * 
+		 * @param path
+		 *            path waited for
+		 * @param types
+		 *            events waited for
+		 * @param future
+		 *            future to complete
+		 */
+		Waiter(String path, Set<FileEvent.Type> types,
+		    CompletableFuture<FileEvent> future) {
+			this.path = path;
+			this.types = types;
+			this.future = future;
+		}
+	}
+
+}
@@ -0,0 +1,8 @@
+/**
+ * File events of the FTP test servers: uploads finishing, renames and
+ * deletes, reported by the servers' file systems so that tests can wait for a
+ * transfer instead of polling for it.
+ * 
+ * @author drothauser
+ */
+package com.rothsmith.test.ftp.events;
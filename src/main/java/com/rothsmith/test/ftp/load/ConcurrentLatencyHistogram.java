@@ -0,0 +1,76 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.load;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * {@link LatencyHistogram} that any number of threads can record into
+ * without locking, e.g. the threads of a server. Read it through
+ * {@link #getSnapshot()}.
+ * 
+ * @author drothauser
+ * 
+ */
+public class ConcurrentLatencyHistogram {
+
+	/**
+	 * Counts per bucket.
+	 */
+	private final AtomicLongArray counts = new AtomicLongArray(
+	    LatencyHistogram.BUCKETS);
+
+	/**
+	 * Sum of the values recorded.
+	 */
+	private final AtomicLong sum = new AtomicLong();
+
+	/**
+	 * Smallest value recorded.
+	 */
+	private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+
+	/**
+	 * Largest value recorded.
+	 */
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Record a value.
+	 * 
+	 * @param nanos
+	 *            latency in nanoseconds, negative values count as 0
+	 */
+	public void record(long nanos) {
+		long value = Math.max(0, nanos);
+		counts.incrementAndGet(LatencyHistogram.indexOf(value));
+		sum.addAndGet(value);
+		long current = min.get();
+		while (value < current && !min.compareAndSet(current, value)) {
+			current = min.get();
+		}
+		current = max.get();
+		while (value > current && !max.compareAndSet(current, value)) {
+			current = max.get();
+		}
+	}
+
+	/**
+	 * Copy the values recorded so far. Values recorded concurrently may or may
+	 * not be included.
+	 * 
+	 * @return a new histogram of the values recorded
+	 */
+	public LatencyHistogram getSnapshot() {
+		long[] snapshot = new long[LatencyHistogram.BUCKETS];
+		for (int i = 0; i < snapshot.length; i++) {
+			snapshot[i] = counts.get(i);
+		}
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.add(snapshot, sum.get(), min.get(), max.get());
+		return histogram;
+	}
+
+}
@@ -0,0 +1,213 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.load;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
+import org.apache.commons.net.ftp.FTP;
+import org.apache.commons.net.ftp.FTPSClient;
+import org.apache.commons.net.util.TrustManagerUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link LoadClient} for FTPS servers such as the
+ * {@link com.rothsmith.test.ftp.FtpsTestServer}, using explicit TLS, a
+ * protected data channel, passive mode and binary transfers. Server
+ * certificates are not verified.
+ *
+ * @author drothauser
+ *
+ */
+public class FtpsLoadClient
+        implements LoadClient {
+
+	/**
+	 * SLF4J Logger for FtpsLoadClient.
+	 */
+	private static final Logger LOGGER =
+	    LoggerFactory.getLogger(FtpsLoadClient.class);
+
+	/**
+	 * Server host.
+	 */
+	private final String host;
+
+	/**
+	 * Server port.
+	 */
+	private final int port;
+
+	/**
+	 * User id.
+	 */
+	private final String user;
+
+	/**
+	 * Password.
+	 */
+	private final String password;
+
+	/**
+	 * Current connection or null.
+	 */
+	private FTPSClient ftps;
+
+	/**
+	 * Constructor for FtpsLoadClient.
+	 *
+	 * @param host
+	 *            server host
+	 * @param port
+	 *            server port
+	 * @param user
+	 *            user id
+	 * @param password
+	 *            password
+	 */
+	public FtpsLoadClient(String host, int port, String user,
+	    String password) {
+		this.host = host;
+		this.port = port;
+		this.user = user;
+		this.password = password;
+	}
+
+	/**
+	 * Return a factory of clients that all log in as the same user.
+	 *
+	 * @param host
+	 *            server host
+	 * @param port
+	 *            server port
+	 * @param user
+	 *            user id
+	 * @param password
+	 *            password
+	 * @return the client factory
+	 */
+	public static LoadClientFactory factory(final String host,
+	    final int port, final String user, final String password) {
+		return new LoadClientFactory() {
+			@Override
+			public LoadClient createClient() {
+				return new FtpsLoadClient(host, port, user, password);
+			}
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void connect() throws IOException {
+		ftps = new FTPSClient();
+		ftps.setTrustManager(TrustManagerUtils.getAcceptAllTrustManager());
+		try {
+			ftps.connect(host, port);
+			if (!ftps.login(user, password)) {
+				throw new IOException("FTPS login failed: "
+				    + ftps.getReplyString());
+			}
+			ftps.execPBSZ(0);
+			ftps.execPROT("P");
+			ftps.enterLocalPassiveMode();
+			ftps.setFileType(FTP.BINARY_FILE_TYPE);
+		} catch (IOException e) {
+			disconnect();
+			throw e;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int ls(String dir) throws IOException {
+		return ftps.listFiles(dir).length;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void put(String path, byte[] content) throws IOException {
+		if (!ftps.storeFile(path, new ByteArrayInputStream(content))) {
+			throw new IOException("FTPS put failed: " + ftps.getReplyString());
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long get(String path) throws IOException {
+		CountingOutputStream out =
+		    new CountingOutputStream(NullOutputStream.NULL_OUTPUT_STREAM);
+		if (!ftps.retrieveFile(path, out)) {
+			throw new IOException("FTPS get failed: " + ftps.getReplyString());
+		}
+		return out.getByteCount();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void rm(String path) throws IOException {
+		if (!ftps.deleteFile(path)) {
+			throw new IOException("FTPS rm failed: " + ftps.getReplyString());
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void mkdir(String path) throws IOException {
+		if (!ftps.makeDirectory(path)) {
+			throw new IOException("FTPS mkdir failed: "
+			    + ftps.getReplyString());
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void rmdir(String path) throws IOException {
+		if (!ftps.removeDirectory(path)) {
+			throw new IOException("FTPS rmdir failed: "
+			    + ftps.getReplyString());
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void disconnect() {
+		if (ftps == null) {
+			return;
+		}
+		try {
+			if (ftps.isConnected()) {
+				ftps.logout();
+			}
+		} catch (IOException e) {
+			LOGGER.debug("FTPS logout failed: " + e);
+		} finally {
+			try {
+				ftps.disconnect();
+			} catch (IOException e) {
+				LOGGER.debug("FTPS disconnect failed: " + e);
+			}
+			ftps = null;
+		}
+	}
+
+}
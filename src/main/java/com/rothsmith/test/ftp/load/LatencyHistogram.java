@@ -0,0 +1,249 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.load;
+
+/**
+ * Log-linear histogram of latencies in nanoseconds. Values below 128 are
+ * counted exactly; larger values fall into one of 64 buckets per power of two,
+ * so a reported percentile is at most about 1.6% above the true value. The
+ * histogram has a fixed size regardless of how many values are recorded.
+ * <p>
+ * Not thread safe: record into one histogram per thread and
+ * {@link #add(LatencyHistogram) add} them up afterwards, or record into a
+ * {@link ConcurrentLatencyHistogram}.
+ * </p>
+ *
+ * @author drothauser
+ *
+ */
+public class LatencyHistogram {
+
+	/**
+	 * Percentile 50, in parts per million.
+	 */
+	public static final long P50 = 500000;
+
+	/**
+	 * Percentile 99, in parts per million.
+	 */
+	public static final long P99 = 990000;
+
+	/**
+	 * Percentile 99.9, in parts per million.
+	 */
+	public static final long P999 = 999000;
+
+	/**
+	 * One million, the whole in parts per million.
+	 */
+	private static final long MILLION = 1000000;
+
+	/**
+	 * Bits of precision kept per power of two.
+	 */
+	private static final int SUB_BUCKET_BITS = 6;
+
+	/**
+	 * Number of buckets per power of two.
+	 */
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	/**
+	 * Values below this are counted exactly.
+	 */
+	private static final int EXACT_LIMIT = SUB_BUCKETS << 1;
+
+	/**
+	 * Number of buckets needed for every positive long.
+	 */
+	static final int BUCKETS =
+	    (Long.SIZE - 1 - SUB_BUCKET_BITS) * SUB_BUCKETS + EXACT_LIMIT;
+
+	/**
+	 * Counts per bucket.
+	 */
+	private final long[] counts = new long[BUCKETS];
+
+	/**
+	 * Number of values recorded.
+	 */
+	private long count;
+
+	/**
+	 * Sum of the values recorded.
+	 */
+	private long sum;
+
+	/**
+	 * Smallest value recorded.
+	 */
+	private long min = Long.MAX_VALUE;
+
+	/**
+	 * Largest value recorded.
+	 */
+	private long max;
+
+	/**
+	 * Record a latency.
+	 *
+	 * @param nanos
+	 *            latency in nanoseconds, negative values count as 0
+	 */
+	public void record(long nanos) {
+		long value = Math.max(0, nanos);
+		counts[indexOf(value)]++;
+		count++;
+		sum += value;
+		min = Math.min(min, value);
+		max = Math.max(max, value);
+	}
+
+	/**
+	 * Add bucket counts and totals taken from another recorder.
+	 * 
+	 * @param bucketCounts
+	 *            counts per bucket, {@link #BUCKETS} of them
+	 * @param valueSum
+	 *            sum of the values counted
+	 * @param minValue
+	 *            smallest value counted
+	 * @param maxValue
+	 *            largest value counted
+	 */
+	void add(long[] bucketCounts, long valueSum, long minValue, long maxValue) {
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] += bucketCounts[i];
+			count += bucketCounts[i];
+		}
+		sum += valueSum;
+		min = Math.min(min, minValue);
+		max = Math.max(max, maxValue);
+	}
+
+	/**
+	 * Add the values recorded in another histogram to this one.
+	 *
+	 * @param other
+	 *            the histogram to add
+	 */
+	public void add(LatencyHistogram other) {
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] += other.counts[i];
+		}
+		count += other.count;
+		sum += other.sum;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+	}
+
+	/**
+	 * Return the value below or at which the given share of the recorded
+	 * values fall, e.g. {@link #P99}.
+	 *
+	 * @param partsPerMillion
+	 *            share of the values in parts per million
+	 * @return the percentile in nanoseconds or 0 if nothing was recorded
+	 */
+	public long getPercentile(long partsPerMillion) {
+		if (count == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (count * partsPerMillion + MILLION - 1)
+		    / MILLION);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return Math.min(max, highestValueOf(i));
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * @return the median in nanoseconds
+	 */
+	public long getP50() {
+		return getPercentile(P50);
+	}
+
+	/**
+	 * @return the 99th percentile in nanoseconds
+	 */
+	public long getP99() {
+		return getPercentile(P99);
+	}
+
+	/**
+	 * @return the 99.9th percentile in nanoseconds
+	 */
+	public long getP999() {
+		return getPercentile(P999);
+	}
+
+	/**
+	 * @return number of values recorded
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * @return sum of the values recorded in nanoseconds
+	 */
+	public long getSum() {
+		return sum;
+	}
+
+	/**
+	 * @return mean in nanoseconds or 0 if nothing was recorded
+	 */
+	public long getMean() {
+		return count == 0 ? 0 : sum / count;
+	}
+
+	/**
+	 * @return smallest value in nanoseconds or 0 if nothing was recorded
+	 */
+	public long getMin() {
+		return count == 0 ? 0 : min;
+	}
+
+	/**
+	 * @return largest value in nanoseconds
+	 */
+	public long getMax() {
+		return max;
+	}
+
+	/**
+	 * @param value
+	 *            a non-negative value
+	 * @return index of the bucket counting the value
+	 */
+	static int indexOf(long value) {
+		if (value < EXACT_LIMIT) {
+			return (int) value;
+		}
+		int shift =
+		    Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		return shift * SUB_BUCKETS + (int) (value >>> shift);
+	}
+
+	/**
+	 * @param index
+	 *            bucket index
+	 * @return the largest value counted by the bucket
+	 */
+	static long highestValueOf(int index) {
+		if (index < EXACT_LIMIT) {
+			return index;
+		}
+		int shift = index / SUB_BUCKETS - 1;
+		long subBucket = index - (long) shift * SUB_BUCKETS;
+		return ((subBucket + 1) << shift) - 1;
+	}
+
+}
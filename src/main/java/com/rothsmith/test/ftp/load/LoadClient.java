@@ -0,0 +1,94 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.load;
+
+import java.io.IOException;
+
+/**
+ * Connection to a file transfer server used by one {@link LoadGenerator}
+ * worker. Paths are relative to the directory the generator works in.
+ *
+ * @author drothauser
+ *
+ */
+public interface LoadClient {
+
+	/**
+	 * Connect and log in.
+	 *
+	 * @throws IOException
+	 *             possible connection or login error
+	 */
+	void connect() throws IOException;
+
+	/**
+	 * List a directory.
+	 *
+	 * @param dir
+	 *            directory to list
+	 * @return number of entries listed
+	 * @throws IOException
+	 *             possible transfer error
+	 */
+	int ls(String dir) throws IOException;
+
+	/**
+	 * Upload a file.
+	 *
+	 * @param path
+	 *            file to create
+	 * @param content
+	 *            file content
+	 * @throws IOException
+	 *             possible transfer error
+	 */
+	void put(String path, byte[] content) throws IOException;
+
+	/**
+	 * Download a file.
+	 *
+	 * @param path
+	 *            file to download
+	 * @return number of bytes downloaded
+	 * @throws IOException
+	 *             possible transfer error
+	 */
+	long get(String path) throws IOException;
+
+	/**
+	 * Remove a file.
+	 *
+	 * @param path
+	 *            file to remove
+	 * @throws IOException
+	 *             possible transfer error
+	 */
+	void rm(String path) throws IOException;
+
+	/**
+	 * Create a directory.
+	 *
+	 * @param path
+	 *            directory to create
+	 * @throws IOException
+	 *             possible transfer error
+	 */
+	void mkdir(String path) throws IOException;
+
+	/**
+	 * Remove an empty directory.
+	 *
+	 * @param path
+	 *            directory to remove
+	 * @throws IOException
+	 *             possible transfer error
+	 */
+	void rmdir(String path) throws IOException;
+
+	/**
+	 * Log out and disconnect, ignoring errors.
+	 */
+	void disconnect();
+
+}
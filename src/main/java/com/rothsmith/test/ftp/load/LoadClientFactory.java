@@ -0,0 +1,19 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.load;
+
+/**
+ * Creates one {@link LoadClient} per {@link LoadGenerator} worker.
+ *
+ * @author drothauser
+ *
+ */
+public interface LoadClientFactory {
+
+	/**
+	 * @return a new, not yet connected client
+	 */
+	LoadClient createClient();
+
+}
@@ -0,0 +1,522 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.load;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.rothsmith.test.ftp.FtpTestException;
+
+/**
+ * Drives a configurable mix of connect, ls, put, get and rm operations from
+ * concurrent workers against an SFTP or FTPS server and reports throughput
+ * and latency percentiles:
+ *
+ * <pre>
+ * LoadGenerator generator =
+ *     new LoadGenerator(SFtpLoadClient.factory(&quot;localhost&quot;,
+ *         sshServer.getPort(), &quot;user&quot;, &quot;password&quot;));
+ * generator.setConcurrency(16);
+ * generator.setOperationsPerWorker(1000);
+ * generator.setFileSizes(1024, 1024 * 1024);
+ * LoadReport report = generator.run();
+ * </pre>
+ *
+ * Each worker holds its own connection and works in its own subdirectory of
+ * the configured directory, so workers never interfere with each other. The
+ * subdirectories are removed at the end of the run. A get or rm issued before
+ * the worker has uploaded anything uploads a file instead.
+ * Runs with the same seed perform the same sequence of operations.
+ *
+ * @author drothauser
+ *
+ */
+public class LoadGenerator {
+
+	/**
+	 * SLF4J Logger for LoadGenerator.
+	 */
+	private static final Logger LOGGER =
+	    LoggerFactory.getLogger(LoadGenerator.class);
+
+	/**
+	 * Default number of concurrent workers.
+	 */
+	public static final int DEFAULT_CONCURRENCY = 4;
+
+	/**
+	 * Default number of operations per worker.
+	 */
+	public static final int DEFAULT_OPERATIONS_PER_WORKER = 100;
+
+	/**
+	 * Default file size in bytes.
+	 */
+	public static final int DEFAULT_FILE_SIZE = 4096;
+
+	/**
+	 * Default weight of connect operations.
+	 */
+	private static final int CONNECT_WEIGHT = 1;
+
+	/**
+	 * Default weight of ls and rm operations.
+	 */
+	private static final int LS_RM_WEIGHT = 2;
+
+	/**
+	 * Default weight of put and get operations.
+	 */
+	private static final int PUT_GET_WEIGHT = 4;
+
+	/**
+	 * Creates one client per worker.
+	 */
+	private final LoadClientFactory clientFactory;
+
+	/**
+	 * Relative weights of the operations.
+	 */
+	private final Map<LoadOperation, Integer> mix =
+	    new EnumMap<LoadOperation, Integer>(LoadOperation.class);
+
+	/**
+	 * Number of concurrent workers.
+	 */
+	private int concurrency = DEFAULT_CONCURRENCY;
+
+	/**
+	 * Number of operations each worker performs.
+	 */
+	private int operationsPerWorker = DEFAULT_OPERATIONS_PER_WORKER;
+
+	/**
+	 * Maximum duration of a run in milliseconds, 0 for no limit.
+	 */
+	private long durationMillis;
+
+	/**
+	 * Sizes of uploaded files, picked at random.
+	 */
+	private int[] fileSizes = { DEFAULT_FILE_SIZE };
+
+	/**
+	 * Directory the workers' files are created in.
+	 */
+	private String directory = ".";
+
+	/**
+	 * Seed of the workers' random operation sequences.
+	 */
+	private long seed;
+
+	/**
+	 * Constructor for LoadGenerator.
+	 *
+	 * @param clientFactory
+	 *            creates one client per worker
+	 */
+	public LoadGenerator(LoadClientFactory clientFactory) {
+		this.clientFactory = clientFactory;
+		mix.put(LoadOperation.CONNECT, CONNECT_WEIGHT);
+		mix.put(LoadOperation.LS, LS_RM_WEIGHT);
+		mix.put(LoadOperation.PUT, PUT_GET_WEIGHT);
+		mix.put(LoadOperation.GET, PUT_GET_WEIGHT);
+		mix.put(LoadOperation.RM, LS_RM_WEIGHT);
+	}
+
+	/**
+	 * @param concurrency
+	 *            number of concurrent workers, each with its own connection
+	 */
+	public void setConcurrency(int concurrency) {
+		this.concurrency = concurrency;
+	}
+
+	/**
+	 * @param operationsPerWorker
+	 *            number of operations each worker performs
+	 */
+	public void setOperationsPerWorker(int operationsPerWorker) {
+		this.operationsPerWorker = operationsPerWorker;
+	}
+
+	/**
+	 * @param durationMillis
+	 *            maximum duration of a run in milliseconds, 0 for no limit
+	 */
+	public void setDurationMillis(long durationMillis) {
+		this.durationMillis = durationMillis;
+	}
+
+	/**
+	 * Set the relative weight of an operation in the mix; 0 leaves it out.
+	 *
+	 * @param operation
+	 *            the operation
+	 * @param weight
+	 *            relative weight
+	 */
+	public void setWeight(LoadOperation operation, int weight) {
+		mix.put(operation, weight);
+	}
+
+	/**
+	 * @param sizes
+	 *            sizes of uploaded files in bytes, picked at random
+	 */
+	public void setFileSizes(int... sizes) {
+		this.fileSizes = sizes.clone();
+	}
+
+	/**
+	 * @param directory
+	 *            existing directory the workers' files are created in
+	 */
+	public void setDirectory(String directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * @param seed
+	 *            seed of the workers' random operation sequences
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Run the workers and wait for them to finish.
+	 *
+	 * @return the load report
+	 * @throws FtpTestException
+	 *             a worker could not connect or the run was interrupted
+	 */
+	public LoadReport run() throws FtpTestException {
+
+		int totalWeight = 0;
+		for (Integer weight : mix.values()) {
+			totalWeight += weight;
+		}
+		if (totalWeight <= 0 || concurrency <= 0 || fileSizes.length == 0) {
+			throw new IllegalStateException(
+			    "Need a positive concurrency, operation mix and file size");
+		}
+
+		// one read-only payload per size, shared by all workers
+		Random contentRandom = new Random(seed);
+		byte[][] payloads = new byte[fileSizes.length][];
+		for (int i = 0; i < payloads.length; i++) {
+			payloads[i] = new byte[fileSizes[i]];
+			contentRandom.nextBytes(payloads[i]);
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+		CountDownLatch readySignal = new CountDownLatch(concurrency);
+		CountDownLatch startSignal = new CountDownLatch(1);
+		List<Future<Worker>> futures = new ArrayList<Future<Worker>>();
+		for (int i = 0; i < concurrency; i++) {
+			futures.add(executor.submit(new Worker(i, payloads, readySignal,
+			    startSignal)));
+		}
+
+		long start = 0;
+		Map<LoadOperation, LatencyHistogram> latencies =
+		    new EnumMap<LoadOperation, LatencyHistogram>(LoadOperation.class);
+		Map<LoadOperation, Long> errors =
+		    new EnumMap<LoadOperation, Long>(LoadOperation.class);
+		long bytes = 0;
+		try {
+			// time the operations only, not the initial connects
+			readySignal.await();
+			start = System.nanoTime();
+			startSignal.countDown();
+			for (Future<Worker> future : futures) {
+				Worker worker = future.get();
+				bytes += worker.bytes;
+				for (LoadOperation operation : LoadOperation.values()) {
+					if (!latencies.containsKey(operation)) {
+						latencies.put(operation, new LatencyHistogram());
+						errors.put(operation, 0L);
+					}
+					latencies.get(operation).add(worker.latencies[operation
+					    .ordinal()]);
+					errors.put(operation, errors.get(operation)
+					    + worker.errors[operation.ordinal()]);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new FtpTestException("Load run interrupted", e);
+		} catch (ExecutionException e) {
+			throw new FtpTestException("Load worker failed: " + e.getCause(),
+			    e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+
+		LoadReport report =
+		    new LoadReport(latencies, errors, bytes, System.nanoTime()
+		        - start, concurrency);
+		LOGGER.info(String.format("Load run finished%n%s", report));
+		return report;
+	}
+
+	/**
+	 * One worker with its own connection and files.
+	 */
+	private final class Worker
+	        implements Callable<Worker> {
+
+		/**
+		 * Latencies by operation ordinal.
+		 */
+		private final LatencyHistogram[] latencies =
+		    new LatencyHistogram[LoadOperation.values().length];
+
+		/**
+		 * Errors by operation ordinal.
+		 */
+		private final long[] errors = new long[LoadOperation.values().length];
+
+		/**
+		 * Counted down once the worker has connected or failed to.
+		 */
+		private final CountDownLatch readySignal;
+
+		/**
+		 * Released when all workers may start.
+		 */
+		private final CountDownLatch startSignal;
+
+		/**
+		 * Operation sequence and file size source.
+		 */
+		private final Random random;
+
+		/**
+		 * The worker's own directory.
+		 */
+		private final String workDir;
+
+		/**
+		 * Content of the uploaded files, one per configured size, made before
+		 * the run so that it is not part of the PUT latency. Shared by all
+		 * workers and never modified.
+		 */
+		private final byte[][] payloads;
+
+		/**
+		 * Files uploaded and not removed yet.
+		 */
+		private final List<String> files = new ArrayList<String>();
+
+		/**
+		 * Bytes uploaded and downloaded.
+		 */
+		private long bytes;
+
+		/**
+		 * Number of files uploaded so far.
+		 */
+		private int uploads;
+
+		/**
+		 * Constructor for Worker.
+		 *
+		 * @param number
+		 *            worker number
+		 * @param payloads
+		 *            content of the uploaded files, one per configured size
+		 * @param readySignal
+		 *            counted down once the worker has connected or failed to
+		 * @param startSignal
+		 *            released when all workers may start
+		 */
+		Worker(int number, byte[][] payloads, CountDownLatch readySignal,
+		    CountDownLatch startSignal) {
+			this.readySignal = readySignal;
+			this.startSignal = startSignal;
+			this.random = new Random(seed + number);
+			this.workDir = String.format("%s/load-%d", directory, number);
+			this.payloads = payloads;
+			for (int i = 0; i < latencies.length; i++) {
+				latencies[i] = new LatencyHistogram();
+			}
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Worker call() throws IOException, InterruptedException {
+			LoadClient client = clientFactory.createClient();
+			try {
+				try {
+					client.connect();
+					client.mkdir(workDir);
+				} finally {
+					readySignal.countDown();
+				}
+				startSignal.await();
+				long deadline =
+				    durationMillis > 0 ? System.nanoTime()
+				        + TimeUnit.MILLISECONDS.toNanos(durationMillis)
+				        : Long.MAX_VALUE;
+				for (int i = 0; i < operationsPerWorker
+				    && System.nanoTime() < deadline; i++) {
+					perform(client, nextOperation());
+				}
+				removeFiles(client);
+			} finally {
+				client.disconnect();
+			}
+			return this;
+		}
+
+		/**
+		 * Remove the files still left over and the worker's directory,
+		 * ignoring errors.
+		 *
+		 * @param client
+		 *            the worker's client
+		 */
+		private void removeFiles(LoadClient client) {
+			for (String file : files) {
+				try {
+					client.rm(file);
+				} catch (IOException e) {
+					LOGGER.debug("Could not remove " + file + ": " + e);
+				}
+			}
+			files.clear();
+			try {
+				client.rmdir(workDir);
+			} catch (IOException e) {
+				LOGGER.debug("Could not remove " + workDir + ": " + e);
+			}
+		}
+
+		/**
+		 * @return the next operation according to the mix
+		 */
+		private LoadOperation nextOperation() {
+			int total = 0;
+			for (Integer weight : mix.values()) {
+				total += weight;
+			}
+			int pick = random.nextInt(total);
+			for (Map.Entry<LoadOperation, Integer> each : mix.entrySet()) {
+				pick -= each.getValue();
+				if (pick < 0) {
+					return each.getKey();
+				}
+			}
+			throw new IllegalStateException("Operation mix is empty");
+		}
+
+		/**
+		 * Perform and time one operation.
+		 *
+		 * @param client
+		 *            the worker's client
+		 * @param requested
+		 *            the operation to perform
+		 */
+		private void perform(LoadClient client, LoadOperation requested) {
+			LoadOperation operation = requested;
+			if (files.isEmpty()
+			    && (operation == LoadOperation.GET
+			        || operation == LoadOperation.RM)) {
+				operation = LoadOperation.PUT;
+			}
+			byte[] content =
+			    operation == LoadOperation.PUT ? payloads[random
+			        .nextInt(payloads.length)] : null;
+			long start = System.nanoTime();
+			try {
+				execute(client, operation, content);
+				latencies[operation.ordinal()].record(System.nanoTime()
+				    - start);
+			} catch (IOException e) {
+				errors[operation.ordinal()]++;
+				LOGGER.debug(operation + " failed: " + e);
+			}
+		}
+
+		/**
+		 * Execute one operation.
+		 *
+		 * @param client
+		 *            the worker's client
+		 * @param operation
+		 *            the operation to perform
+		 * @param content
+		 *            content to upload for a PUT, otherwise null
+		 * @throws IOException
+		 *             possible transfer error
+		 */
+		private void execute(LoadClient client, LoadOperation operation,
+		    byte[] content) throws IOException {
+			switch (operation) {
+			case CONNECT:
+				client.disconnect();
+				client.connect();
+				break;
+			case LS:
+				client.ls(workDir);
+				break;
+			case PUT:
+				upload(client, content);
+				break;
+			case GET:
+				bytes += client.get(files.get(random.nextInt(files.size())));
+				break;
+			case RM:
+				// keep the file for removeFiles() if the rm fails
+				int index = random.nextInt(files.size());
+				client.rm(files.get(index));
+				files.remove(index);
+				break;
+			default:
+				throw new IllegalStateException("Unknown operation "
+				    + operation);
+			}
+		}
+
+		/**
+		 * Upload a new file.
+		 *
+		 * @param client
+		 *            the worker's client
+		 * @param content
+		 *            content of the file
+		 * @throws IOException
+		 *             possible transfer error
+		 */
+		private void upload(LoadClient client, byte[] content)
+		        throws IOException {
+			String file =
+			    String.format("%s/file-%d.bin", workDir, uploads++);
+			client.put(file, content);
+			files.add(file);
+			bytes += content.length;
+		}
+	}
+
+}
@@ -0,0 +1,39 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.load;
+
+/**
+ * Operations performed by a {@link LoadGenerator}.
+ *
+ * @author drothauser
+ *
+ */
+public enum LoadOperation {
+
+	/**
+	 * Disconnect and connect again, including login.
+	 */
+	CONNECT,
+
+	/**
+	 * List the working directory.
+	 */
+	LS,
+
+	/**
+	 * Upload a new file.
+	 */
+	PUT,
+
+	/**
+	 * Download a previously uploaded file.
+	 */
+	GET,
+
+	/**
+	 * Remove a previously uploaded file.
+	 */
+	RM
+
+}
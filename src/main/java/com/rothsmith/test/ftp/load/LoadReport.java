@@ -0,0 +1,217 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.load;
+
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Result of a {@link LoadGenerator} run: operation counts, errors, throughput
+ * and latency histograms per operation. Latencies are in nanoseconds;
+ * {@link #toString()} renders a table in microseconds.
+ *
+ * @author drothauser
+ *
+ */
+public class LoadReport {
+
+	/**
+	 * Nanoseconds per microsecond.
+	 */
+	private static final long NANOS_PER_MICRO = 1000;
+
+	/**
+	 * Latencies of successful operations by operation.
+	 */
+	private final Map<LoadOperation, LatencyHistogram> latencies;
+
+	/**
+	 * Latencies of all successful operations.
+	 */
+	private final LatencyHistogram total = new LatencyHistogram();
+
+	/**
+	 * Failed operations by operation.
+	 */
+	private final Map<LoadOperation, Long> errors;
+
+	/**
+	 * Bytes uploaded and downloaded.
+	 */
+	private final long bytesTransferred;
+
+	/**
+	 * Wall clock duration of the run in nanoseconds.
+	 */
+	private final long elapsedNanos;
+
+	/**
+	 * Number of concurrent workers.
+	 */
+	private final int concurrency;
+
+	/**
+	 * Constructor for LoadReport.
+	 *
+	 * @param latencies
+	 *            latencies of successful operations by operation
+	 * @param errors
+	 *            failed operations by operation
+	 * @param bytesTransferred
+	 *            bytes uploaded and downloaded
+	 * @param elapsedNanos
+	 *            wall clock duration of the run in nanoseconds
+	 * @param concurrency
+	 *            number of concurrent workers
+	 */
+	LoadReport(Map<LoadOperation, LatencyHistogram> latencies,
+	    Map<LoadOperation, Long> errors, long bytesTransferred,
+	    long elapsedNanos, int concurrency) {
+		this.latencies =
+		    new EnumMap<LoadOperation, LatencyHistogram>(latencies);
+		this.errors = new EnumMap<LoadOperation, Long>(errors);
+		this.bytesTransferred = bytesTransferred;
+		this.elapsedNanos = Math.max(1, elapsedNanos);
+		this.concurrency = concurrency;
+		for (LatencyHistogram histogram : latencies.values()) {
+			total.add(histogram);
+		}
+	}
+
+	/**
+	 * @param operation
+	 *            an operation
+	 * @return latencies of the successful operations of that kind, empty if
+	 *         none were performed
+	 */
+	public LatencyHistogram getLatencies(LoadOperation operation) {
+		LatencyHistogram histogram = latencies.get(operation);
+		return histogram == null ? new LatencyHistogram() : histogram;
+	}
+
+	/**
+	 * @return latencies of all successful operations
+	 */
+	public LatencyHistogram getTotalLatencies() {
+		return total;
+	}
+
+	/**
+	 * @return failed operations by operation
+	 */
+	public Map<LoadOperation, Long> getErrors() {
+		return Collections.unmodifiableMap(errors);
+	}
+
+	/**
+	 * @return total number of failed operations
+	 */
+	public long getErrorCount() {
+		long sum = 0;
+		for (Long each : errors.values()) {
+			sum += each;
+		}
+		return sum;
+	}
+
+	/**
+	 * @return number of successful operations
+	 */
+	public long getOperationCount() {
+		return total.getCount();
+	}
+
+	/**
+	 * @return bytes uploaded and downloaded
+	 */
+	public long getBytesTransferred() {
+		return bytesTransferred;
+	}
+
+	/**
+	 * @return wall clock duration of the run in nanoseconds
+	 */
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	/**
+	 * @return number of concurrent workers
+	 */
+	public int getConcurrency() {
+		return concurrency;
+	}
+
+	/**
+	 * @return successful operations per second
+	 */
+	public long getOperationsPerSecond() {
+		return perSecond(getOperationCount());
+	}
+
+	/**
+	 * @return bytes uploaded and downloaded per second
+	 */
+	public long getBytesPerSecond() {
+		return perSecond(bytesTransferred);
+	}
+
+	/**
+	 * @param amount
+	 *            amount over the whole run
+	 * @return amount per second
+	 */
+	private long perSecond(long amount) {
+		return BigInteger.valueOf(amount)
+		    .multiply(BigInteger.valueOf(TimeUnit.SECONDS.toNanos(1)))
+		    .divide(BigInteger.valueOf(elapsedNanos)).longValue();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		StringBuilder report = new StringBuilder(String.format(Locale.US,
+		    "%d workers, %d ms, %d ops/s, %d bytes/s, %d errors%n",
+		    concurrency, TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+		    getOperationsPerSecond(), getBytesPerSecond(), getErrorCount()));
+		report.append(String.format(Locale.US,
+		    "%-8s %8s %8s %10s %10s %10s %10s%n", "op", "count", "errors",
+		    "p50 us", "p99 us", "p999 us", "max us"));
+		for (LoadOperation operation : LoadOperation.values()) {
+			Long failed = errors.get(operation);
+			appendRow(report, operation.name(), getLatencies(operation),
+			    failed == null ? 0 : failed);
+		}
+		appendRow(report, "all", total, getErrorCount());
+		return report.toString();
+	}
+
+	/**
+	 * Append one table row.
+	 *
+	 * @param report
+	 *            the table
+	 * @param label
+	 *            row label
+	 * @param histogram
+	 *            latencies of the row
+	 * @param failed
+	 *            number of errors of the row
+	 */
+	private static void appendRow(StringBuilder report, String label,
+	    LatencyHistogram histogram, long failed) {
+		report.append(String.format(Locale.US,
+		    "%-8s %8d %8d %10d %10d %10d %10d%n", label,
+		    histogram.getCount(), failed, histogram.getP50() / NANOS_PER_MICRO,
+		    histogram.getP99() / NANOS_PER_MICRO, histogram.getP999()
+		        / NANOS_PER_MICRO, histogram.getMax() / NANOS_PER_MICRO));
+	}
+
+}
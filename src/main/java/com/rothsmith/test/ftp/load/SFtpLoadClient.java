@@ -0,0 +1,240 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.load;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Properties;
+
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import com.jcraft.jsch.SftpException;
+
+/**
+ * {@link LoadClient} for SFTP servers such as the
+ * {@link com.rothsmith.test.ftp.SFtpTestServer}, using JSch with password
+ * authentication and no host key checking.
+ *
+ * @author drothauser
+ *
+ */
+public class SFtpLoadClient
+        implements LoadClient {
+
+	/**
+	 * Shared JSch instance.
+	 */
+	private static final JSch JSCH = new JSch();
+
+	/**
+	 * Server host.
+	 */
+	private final String host;
+
+	/**
+	 * Server port.
+	 */
+	private final int port;
+
+	/**
+	 * User id.
+	 */
+	private final String user;
+
+	/**
+	 * Password.
+	 */
+	private final String password;
+
+	/**
+	 * Compression algorithms in order of preference, e.g. zlib@openssh.com,
+	 * or null for none.
+	 */
+	private String compression;
+
+	/**
+	 * Current SSH session or null.
+	 */
+	private Session session;
+
+	/**
+	 * Current SFTP channel or null.
+	 */
+	private ChannelSftp sftp;
+
+	/**
+	 * Constructor for SFtpLoadClient.
+	 *
+	 * @param host
+	 *            server host
+	 * @param port
+	 *            server port
+	 * @param user
+	 *            user id
+	 * @param password
+	 *            password
+	 */
+	public SFtpLoadClient(String host, int port, String user,
+	    String password) {
+		this.host = host;
+		this.port = port;
+		this.user = user;
+		this.password = password;
+	}
+
+	/**
+	 * Return a factory of clients that all log in as the same user.
+	 *
+	 * @param host
+	 *            server host
+	 * @param port
+	 *            server port
+	 * @param user
+	 *            user id
+	 * @param password
+	 *            password
+	 * @return the client factory
+	 */
+	public static LoadClientFactory factory(final String host,
+	    final int port, final String user, final String password) {
+		return new LoadClientFactory() {
+			@Override
+			public LoadClient createClient() {
+				return new SFtpLoadClient(host, port, user, password);
+			}
+		};
+	}
+
+	/**
+	 * Ask the server to compress the connection. JSch needs jzlib on the
+	 * classpath for this. Call before {@link #connect()}.
+	 *
+	 * @param compression
+	 *            comma separated compression algorithms in order of
+	 *            preference, e.g. zlib@openssh.com,zlib, or null for none
+	 */
+	public void setCompression(String compression) {
+		this.compression = compression;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void connect() throws IOException {
+		try {
+			session = JSCH.getSession(user, host, port);
+			Properties config = new Properties();
+			config.put("StrictHostKeyChecking", "no");
+			if (compression != null) {
+				config.put("compression.s2c", compression);
+				config.put("compression.c2s", compression);
+			}
+			session.setConfig(config);
+			session.setPassword(password);
+			session.connect();
+			sftp = (ChannelSftp) session.openChannel("sftp");
+			sftp.connect();
+		} catch (JSchException e) {
+			disconnect();
+			throw new IOException("SFTP connect failed: " + e, e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int ls(String dir) throws IOException {
+		try {
+			return sftp.ls(dir).size();
+		} catch (SftpException e) {
+			throw new IOException("SFTP ls failed: " + e, e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void put(String path, byte[] content) throws IOException {
+		try {
+			sftp.put(new ByteArrayInputStream(content), path);
+		} catch (SftpException e) {
+			throw new IOException("SFTP put failed: " + e, e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long get(String path) throws IOException {
+		CountingOutputStream out =
+		    new CountingOutputStream(NullOutputStream.NULL_OUTPUT_STREAM);
+		try {
+			sftp.get(path, out);
+		} catch (SftpException e) {
+			throw new IOException("SFTP get failed: " + e, e);
+		}
+		return out.getByteCount();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void rm(String path) throws IOException {
+		try {
+			sftp.rm(path);
+		} catch (SftpException e) {
+			throw new IOException("SFTP rm failed: " + e, e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void mkdir(String path) throws IOException {
+		try {
+			sftp.mkdir(path);
+		} catch (SftpException e) {
+			throw new IOException("SFTP mkdir failed: " + e, e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void rmdir(String path) throws IOException {
+		try {
+			sftp.rmdir(path);
+		} catch (SftpException e) {
+			throw new IOException("SFTP rmdir failed: " + e, e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void disconnect() {
+		if (sftp != null) {
+			sftp.disconnect();
+			sftp = null;
+		}
+		if (session != null) {
+			session.disconnect();
+			session = null;
+		}
+	}
+
+}
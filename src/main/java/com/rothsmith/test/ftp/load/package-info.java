@@ -0,0 +1,7 @@
+/**
+ * Load generator for the FTP test servers and the transfer clients that use
+ * them.
+ * 
+ * @author drothauser
+ */
+package com.rothsmith.test.ftp.load;
@@ -0,0 +1,236 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.memfs;
+
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Deterministic pseudo-random content of a declared size, computed on the fly
+ * from a seed. Every 8 byte word is a SplitMix64 hash of the seed and the
+ * word index, so any range can be produced without producing what comes
+ * before it, and a client that knows the seed and size can compute the
+ * expected checksum of a download without the file existing anywhere.
+ *
+ * @author drothauser
+ *
+ */
+public final class GeneratedContent {
+
+	/**
+	 * Increment of the SplitMix64 sequence.
+	 */
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+	/**
+	 * First multiplier of the SplitMix64 finalizer.
+	 */
+	private static final long MIX_1 = 0xBF58476D1CE4E5B9L;
+
+	/**
+	 * Second multiplier of the SplitMix64 finalizer.
+	 */
+	private static final long MIX_2 = 0x94D049BB133111EBL;
+
+	/**
+	 * First shift of the SplitMix64 finalizer.
+	 */
+	private static final int SHIFT_1 = 30;
+
+	/**
+	 * Second shift of the SplitMix64 finalizer.
+	 */
+	private static final int SHIFT_2 = 27;
+
+	/**
+	 * Third shift of the SplitMix64 finalizer.
+	 */
+	private static final int SHIFT_3 = 31;
+
+	/**
+	 * Bytes per generated word.
+	 */
+	private static final int WORD_SIZE = 8;
+
+	/**
+	 * Bits per byte.
+	 */
+	private static final int BYTE_BITS = 8;
+
+	/**
+	 * Mask of the low byte.
+	 */
+	private static final int BYTE_MASK = 0xff;
+
+	/**
+	 * Size of the buffer used to compute digests.
+	 */
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Seed of the content.
+	 */
+	private final long seed;
+
+	/**
+	 * Content size in bytes.
+	 */
+	private final long size;
+
+	/**
+	 * Constructor for GeneratedContent.
+	 *
+	 * @param seed
+	 *            seed of the content; equal seeds give equal content
+	 * @param size
+	 *            content size in bytes
+	 */
+	public GeneratedContent(long seed, long size) {
+		if (size < 0) {
+			throw new IllegalArgumentException("Size must not be negative: "
+			    + size);
+		}
+		this.seed = seed;
+		this.size = size;
+	}
+
+	/**
+	 * @return seed of the content
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * @return content size in bytes
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * Produce bytes starting at the given position.
+	 *
+	 * @param position
+	 *            content position to read from
+	 * @param b
+	 *            destination array
+	 * @param off
+	 *            offset in the destination array
+	 * @param len
+	 *            maximum number of bytes to read
+	 * @return number of bytes read or -1 at end of content
+	 */
+	public int read(long position, byte[] b, int off, int len) {
+		if (position >= size) {
+			return -1;
+		}
+		int count = (int) Math.min(len, size - position);
+		long index = position / WORD_SIZE;
+		int shift = (int) (position % WORD_SIZE) * BYTE_BITS;
+		long word = word(index);
+		for (int i = 0; i < count; i++) {
+			if (shift == WORD_SIZE * BYTE_BITS) {
+				word = word(++index);
+				shift = 0;
+			}
+			b[off + i] = (byte) (word >>> shift & BYTE_MASK);
+			shift += BYTE_BITS;
+		}
+		return count;
+	}
+
+	/**
+	 * Open a stream over the content, e.g. to upload it.
+	 *
+	 * @param offset
+	 *            starting position
+	 * @return an input stream
+	 */
+	public InputStream newInputStream(final long offset) {
+		return new InputStream() {
+
+			/**
+			 * Current read position.
+			 */
+			private long position = offset;
+
+			@Override
+			public int read() {
+				byte[] one = new byte[1];
+				return read(one, 0, 1) < 0 ? -1 : one[0] & BYTE_MASK;
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) {
+				if (len == 0) {
+					return 0;
+				}
+				int n = GeneratedContent.this.read(position, b, off, len);
+				if (n > 0) {
+					position += n;
+				}
+				return n;
+			}
+
+			@Override
+			public long skip(long n) {
+				long skipped = Math.max(0, Math.min(n, size - position));
+				position += skipped;
+				return skipped;
+			}
+
+			@Override
+			public int available() {
+				return (int) Math.min(Integer.MAX_VALUE,
+				    Math.max(0, size - position));
+			}
+		};
+	}
+
+	/**
+	 * Compute a digest of the whole content, streaming it through a small
+	 * buffer.
+	 *
+	 * @param algorithm
+	 *            digest algorithm, e.g. SHA-256 or MD5
+	 * @return the digest
+	 * @throws NoSuchAlgorithmException
+	 *             if the JVM does not support the algorithm
+	 */
+	public byte[] digest(String algorithm) throws NoSuchAlgorithmException {
+		MessageDigest digest = MessageDigest.getInstance(algorithm);
+		byte[] buffer = new byte[BUFFER_SIZE];
+		for (long position = 0; position < size;) {
+			int n = read(position, buffer, 0, buffer.length);
+			digest.update(buffer, 0, n);
+			position += n;
+		}
+		return digest.digest();
+	}
+
+	/**
+	 * Compute the word at the given index.
+	 *
+	 * @param index
+	 *            word index
+	 * @return the word
+	 */
+	private long word(long index) {
+		long z = seed + (index + 1) * GOLDEN_GAMMA;
+		z = (z ^ (z >>> SHIFT_1)) * MIX_1;
+		z = (z ^ (z >>> SHIFT_2)) * MIX_2;
+		return z ^ (z >>> SHIFT_3);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return "GeneratedContent[seed=" + seed + ",size=" + size + "]";
+	}
+
+}
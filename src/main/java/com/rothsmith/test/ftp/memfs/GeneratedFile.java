@@ -0,0 +1,108 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.memfs;
+
+import java.io.IOException;
+
+/**
+ * A read-only file in a {@link MemoryFileSystem} whose content is a
+ * {@link GeneratedContent}, produced as it is read. A generated file of any
+ * size allocates no content memory and does not count against the file
+ * system capacity. It can be renamed and deleted but not written.
+ *
+ * @author drothauser
+ *
+ */
+public class GeneratedFile
+        extends MemoryFile {
+
+	/**
+	 * Content of the file.
+	 */
+	private final GeneratedContent content;
+
+	/**
+	 * Constructor for GeneratedFile.
+	 *
+	 * @param fileSystem
+	 *            the owning file system
+	 * @param name
+	 *            name of the file
+	 * @param parent
+	 *            parent directory
+	 * @param content
+	 *            content of the file
+	 */
+	GeneratedFile(MemoryFileSystem fileSystem, String name,
+	    MemoryDirectory parent, GeneratedContent content) {
+		super(fileSystem, name, parent);
+		this.content = content;
+	}
+
+	/**
+	 * @return content of the file
+	 */
+	public GeneratedContent getContent() {
+		return content;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getSize() {
+		return content.getSize();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int read(long position, byte[] b, int off, int len) {
+		return content.read(position, b, off, len);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @throws IOException
+	 *             always, generated files are read-only
+	 */
+	@Override
+	public void write(long position, byte[] b, int off, int len)
+	        throws IOException {
+		throw new IOException("Generated file is read-only: " + getPath());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @throws IOException
+	 *             always, generated files are read-only
+	 */
+	@Override
+	public void truncate(long newSize) throws IOException {
+		throw new IOException("Generated file is read-only: " + getPath());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	void discard() {
+		// no content memory to release
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	GeneratedFile copy(MemoryDirectory newParent) {
+		GeneratedFile copy =
+		    new GeneratedFile(getFileSystem(), getName(), newParent, content);
+		copy.setLastModified(getLastModified());
+		return copy;
+	}
+
+}
@@ -0,0 +1,135 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.memfs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A directory in a {@link MemoryFileSystem}. The child map is guarded by the
+ * file system's tree lock.
+ *
+ * @author drothauser
+ *
+ */
+public class MemoryDirectory
+        extends MemoryNode {
+
+	/**
+	 * Children keyed and sorted by name.
+	 */
+	private final Map<String, MemoryNode> children =
+	    new TreeMap<String, MemoryNode>();
+
+	/**
+	 * Constructor for MemoryDirectory.
+	 *
+	 * @param fileSystem
+	 *            the owning file system
+	 * @param name
+	 *            name of the directory
+	 * @param parent
+	 *            parent directory
+	 */
+	MemoryDirectory(MemoryFileSystem fileSystem, String name,
+	    MemoryDirectory parent) {
+		super(fileSystem, name, parent);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isDirectory() {
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getSize() {
+		return 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	void discard() {
+		for (MemoryNode child : children.values()) {
+			child.discard();
+		}
+		children.clear();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	MemoryDirectory copy(MemoryDirectory newParent) {
+		MemoryDirectory copy =
+		    new MemoryDirectory(getFileSystem(), getName(), newParent);
+		for (MemoryNode child : children.values()) {
+			copy.putChild(child.copy(copy));
+		}
+		copy.setLastModified(getLastModified());
+		return copy;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	long getAllocated() {
+		long allocated = 0;
+		for (MemoryNode child : children.values()) {
+			allocated += child.getAllocated();
+		}
+		return allocated;
+	}
+
+	/**
+	 * @param name
+	 *            child name
+	 * @return the child or null
+	 */
+	MemoryNode getChild(String name) {
+		return children.get(name);
+	}
+
+	/**
+	 * @param child
+	 *            child to add
+	 */
+	void putChild(MemoryNode child) {
+		children.put(child.getName(), child);
+	}
+
+	/**
+	 * @param name
+	 *            name of the child to remove
+	 */
+	void removeChild(String name) {
+		children.remove(name);
+		touch();
+	}
+
+	/**
+	 * @return true if the directory has no children
+	 */
+	boolean isEmpty() {
+		return children.isEmpty();
+	}
+
+	/**
+	 * @return a copy of the children sorted by name
+	 */
+	List<MemoryNode> children() {
+		return new ArrayList<MemoryNode>(children.values());
+	}
+
+}
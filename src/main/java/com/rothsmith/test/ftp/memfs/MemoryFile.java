@@ -0,0 +1,430 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.memfs;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * A regular file in a {@link MemoryFileSystem}. Content is stored in fixed
+ * size chunks so that large files never need one contiguous buffer. The last
+ * chunk starts small and grows as the file grows so that thousands of tiny
+ * files do not each pin a full chunk.
+ * <p>
+ * Chunks are shared with the copies taken by a {@link MemorySnapshot} and a
+ * shared chunk is copied the first time it is written, so a snapshot or a
+ * restore copies no content.
+ *
+ * @author drothauser
+ *
+ */
+public class MemoryFile
+        extends MemoryNode {
+
+	/**
+	 * Size of a full content chunk.
+	 */
+	static final int CHUNK_SIZE = 64 * 1024;
+
+	/**
+	 * Smallest chunk that will be allocated.
+	 */
+	private static final int MIN_CHUNK_SIZE = 256;
+
+	/**
+	 * Guards the content.
+	 */
+	private final Object contentLock = new Object();
+
+	/**
+	 * Content chunks. Every chunk but the last has a capacity of
+	 * {@link #CHUNK_SIZE}.
+	 */
+	private final List<ByteBuffer> chunks = new ArrayList<ByteBuffer>();
+
+	/**
+	 * Indexes of the chunks shared with a copy of this file. A shared chunk
+	 * is never written in place.
+	 */
+	private final BitSet shared = new BitSet();
+
+	/**
+	 * Content size in bytes.
+	 */
+	private long size;
+
+	/**
+	 * Constructor for MemoryFile.
+	 *
+	 * @param fileSystem
+	 *            the owning file system
+	 * @param name
+	 *            name of the file
+	 * @param parent
+	 *            parent directory
+	 */
+	MemoryFile(MemoryFileSystem fileSystem, String name,
+	    MemoryDirectory parent) {
+		super(fileSystem, name, parent);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isDirectory() {
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getSize() {
+		synchronized (contentLock) {
+			return size;
+		}
+	}
+
+	/**
+	 * Read bytes starting at the given position.
+	 *
+	 * @param position
+	 *            file position to read from
+	 * @param b
+	 *            destination array
+	 * @param off
+	 *            offset in the destination array
+	 * @param len
+	 *            maximum number of bytes to read
+	 * @return number of bytes read or -1 at end of file
+	 */
+	public int read(long position, byte[] b, int off, int len) {
+		synchronized (contentLock) {
+			if (position >= size) {
+				return -1;
+			}
+			int count = (int) Math.min(len, size - position);
+			int done = 0;
+			while (done < count) {
+				long p = position + done;
+				int chunkOffset = (int) (p % CHUNK_SIZE);
+				int n = Math.min(count - done, CHUNK_SIZE - chunkOffset);
+				ByteBuffer chunk =
+				    chunks.get((int) (p / CHUNK_SIZE)).duplicate();
+				chunk.position(chunkOffset);
+				chunk.get(b, off + done, n);
+				done += n;
+			}
+			return count;
+		}
+	}
+
+	/**
+	 * Write bytes at the given position, growing the file as needed. A gap
+	 * between the current end of file and the position is zero filled.
+	 *
+	 * @param position
+	 *            file position to write to
+	 * @param b
+	 *            source array
+	 * @param off
+	 *            offset in the source array
+	 * @param len
+	 *            number of bytes to write
+	 * @throws IOException
+	 *             if the file system memory cap would be exceeded
+	 */
+	public void write(long position, byte[] b, int off, int len)
+	        throws IOException {
+		synchronized (contentLock) {
+			long end = position + len;
+			ensureCapacity(end);
+			if (position > size) {
+				fill(size, position);
+			}
+			int done = 0;
+			while (done < len) {
+				long p = position + done;
+				int chunkOffset = (int) (p % CHUNK_SIZE);
+				int n = Math.min(len - done, CHUNK_SIZE - chunkOffset);
+				ByteBuffer chunk = writableChunk((int) (p / CHUNK_SIZE));
+				chunk.position(chunkOffset);
+				chunk.put(b, off + done, n);
+				done += n;
+			}
+			size = Math.max(size, end);
+		}
+		touch();
+	}
+
+	/**
+	 * Set the file size, releasing memory when the file shrinks and zero
+	 * filling when it grows.
+	 *
+	 * @param newSize
+	 *            new size in bytes
+	 * @throws IOException
+	 *             if the file system memory cap would be exceeded
+	 */
+	public void truncate(long newSize) throws IOException {
+		synchronized (contentLock) {
+			if (newSize > size) {
+				ensureCapacity(newSize);
+				fill(size, newSize);
+			} else {
+				int keep = (int) ((newSize + CHUNK_SIZE - 1) / CHUNK_SIZE);
+				while (chunks.size() > keep) {
+					shared.clear(chunks.size() - 1);
+					ByteBuffer chunk = chunks.remove(chunks.size() - 1);
+					getFileSystem().release(chunk.capacity());
+				}
+			}
+			size = newSize;
+		}
+		touch();
+	}
+
+	/**
+	 * Open a stream that reads the file from the given position.
+	 *
+	 * @param offset
+	 *            starting position
+	 * @return an input stream
+	 */
+	public InputStream newInputStream(final long offset) {
+		return new InputStream() {
+
+			/**
+			 * Current read position.
+			 */
+			private long position = offset;
+
+			@Override
+			public int read() {
+				byte[] one = new byte[1];
+				return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) {
+				if (len == 0) {
+					return 0;
+				}
+				int n = MemoryFile.this.read(position, b, off, len);
+				if (n > 0) {
+					position += n;
+				}
+				return n;
+			}
+
+			@Override
+			public long skip(long n) {
+				long skipped = Math.max(0, Math.min(n, getSize() - position));
+				position += skipped;
+				return skipped;
+			}
+
+			@Override
+			public int available() {
+				return (int) Math.min(Integer.MAX_VALUE,
+				    Math.max(0, getSize() - position));
+			}
+		};
+	}
+
+	/**
+	 * Open a stream that writes the file from the given position. Existing
+	 * content is not truncated.
+	 *
+	 * @param offset
+	 *            starting position
+	 * @return an output stream
+	 */
+	public OutputStream newOutputStream(final long offset) {
+		return new OutputStream() {
+
+			/**
+			 * Current write position.
+			 */
+			private long position = offset;
+
+			@Override
+			public void write(int b) throws IOException {
+				write(new byte[] { (byte) b }, 0, 1);
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				MemoryFile.this.write(position, b, off, len);
+				position += len;
+			}
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	void discard() {
+		synchronized (contentLock) {
+			for (ByteBuffer chunk : chunks) {
+				getFileSystem().release(chunk.capacity());
+			}
+			chunks.clear();
+			shared.clear();
+			size = 0;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	MemoryFile copy(MemoryDirectory newParent) {
+		MemoryFile copy = new MemoryFile(getFileSystem(), getName(), newParent);
+		synchronized (contentLock) {
+			shared.set(0, chunks.size());
+			copy.chunks.addAll(chunks);
+			copy.shared.set(0, chunks.size());
+			copy.size = size;
+		}
+		copy.setLastModified(getLastModified());
+		return copy;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	long getAllocated() {
+		synchronized (contentLock) {
+			long allocated = 0;
+			for (ByteBuffer chunk : chunks) {
+				allocated += chunk.capacity();
+			}
+			return allocated;
+		}
+	}
+
+	/**
+	 * Make sure the chunks can hold the given number of bytes. Caller must
+	 * hold the content lock.
+	 *
+	 * @param required
+	 *            number of bytes that must fit
+	 * @throws IOException
+	 *             if the file system memory cap would be exceeded
+	 */
+	private void ensureCapacity(long required) throws IOException {
+		int needed = (int) ((required + CHUNK_SIZE - 1) / CHUNK_SIZE);
+		if (!chunks.isEmpty()) {
+			int lastIndex = chunks.size() - 1;
+			ByteBuffer last = chunks.get(lastIndex);
+			long inLast = Math.min(CHUNK_SIZE, required - (long) lastIndex
+			    * CHUNK_SIZE);
+			if (last.capacity() < CHUNK_SIZE
+			    && (needed > chunks.size() || inLast > last.capacity())) {
+				int newCapacity =
+				    needed > chunks.size() ? CHUNK_SIZE : grow(
+				        last.capacity(), (int) inLast);
+				chunks.set(lastIndex, reallocate(last, newCapacity));
+				shared.clear(lastIndex);
+			}
+		}
+		while (chunks.size() < needed) {
+			long remaining = required - (long) chunks.size() * CHUNK_SIZE;
+			int chunkCapacity =
+			    chunks.size() + 1 < needed ? CHUNK_SIZE : grow(0,
+			        (int) remaining);
+			chunks.add(getFileSystem().allocate(chunkCapacity));
+		}
+	}
+
+	/**
+	 * Return a chunk for writing, first giving this file its own copy if the
+	 * chunk is shared. Caller must hold the content lock.
+	 *
+	 * @param index
+	 *            chunk index
+	 * @return a duplicate of the chunk
+	 * @throws IOException
+	 *             if the file system memory cap would be exceeded
+	 */
+	private ByteBuffer writableChunk(int index) throws IOException {
+		ByteBuffer chunk = chunks.get(index);
+		if (shared.get(index)) {
+			chunk = reallocate(chunk, chunk.capacity());
+			chunks.set(index, chunk);
+			shared.clear(index);
+		}
+		return chunk.duplicate();
+	}
+
+	/**
+	 * Copy a chunk into a new buffer of at least its size.
+	 *
+	 * @param chunk
+	 *            the chunk to grow
+	 * @param newCapacity
+	 *            new capacity
+	 * @return the new chunk
+	 * @throws IOException
+	 *             if the file system memory cap would be exceeded
+	 */
+	private ByteBuffer reallocate(ByteBuffer chunk, int newCapacity)
+	        throws IOException {
+		ByteBuffer grown = getFileSystem().allocate(newCapacity);
+		ByteBuffer source = chunk.duplicate();
+		source.clear();
+		grown.put(source);
+		grown.clear();
+		getFileSystem().release(chunk.capacity());
+		return grown;
+	}
+
+	/**
+	 * Zero fill a range of the content. Caller must hold the content lock.
+	 *
+	 * @param from
+	 *            start position, inclusive
+	 * @param to
+	 *            end position, exclusive
+	 * @throws IOException
+	 *             if the file system memory cap would be exceeded
+	 */
+	private void fill(long from, long to) throws IOException {
+		for (long p = from; p < to;) {
+			int chunkOffset = (int) (p % CHUNK_SIZE);
+			int n = (int) Math.min(to - p, CHUNK_SIZE - chunkOffset);
+			ByteBuffer chunk = writableChunk((int) (p / CHUNK_SIZE));
+			chunk.position(chunkOffset);
+			chunk.put(new byte[n]);
+			p += n;
+		}
+	}
+
+	/**
+	 * Compute a chunk capacity by doubling.
+	 *
+	 * @param current
+	 *            current capacity
+	 * @param needed
+	 *            capacity that is needed
+	 * @return the new capacity
+	 */
+	private static int grow(int current, int needed) {
+		int capacity = Math.max(MIN_CHUNK_SIZE, current);
+		while (capacity < needed) {
+			capacity <<= 1;
+		}
+		return Math.min(capacity, CHUNK_SIZE);
+	}
+
+}
@@ -0,0 +1,615 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.memfs;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * A file system that lives entirely in memory. File content is kept in heap
+ * byte arrays or, optionally, in off-heap direct {@link ByteBuffer}s. The
+ * total amount of memory used for file content can be capped so that a
+ * runaway test fails with an {@link IOException} instead of an
+ * {@link OutOfMemoryError}.
+ * <p>
+ * Paths are always absolute and use '/' as the separator. The same instance
+ * may be shared by the SFTP and FTPS test servers. Large test files can be
+ * added with {@link #createGeneratedFile(String, long, long)}, which stores
+ * nothing and generates the content as it is read.
+ * <p>
+ * {@link #snapshot()} and {@link #restore(MemorySnapshot)} save and put back
+ * the whole tree, e.g. to give every test the same fixture files. Neither
+ * copies file content; content is copied chunk by chunk as it is written.
+ *
+ * @author drothauser
+ *
+ */
+public class MemoryFileSystem {
+
+	/**
+	 * Where file content is stored.
+	 */
+	public enum StorageType {
+
+		/**
+		 * Content is stored in heap byte buffers.
+		 */
+		HEAP,
+
+		/**
+		 * Content is stored in off-heap direct byte buffers.
+		 */
+		DIRECT
+	}
+
+	/**
+	 * Capacity value meaning "no memory cap".
+	 */
+	public static final long UNLIMITED = Long.MAX_VALUE;
+
+	/**
+	 * Path separator.
+	 */
+	public static final String SEPARATOR = "/";
+
+	/**
+	 * Where file content is stored.
+	 */
+	private final StorageType storageType;
+
+	/**
+	 * Maximum number of bytes that may be allocated for file content.
+	 */
+	private final long capacity;
+
+	/**
+	 * Number of bytes currently allocated for file content.
+	 */
+	private final AtomicLong usedBytes = new AtomicLong();
+
+	/**
+	 * Guards the directory tree structure.
+	 */
+	private final ReadWriteLock treeLock = new ReentrantReadWriteLock();
+
+	/**
+	 * Root directory.
+	 */
+	private final MemoryDirectory root;
+
+	/**
+	 * Constructor for an unlimited heap backed file system.
+	 */
+	public MemoryFileSystem() {
+		this(StorageType.HEAP, UNLIMITED);
+	}
+
+	/**
+	 * Constructor for MemoryFileSystem.
+	 *
+	 * @param storageType
+	 *            where file content is stored
+	 * @param capacity
+	 *            maximum number of bytes of file content, or
+	 *            {@link #UNLIMITED}
+	 */
+	public MemoryFileSystem(StorageType storageType, long capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException(
+			    "Capacity must be positive: " + capacity);
+		}
+		this.storageType = storageType;
+		this.capacity = capacity;
+		this.root = new MemoryDirectory(this, "", null);
+	}
+
+	/**
+	 * Normalize a path: separators are converted to '/', "." and ".." are
+	 * resolved and the result is made absolute. ".." never climbs above the
+	 * root.
+	 *
+	 * @param path
+	 *            the path to normalize
+	 * @return the normalized absolute path
+	 */
+	public static String normalize(String path) {
+		List<String> names = new ArrayList<String>();
+		String[] tokens =
+		    StringUtils.split(StringUtils.defaultString(path).replace('\\',
+		        '/'), '/');
+		for (String token : tokens) {
+			if ("..".equals(token)) {
+				if (!names.isEmpty()) {
+					names.remove(names.size() - 1);
+				}
+			} else if (!".".equals(token)) {
+				names.add(token);
+			}
+		}
+		return SEPARATOR + StringUtils.join(names, '/');
+	}
+
+	/**
+	 * Resolve a path against a base directory.
+	 *
+	 * @param base
+	 *            base directory path
+	 * @param path
+	 *            absolute path or a path relative to the base
+	 * @return the normalized absolute path
+	 */
+	public static String resolve(String base, String path) {
+		String p = StringUtils.defaultString(path).replace('\\', '/');
+		if (p.startsWith(SEPARATOR)) {
+			return normalize(p);
+		}
+		return normalize(base + SEPARATOR + p);
+	}
+
+	/**
+	 * Join a path onto a base directory. Unlike {@link #resolve}, an absolute
+	 * child path is still placed under the base, which is how user home
+	 * directories are mapped.
+	 *
+	 * @param base
+	 *            base directory path
+	 * @param child
+	 *            path to place under the base
+	 * @return the normalized absolute path
+	 */
+	public static String join(String base, String child) {
+		return normalize(normalize(base) + SEPARATOR + normalize(child));
+	}
+
+	/**
+	 * Return the parent of a normalized path.
+	 *
+	 * @param path
+	 *            normalized path
+	 * @return the parent path, or null for the root
+	 */
+	public static String parentOf(String path) {
+		if (SEPARATOR.equals(path)) {
+			return null;
+		}
+		int idx = path.lastIndexOf('/');
+		return idx == 0 ? SEPARATOR : path.substring(0, idx);
+	}
+
+	/**
+	 * Return the last name of a normalized path.
+	 *
+	 * @param path
+	 *            normalized path
+	 * @return the last name, or an empty string for the root
+	 */
+	public static String nameOf(String path) {
+		return path.substring(path.lastIndexOf('/') + 1);
+	}
+
+	/**
+	 * @return the root directory
+	 */
+	public MemoryDirectory getRoot() {
+		return root;
+	}
+
+	/**
+	 * @return where file content is stored
+	 */
+	public StorageType getStorageType() {
+		return storageType;
+	}
+
+	/**
+	 * @return the maximum number of bytes of file content
+	 */
+	public long getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return the number of bytes currently allocated for file content
+	 */
+	public long getUsedBytes() {
+		return usedBytes.get();
+	}
+
+	/**
+	 * Look up the node at the given path.
+	 *
+	 * @param path
+	 *            absolute path
+	 * @return the node or null if it does not exist
+	 */
+	public MemoryNode lookup(String path) {
+		Lock lock = treeLock.readLock();
+		lock.lock();
+		try {
+			return find(normalize(path));
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * List the children of a directory.
+	 *
+	 * @param path
+	 *            absolute directory path
+	 * @return the children sorted by name or null if the path is not a
+	 *         directory
+	 */
+	public List<MemoryNode> list(String path) {
+		Lock lock = treeLock.readLock();
+		lock.lock();
+		try {
+			MemoryNode node = find(normalize(path));
+			if (node == null || !node.isDirectory()) {
+				return null;
+			}
+			return ((MemoryDirectory) node).children();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Create a directory. The parent directory must already exist.
+	 *
+	 * @param path
+	 *            absolute directory path
+	 * @return true if the directory was created
+	 */
+	public boolean mkdir(String path) {
+		Lock lock = treeLock.writeLock();
+		lock.lock();
+		try {
+			return addNode(normalize(path), true) != null;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Create a directory along with any missing parent directories.
+	 *
+	 * @param path
+	 *            absolute directory path
+	 * @return the directory
+	 * @throws IOException
+	 *             if a file is in the way
+	 */
+	public MemoryDirectory mkdirs(String path) throws IOException {
+		Lock lock = treeLock.writeLock();
+		lock.lock();
+		try {
+			MemoryDirectory dir = root;
+			for (String name : StringUtils.split(normalize(path), '/')) {
+				MemoryNode child = dir.getChild(name);
+				if (child == null) {
+					child = new MemoryDirectory(this, name, dir);
+					dir.putChild(child);
+				} else if (!child.isDirectory()) {
+					throw new IOException("Not a directory: " + child.getPath());
+				}
+				dir = (MemoryDirectory) child;
+			}
+			return dir;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Create an empty file. The parent directory must already exist.
+	 *
+	 * @param path
+	 *            absolute file path
+	 * @return the new file or null if the path already exists or the parent
+	 *         is not a directory
+	 */
+	public MemoryFile createFile(String path) {
+		Lock lock = treeLock.writeLock();
+		lock.lock();
+		try {
+			return (MemoryFile) addNode(normalize(path), false);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Create a read-only file whose content is generated as it is read. The
+	 * parent directory must already exist.
+	 *
+	 * @param path
+	 *            absolute file path
+	 * @param size
+	 *            declared size in bytes
+	 * @param seed
+	 *            seed of the content
+	 * @return the new file or null if the path already exists or the parent
+	 *         is not a directory
+	 */
+	public GeneratedFile createGeneratedFile(String path, long size,
+	    long seed) {
+		GeneratedContent content = new GeneratedContent(seed, size);
+		Lock lock = treeLock.writeLock();
+		lock.lock();
+		try {
+			String normalized = normalize(path);
+			MemoryDirectory dir = parentForNew(normalized);
+			if (dir == null) {
+				return null;
+			}
+			GeneratedFile file =
+			    new GeneratedFile(this, nameOf(normalized), dir, content);
+			dir.putChild(file);
+			dir.touch();
+			return file;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Return the file at the given path, creating it if necessary.
+	 *
+	 * @param path
+	 *            absolute file path
+	 * @return the file
+	 * @throws IOException
+	 *             if the path is a directory or the parent does not exist
+	 */
+	public MemoryFile getOrCreateFile(String path) throws IOException {
+		Lock lock = treeLock.writeLock();
+		lock.lock();
+		try {
+			String normalized = normalize(path);
+			MemoryNode node = find(normalized);
+			if (node == null) {
+				node = addNode(normalized, false);
+			}
+			if (node == null || node.isDirectory()) {
+				throw new IOException("Can not create file: " + normalized);
+			}
+			return (MemoryFile) node;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Delete a file or an empty directory.
+	 *
+	 * @param path
+	 *            absolute path
+	 * @return true if the node was deleted
+	 */
+	public boolean delete(String path) {
+		Lock lock = treeLock.writeLock();
+		lock.lock();
+		try {
+			MemoryNode node = find(normalize(path));
+			if (node == null || node == root) {
+				return false;
+			}
+			if (node.isDirectory() && !((MemoryDirectory) node).isEmpty()) {
+				return false;
+			}
+			node.getParent().removeChild(node.getName());
+			node.discard();
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Rename or move a node. The target must not exist and its parent must be
+	 * an existing directory.
+	 *
+	 * @param from
+	 *            absolute source path
+	 * @param to
+	 *            absolute target path
+	 * @return true if the node was moved
+	 */
+	public boolean move(String from, String to) {
+		Lock lock = treeLock.writeLock();
+		lock.lock();
+		try {
+			String source = normalize(from);
+			String target = normalize(to);
+			MemoryNode node = find(source);
+			if (node == null || node == root || find(target) != null
+			    || target.startsWith(source + SEPARATOR)) {
+				return false;
+			}
+			MemoryNode newParent = find(parentOf(target));
+			if (newParent == null || !newParent.isDirectory()) {
+				return false;
+			}
+			node.getParent().removeChild(node.getName());
+			node.relink(nameOf(target), (MemoryDirectory) newParent);
+			((MemoryDirectory) newParent).putChild(node);
+			node.touch();
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Remove everything from the file system and release all content memory.
+	 */
+	public void clear() {
+		Lock lock = treeLock.writeLock();
+		lock.lock();
+		try {
+			removeAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Take a snapshot of the whole tree. The time taken depends on the number
+	 * of files and directories, not on their size.
+	 *
+	 * @return the snapshot
+	 */
+	public MemorySnapshot snapshot() {
+		Lock lock = treeLock.readLock();
+		lock.lock();
+		try {
+			return new MemorySnapshot(this, root.copy(null));
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Replace the whole tree with a snapshot of this file system. The
+	 * snapshot is not changed and can be restored again.
+	 *
+	 * @param snapshot
+	 *            a snapshot taken with {@link #snapshot()}
+	 */
+	public void restore(MemorySnapshot snapshot) {
+		if (snapshot.getFileSystem() != this) {
+			throw new IllegalArgumentException(
+			    "Snapshot of another file system: " + snapshot);
+		}
+		Lock lock = treeLock.writeLock();
+		lock.lock();
+		try {
+			removeAll();
+			MemoryDirectory saved = snapshot.getRoot();
+			for (MemoryNode child : saved.children()) {
+				MemoryNode copy = child.copy(root);
+				root.putChild(copy);
+				usedBytes.addAndGet(copy.getAllocated());
+			}
+			root.setLastModified(saved.getLastModified());
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Remove all children of the root. Caller must hold the tree write lock.
+	 */
+	private void removeAll() {
+		for (MemoryNode child : root.children()) {
+			root.removeChild(child.getName());
+			child.discard();
+		}
+	}
+
+	/**
+	 * Find a node by normalized path. Caller must hold the tree lock.
+	 *
+	 * @param path
+	 *            normalized path
+	 * @return the node or null
+	 */
+	private MemoryNode find(String path) {
+		MemoryNode node = root;
+		for (String name : StringUtils.split(path, '/')) {
+			if (!node.isDirectory()) {
+				return null;
+			}
+			node = ((MemoryDirectory) node).getChild(name);
+			if (node == null) {
+				return null;
+			}
+		}
+		return node;
+	}
+
+	/**
+	 * Add a new node. Caller must hold the tree write lock.
+	 *
+	 * @param path
+	 *            normalized path
+	 * @param directory
+	 *            true to add a directory, false to add a file
+	 * @return the new node or null if it could not be added
+	 */
+	private MemoryNode addNode(String path, boolean directory) {
+		MemoryDirectory dir = parentForNew(path);
+		if (dir == null) {
+			return null;
+		}
+		String name = nameOf(path);
+		MemoryNode node =
+		    directory ? new MemoryDirectory(this, name, dir)
+		        : new MemoryFile(this, name, dir);
+		dir.putChild(node);
+		dir.touch();
+		return node;
+	}
+
+	/**
+	 * Return the directory a new node at the given path would be added to.
+	 * Caller must hold the tree write lock.
+	 *
+	 * @param path
+	 *            normalized path of the new node
+	 * @return the parent directory or null if the path exists or the parent
+	 *         is not a directory
+	 */
+	private MemoryDirectory parentForNew(String path) {
+		String parentPath = parentOf(path);
+		if (parentPath == null || find(path) != null) {
+			return null;
+		}
+		MemoryNode parent = find(parentPath);
+		if (parent == null || !parent.isDirectory()) {
+			return null;
+		}
+		return (MemoryDirectory) parent;
+	}
+
+	/**
+	 * Allocate a content buffer, charging it against the memory cap.
+	 *
+	 * @param size
+	 *            buffer capacity in bytes
+	 * @return a zero filled buffer
+	 * @throws IOException
+	 *             if the memory cap would be exceeded
+	 */
+	ByteBuffer allocate(int size) throws IOException {
+		long used = usedBytes.addAndGet(size);
+		if (used > capacity) {
+			usedBytes.addAndGet(-size);
+			throw new IOException(String.format(
+			    "Memory file system capacity of %d bytes exceeded", capacity));
+		}
+		return storageType == StorageType.DIRECT ? ByteBuffer
+		    .allocateDirect(size) : ByteBuffer.allocate(size);
+	}
+
+	/**
+	 * Return content memory to the pool.
+	 *
+	 * @param size
+	 *            number of bytes released
+	 */
+	void release(long size) {
+		usedBytes.addAndGet(-size);
+	}
+
+}
@@ -0,0 +1,285 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.memfs;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.usermanager.impl.WriteRequest;
+
+/**
+ * Apache FtpServer {@link FtpFile} backed by a {@link MemoryFileSystem}. Write
+ * access is authorized against the user's permissions exactly like the native
+ * implementation.
+ *
+ * @author drothauser
+ *
+ */
+public class MemoryFtpFile
+        implements FtpFile {
+
+	/**
+	 * Link count reported for directories, same as the native file system.
+	 */
+	private static final int DIRECTORY_LINK_COUNT = 3;
+
+	/**
+	 * The view this file was resolved through.
+	 */
+	private final MemoryFtpFileSystemView view;
+
+	/**
+	 * Normalized path as seen by the client.
+	 */
+	private final String virtualPath;
+
+	/**
+	 * Path in the backing file system.
+	 */
+	private final String physicalPath;
+
+	/**
+	 * Constructor for MemoryFtpFile.
+	 *
+	 * @param view
+	 *            the view this file was resolved through
+	 * @param virtualPath
+	 *            normalized path as seen by the client
+	 */
+	public MemoryFtpFile(MemoryFtpFileSystemView view, String virtualPath) {
+		this.view = view;
+		this.virtualPath = virtualPath;
+		this.physicalPath = view.toPhysicalPath(virtualPath);
+	}
+
+	/**
+	 * @return the node or null if it does not exist
+	 */
+	private MemoryNode node() {
+		return view.getFileSystem().lookup(physicalPath);
+	}
+
+	/**
+	 * @return path in the backing file system
+	 */
+	public String getPhysicalPath() {
+		return physicalPath;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getAbsolutePath() {
+		return virtualPath;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getName() {
+		String name = MemoryFileSystem.nameOf(virtualPath);
+		return name.isEmpty() ? MemoryFileSystem.SEPARATOR : name;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isHidden() {
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isDirectory() {
+		MemoryNode node = node();
+		return node != null && node.isDirectory();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isFile() {
+		MemoryNode node = node();
+		return node != null && !node.isDirectory();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean doesExist() {
+		return node() != null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isReadable() {
+		return doesExist();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isWritable() {
+		return view.getUser().authorize(new WriteRequest(virtualPath)) != null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isRemovable() {
+		return !MemoryFileSystem.SEPARATOR.equals(virtualPath)
+		    && isWritable();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getOwnerName() {
+		return "user";
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getGroupName() {
+		return "group";
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getLinkCount() {
+		return isDirectory() ? DIRECTORY_LINK_COUNT : 1;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getLastModified() {
+		MemoryNode node = node();
+		return node == null ? 0 : node.getLastModified();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean setLastModified(long time) {
+		MemoryNode node = node();
+		if (node == null) {
+			return false;
+		}
+		node.setLastModified(time);
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getSize() {
+		MemoryNode node = node();
+		return node == null ? 0 : node.getSize();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean mkdir() {
+		return isWritable() && view.getFileSystem().mkdir(physicalPath);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean delete() {
+		return isRemovable() && view.getFileSystem().delete(physicalPath);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean move(FtpFile destination) {
+		if (!(destination instanceof MemoryFtpFile)
+		    || !destination.isWritable() || !isReadable()) {
+			return false;
+		}
+		return view.getFileSystem().move(physicalPath,
+		    ((MemoryFtpFile) destination).physicalPath);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<FtpFile> listFiles() {
+		List<MemoryNode> children = view.getFileSystem().list(physicalPath);
+		if (children == null) {
+			return null;
+		}
+		List<FtpFile> files = new ArrayList<FtpFile>(children.size());
+		for (MemoryNode child : children) {
+			files.add(new MemoryFtpFile(view, MemoryFileSystem.resolve(
+			    virtualPath, child.getName())));
+		}
+		return files;
+	}
+
+	/**
+	 * {@inheritDoc} Like the native implementation, the file is truncated at
+	 * the offset.
+	 */
+	@Override
+	public OutputStream createOutputStream(long offset) throws IOException {
+		if (!isWritable()) {
+			throw new IOException("No write permission : " + getName());
+		}
+		MemoryFile file = view.getFileSystem().getOrCreateFile(physicalPath);
+		file.truncate(offset);
+		return file.newOutputStream(offset);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public InputStream createInputStream(long offset) throws IOException {
+		MemoryNode node = node();
+		if (node == null || node.isDirectory()) {
+			throw new IOException("No read permission : " + getName());
+		}
+		return ((MemoryFile) node).newInputStream(offset);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return virtualPath;
+	}
+
+}
@@ -0,0 +1,67 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.memfs;
+
+import java.io.IOException;
+
+import org.apache.ftpserver.ftplet.FileSystemFactory;
+import org.apache.ftpserver.ftplet.FileSystemView;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.User;
+
+/**
+ * Apache FtpServer {@link FileSystemFactory} that serves files out of a
+ * {@link MemoryFileSystem}. A user's home directory is interpreted as a path
+ * inside the memory file system and is created on first login.
+ *
+ * @author drothauser
+ *
+ */
+public class MemoryFtpFileSystemFactory
+        implements FileSystemFactory {
+
+	/**
+	 * The backing file system.
+	 */
+	private final MemoryFileSystem fileSystem;
+
+	/**
+	 * Constructor that uses a new unlimited heap file system.
+	 */
+	public MemoryFtpFileSystemFactory() {
+		this(new MemoryFileSystem());
+	}
+
+	/**
+	 * Constructor for MemoryFtpFileSystemFactory.
+	 *
+	 * @param fileSystem
+	 *            the backing file system
+	 */
+	public MemoryFtpFileSystemFactory(MemoryFileSystem fileSystem) {
+		this.fileSystem = fileSystem;
+	}
+
+	/**
+	 * @return the backing file system
+	 */
+	public MemoryFileSystem getFileSystem() {
+		return fileSystem;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public FileSystemView createFileSystemView(User user) throws FtpException {
+		String homeDir = MemoryFileSystem.normalize(user.getHomeDirectory());
+		try {
+			fileSystem.mkdirs(homeDir);
+		} catch (IOException e) {
+			throw new FtpException("Cannot create user home :: " + homeDir, e);
+		}
+		return new MemoryFtpFileSystemView(fileSystem, homeDir, user);
+	}
+
+}
@@ -0,0 +1,151 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.memfs;
+
+import org.apache.ftpserver.ftplet.FileSystemView;
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.ftplet.User;
+
+/**
+ * Apache FtpServer {@link FileSystemView} of a user's home directory in a
+ * {@link MemoryFileSystem}. The home directory appears to the client as "/".
+ *
+ * @author drothauser
+ *
+ */
+public class MemoryFtpFileSystemView
+        implements FileSystemView {
+
+	/**
+	 * The backing file system.
+	 */
+	private final MemoryFileSystem fileSystem;
+
+	/**
+	 * Home directory path in the backing file system.
+	 */
+	private final String homeDir;
+
+	/**
+	 * User that owns this view.
+	 */
+	private final User user;
+
+	/**
+	 * Current working directory as seen by the client.
+	 */
+	private volatile String currentDir = MemoryFileSystem.SEPARATOR;
+
+	/**
+	 * Constructor for MemoryFtpFileSystemView.
+	 *
+	 * @param fileSystem
+	 *            the backing file system
+	 * @param homeDir
+	 *            home directory path in the backing file system
+	 * @param user
+	 *            user that owns this view
+	 */
+	public MemoryFtpFileSystemView(MemoryFileSystem fileSystem,
+	    String homeDir, User user) {
+		this.fileSystem = fileSystem;
+		this.homeDir = homeDir;
+		this.user = user;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public FtpFile getHomeDirectory() {
+		return new MemoryFtpFile(this, MemoryFileSystem.SEPARATOR);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public FtpFile getWorkingDirectory() {
+		return new MemoryFtpFile(this, currentDir);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean changeWorkingDirectory(String dir) {
+		String path = resolve(dir);
+		MemoryNode node = fileSystem.lookup(toPhysicalPath(path));
+		if (node == null || !node.isDirectory()) {
+			return false;
+		}
+		currentDir = path;
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public FtpFile getFile(String file) {
+		return new MemoryFtpFile(this, resolve(file));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isRandomAccessible() {
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void dispose() {
+		// nothing to release
+	}
+
+	/**
+	 * Resolve a client path against the working directory. "~" refers to the
+	 * home directory.
+	 *
+	 * @param file
+	 *            client path
+	 * @return normalized client path
+	 */
+	private String resolve(String file) {
+		String path =
+		    file.startsWith("~") ? MemoryFileSystem.SEPARATOR
+		        + file.substring(1) : file;
+		return MemoryFileSystem.resolve(currentDir, path);
+	}
+
+	/**
+	 * Map a path as seen by the client to a path in the backing file system.
+	 *
+	 * @param virtualPath
+	 *            normalized client path
+	 * @return path in the backing file system
+	 */
+	String toPhysicalPath(String virtualPath) {
+		return MemoryFileSystem.join(homeDir, virtualPath);
+	}
+
+	/**
+	 * @return the backing file system
+	 */
+	public MemoryFileSystem getFileSystem() {
+		return fileSystem;
+	}
+
+	/**
+	 * @return the user that owns this view
+	 */
+	public User getUser() {
+		return user;
+	}
+
+}
@@ -0,0 +1,159 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.memfs;
+
+/**
+ * A file or directory in a {@link MemoryFileSystem}.
+ *
+ * @author drothauser
+ *
+ */
+public abstract class MemoryNode {
+
+	/**
+	 * The file system this node belongs to.
+	 */
+	private final MemoryFileSystem fileSystem;
+
+	/**
+	 * Name of this node within its parent directory.
+	 */
+	private volatile String name;
+
+	/**
+	 * Parent directory, null for the root.
+	 */
+	private volatile MemoryDirectory parent;
+
+	/**
+	 * Last modified time in milliseconds.
+	 */
+	private volatile long lastModified = System.currentTimeMillis();
+
+	/**
+	 * Constructor for MemoryNode.
+	 *
+	 * @param fileSystem
+	 *            the owning file system
+	 * @param name
+	 *            name of the node
+	 * @param parent
+	 *            parent directory
+	 */
+	MemoryNode(MemoryFileSystem fileSystem, String name,
+	    MemoryDirectory parent) {
+		this.fileSystem = fileSystem;
+		this.name = name;
+		this.parent = parent;
+	}
+
+	/**
+	 * @return true if this node is a directory
+	 */
+	public abstract boolean isDirectory();
+
+	/**
+	 * @return size of the content in bytes, 0 for directories
+	 */
+	public abstract long getSize();
+
+	/**
+	 * Release any resources held by this node after it has been removed from
+	 * the tree.
+	 */
+	abstract void discard();
+
+	/**
+	 * Copy this node and everything below it for a {@link MemorySnapshot}.
+	 * File content is shared, not copied.
+	 *
+	 * @param newParent
+	 *            parent directory of the copy, null for a root
+	 * @return the copy
+	 */
+	abstract MemoryNode copy(MemoryDirectory newParent);
+
+	/**
+	 * @return bytes of content memory held by this node and everything below
+	 *         it
+	 */
+	abstract long getAllocated();
+
+	/**
+	 * @return the owning file system
+	 */
+	public MemoryFileSystem getFileSystem() {
+		return fileSystem;
+	}
+
+	/**
+	 * @return the name of this node
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the parent directory or null for the root
+	 */
+	public MemoryDirectory getParent() {
+		return parent;
+	}
+
+	/**
+	 * @return the absolute path of this node
+	 */
+	public String getPath() {
+		MemoryDirectory p = parent;
+		if (p == null) {
+			return MemoryFileSystem.SEPARATOR;
+		}
+		String parentPath = p.getPath();
+		return MemoryFileSystem.SEPARATOR.equals(parentPath) ? parentPath + name
+		    : parentPath + MemoryFileSystem.SEPARATOR + name;
+	}
+
+	/**
+	 * @return last modified time in milliseconds
+	 */
+	public long getLastModified() {
+		return lastModified;
+	}
+
+	/**
+	 * @param lastModified
+	 *            last modified time in milliseconds
+	 */
+	public void setLastModified(long lastModified) {
+		this.lastModified = lastModified;
+	}
+
+	/**
+	 * Set the last modified time to now.
+	 */
+	void touch() {
+		lastModified = System.currentTimeMillis();
+	}
+
+	/**
+	 * Give this node a new name and parent as part of a move.
+	 *
+	 * @param newName
+	 *            new name
+	 * @param newParent
+	 *            new parent directory
+	 */
+	void relink(String newName, MemoryDirectory newParent) {
+		this.name = newName;
+		this.parent = newParent;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return getPath();
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.memfs;
+
+/**
+ * A frozen copy of the tree of a {@link MemoryFileSystem}, taken with
+ * {@link MemoryFileSystem#snapshot()} and put back with
+ * {@link MemoryFileSystem#restore(MemorySnapshot)} as many times as needed.
+ * The snapshot shares file content with the file system; a file written
+ * after the snapshot copies only the chunks it changes. Content held only
+ * by a snapshot does not count against the file system capacity and is
+ * freed when the snapshot is no longer referenced.
+ *
+ * @author drothauser
+ *
+ */
+public final class MemorySnapshot {
+
+	/**
+	 * File system the snapshot was taken of.
+	 */
+	private final MemoryFileSystem fileSystem;
+
+	/**
+	 * Copy of the root directory.
+	 */
+	private final MemoryDirectory root;
+
+	/**
+	 * Time the snapshot was taken in milliseconds.
+	 */
+	private final long time = System.currentTimeMillis();
+
+	/**
+	 * Constructor for MemorySnapshot.
+	 *
+	 * @param fileSystem
+	 *            file system the snapshot was taken of
+	 * @param root
+	 *            copy of the root directory
+	 */
+	MemorySnapshot(MemoryFileSystem fileSystem, MemoryDirectory root) {
+		this.fileSystem = fileSystem;
+		this.root = root;
+	}
+
+	/**
+	 * @return the file system the snapshot was taken of
+	 */
+	public MemoryFileSystem getFileSystem() {
+		return fileSystem;
+	}
+
+	/**
+	 * @return time the snapshot was taken in milliseconds
+	 */
+	public long getTime() {
+		return time;
+	}
+
+	/**
+	 * @return copy of the root directory
+	 */
+	MemoryDirectory getRoot() {
+		return root;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return "MemorySnapshot[time=" + time + "]";
+	}
+
+}
@@ -0,0 +1,384 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.memfs;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.sshd.common.file.SshFile;
+
+/**
+ * SSHD {@link SshFile} backed by a {@link MemoryFileSystem}. The node is
+ * looked up on every call because SFTP clients routinely ask about files that
+ * do not exist yet.
+ *
+ * @author drothauser
+ *
+ */
+public class MemorySshFile
+        implements SshFile {
+
+	/**
+	 * The view this file was resolved through.
+	 */
+	private final MemorySshFileSystemView view;
+
+	/**
+	 * Normalized path as seen by the client.
+	 */
+	private final String virtualPath;
+
+	/**
+	 * Path in the backing file system.
+	 */
+	private final String physicalPath;
+
+	/**
+	 * Constructor for MemorySshFile.
+	 *
+	 * @param view
+	 *            the view this file was resolved through
+	 * @param virtualPath
+	 *            normalized path as seen by the client
+	 */
+	public MemorySshFile(MemorySshFileSystemView view, String virtualPath) {
+		this.view = view;
+		this.virtualPath = virtualPath;
+		this.physicalPath = view.toPhysicalPath(virtualPath);
+	}
+
+	/**
+	 * @return the node or null if it does not exist
+	 */
+	private MemoryNode node() {
+		return view.getFileSystem().lookup(physicalPath);
+	}
+
+	/**
+	 * @return path in the backing file system
+	 */
+	public String getPhysicalPath() {
+		return physicalPath;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getAbsolutePath() {
+		return virtualPath;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getName() {
+		String name = MemoryFileSystem.nameOf(virtualPath);
+		return name.isEmpty() ? MemoryFileSystem.SEPARATOR : name;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Map<Attribute, Object> getAttributes(boolean followLinks)
+	        throws IOException {
+		Map<Attribute, Object> map =
+		    new EnumMap<Attribute, Object>(Attribute.class);
+		map.put(Attribute.Size, getSize());
+		map.put(Attribute.IsDirectory, isDirectory());
+		map.put(Attribute.IsRegularFile, isFile());
+		map.put(Attribute.IsSymbolicLink, false);
+		map.put(Attribute.LastModifiedTime, getLastModified());
+		map.put(Attribute.LastAccessTime, getLastModified());
+		map.put(Attribute.Owner, view.getUserName());
+		map.put(Attribute.Group, view.getUserName());
+		EnumSet<Permission> perms =
+		    EnumSet.of(Permission.UserRead, Permission.UserWrite,
+		        Permission.GroupRead, Permission.GroupWrite,
+		        Permission.OthersRead);
+		if (isDirectory()) {
+			perms.add(Permission.UserExecute);
+			perms.add(Permission.GroupExecute);
+			perms.add(Permission.OthersExecute);
+		}
+		map.put(Attribute.Permissions, perms);
+		return map;
+	}
+
+	/**
+	 * {@inheritDoc} Only size and last modified time are honored.
+	 */
+	@Override
+	public void setAttributes(Map<Attribute, Object> attributes)
+	        throws IOException {
+		for (Map.Entry<Attribute, Object> entry : attributes.entrySet()) {
+			setAttribute(entry.getKey(), entry.getValue());
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Object getAttribute(Attribute attribute, boolean followLinks)
+	        throws IOException {
+		return getAttributes(followLinks).get(attribute);
+	}
+
+	/**
+	 * {@inheritDoc} Only size and last modified time are honored.
+	 */
+	@Override
+	public void setAttribute(Attribute attribute, Object value)
+	        throws IOException {
+		MemoryNode node = node();
+		if (node == null) {
+			return;
+		}
+		if (attribute == Attribute.Size && !node.isDirectory()) {
+			((MemoryFile) node).truncate((Long) value);
+		} else if (attribute == Attribute.LastModifiedTime) {
+			node.setLastModified((Long) value);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String readSymbolicLink() throws IOException {
+		throw new IOException("Symbolic links are not supported");
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void createSymbolicLink(SshFile destination) throws IOException {
+		throw new IOException("Symbolic links are not supported");
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getOwner() {
+		return view.getUserName();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isDirectory() {
+		MemoryNode node = node();
+		return node != null && node.isDirectory();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isFile() {
+		MemoryNode node = node();
+		return node != null && !node.isDirectory();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean doesExist() {
+		return node() != null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isReadable() {
+		return doesExist();
+	}
+
+	/**
+	 * {@inheritDoc} A file that does not exist yet is writable when its
+	 * parent directory exists.
+	 */
+	@Override
+	public boolean isWritable() {
+		if (doesExist()) {
+			return true;
+		}
+		MemoryNode parent =
+		    view.getFileSystem().lookup(
+		        MemoryFileSystem.parentOf(physicalPath));
+		return parent != null && parent.isDirectory();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isExecutable() {
+		return isDirectory();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isRemovable() {
+		return !MemoryFileSystem.SEPARATOR.equals(virtualPath) && doesExist();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public SshFile getParentFile() {
+		String parent = MemoryFileSystem.parentOf(virtualPath);
+		return new MemorySshFile(view, parent == null
+		    ? MemoryFileSystem.SEPARATOR : parent);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getLastModified() {
+		MemoryNode node = node();
+		return node == null ? 0 : node.getLastModified();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean setLastModified(long time) {
+		MemoryNode node = node();
+		if (node == null) {
+			return false;
+		}
+		node.setLastModified(time);
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getSize() {
+		MemoryNode node = node();
+		return node == null ? 0 : node.getSize();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean mkdir() {
+		return view.getFileSystem().mkdir(physicalPath);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean delete() {
+		return isRemovable() && view.getFileSystem().delete(physicalPath);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean create() throws IOException {
+		return view.getFileSystem().createFile(physicalPath) != null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void truncate() throws IOException {
+		view.getFileSystem().getOrCreateFile(physicalPath).truncate(0);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean move(SshFile destination) {
+		if (!(destination instanceof MemorySshFile)) {
+			return false;
+		}
+		return view.getFileSystem().move(physicalPath,
+		    ((MemorySshFile) destination).physicalPath);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<SshFile> listSshFiles() {
+		List<MemoryNode> children = view.getFileSystem().list(physicalPath);
+		if (children == null) {
+			return null;
+		}
+		List<SshFile> files = new ArrayList<SshFile>(children.size());
+		for (MemoryNode child : children) {
+			files.add(new MemorySshFile(view, MemoryFileSystem.resolve(
+			    virtualPath, child.getName())));
+		}
+		return files;
+	}
+
+	/**
+	 * {@inheritDoc} Like the native implementation, the file is truncated at
+	 * the offset.
+	 */
+	@Override
+	public OutputStream createOutputStream(long offset) throws IOException {
+		MemoryFile file = view.getFileSystem().getOrCreateFile(physicalPath);
+		file.truncate(offset);
+		return file.newOutputStream(offset);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public InputStream createInputStream(long offset) throws IOException {
+		MemoryNode node = node();
+		if (node == null || node.isDirectory()) {
+			throw new IOException("Not a file: " + virtualPath);
+		}
+		return ((MemoryFile) node).newInputStream(offset);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void handleClose() throws IOException {
+		// nothing to release
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return virtualPath;
+	}
+
+}
@@ -0,0 +1,124 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.memfs;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.sshd.common.Session;
+import org.apache.sshd.common.file.FileSystemFactory;
+import org.apache.sshd.common.file.FileSystemView;
+
+/**
+ * SSHD {@link FileSystemFactory} that serves files out of a
+ * {@link MemoryFileSystem}. Used by both the SFTP subsystem and the SCP
+ * command. Each user is rooted at a home directory inside the memory file
+ * system, "/" unless configured otherwise.
+ *
+ * @author drothauser
+ *
+ */
+public class MemorySshFileSystemFactory
+        implements FileSystemFactory {
+
+	/**
+	 * The backing file system.
+	 */
+	private final MemoryFileSystem fileSystem;
+
+	/**
+	 * Home directory used for users without an explicit home.
+	 */
+	private final String defaultHomeDir;
+
+	/**
+	 * Home directories keyed by user name.
+	 */
+	private final Map<String, String> homeDirs =
+	    new ConcurrentHashMap<String, String>();
+
+	/**
+	 * Constructor that roots every user at "/" of a new unlimited heap file
+	 * system.
+	 */
+	public MemorySshFileSystemFactory() {
+		this(new MemoryFileSystem());
+	}
+
+	/**
+	 * Constructor that roots every user at "/".
+	 *
+	 * @param fileSystem
+	 *            the backing file system
+	 */
+	public MemorySshFileSystemFactory(MemoryFileSystem fileSystem) {
+		this(fileSystem, MemoryFileSystem.SEPARATOR);
+	}
+
+	/**
+	 * Constructor for MemorySshFileSystemFactory.
+	 *
+	 * @param fileSystem
+	 *            the backing file system
+	 * @param defaultHomeDir
+	 *            home directory for users without an explicit home
+	 */
+	public MemorySshFileSystemFactory(MemoryFileSystem fileSystem,
+	    String defaultHomeDir) {
+		this.fileSystem = fileSystem;
+		this.defaultHomeDir = MemoryFileSystem.normalize(defaultHomeDir);
+	}
+
+	/**
+	 * Set the home directory of a user.
+	 *
+	 * @param userName
+	 *            user name
+	 * @param homeDir
+	 *            home directory path in the memory file system
+	 */
+	public void setUserHomeDir(String userName, String homeDir) {
+		homeDirs.put(userName, MemoryFileSystem.normalize(homeDir));
+	}
+
+	/**
+	 * Return the home directory of a user.
+	 *
+	 * @param userName
+	 *            user name
+	 * @return home directory path in the memory file system
+	 */
+	public String getUserHomeDir(String userName) {
+		String homeDir = homeDirs.get(userName);
+		return homeDir == null ? defaultHomeDir : homeDir;
+	}
+
+	/**
+	 * @return home directory for users without an explicit home
+	 */
+	public String getDefaultHomeDir() {
+		return defaultHomeDir;
+	}
+
+	/**
+	 * @return the backing file system
+	 */
+	public MemoryFileSystem getFileSystem() {
+		return fileSystem;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public FileSystemView createFileSystemView(Session session)
+	        throws IOException {
+		String userName = session.getUsername();
+		String homeDir = getUserHomeDir(userName);
+		fileSystem.mkdirs(homeDir);
+		return new MemorySshFileSystemView(fileSystem, homeDir, userName);
+	}
+
+}
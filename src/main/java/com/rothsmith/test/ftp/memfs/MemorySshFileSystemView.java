@@ -0,0 +1,109 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.memfs;
+
+import org.apache.sshd.common.file.FileSystemView;
+import org.apache.sshd.common.file.SshFile;
+
+/**
+ * SSHD {@link FileSystemView} of a user's home directory in a
+ * {@link MemoryFileSystem}. The home directory appears to the client as "/".
+ *
+ * @author drothauser
+ *
+ */
+public class MemorySshFileSystemView
+        implements FileSystemView {
+
+	/**
+	 * The backing file system.
+	 */
+	private final MemoryFileSystem fileSystem;
+
+	/**
+	 * Home directory path in the backing file system.
+	 */
+	private final String homeDir;
+
+	/**
+	 * User that owns this view.
+	 */
+	private final String userName;
+
+	/**
+	 * Constructor for MemorySshFileSystemView.
+	 *
+	 * @param fileSystem
+	 *            the backing file system
+	 * @param homeDir
+	 *            home directory path in the backing file system
+	 * @param userName
+	 *            user that owns this view
+	 */
+	public MemorySshFileSystemView(MemoryFileSystem fileSystem,
+	    String homeDir, String userName) {
+		this.fileSystem = fileSystem;
+		this.homeDir = homeDir;
+		this.userName = userName;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public SshFile getFile(String file) {
+		return new MemorySshFile(this, MemoryFileSystem.resolve(
+		    MemoryFileSystem.SEPARATOR, file));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public SshFile getFile(SshFile baseDir, String file) {
+		return new MemorySshFile(this, MemoryFileSystem.resolve(
+		    baseDir.getAbsolutePath(), file));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public FileSystemView getNormalizedView() {
+		return this;
+	}
+
+	/**
+	 * Map a path as seen by the client to a path in the backing file system.
+	 *
+	 * @param virtualPath
+	 *            normalized client path
+	 * @return path in the backing file system
+	 */
+	String toPhysicalPath(String virtualPath) {
+		return MemoryFileSystem.join(homeDir, virtualPath);
+	}
+
+	/**
+	 * @return the backing file system
+	 */
+	public MemoryFileSystem getFileSystem() {
+		return fileSystem;
+	}
+
+	/**
+	 * @return home directory path in the backing file system
+	 */
+	public String getHomeDir() {
+		return homeDir;
+	}
+
+	/**
+	 * @return the user that owns this view
+	 */
+	public String getUserName() {
+		return userName;
+	}
+
+}
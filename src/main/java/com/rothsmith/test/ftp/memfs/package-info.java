@@ -0,0 +1,6 @@
+/**
+ * In-memory file systems for the FTP test servers.
+ * 
+ * @author drothauser
+ */
+package com.rothsmith.test.ftp.memfs;
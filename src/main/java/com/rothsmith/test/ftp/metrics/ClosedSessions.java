@@ -0,0 +1,91 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.metrics;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounds the closed sessions kept in a map of sessions by id: once more than
+ * a limit of sessions have closed, the one that closed first is dropped from
+ * the map for every further one that closes. A long running server thus keeps
+ * the counters of its open sessions and of its most recently closed ones
+ * only. Never takes a lock.
+ *
+ * @author drothauser
+ *
+ */
+final class ClosedSessions {
+
+	/**
+	 * Default maximum number of closed sessions kept.
+	 */
+	static final int DEFAULT_LIMIT = 1000;
+
+	/**
+	 * Sessions by id.
+	 */
+	private final Map<Long, ?> sessions;
+
+	/**
+	 * Maximum number of closed sessions kept.
+	 */
+	private final int limit;
+
+	/**
+	 * Ids of the closed sessions kept, in the order they closed.
+	 */
+	private final Queue<Long> ids = new ConcurrentLinkedQueue<Long>();
+
+	/**
+	 * Number of ids queued, since the size of the queue is not constant time.
+	 */
+	private final AtomicInteger count = new AtomicInteger();
+
+	/**
+	 * Constructor for ClosedSessions.
+	 *
+	 * @param sessions
+	 *            sessions by id
+	 * @param limit
+	 *            maximum number of closed sessions kept
+	 */
+	ClosedSessions(Map<Long, ?> sessions, int limit) {
+		if (limit < 0) {
+			throw new IllegalArgumentException(
+			    "Limit must not be negative: " + limit);
+		}
+		this.sessions = sessions;
+		this.limit = limit;
+	}
+
+	/**
+	 * Record that a session closed, dropping the session that closed first if
+	 * more than the limit are kept.
+	 *
+	 * @param id
+	 *            id of the session
+	 */
+	void closed(long id) {
+		ids.add(Long.valueOf(id));
+		if (count.incrementAndGet() > limit) {
+			Long oldest = ids.poll();
+			if (oldest != null) {
+				count.decrementAndGet();
+				sessions.remove(oldest);
+			}
+		}
+	}
+
+	/**
+	 * Forget the closed sessions, e.g. after they were removed from the map.
+	 */
+	void clear() {
+		ids.clear();
+		count.set(0);
+	}
+
+}
@@ -0,0 +1,111 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.metrics;
+
+import java.util.Locale;
+
+import com.rothsmith.test.ftp.load.LatencyHistogram;
+
+/**
+ * Count, failures and latency histogram of one kind of command, as of the
+ * moment a snapshot was taken. Latencies are in nanoseconds.
+ * 
+ * @author drothauser
+ * 
+ */
+public class CommandMetrics {
+
+	/**
+	 * Command name.
+	 */
+	private final String command;
+
+	/**
+	 * Number of commands that failed.
+	 */
+	private final long failures;
+
+	/**
+	 * Latencies of the commands.
+	 */
+	private final LatencyHistogram latencies;
+
+	/**
+	 * Constructor for CommandMetrics.
+	 * 
+	 * @param command
+	 *            command name
+	 * @param failures
+	 *            number of commands that failed
+	 * @param latencies
+	 *            latencies of all commands, failed or not
+	 */
+	public CommandMetrics(String command, long failures,
+	    LatencyHistogram latencies) {
+		this.command = command;
+		this.failures = failures;
+		this.latencies = latencies;
+	}
+
+	/**
+	 * @return command name
+	 */
+	public String getCommand() {
+		return command;
+	}
+
+	/**
+	 * @return number of commands executed, including failed ones
+	 */
+	public long getCount() {
+		return latencies.getCount();
+	}
+
+	/**
+	 * @return number of commands that failed
+	 */
+	public long getFailures() {
+		return failures;
+	}
+
+	/**
+	 * @return latency histogram of the commands, for percentiles
+	 */
+	public LatencyHistogram getLatencies() {
+		return latencies;
+	}
+
+	/**
+	 * @return sum of the latencies in nanoseconds
+	 */
+	public long getTotalNanos() {
+		return latencies.getSum();
+	}
+
+	/**
+	 * @return largest latency in nanoseconds
+	 */
+	public long getMaxNanos() {
+		return latencies.getMax();
+	}
+
+	/**
+	 * @return mean latency in nanoseconds or 0 if no command was executed
+	 */
+	public long getMeanNanos() {
+		return latencies.getMean();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return String.format(Locale.US,
+		    "%s: count=%d, failures=%d, meanNanos=%d, p99Nanos=%d, maxNanos=%d",
+		    command, getCount(), failures, getMeanNanos(), latencies.getP99(),
+		    getMaxNanos());
+	}
+
+}
@@ -0,0 +1,168 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.metrics;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.rothsmith.test.ftp.load.ConcurrentLatencyHistogram;
+import com.rothsmith.test.ftp.load.LatencyHistogram;
+
+/**
+ * Records counts and latency histograms per command from any number of
+ * threads without locking: every command has its own atomic counters, created
+ * on first use. If the known commands are given, any other command is
+ * counted as {@link #UNKNOWN}, so that clients sending arbitrary commands
+ * cannot grow the recorder without bound.
+ * 
+ * @author drothauser
+ * 
+ */
+public class CommandRecorder {
+
+	/**
+	 * Name the commands not known are recorded under.
+	 */
+	public static final String UNKNOWN = "UNKNOWN";
+
+	/**
+	 * Counters by command name.
+	 */
+	private final ConcurrentMap<String, Counters> counters =
+	    new ConcurrentHashMap<String, Counters>();
+
+	/**
+	 * Commands recorded under their own name or null for any command.
+	 */
+	private final Set<String> known;
+
+	/**
+	 * Constructor for CommandRecorder recording every command under its own
+	 * name.
+	 */
+	public CommandRecorder() {
+		this.known = null;
+	}
+
+	/**
+	 * Constructor for CommandRecorder recording only the known commands under
+	 * their own name.
+	 * 
+	 * @param known
+	 *            commands recorded under their own name, any other is
+	 *            recorded as {@link #UNKNOWN}
+	 */
+	public CommandRecorder(Collection<String> known) {
+		this.known = Collections.unmodifiableSet(new HashSet<String>(known));
+	}
+
+	/**
+	 * Record one executed command.
+	 * 
+	 * @param command
+	 *            command name, recorded as {@link #UNKNOWN} if not known
+	 * @param nanos
+	 *            latency in nanoseconds
+	 * @param failed
+	 *            whether the command failed
+	 */
+	public void record(String command, long nanos, boolean failed) {
+		String name =
+		    known == null || known.contains(command) ? command : UNKNOWN;
+		Counters commandCounters = counters.get(name);
+		if (commandCounters == null) {
+			Counters created = new Counters();
+			commandCounters = counters.putIfAbsent(name, created);
+			if (commandCounters == null) {
+				commandCounters = created;
+			}
+		}
+		commandCounters.record(nanos, failed);
+	}
+
+	/**
+	 * Return the totals of one command.
+	 * 
+	 * @param command
+	 *            command name
+	 * @return the totals, all 0 if the command was never recorded
+	 */
+	public CommandMetrics getMetrics(String command) {
+		Counters commandCounters = counters.get(command);
+		return commandCounters == null ? new CommandMetrics(command, 0,
+		    new LatencyHistogram()) : commandCounters.toMetrics(command);
+	}
+
+	/**
+	 * @return the totals of every command recorded, by command name
+	 */
+	public SortedMap<String, CommandMetrics> getMetrics() {
+		SortedMap<String, CommandMetrics> metrics =
+		    new TreeMap<String, CommandMetrics>();
+		for (Map.Entry<String, Counters> entry : counters.entrySet()) {
+			metrics.put(entry.getKey(),
+			    entry.getValue().toMetrics(entry.getKey()));
+		}
+		return metrics;
+	}
+
+	/**
+	 * Forget everything recorded so far.
+	 */
+	public void clear() {
+		counters.clear();
+	}
+
+	/**
+	 * Atomic counters of one command.
+	 */
+	private static final class Counters {
+
+		/**
+		 * Number of commands that failed.
+		 */
+		private final AtomicLong failures = new AtomicLong();
+
+		/**
+		 * Latencies of the commands.
+		 */
+		private final ConcurrentLatencyHistogram latencies =
+		    new ConcurrentLatencyHistogram();
+
+		/**
+		 * Record one executed command.
+		 * 
+		 * @param nanos
+		 *            latency in nanoseconds
+		 * @param failed
+		 *            whether the command failed
+		 */
+		void record(long nanos, boolean failed) {
+			if (failed) {
+				failures.incrementAndGet();
+			}
+			latencies.record(nanos);
+		}
+
+		/**
+		 * @param command
+		 *            command name
+		 * @return the current totals
+		 */
+		CommandMetrics toMetrics(String command) {
+			return new CommandMetrics(command, failures.get(),
+			    latencies.getSnapshot());
+		}
+
+	}
+
+}
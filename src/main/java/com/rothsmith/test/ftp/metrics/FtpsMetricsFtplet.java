@@ -0,0 +1,583 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.metrics;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.ftpserver.ftplet.DefaultFtplet;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.FtpReply;
+import org.apache.ftpserver.ftplet.FtpRequest;
+import org.apache.ftpserver.ftplet.FtpSession;
+import org.apache.ftpserver.ftplet.FtpStatistics;
+import org.apache.ftpserver.ftplet.FtpletContext;
+import org.apache.ftpserver.ftplet.FtpletResult;
+
+import com.rothsmith.test.ftp.load.ConcurrentLatencyHistogram;
+import com.rothsmith.test.ftp.load.LatencyHistogram;
+
+/**
+ * Ftplet that records what an FTP server served: per command counts and
+ * latencies, bytes in and out, sessions and data connection setup times. All
+ * counters are atomics, so recording never blocks the server's threads.
+ * <p>
+ * Command latency is the time from the Ftplet's before-command to its
+ * after-command callback, i.e. the server side execution including any data
+ * transfer. Data connection setup time is the latency of the PASV, EPSV, PORT
+ * and EPRT commands, recorded per session as well; the number of data
+ * connections being set up concurrently shows whether passive port allocation
+ * becomes a bottleneck. Bytes in and out are the server's upload and download
+ * statistics.
+ * </p>
+ * <p>
+ * Sessions are kept for the snapshots while they are open; of the closed
+ * ones only the last {@value ClosedSessions#DEFAULT_LIMIT} are kept, so a
+ * long running server does not accumulate every session it ever served.
+ * For the same reason commands not in {@link #KNOWN_COMMANDS} are all
+ * recorded as {@link CommandRecorder#UNKNOWN}.
+ * </p>
+ * 
+ * @author drothauser
+ * 
+ */
+public class FtpsMetricsFtplet
+        extends DefaultFtplet
+        implements FtpsMetricsMXBean {
+
+	/**
+	 * Commands that set up a data connection.
+	 */
+	public static final List<String> DATA_CONNECTION_COMMANDS = Collections
+	    .unmodifiableList(Arrays.asList("EPRT", "EPSV", "PASV", "PORT"));
+
+	/**
+	 * Commands implemented by the server, recorded under their own name. Any
+	 * other command is recorded as {@link CommandRecorder#UNKNOWN}.
+	 */
+	public static final List<String> KNOWN_COMMANDS = Collections
+	    .unmodifiableList(Arrays.asList("ABOR", "ACCT", "APPE", "AUTH",
+	        "CDUP", "CWD", "DELE", "EPRT", "EPSV", "FEAT", "HELP", "LANG",
+	        "LIST", "MD5", "MDTM", "MFMT", "MKD", "MLSD", "MLST", "MMD5",
+	        "MODE", "NLST", "NOOP", "OPTS", "PASS", "PASV", "PBSZ", "PORT",
+	        "PROT", "PWD", "QUIT", "REIN", "REST", "RETR", "RMD", "RNFR",
+	        "RNTO", "SITE", "SIZE", "STAT", "STOR", "STOU", "STRU", "SYST",
+	        "TYPE", "USER"));
+
+	/**
+	 * Reply codes from this one on report a failure.
+	 */
+	private static final int FAILURE_REPLY_CODE = 400;
+
+	/**
+	 * Session attribute holding the start time of the current command.
+	 */
+	private static final String COMMAND_START_ATTRIBUTE =
+	    FtpsMetricsFtplet.class.getName() + ".commandStart";
+
+	/**
+	 * Session attribute holding the counters of the session.
+	 */
+	private static final String SESSION_COUNTERS_ATTRIBUTE =
+	    FtpsMetricsFtplet.class.getName() + ".sessionCounters";
+
+	/**
+	 * Session attribute present while the session sets up a data connection.
+	 */
+	private static final String DATA_CONNECTION_SETUP_ATTRIBUTE =
+	    FtpsMetricsFtplet.class.getName() + ".dataConnectionSetup";
+
+	/**
+	 * Command counts and latencies.
+	 */
+	private final CommandRecorder commands = new CommandRecorder(
+	    KNOWN_COMMANDS);
+
+	/**
+	 * Sessions currently open.
+	 */
+	private final AtomicLong activeSessions = new AtomicLong();
+
+	/**
+	 * Sessions opened since the last reset.
+	 */
+	private final AtomicLong totalSessions = new AtomicLong();
+
+	/**
+	 * Open and recently closed sessions by id.
+	 */
+	private final Map<Long, SessionCounters> sessions =
+	    new ConcurrentSkipListMap<Long, SessionCounters>();
+
+	/**
+	 * Drops the oldest closed sessions from {@link #sessions}.
+	 */
+	private final ClosedSessions closedSessions = new ClosedSessions(
+	    sessions, ClosedSessions.DEFAULT_LIMIT);
+
+	/**
+	 * Last session id handed out.
+	 */
+	private final AtomicLong lastSessionId = new AtomicLong();
+
+	/**
+	 * Data connections currently being set up.
+	 */
+	private final AtomicLong dataConnectionsInSetup = new AtomicLong();
+
+	/**
+	 * Data connections being set up when each setup started, itself
+	 * included.
+	 */
+	private final AtomicReference<ConcurrentLatencyHistogram> setupConcurrency =
+	    new AtomicReference<ConcurrentLatencyHistogram>(
+	        new ConcurrentLatencyHistogram());
+
+	/**
+	 * Uploaded bytes reported by the server at the last reset.
+	 */
+	private final AtomicLong bytesInBase = new AtomicLong();
+
+	/**
+	 * Downloaded bytes reported by the server at the last reset.
+	 */
+	private final AtomicLong bytesOutBase = new AtomicLong();
+
+	/**
+	 * Statistics of the server, set when the server starts.
+	 */
+	private volatile FtpStatistics statistics;
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void init(FtpletContext ftpletContext) throws FtpException {
+		statistics = ftpletContext.getFtpStatistics();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public FtpletResult onConnect(FtpSession session) throws FtpException,
+	        IOException {
+		activeSessions.incrementAndGet();
+		totalSessions.incrementAndGet();
+		SessionCounters counters =
+		    new SessionCounters(lastSessionId.incrementAndGet(),
+		        String.valueOf(session.getClientAddress()));
+		sessions.put(counters.id, counters);
+		session.setAttribute(SESSION_COUNTERS_ATTRIBUTE, counters);
+		return FtpletResult.DEFAULT;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public FtpletResult onDisconnect(FtpSession session) throws FtpException,
+	        IOException {
+		activeSessions.decrementAndGet();
+		endDataConnectionSetup(session);
+		SessionCounters counters = getCounters(session);
+		if (counters != null) {
+			counters.open = false;
+			closedSessions.closed(counters.id);
+		}
+		return FtpletResult.DEFAULT;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public FtpletResult beforeCommand(FtpSession session, FtpRequest request)
+	        throws FtpException, IOException {
+		// a command that never completed must not count as in setup forever
+		endDataConnectionSetup(session);
+		if (isDataConnectionCommand(request)) {
+			session.setAttribute(DATA_CONNECTION_SETUP_ATTRIBUTE, Boolean.TRUE);
+			setupConcurrency.get().record(
+			    dataConnectionsInSetup.incrementAndGet());
+		}
+		session.setAttribute(COMMAND_START_ATTRIBUTE,
+		    Long.valueOf(System.nanoTime()));
+		return FtpletResult.DEFAULT;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public FtpletResult afterCommand(FtpSession session, FtpRequest request,
+	    FtpReply reply) throws FtpException, IOException {
+		Object start = session.getAttribute(COMMAND_START_ATTRIBUTE);
+		if (start instanceof Long) {
+			session.removeAttribute(COMMAND_START_ATTRIBUTE);
+			long nanos = System.nanoTime() - (Long) start;
+			boolean failed =
+			    reply != null && reply.getCode() >= FAILURE_REPLY_CODE;
+			commands.record(request.getCommand().toUpperCase(Locale.US),
+			    nanos, failed);
+			SessionCounters counters = getCounters(session);
+			if (counters != null) {
+				counters.addCommand(isDataConnectionCommand(request), nanos,
+				    failed);
+				if (session.getUser() != null) {
+					counters.user = session.getUser().getName();
+				}
+			}
+		}
+		endDataConnectionSetup(session);
+		return FtpletResult.DEFAULT;
+	}
+
+	/**
+	 * @param request
+	 *            a command
+	 * @return whether the command sets up a data connection
+	 */
+	private static boolean isDataConnectionCommand(FtpRequest request) {
+		return DATA_CONNECTION_COMMANDS.contains(request.getCommand()
+		    .toUpperCase(Locale.US));
+	}
+
+	/**
+	 * Count the data connection setup of the session, if any, as done.
+	 * 
+	 * @param session
+	 *            a session
+	 */
+	private void endDataConnectionSetup(FtpSession session) {
+		if (session.getAttribute(DATA_CONNECTION_SETUP_ATTRIBUTE) != null) {
+			session.removeAttribute(DATA_CONNECTION_SETUP_ATTRIBUTE);
+			dataConnectionsInSetup.decrementAndGet();
+		}
+	}
+
+	/**
+	 * @param session
+	 *            a session
+	 * @return the counters of the session or null if it connected before the
+	 *         Ftplet was added
+	 */
+	private static SessionCounters getCounters(FtpSession session) {
+		Object counters = session.getAttribute(SESSION_COUNTERS_ATTRIBUTE);
+		return counters instanceof SessionCounters
+		    ? (SessionCounters) counters : null;
+	}
+
+	/**
+	 * Take a consistent enough snapshot of the metrics for assertions in
+	 * tests. Counters recorded concurrently may or may not be included.
+	 * 
+	 * @return the current metrics
+	 */
+	public FtpsMetricsSnapshot getSnapshot() {
+		SortedMap<String, CommandMetrics> metrics = commands.getMetrics();
+		List<FtpsSessionMetrics> sessionMetrics =
+		    new ArrayList<FtpsSessionMetrics>();
+		for (SessionCounters counters : sessions.values()) {
+			sessionMetrics.add(counters.toMetrics());
+		}
+		return new FtpsMetricsSnapshot(metrics, sumDataConnections(metrics),
+		    setupConcurrency.get().getSnapshot(), sessionMetrics,
+		    getBytesIn(), getBytesOut(), getActiveSessions(),
+		    getTotalSessions());
+	}
+
+	/**
+	 * Add up the totals of the data connection commands.
+	 * 
+	 * @param metrics
+	 *            command totals by command name
+	 * @return the sum
+	 */
+	private static CommandMetrics sumDataConnections(
+	    Map<String, CommandMetrics> metrics) {
+		long failures = 0;
+		LatencyHistogram latencies = new LatencyHistogram();
+		for (String command : DATA_CONNECTION_COMMANDS) {
+			CommandMetrics each = metrics.get(command);
+			if (each != null) {
+				failures += each.getFailures();
+				latencies.add(each.getLatencies());
+			}
+		}
+		return new CommandMetrics("DATA", failures, latencies);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getActiveSessions() {
+		return activeSessions.get();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getTotalSessions() {
+		return totalSessions.get();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getBytesIn() {
+		FtpStatistics current = statistics;
+		return current == null ? 0 : current.getTotalUploadSize()
+		    - bytesInBase.get();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getBytesOut() {
+		FtpStatistics current = statistics;
+		return current == null ? 0 : current.getTotalDownloadSize()
+		    - bytesOutBase.get();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Map<String, Long> getCommandCounts() {
+		Map<String, Long> values = new TreeMap<String, Long>();
+		for (CommandMetrics each : commands.getMetrics().values()) {
+			values.put(each.getCommand(), each.getCount());
+		}
+		return values;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Map<String, Long> getCommandFailures() {
+		Map<String, Long> values = new TreeMap<String, Long>();
+		for (CommandMetrics each : commands.getMetrics().values()) {
+			values.put(each.getCommand(), each.getFailures());
+		}
+		return values;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Map<String, Long> getCommandMeanNanos() {
+		Map<String, Long> values = new TreeMap<String, Long>();
+		for (CommandMetrics each : commands.getMetrics().values()) {
+			values.put(each.getCommand(), each.getMeanNanos());
+		}
+		return values;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Map<String, Long> getCommandMaxNanos() {
+		Map<String, Long> values = new TreeMap<String, Long>();
+		for (CommandMetrics each : commands.getMetrics().values()) {
+			values.put(each.getCommand(), each.getMaxNanos());
+		}
+		return values;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getDataConnectionCount() {
+		return sumDataConnections(commands.getMetrics()).getCount();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getDataConnectionMeanNanos() {
+		return sumDataConnections(commands.getMetrics()).getMeanNanos();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getDataConnectionMaxNanos() {
+		return sumDataConnections(commands.getMetrics()).getMaxNanos();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getDataConnectionsInSetup() {
+		return dataConnectionsInSetup.get();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getDataConnectionPeakConcurrency() {
+		return setupConcurrency.get().getSnapshot().getMax();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void reset() {
+		commands.clear();
+		setupConcurrency.set(new ConcurrentLatencyHistogram());
+		closedSessions.clear();
+		for (SessionCounters counters : sessions.values()) {
+			if (counters.open) {
+				counters.reset();
+			} else {
+				sessions.remove(counters.id);
+			}
+		}
+		totalSessions.set(activeSessions.get());
+		FtpStatistics current = statistics;
+		if (current != null) {
+			bytesInBase.set(current.getTotalUploadSize());
+			bytesOutBase.set(current.getTotalDownloadSize());
+		}
+	}
+
+	/**
+	 * Counters of one session. The commands of a session run one at a time,
+	 * but not always on the same thread.
+	 */
+	private static final class SessionCounters {
+
+		/**
+		 * Session id.
+		 */
+		private final long id;
+
+		/**
+		 * Client address.
+		 */
+		private final String clientAddress;
+
+		/**
+		 * User logged in or null before login.
+		 */
+		private volatile String user;
+
+		/**
+		 * Number of commands executed.
+		 */
+		private final AtomicLong commands = new AtomicLong();
+
+		/**
+		 * Number of data connection commands executed.
+		 */
+		private final AtomicLong dataConnections = new AtomicLong();
+
+		/**
+		 * Number of failed data connection commands.
+		 */
+		private final AtomicLong dataConnectionFailures = new AtomicLong();
+
+		/**
+		 * Total data connection setup time in nanoseconds.
+		 */
+		private final AtomicLong dataConnectionNanos = new AtomicLong();
+
+		/**
+		 * Longest data connection setup time in nanoseconds.
+		 */
+		private final AtomicLong dataConnectionMaxNanos = new AtomicLong();
+
+		/**
+		 * Whether the session is still open.
+		 */
+		private volatile boolean open = true;
+
+		/**
+		 * Constructor for SessionCounters.
+		 * 
+		 * @param id
+		 *            session id
+		 * @param clientAddress
+		 *            client address
+		 */
+		SessionCounters(long id, String clientAddress) {
+			this.id = id;
+			this.clientAddress = clientAddress;
+		}
+
+		/**
+		 * Count an executed command.
+		 * 
+		 * @param dataConnection
+		 *            whether the command set up a data connection
+		 * @param nanos
+		 *            latency in nanoseconds
+		 * @param failed
+		 *            whether the command failed
+		 */
+		void addCommand(boolean dataConnection, long nanos, boolean failed) {
+			commands.incrementAndGet();
+			if (!dataConnection) {
+				return;
+			}
+			dataConnections.incrementAndGet();
+			if (failed) {
+				dataConnectionFailures.incrementAndGet();
+			}
+			dataConnectionNanos.addAndGet(nanos);
+			long current = dataConnectionMaxNanos.get();
+			while (nanos > current
+			    && !dataConnectionMaxNanos.compareAndSet(current, nanos)) {
+				current = dataConnectionMaxNanos.get();
+			}
+		}
+
+		/**
+		 * Reset the totals.
+		 */
+		void reset() {
+			commands.set(0);
+			dataConnections.set(0);
+			dataConnectionFailures.set(0);
+			dataConnectionNanos.set(0);
+			dataConnectionMaxNanos.set(0);
+		}
+
+		/**
+		 * @return the current totals
+		 */
+		FtpsSessionMetrics toMetrics() {
+			return new FtpsSessionMetrics(id, user, clientAddress,
+			    commands.get(), dataConnections.get(),
+			    dataConnectionFailures.get(), dataConnectionNanos.get(),
+			    dataConnectionMaxNanos.get(), open);
+		}
+
+	}
+
+}
@@ -0,0 +1,89 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of the metrics of a {@link com.rothsmith.test.ftp.FtpsTestServer}.
+ * Latencies are in nanoseconds; per command values are keyed by upper case
+ * command name.
+ * 
+ * @author drothauser
+ * 
+ */
+public interface FtpsMetricsMXBean {
+
+	/**
+	 * @return sessions currently open
+	 */
+	long getActiveSessions();
+
+	/**
+	 * @return sessions opened
+	 */
+	long getTotalSessions();
+
+	/**
+	 * @return bytes uploaded by clients
+	 */
+	long getBytesIn();
+
+	/**
+	 * @return bytes downloaded by clients
+	 */
+	long getBytesOut();
+
+	/**
+	 * @return number of commands executed by command
+	 */
+	Map<String, Long> getCommandCounts();
+
+	/**
+	 * @return number of failed commands by command
+	 */
+	Map<String, Long> getCommandFailures();
+
+	/**
+	 * @return mean command latency by command
+	 */
+	Map<String, Long> getCommandMeanNanos();
+
+	/**
+	 * @return largest command latency by command
+	 */
+	Map<String, Long> getCommandMaxNanos();
+
+	/**
+	 * @return number of data connections set up
+	 */
+	long getDataConnectionCount();
+
+	/**
+	 * @return mean data connection setup time
+	 */
+	long getDataConnectionMeanNanos();
+
+	/**
+	 * @return largest data connection setup time
+	 */
+	long getDataConnectionMaxNanos();
+
+	/**
+	 * @return data connections currently being set up
+	 */
+	long getDataConnectionsInSetup();
+
+	/**
+	 * @return largest number of data connections set up concurrently
+	 */
+	long getDataConnectionPeakConcurrency();
+
+	/**
+	 * Reset the command, byte and total session counters, e.g. after a warm
+	 * up phase.
+	 */
+	void reset();
+
+}
@@ -0,0 +1,186 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import com.rothsmith.test.ftp.load.LatencyHistogram;
+
+/**
+ * Immutable server side metrics of a
+ * {@link com.rothsmith.test.ftp.FtpsTestServer}, taken by
+ * {@link FtpsMetricsFtplet#getSnapshot()}.
+ * 
+ * @author drothauser
+ * 
+ */
+public class FtpsMetricsSnapshot {
+
+	/**
+	 * Command totals by command name.
+	 */
+	private final SortedMap<String, CommandMetrics> commands;
+
+	/**
+	 * Totals of the commands that set up data connections.
+	 */
+	private final CommandMetrics dataConnections;
+
+	/**
+	 * Data connections being set up when each setup started.
+	 */
+	private final LatencyHistogram dataConnectionConcurrency;
+
+	/**
+	 * Totals of the sessions.
+	 */
+	private final List<FtpsSessionMetrics> sessions;
+
+	/**
+	 * Bytes uploaded by clients.
+	 */
+	private final long bytesIn;
+
+	/**
+	 * Bytes downloaded by clients.
+	 */
+	private final long bytesOut;
+
+	/**
+	 * Sessions currently open.
+	 */
+	private final long activeSessions;
+
+	/**
+	 * Sessions opened.
+	 */
+	private final long totalSessions;
+
+	/**
+	 * Constructor for FtpsMetricsSnapshot.
+	 * 
+	 * @param commands
+	 *            command totals by command name
+	 * @param dataConnections
+	 *            totals of the commands that set up data connections
+	 * @param dataConnectionConcurrency
+	 *            data connections being set up when each setup started
+	 * @param sessions
+	 *            totals of the sessions
+	 * @param bytesIn
+	 *            bytes uploaded by clients
+	 * @param bytesOut
+	 *            bytes downloaded by clients
+	 * @param activeSessions
+	 *            sessions currently open
+	 * @param totalSessions
+	 *            sessions opened
+	 */
+	public FtpsMetricsSnapshot(SortedMap<String, CommandMetrics> commands,
+	    CommandMetrics dataConnections,
+	    LatencyHistogram dataConnectionConcurrency,
+	    List<FtpsSessionMetrics> sessions, long bytesIn, long bytesOut,
+	    long activeSessions, long totalSessions) {
+		this.commands = new TreeMap<String, CommandMetrics>(commands);
+		this.dataConnections = dataConnections;
+		this.dataConnectionConcurrency = dataConnectionConcurrency;
+		this.sessions = new ArrayList<FtpsSessionMetrics>(sessions);
+		this.bytesIn = bytesIn;
+		this.bytesOut = bytesOut;
+		this.activeSessions = activeSessions;
+		this.totalSessions = totalSessions;
+	}
+
+	/**
+	 * @return command totals by upper case command name, e.g. "STOR"
+	 */
+	public SortedMap<String, CommandMetrics> getCommands() {
+		return Collections.unmodifiableSortedMap(commands);
+	}
+
+	/**
+	 * @param command
+	 *            command name, e.g. "RETR"
+	 * @return totals of the command, all 0 if it was never executed
+	 */
+	public CommandMetrics getCommand(String command) {
+		CommandMetrics metrics = commands.get(command);
+		return metrics == null ? new CommandMetrics(command, 0,
+		    new LatencyHistogram()) : metrics;
+	}
+
+	/**
+	 * @return totals of the PASV, EPSV, PORT and EPRT commands that set up
+	 *         data connections
+	 */
+	public CommandMetrics getDataConnections() {
+		return dataConnections;
+	}
+
+	/**
+	 * Return how many data connections were being set up, each one itself
+	 * included, whenever a PASV, EPSV, PORT or EPRT command started. A
+	 * maximum close to the size of the passive port range together with
+	 * growing setup times means clients queue for passive ports.
+	 * 
+	 * @return histogram of the concurrent data connection setups
+	 */
+	public LatencyHistogram getDataConnectionConcurrency() {
+		return dataConnectionConcurrency;
+	}
+
+	/**
+	 * @return totals of the open sessions and of the last 1000 sessions
+	 *         closed since the last reset, in the order they connected
+	 */
+	public List<FtpsSessionMetrics> getSessions() {
+		return Collections.unmodifiableList(sessions);
+	}
+
+	/**
+	 * @return bytes uploaded by clients
+	 */
+	public long getBytesIn() {
+		return bytesIn;
+	}
+
+	/**
+	 * @return bytes downloaded by clients
+	 */
+	public long getBytesOut() {
+		return bytesOut;
+	}
+
+	/**
+	 * @return sessions currently open
+	 */
+	public long getActiveSessions() {
+		return activeSessions;
+	}
+
+	/**
+	 * @return sessions opened
+	 */
+	public long getTotalSessions() {
+		return totalSessions;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return "FtpsMetricsSnapshot [activeSessions=" + activeSessions
+		    + ", totalSessions=" + totalSessions + ", bytesIn=" + bytesIn
+		    + ", bytesOut=" + bytesOut + ", dataConnections="
+		    + dataConnections + ", dataConnectionPeakConcurrency="
+		    + dataConnectionConcurrency.getMax() + ", commands="
+		    + commands.values() + ", sessions=" + sessions + "]";
+	}
+
+}
@@ -0,0 +1,176 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.metrics;
+
+/**
+ * Immutable totals of one FTPS control connection as of the moment a snapshot
+ * was taken, in particular how long its data connections took to set up.
+ *
+ * @author drothauser
+ *
+ */
+public class FtpsSessionMetrics {
+
+	/**
+	 * Sequence number of the session on its server.
+	 */
+	private final long id;
+
+	/**
+	 * User logged in or null before login.
+	 */
+	private final String user;
+
+	/**
+	 * Client address.
+	 */
+	private final String clientAddress;
+
+	/**
+	 * Number of commands executed.
+	 */
+	private final long commands;
+
+	/**
+	 * Number of PASV, EPSV, PORT and EPRT commands executed.
+	 */
+	private final long dataConnections;
+
+	/**
+	 * Number of those commands that failed.
+	 */
+	private final long dataConnectionFailures;
+
+	/**
+	 * Total data connection setup time in nanoseconds.
+	 */
+	private final long dataConnectionNanos;
+
+	/**
+	 * Longest data connection setup time in nanoseconds.
+	 */
+	private final long dataConnectionMaxNanos;
+
+	/**
+	 * Whether the session is still open.
+	 */
+	private final boolean open;
+
+	/**
+	 * Constructor for FtpsSessionMetrics.
+	 *
+	 * @param id
+	 *            sequence number of the session on its server
+	 * @param user
+	 *            user logged in or null before login
+	 * @param clientAddress
+	 *            client address
+	 * @param commands
+	 *            number of commands executed
+	 * @param dataConnections
+	 *            number of PASV, EPSV, PORT and EPRT commands executed
+	 * @param dataConnectionFailures
+	 *            number of those commands that failed
+	 * @param dataConnectionNanos
+	 *            total data connection setup time in nanoseconds
+	 * @param dataConnectionMaxNanos
+	 *            longest data connection setup time in nanoseconds
+	 * @param open
+	 *            whether the session is still open
+	 */
+	public FtpsSessionMetrics(long id, String user, String clientAddress,
+	    long commands, long dataConnections, long dataConnectionFailures,
+	    long dataConnectionNanos, long dataConnectionMaxNanos, boolean open) {
+		this.id = id;
+		this.user = user;
+		this.clientAddress = clientAddress;
+		this.commands = commands;
+		this.dataConnections = dataConnections;
+		this.dataConnectionFailures = dataConnectionFailures;
+		this.dataConnectionNanos = dataConnectionNanos;
+		this.dataConnectionMaxNanos = dataConnectionMaxNanos;
+		this.open = open;
+	}
+
+	/**
+	 * @return sequence number of the session on its server, starting at 1
+	 */
+	public long getId() {
+		return id;
+	}
+
+	/**
+	 * @return user logged in or null before login
+	 */
+	public String getUser() {
+		return user;
+	}
+
+	/**
+	 * @return client address
+	 */
+	public String getClientAddress() {
+		return clientAddress;
+	}
+
+	/**
+	 * @return number of commands executed
+	 */
+	public long getCommands() {
+		return commands;
+	}
+
+	/**
+	 * @return number of PASV, EPSV, PORT and EPRT commands executed
+	 */
+	public long getDataConnections() {
+		return dataConnections;
+	}
+
+	/**
+	 * @return number of PASV, EPSV, PORT and EPRT commands that failed, e.g.
+	 *         because no passive port was free
+	 */
+	public long getDataConnectionFailures() {
+		return dataConnectionFailures;
+	}
+
+	/**
+	 * @return mean data connection setup time in nanoseconds or 0 if none was
+	 *         set up
+	 */
+	public long getDataConnectionMeanNanos() {
+		return dataConnections == 0 ? 0 : dataConnectionNanos
+		    / dataConnections;
+	}
+
+	/**
+	 * @return longest data connection setup time in nanoseconds
+	 */
+	public long getDataConnectionMaxNanos() {
+		return dataConnectionMaxNanos;
+	}
+
+	/**
+	 * @return whether the session is still open
+	 */
+	public boolean isOpen() {
+		return open;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return "FtpsSessionMetrics [id=" + id + ", user=" + user
+		    + ", clientAddress=" + clientAddress + ", commands=" + commands
+		    + ", dataConnections=" + dataConnections
+		    + ", dataConnectionFailures=" + dataConnectionFailures
+		    + ", dataConnectionMeanNanos=" + getDataConnectionMeanNanos()
+		    + ", dataConnectionMaxNanos=" + dataConnectionMaxNanos
+		    + ", open=" + open + "]";
+	}
+
+}
@@ -0,0 +1,309 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.metrics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.sshd.common.util.Buffer;
+import org.apache.sshd.server.Command;
+import org.apache.sshd.server.session.ServerSession;
+import org.apache.sshd.server.sftp.SftpSubsystem;
+
+/**
+ * {@link SftpSubsystem} that records every request it processes in an
+ * {@link SftpMetrics}: the server side latency per operation, the number of
+ * requests the client had outstanding and the file bytes read and written by
+ * the session. Requests of a session are processed one after the other, so
+ * the latency excludes the time a request waited behind earlier ones.
+ * Requests are recorded just before their reply is sent.
+ * 
+ * @author drothauser
+ * 
+ */
+public class InstrumentedSftpSubsystem
+        extends SftpSubsystem {
+
+	/**
+	 * Offset of the request type in a request, after the length.
+	 */
+	private static final int REQUEST_TYPE_OFFSET = 4;
+
+	/**
+	 * Offset of the payload in a reply or request, after the type and id.
+	 */
+	private static final int PAYLOAD_OFFSET = 5;
+
+	/**
+	 * Length of a uint32.
+	 */
+	private static final int INT_LENGTH = 4;
+
+	/**
+	 * Length of a uint64.
+	 */
+	private static final int LONG_LENGTH = 8;
+
+	/**
+	 * Mask of an unsigned byte.
+	 */
+	private static final int UNSIGNED_BYTE = 0xff;
+
+	/**
+	 * Operation names by request type.
+	 */
+	private static final Map<Integer, String> OPERATIONS =
+	    new HashMap<Integer, String>();
+
+	static {
+		OPERATIONS.put(SSH_FXP_INIT, "INIT");
+		OPERATIONS.put(SSH_FXP_OPEN, "OPEN");
+		OPERATIONS.put(SSH_FXP_CLOSE, "CLOSE");
+		OPERATIONS.put(SSH_FXP_READ, "READ");
+		OPERATIONS.put(SSH_FXP_WRITE, "WRITE");
+		OPERATIONS.put(SSH_FXP_LSTAT, "LSTAT");
+		OPERATIONS.put(SSH_FXP_FSTAT, "FSTAT");
+		OPERATIONS.put(SSH_FXP_SETSTAT, "SETSTAT");
+		OPERATIONS.put(SSH_FXP_FSETSTAT, "FSETSTAT");
+		OPERATIONS.put(SSH_FXP_OPENDIR, "OPENDIR");
+		OPERATIONS.put(SSH_FXP_READDIR, "READDIR");
+		OPERATIONS.put(SSH_FXP_REMOVE, "REMOVE");
+		OPERATIONS.put(SSH_FXP_MKDIR, "MKDIR");
+		OPERATIONS.put(SSH_FXP_RMDIR, "RMDIR");
+		OPERATIONS.put(SSH_FXP_REALPATH, "REALPATH");
+		OPERATIONS.put(SSH_FXP_STAT, "STAT");
+		OPERATIONS.put(SSH_FXP_RENAME, "RENAME");
+		OPERATIONS.put(SSH_FXP_READLINK, "READLINK");
+		OPERATIONS.put(SSH_FXP_SYMLINK, "SYMLINK");
+		OPERATIONS.put(SSH_FXP_EXTENDED, "EXTENDED");
+	}
+
+	/**
+	 * Where the requests are recorded.
+	 */
+	private final SftpMetrics metrics;
+
+	/**
+	 * Counting stream the requests are read from.
+	 */
+	private PacketCountingInputStream requests;
+
+	/**
+	 * Counters of this session.
+	 */
+	private SftpMetrics.SessionCounters session;
+
+	/**
+	 * Number of requests processed so far.
+	 */
+	private long processed;
+
+	/**
+	 * Type of the request being processed.
+	 */
+	private int requestType;
+
+	/**
+	 * Requests outstanding when the current one was taken up.
+	 */
+	private long requestDepth;
+
+	/**
+	 * When processing of the current request started.
+	 */
+	private long requestStart;
+
+	/**
+	 * Whether the current request has been recorded.
+	 */
+	private boolean recorded = true;
+
+	/**
+	 * Constructor for InstrumentedSftpSubsystem.
+	 * 
+	 * @param metrics
+	 *            where the requests are recorded
+	 */
+	public InstrumentedSftpSubsystem(SftpMetrics metrics) {
+		super();
+		this.metrics = metrics;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setSession(ServerSession serverSession) {
+		super.setSession(serverSession);
+		session =
+		    metrics.openSession(serverSession.getUsername(),
+		        String.valueOf(serverSession.getIoSession()
+		            .getRemoteAddress()));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setInputStream(InputStream in) {
+		requests = new PacketCountingInputStream(in);
+		super.setInputStream(requests);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void process(Buffer buffer) throws IOException {
+		byte[] data = buffer.array();
+		int start = buffer.rpos();
+		requestType = data[start + REQUEST_TYPE_OFFSET] & UNSIGNED_BYTE;
+		if (requestType == SSH_FXP_WRITE && session != null) {
+			session.addBytesWritten(writeLength(data, start
+			    + REQUEST_TYPE_OFFSET + PAYLOAD_OFFSET));
+		}
+		requestDepth = requests.getArrivedPackets() - processed;
+		processed++;
+		recorded = false;
+		requestStart = System.nanoTime();
+		try {
+			super.process(buffer);
+		} finally {
+			// a request that ends without a reply has failed
+			record(true);
+		}
+	}
+
+	/**
+	 * Record the reply to the current request before sending it, so that the
+	 * metrics are complete once the client has its reply. The latency is the
+	 * time from taking up the request to sending its reply.
+	 * 
+	 * @param buffer
+	 *            {@inheritDoc}
+	 * @throws IOException
+	 *             {@inheritDoc}
+	 */
+	@Override
+	protected void send(Buffer buffer) throws IOException {
+		byte[] data = buffer.array();
+		int start = buffer.rpos();
+		int type = data[start] & UNSIGNED_BYTE;
+		boolean failed = false;
+		if (type == SSH_FXP_DATA && session != null) {
+			session.addBytesRead(readInt(data, start + PAYLOAD_OFFSET));
+		} else if (type == SSH_FXP_STATUS) {
+			int status = readInt(data, start + PAYLOAD_OFFSET);
+			failed = status != SSH_FX_OK && status != SSH_FX_EOF;
+		}
+		record(failed);
+		super.send(buffer);
+	}
+
+	/**
+	 * Record the current request unless it has been recorded already.
+	 * 
+	 * @param failed
+	 *            whether the request failed
+	 */
+	private void record(boolean failed) {
+		if (recorded) {
+			return;
+		}
+		recorded = true;
+		String operation = OPERATIONS.get(requestType);
+		metrics.recordRequest(operation == null ? "UNKNOWN" : operation,
+		    System.nanoTime() - requestStart, failed, requestDepth);
+		if (session != null) {
+			session.addRequest();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void destroy() {
+		super.destroy();
+		if (session != null) {
+			metrics.closeSession(session);
+		}
+	}
+
+	/**
+	 * Return the data length of a WRITE request.
+	 * 
+	 * @param data
+	 *            request bytes
+	 * @param payload
+	 *            offset of the handle, the first field after the id
+	 * @return number of bytes to write
+	 */
+	private static int writeLength(byte[] data, int payload) {
+		int handleLength = readInt(data, payload);
+		return readInt(data, payload + INT_LENGTH + handleLength
+		    + LONG_LENGTH);
+	}
+
+	/**
+	 * @param data
+	 *            bytes
+	 * @param offset
+	 *            offset of a big endian int
+	 * @return the int
+	 */
+	private static int readInt(byte[] data, int offset) {
+		int value = 0;
+		for (int i = 0; i < INT_LENGTH; i++) {
+			value = value << Byte.SIZE | data[offset + i] & UNSIGNED_BYTE;
+		}
+		return value;
+	}
+
+	/**
+	 * Factory of {@link InstrumentedSftpSubsystem}s recording into the same
+	 * {@link SftpMetrics}.
+	 * 
+	 * @author drothauser
+	 * 
+	 */
+	public static class Factory
+	        extends SftpSubsystem.Factory {
+
+		/**
+		 * Where the requests are recorded.
+		 */
+		private final SftpMetrics metrics;
+
+		/**
+		 * Constructor for Factory.
+		 * 
+		 * @param metrics
+		 *            where the requests are recorded
+		 */
+		public Factory(SftpMetrics metrics) {
+			super();
+			this.metrics = metrics;
+		}
+
+		/**
+		 * @return where the requests are recorded
+		 */
+		public SftpMetrics getMetrics() {
+			return metrics;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Command create() {
+			return new InstrumentedSftpSubsystem(metrics);
+		}
+
+	}
+
+}
@@ -0,0 +1,214 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.metrics;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream of SFTP packets that drains whatever the client has already
+ * sent into its own buffer and counts the complete packets that have arrived,
+ * so that the number of requests queued behind the one being processed is
+ * known. Used by a single reader thread.
+ * 
+ * @author drothauser
+ * 
+ */
+class PacketCountingInputStream
+        extends InputStream {
+
+	/**
+	 * Initial buffer size.
+	 */
+	private static final int INITIAL_CAPACITY = 8192;
+
+	/**
+	 * Length of the packet length field.
+	 */
+	private static final int HEADER_LENGTH = 4;
+
+	/**
+	 * Mask of an unsigned int.
+	 */
+	private static final long UNSIGNED_INT = 0xffffffffL;
+
+	/**
+	 * Mask of an unsigned byte.
+	 */
+	private static final int UNSIGNED_BYTE = 0xff;
+
+	/**
+	 * Stream read from.
+	 */
+	private final InputStream in;
+
+	/**
+	 * Bytes drained from the stream and not yet discarded.
+	 */
+	private byte[] buffer = new byte[INITIAL_CAPACITY];
+
+	/**
+	 * Stream offset of the first byte in the buffer.
+	 */
+	private long bufferStart;
+
+	/**
+	 * Number of bytes in the buffer.
+	 */
+	private int length;
+
+	/**
+	 * Stream offset of the next byte to return.
+	 */
+	private long position;
+
+	/**
+	 * Stream offset of the first packet that has not completely arrived.
+	 */
+	private long nextPacket;
+
+	/**
+	 * Number of packets that have completely arrived.
+	 */
+	private long packets;
+
+	/**
+	 * Constructor for PacketCountingInputStream.
+	 * 
+	 * @param in
+	 *            stream of SFTP packets
+	 */
+	PacketCountingInputStream(InputStream in) {
+		this.in = in;
+	}
+
+	/**
+	 * Drain the bytes the client has already sent and return the number of
+	 * packets that have completely arrived so far.
+	 * 
+	 * @return number of packets arrived
+	 * @throws IOException
+	 *             possible error reading the stream
+	 */
+	long getArrivedPackets() throws IOException {
+		fill(false);
+		return packets;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int read() throws IOException {
+		byte[] one = new byte[1];
+		return read(one, 0, 1) < 0 ? -1 : one[0] & UNSIGNED_BYTE;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		if (position == bufferStart + length && fill(true) < 0) {
+			return -1;
+		}
+		fill(false);
+		int count = (int) Math.min(len, bufferStart + length - position);
+		System.arraycopy(buffer, (int) (position - bufferStart), b, off,
+		    count);
+		position += count;
+		return count;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int available() throws IOException {
+		return (int) (bufferStart + length - position) + in.available();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+	/**
+	 * Read from the stream into the buffer and count the packets completed.
+	 * 
+	 * @param block
+	 *            whether to wait for at least one byte
+	 * @return number of bytes read or -1 at the end of the stream
+	 * @throws IOException
+	 *             possible error reading the stream
+	 */
+	private int fill(boolean block) throws IOException {
+		int total = 0;
+		int wanted = block ? 1 : in.available();
+		while (wanted > 0) {
+			ensureCapacity(wanted);
+			int count = in.read(buffer, length, buffer.length - length);
+			if (count < 0) {
+				return total == 0 ? -1 : total;
+			}
+			length += count;
+			total += count;
+			wanted = in.available();
+		}
+		countPackets();
+		return total;
+	}
+
+	/**
+	 * Make room for more bytes, discarding the ones that were returned and
+	 * counted already.
+	 * 
+	 * @param wanted
+	 *            number of bytes to make room for
+	 */
+	private void ensureCapacity(int wanted) {
+		if (buffer.length - length >= wanted) {
+			return;
+		}
+		int discard = (int) (Math.min(position, nextPacket) - bufferStart);
+		System.arraycopy(buffer, discard, buffer, 0, length - discard);
+		length -= discard;
+		bufferStart += discard;
+		if (buffer.length - length < wanted) {
+			byte[] grown = new byte[Math.max(buffer.length * 2, length + wanted)];
+			System.arraycopy(buffer, 0, grown, 0, length);
+			buffer = grown;
+		}
+	}
+
+	/**
+	 * Count the packets whose last byte is in the buffer.
+	 */
+	private void countPackets() {
+		long end = bufferStart + length;
+		while (end - nextPacket >= HEADER_LENGTH) {
+			int header = (int) (nextPacket - bufferStart);
+			long packetLength = 0;
+			for (int i = 0; i < HEADER_LENGTH; i++) {
+				packetLength =
+				    packetLength << Byte.SIZE | buffer[header + i]
+				        & UNSIGNED_BYTE;
+			}
+			long packetEnd =
+			    nextPacket + HEADER_LENGTH + (packetLength & UNSIGNED_INT);
+			if (packetEnd > end) {
+				return;
+			}
+			nextPacket = packetEnd;
+			packets++;
+		}
+	}
+
+}
@@ -0,0 +1,235 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.rothsmith.test.ftp.load.ConcurrentLatencyHistogram;
+
+/**
+ * Metrics of the SFTP requests served by the
+ * {@link InstrumentedSftpSubsystem}s of one server: per operation counts and
+ * latency histograms, outstanding request depths and per session byte totals.
+ * Recording never takes a lock. Sessions are kept while they are open; of the
+ * closed ones only the last {@value ClosedSessions#DEFAULT_LIMIT} are kept.
+ * 
+ * @author drothauser
+ * 
+ */
+public class SftpMetrics {
+
+	/**
+	 * Request totals by operation name.
+	 */
+	private final CommandRecorder operations = new CommandRecorder();
+
+	/**
+	 * Outstanding request depths.
+	 */
+	private final AtomicReference<ConcurrentLatencyHistogram> depths =
+	    new AtomicReference<ConcurrentLatencyHistogram>(
+	        new ConcurrentLatencyHistogram());
+
+	/**
+	 * Open and recently closed sessions by id.
+	 */
+	private final Map<Long, SessionCounters> sessions =
+	    new ConcurrentSkipListMap<Long, SessionCounters>();
+
+	/**
+	 * Drops the oldest closed sessions from {@link #sessions}.
+	 */
+	private final ClosedSessions closedSessions = new ClosedSessions(
+	    sessions, ClosedSessions.DEFAULT_LIMIT);
+
+	/**
+	 * Last session id handed out.
+	 */
+	private final AtomicLong lastSessionId = new AtomicLong();
+
+	/**
+	 * Record one processed request.
+	 * 
+	 * @param operation
+	 *            operation name
+	 * @param nanos
+	 *            latency in nanoseconds
+	 * @param failed
+	 *            whether the request failed
+	 * @param depth
+	 *            requests outstanding when it was processed, itself included
+	 */
+	void recordRequest(String operation, long nanos, boolean failed,
+	    long depth) {
+		operations.record(operation, nanos, failed);
+		depths.get().record(depth);
+	}
+
+	/**
+	 * Register a new session.
+	 * 
+	 * @param user
+	 *            user logged in
+	 * @param clientAddress
+	 *            client address
+	 * @return the counters of the session
+	 */
+	SessionCounters openSession(String user, String clientAddress) {
+		SessionCounters counters =
+		    new SessionCounters(lastSessionId.incrementAndGet(), user,
+		        clientAddress);
+		sessions.put(counters.id, counters);
+		return counters;
+	}
+
+	/**
+	 * Mark a session closed.
+	 * 
+	 * @param counters
+	 *            the counters of the session
+	 */
+	void closeSession(SessionCounters counters) {
+		if (counters.open) {
+			counters.open = false;
+			closedSessions.closed(counters.id);
+		}
+	}
+
+	/**
+	 * Take a snapshot of the metrics. Values recorded concurrently may or may
+	 * not be included.
+	 * 
+	 * @return the current metrics
+	 */
+	public SftpMetricsSnapshot getSnapshot() {
+		List<SftpSessionMetrics> sessionMetrics =
+		    new ArrayList<SftpSessionMetrics>();
+		for (SessionCounters counters : sessions.values()) {
+			sessionMetrics.add(counters.toMetrics());
+		}
+		return new SftpMetricsSnapshot(operations.getMetrics(), depths.get()
+		    .getSnapshot(), sessionMetrics);
+	}
+
+	/**
+	 * Forget the requests recorded and the sessions closed so far, e.g. after
+	 * warming up. Open sessions are kept with their totals reset.
+	 */
+	public void reset() {
+		operations.clear();
+		depths.set(new ConcurrentLatencyHistogram());
+		closedSessions.clear();
+		for (SessionCounters counters : sessions.values()) {
+			if (counters.open) {
+				counters.reset();
+			} else {
+				sessions.remove(counters.id);
+			}
+		}
+	}
+
+	/**
+	 * Counters of one session, updated by the session's subsystem thread.
+	 */
+	static final class SessionCounters {
+
+		/**
+		 * Session id.
+		 */
+		private final long id;
+
+		/**
+		 * User logged in.
+		 */
+		private final String user;
+
+		/**
+		 * Client address.
+		 */
+		private final String clientAddress;
+
+		/**
+		 * Number of requests processed.
+		 */
+		private final AtomicLong requests = new AtomicLong();
+
+		/**
+		 * File bytes returned by READ requests.
+		 */
+		private final AtomicLong bytesRead = new AtomicLong();
+
+		/**
+		 * File bytes received by WRITE requests.
+		 */
+		private final AtomicLong bytesWritten = new AtomicLong();
+
+		/**
+		 * Whether the session is still open.
+		 */
+		private volatile boolean open = true;
+
+		/**
+		 * Constructor for SessionCounters.
+		 * 
+		 * @param id
+		 *            session id
+		 * @param user
+		 *            user logged in
+		 * @param clientAddress
+		 *            client address
+		 */
+		SessionCounters(long id, String user, String clientAddress) {
+			this.id = id;
+			this.user = user;
+			this.clientAddress = clientAddress;
+		}
+
+		/**
+		 * Count a processed request.
+		 */
+		void addRequest() {
+			requests.incrementAndGet();
+		}
+
+		/**
+		 * @param bytes
+		 *            file bytes returned by a READ request
+		 */
+		void addBytesRead(long bytes) {
+			bytesRead.addAndGet(bytes);
+		}
+
+		/**
+		 * @param bytes
+		 *            file bytes received by a WRITE request
+		 */
+		void addBytesWritten(long bytes) {
+			bytesWritten.addAndGet(bytes);
+		}
+
+		/**
+		 * Reset the totals.
+		 */
+		void reset() {
+			requests.set(0);
+			bytesRead.set(0);
+			bytesWritten.set(0);
+		}
+
+		/**
+		 * @return the current totals
+		 */
+		SftpSessionMetrics toMetrics() {
+			return new SftpSessionMetrics(id, user, clientAddress,
+			    requests.get(), bytesRead.get(), bytesWritten.get(), open);
+		}
+
+	}
+
+}
@@ -0,0 +1,126 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import com.rothsmith.test.ftp.load.LatencyHistogram;
+
+/**
+ * Immutable server side metrics of a {@link com.rothsmith.test.ftp.SFtpTestServer},
+ * taken by {@link SftpMetrics#getSnapshot()}.
+ * 
+ * @author drothauser
+ * 
+ */
+public class SftpMetricsSnapshot {
+
+	/**
+	 * Request totals by operation name.
+	 */
+	private final SortedMap<String, CommandMetrics> operations;
+
+	/**
+	 * Distribution of the outstanding request depth.
+	 */
+	private final LatencyHistogram depths;
+
+	/**
+	 * Sessions in the order they were opened.
+	 */
+	private final List<SftpSessionMetrics> sessions;
+
+	/**
+	 * Constructor for SftpMetricsSnapshot.
+	 * 
+	 * @param operations
+	 *            request totals by operation name
+	 * @param depths
+	 *            distribution of the outstanding request depth
+	 * @param sessions
+	 *            sessions in the order they were opened
+	 */
+	public SftpMetricsSnapshot(SortedMap<String, CommandMetrics> operations,
+	    LatencyHistogram depths, List<SftpSessionMetrics> sessions) {
+		this.operations = new TreeMap<String, CommandMetrics>(operations);
+		this.depths = depths;
+		this.sessions = new ArrayList<SftpSessionMetrics>(sessions);
+	}
+
+	/**
+	 * @return request totals by operation name, e.g. "READ", "WRITE"
+	 */
+	public SortedMap<String, CommandMetrics> getOperations() {
+		return Collections.unmodifiableSortedMap(operations);
+	}
+
+	/**
+	 * @param operation
+	 *            operation name, e.g. "OPEN"
+	 * @return totals of the operation, all 0 if it was never requested
+	 */
+	public CommandMetrics getOperation(String operation) {
+		CommandMetrics metrics = operations.get(operation);
+		return metrics == null ? new CommandMetrics(operation, 0,
+		    new LatencyHistogram()) : metrics;
+	}
+
+	/**
+	 * Return the distribution of the number of requests outstanding when a
+	 * request was processed, counting the request itself. A depth that stays
+	 * at 1 means the client waits for every reply; a client that pipelines
+	 * shows larger depths.
+	 * 
+	 * @return the depths, recorded as plain numbers rather than nanoseconds
+	 */
+	public LatencyHistogram getDepths() {
+		return depths;
+	}
+
+	/**
+	 * @return open sessions and the last 1000 closed ones, in the order they
+	 *         were opened
+	 */
+	public List<SftpSessionMetrics> getSessions() {
+		return Collections.unmodifiableList(sessions);
+	}
+
+	/**
+	 * @return file bytes returned by READ requests of all sessions
+	 */
+	public long getBytesRead() {
+		long sum = 0;
+		for (SftpSessionMetrics session : sessions) {
+			sum += session.getBytesRead();
+		}
+		return sum;
+	}
+
+	/**
+	 * @return file bytes received by WRITE requests of all sessions
+	 */
+	public long getBytesWritten() {
+		long sum = 0;
+		for (SftpSessionMetrics session : sessions) {
+			sum += session.getBytesWritten();
+		}
+		return sum;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return "SftpMetricsSnapshot [bytesRead=" + getBytesRead()
+		    + ", bytesWritten=" + getBytesWritten() + ", maxDepth="
+		    + depths.getMax() + ", operations=" + operations.values()
+		    + ", sessions=" + sessions + "]";
+	}
+
+}
@@ -0,0 +1,139 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.metrics;
+
+/**
+ * Immutable totals of one SFTP session, i.e. one SFTP subsystem channel, as
+ * of the moment a snapshot was taken.
+ * 
+ * @author drothauser
+ * 
+ */
+public class SftpSessionMetrics {
+
+	/**
+	 * Sequence number of the session on its server.
+	 */
+	private final long id;
+
+	/**
+	 * User logged in.
+	 */
+	private final String user;
+
+	/**
+	 * Client address.
+	 */
+	private final String clientAddress;
+
+	/**
+	 * Number of requests processed.
+	 */
+	private final long requests;
+
+	/**
+	 * File bytes returned by READ requests.
+	 */
+	private final long bytesRead;
+
+	/**
+	 * File bytes received by WRITE requests.
+	 */
+	private final long bytesWritten;
+
+	/**
+	 * Whether the session is still open.
+	 */
+	private final boolean open;
+
+	/**
+	 * Constructor for SftpSessionMetrics.
+	 * 
+	 * @param id
+	 *            sequence number of the session on its server
+	 * @param user
+	 *            user logged in
+	 * @param clientAddress
+	 *            client address
+	 * @param requests
+	 *            number of requests processed
+	 * @param bytesRead
+	 *            file bytes returned by READ requests
+	 * @param bytesWritten
+	 *            file bytes received by WRITE requests
+	 * @param open
+	 *            whether the session is still open
+	 */
+	public SftpSessionMetrics(long id, String user, String clientAddress,
+	    long requests, long bytesRead, long bytesWritten, boolean open) {
+		this.id = id;
+		this.user = user;
+		this.clientAddress = clientAddress;
+		this.requests = requests;
+		this.bytesRead = bytesRead;
+		this.bytesWritten = bytesWritten;
+		this.open = open;
+	}
+
+	/**
+	 * @return sequence number of the session on its server, starting at 1
+	 */
+	public long getId() {
+		return id;
+	}
+
+	/**
+	 * @return user logged in
+	 */
+	public String getUser() {
+		return user;
+	}
+
+	/**
+	 * @return client address
+	 */
+	public String getClientAddress() {
+		return clientAddress;
+	}
+
+	/**
+	 * @return number of requests processed
+	 */
+	public long getRequests() {
+		return requests;
+	}
+
+	/**
+	 * @return file bytes returned to the client by READ requests
+	 */
+	public long getBytesRead() {
+		return bytesRead;
+	}
+
+	/**
+	 * @return file bytes received from the client by WRITE requests
+	 */
+	public long getBytesWritten() {
+		return bytesWritten;
+	}
+
+	/**
+	 * @return whether the session is still open
+	 */
+	public boolean isOpen() {
+		return open;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return "SftpSessionMetrics [id=" + id + ", user=" + user
+		    + ", clientAddress=" + clientAddress + ", requests=" + requests
+		    + ", bytesRead=" + bytesRead + ", bytesWritten=" + bytesWritten
+		    + ", open=" + open + "]";
+	}
+
+}
@@ -0,0 +1,8 @@
+/**
+ * Server side metrics of the FTP test servers: command counts and latencies,
+ * bytes transferred and sessions, recorded without locks and exposed as
+ * snapshots and JMX MXBeans.
+ * 
+ * @author drothauser
+ */
+package com.rothsmith.test.ftp.metrics;
@@ -0,0 +1,128 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.tls;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * Socket factory that hands every TLS socket it creates to a
+ * {@link SessionCachingSslConfiguration} before it is used.
+ *
+ * @author drothauser
+ *
+ */
+final class DataChannelSocketFactory
+        extends SSLSocketFactory {
+
+	/**
+	 * Factory creating the sockets.
+	 */
+	private final SSLSocketFactory delegate;
+
+	/**
+	 * Configuration that watches the sockets.
+	 */
+	private final SessionCachingSslConfiguration configuration;
+
+	/**
+	 * Constructor for DataChannelSocketFactory.
+	 *
+	 * @param delegate
+	 *            factory creating the sockets
+	 * @param configuration
+	 *            configuration that watches the sockets
+	 */
+	DataChannelSocketFactory(SSLSocketFactory delegate,
+	    SessionCachingSslConfiguration configuration) {
+		super();
+		this.delegate = delegate;
+		this.configuration = configuration;
+	}
+
+	/**
+	 * @param socket
+	 *            a new socket
+	 * @return the socket, watched if it is a TLS socket
+	 */
+	private Socket watch(Socket socket) {
+		if (socket instanceof SSLSocket) {
+			configuration.watch((SSLSocket) socket);
+		}
+		return socket;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Socket createSocket() throws IOException {
+		return watch(delegate.createSocket());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Socket createSocket(Socket socket, String host, int port,
+	    boolean autoClose) throws IOException {
+		return watch(delegate.createSocket(socket, host, port, autoClose));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Socket createSocket(String host, int port) throws IOException {
+		return watch(delegate.createSocket(host, port));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Socket createSocket(String host, int port, InetAddress localHost,
+	    int localPort) throws IOException {
+		return watch(delegate.createSocket(host, port, localHost, localPort));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Socket createSocket(InetAddress host, int port) throws IOException {
+		return watch(delegate.createSocket(host, port));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Socket createSocket(InetAddress address, int port,
+	    InetAddress localAddress, int localPort) throws IOException {
+		return watch(delegate.createSocket(address, port, localAddress,
+		    localPort));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String[] getDefaultCipherSuites() {
+		return delegate.getDefaultCipherSuites();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String[] getSupportedCipherSuites() {
+		return delegate.getSupportedCipherSuites();
+	}
+
+}
@@ -0,0 +1,147 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.tls;
+
+import java.security.KeyManagementException;
+import java.security.SecureRandom;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLContextSpi;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLServerSocketFactory;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+
+/**
+ * Context implementation that delegates to an initialized {@link SSLContext}
+ * and hands the engines it creates, which MINA uses for the control
+ * connections, and the sockets it creates, which Apache FtpServer uses for
+ * data connections only, to a {@link SessionCachingSslConfiguration}.
+ *
+ * @author drothauser
+ *
+ */
+final class DataChannelSslContextSpi
+        extends SSLContextSpi {
+
+	/**
+	 * The initialized context.
+	 */
+	private final SSLContext delegate;
+
+	/**
+	 * Configuration that prepares the engines and sockets.
+	 */
+	private final SessionCachingSslConfiguration configuration;
+
+	/**
+	 * Constructor for DataChannelSslContextSpi.
+	 *
+	 * @param delegate
+	 *            the initialized context
+	 * @param configuration
+	 *            configuration that prepares the engines and sockets
+	 */
+	private DataChannelSslContextSpi(SSLContext delegate,
+	    SessionCachingSslConfiguration configuration) {
+		super();
+		this.delegate = delegate;
+		this.configuration = configuration;
+	}
+
+	/**
+	 * Wrap a context.
+	 *
+	 * @param delegate
+	 *            the initialized context
+	 * @param configuration
+	 *            configuration that prepares the engines and sockets
+	 * @return a context sharing the delegate's sessions
+	 */
+	static SSLContext wrap(SSLContext delegate,
+	    SessionCachingSslConfiguration configuration) {
+		return new SSLContext(new DataChannelSslContextSpi(delegate,
+		    configuration), delegate.getProvider(), delegate.getProtocol()) {
+			// SSLContext has a protected constructor only
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void engineInit(KeyManager[] km, TrustManager[] tm,
+	    SecureRandom sr) throws KeyManagementException {
+		delegate.init(km, tm, sr);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected SSLSocketFactory engineGetSocketFactory() {
+		return new DataChannelSocketFactory(delegate.getSocketFactory(),
+		    configuration);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected SSLServerSocketFactory engineGetServerSocketFactory() {
+		return delegate.getServerSocketFactory();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected SSLEngine engineCreateSSLEngine() {
+		return configuration.prepare(delegate.createSSLEngine());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected SSLEngine engineCreateSSLEngine(String host, int port) {
+		return configuration.prepare(delegate.createSSLEngine(host, port));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected SSLSessionContext engineGetServerSessionContext() {
+		return delegate.getServerSessionContext();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected SSLSessionContext engineGetClientSessionContext() {
+		return delegate.getClientSessionContext();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected SSLParameters engineGetDefaultSSLParameters() {
+		return delegate.getDefaultSSLParameters();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected SSLParameters engineGetSupportedSSLParameters() {
+		return delegate.getSupportedSSLParameters();
+	}
+
+}
@@ -0,0 +1,455 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.tls;
+
+import java.security.GeneralSecurityException;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.net.ssl.HandshakeCompletedEvent;
+import javax.net.ssl.HandshakeCompletedListener;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocket;
+
+import org.apache.ftpserver.ssl.ClientAuth;
+import org.apache.ftpserver.ssl.SslConfiguration;
+
+import com.rothsmith.test.ftp.load.ConcurrentLatencyHistogram;
+import com.rothsmith.test.ftp.load.LatencyHistogram;
+
+/**
+ * {@link SslConfiguration} that lets the data connections of an FTPS server
+ * resume the TLS sessions of its control connections.
+ * <p>
+ * Apache FtpServer asks its SSL configuration for an {@link SSLContext} for
+ * the listener and again for every data connection, and the default
+ * configuration creates a new context, with an empty session cache, on each
+ * call. This configuration hands out one context per protocol instead, with
+ * the server session cache sized as configured, and counts how many data
+ * connection handshakes resumed a session. A handshake counts as resumed when
+ * its session was created before the data connection; this is reliable for
+ * TLS 1.2 and earlier.
+ * </p>
+ * <p>
+ * The protocols and cipher suites of all connections can be restricted, e.g.
+ * to those of a {@link TlsProfile}; names the JVM does not support are left
+ * out. The time every handshake takes is recorded, separately for control
+ * and data connections, so that profiles can be compared.
+ * </p>
+ *
+ * @author drothauser
+ *
+ */
+public class SessionCachingSslConfiguration
+        implements SslConfiguration {
+
+	/**
+	 * Key of the context of the default protocol.
+	 */
+	private static final String DEFAULT_PROTOCOL = "";
+
+	/**
+	 * Configuration holding the keys.
+	 */
+	private final SslConfiguration delegate;
+
+	/**
+	 * Whether data connections may or must resume sessions.
+	 */
+	private final TlsSessionReuse sessionReuse;
+
+	/**
+	 * Maximum number of cached sessions, 0 for the JSSE default.
+	 */
+	private final int sessionCacheSize;
+
+	/**
+	 * Lifetime of cached sessions in seconds, 0 for the JSSE default.
+	 */
+	private final int sessionTimeout;
+
+	/**
+	 * Protocols requested or null for the JVM defaults.
+	 */
+	private final String[] protocols;
+
+	/**
+	 * Cipher suites requested or null for the JVM defaults.
+	 */
+	private final String[] cipherSuites;
+
+	/**
+	 * Supported protocols of {@link #protocols}, set when the first context
+	 * is created.
+	 */
+	private volatile String[] enabledProtocols;
+
+	/**
+	 * Supported cipher suites of {@link #cipherSuites}, set when the first
+	 * context is created.
+	 */
+	private volatile String[] enabledCipherSuites;
+
+	/**
+	 * Shared contexts by protocol.
+	 */
+	private final Map<String, SSLContext> contexts =
+	    new HashMap<String, SSLContext>();
+
+	/**
+	 * Lock guarding {@link #contexts}.
+	 */
+	private final Object contextsLock = new Object();
+
+	/**
+	 * Data connection handshakes that created a new session.
+	 */
+	private final AtomicLong fullHandshakes = new AtomicLong();
+
+	/**
+	 * Data connection handshakes that resumed a cached session.
+	 */
+	private final AtomicLong resumedHandshakes = new AtomicLong();
+
+	/**
+	 * Control connection handshake times in nanoseconds.
+	 */
+	private final AtomicReference<ConcurrentLatencyHistogram> controlTimes =
+	    new AtomicReference<ConcurrentLatencyHistogram>(
+	        new ConcurrentLatencyHistogram());
+
+	/**
+	 * Data connection handshake times in nanoseconds.
+	 */
+	private final AtomicReference<ConcurrentLatencyHistogram> dataTimes =
+	    new AtomicReference<ConcurrentLatencyHistogram>(
+	        new ConcurrentLatencyHistogram());
+
+	/**
+	 * Constructor for SessionCachingSslConfiguration using the JVM's default
+	 * protocols and cipher suites.
+	 *
+	 * @param delegate
+	 *            configuration holding the keys
+	 * @param sessionReuse
+	 *            whether data connections may or must resume sessions
+	 * @param sessionCacheSize
+	 *            maximum number of cached sessions, 0 for the JSSE default
+	 * @param sessionTimeout
+	 *            lifetime of cached sessions in seconds, 0 for the JSSE
+	 *            default
+	 */
+	public SessionCachingSslConfiguration(SslConfiguration delegate,
+	    TlsSessionReuse sessionReuse, int sessionCacheSize,
+	    int sessionTimeout) {
+		this(delegate, sessionReuse, sessionCacheSize, sessionTimeout, null,
+		    null);
+	}
+
+	/**
+	 * Constructor for SessionCachingSslConfiguration.
+	 *
+	 * @param delegate
+	 *            configuration holding the keys
+	 * @param sessionReuse
+	 *            whether data connections may or must resume sessions
+	 * @param sessionCacheSize
+	 *            maximum number of cached sessions, 0 for the JSSE default
+	 * @param sessionTimeout
+	 *            lifetime of cached sessions in seconds, 0 for the JSSE
+	 *            default
+	 * @param protocols
+	 *            protocols to enable or null for the JVM defaults
+	 * @param cipherSuites
+	 *            cipher suites to enable in order of preference or null for
+	 *            the JVM defaults
+	 */
+	public SessionCachingSslConfiguration(SslConfiguration delegate,
+	    TlsSessionReuse sessionReuse, int sessionCacheSize,
+	    int sessionTimeout, String[] protocols, String[] cipherSuites) {
+		this.delegate = delegate;
+		this.sessionReuse = sessionReuse;
+		this.sessionCacheSize = sessionCacheSize;
+		this.sessionTimeout = sessionTimeout;
+		this.protocols = protocols == null ? null : protocols.clone();
+		this.cipherSuites = cipherSuites == null ? null : cipherSuites.clone();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public SSLContext getSSLContext() throws GeneralSecurityException {
+		return getContext(DEFAULT_PROTOCOL);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public SSLContext getSSLContext(String protocol)
+	        throws GeneralSecurityException {
+		return getContext(protocol == null ? DEFAULT_PROTOCOL : protocol);
+	}
+
+	/**
+	 * Return the context of a protocol, created on first use unless session
+	 * reuse is disabled.
+	 *
+	 * @param protocol
+	 *            the protocol or {@link #DEFAULT_PROTOCOL}
+	 * @return the context
+	 * @throws GeneralSecurityException
+	 *             possible error creating the context
+	 */
+	private SSLContext getContext(String protocol)
+	        throws GeneralSecurityException {
+		if (sessionReuse == TlsSessionReuse.DISABLED) {
+			return createContext(protocol);
+		}
+		synchronized (contextsLock) {
+			SSLContext context = contexts.get(protocol);
+			if (context == null) {
+				context = createContext(protocol);
+				contexts.put(protocol, context);
+			}
+			return context;
+		}
+	}
+
+	/**
+	 * Create a context for a protocol.
+	 *
+	 * @param protocol
+	 *            the protocol or {@link #DEFAULT_PROTOCOL}
+	 * @return the context
+	 * @throws GeneralSecurityException
+	 *             possible error creating the context
+	 */
+	private SSLContext createContext(String protocol)
+	        throws GeneralSecurityException {
+		SSLContext context =
+		    DEFAULT_PROTOCOL.equals(protocol) ? delegate.getSSLContext()
+		        : delegate.getSSLContext(protocol);
+		SSLSessionContext sessions = context.getServerSessionContext();
+		if (sessionCacheSize > 0) {
+			sessions.setSessionCacheSize(sessionCacheSize);
+		}
+		if (sessionTimeout > 0) {
+			sessions.setSessionTimeout(sessionTimeout);
+		}
+		SSLParameters supported = context.getSupportedSSLParameters();
+		enabledProtocols =
+		    retainSupported("protocols", protocols, supported.getProtocols());
+		enabledCipherSuites =
+		    retainSupported("cipher suites", cipherSuites,
+		        supported.getCipherSuites());
+		return DataChannelSslContextSpi.wrap(context, this);
+	}
+
+	/**
+	 * Remove the names the JVM does not support from a list.
+	 *
+	 * @param kind
+	 *            what the names are, for the error message
+	 * @param requested
+	 *            names in order of preference or null for the defaults
+	 * @param supported
+	 *            names the JVM supports
+	 * @return the supported names in order of preference or null for the
+	 *         defaults
+	 * @throws NoSuchAlgorithmException
+	 *             if none of the names is supported
+	 */
+	private static String[] retainSupported(String kind, String[] requested,
+	    String[] supported) throws NoSuchAlgorithmException {
+		if (requested == null) {
+			return null;
+		}
+		List<String> names = new ArrayList<String>(Arrays.asList(requested));
+		names.retainAll(Arrays.asList(supported));
+		if (names.isEmpty()) {
+			throw new NoSuchAlgorithmException("None of the TLS " + kind + " "
+			    + Arrays.toString(requested) + " is supported");
+		}
+		return names.toArray(new String[names.size()]);
+	}
+
+	/**
+	 * Prepare a control connection engine: enable the configured protocols
+	 * and cipher suites and time its handshake.
+	 *
+	 * @param engine
+	 *            a new engine
+	 * @return the engine to use
+	 */
+	SSLEngine prepare(SSLEngine engine) {
+		SSLParameters parameters = engine.getSSLParameters();
+		enable(parameters);
+		engine.setSSLParameters(parameters);
+		return new TimedSslEngine(engine, this);
+	}
+
+	/**
+	 * Prepare a data connection socket: enable the configured protocols and
+	 * cipher suites, refuse new sessions if reuse is required and record the
+	 * outcome and time of its handshake.
+	 *
+	 * @param socket
+	 *            server side socket of a data connection
+	 */
+	void watch(SSLSocket socket) {
+		SSLParameters parameters = socket.getSSLParameters();
+		enable(parameters);
+		socket.setSSLParameters(parameters);
+		if (sessionReuse == TlsSessionReuse.REQUIRED) {
+			socket.setEnableSessionCreation(false);
+		}
+		final long created = System.currentTimeMillis();
+		final long createdNanos = System.nanoTime();
+		socket.addHandshakeCompletedListener(new HandshakeCompletedListener() {
+
+			@Override
+			public void handshakeCompleted(HandshakeCompletedEvent event) {
+				dataTimes.get().record(System.nanoTime() - createdNanos);
+				if (event.getSession().getCreationTime() < created) {
+					resumedHandshakes.incrementAndGet();
+				} else {
+					fullHandshakes.incrementAndGet();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Set the configured protocols and cipher suites, preferring the order of
+	 * the cipher suites over the client's.
+	 *
+	 * @param parameters
+	 *            parameters of an engine or socket
+	 */
+	private void enable(SSLParameters parameters) {
+		String[] names = enabledProtocols;
+		if (names != null) {
+			parameters.setProtocols(names);
+		}
+		names = enabledCipherSuites;
+		if (names != null) {
+			parameters.setCipherSuites(names);
+			parameters.setUseCipherSuitesOrder(true);
+		}
+	}
+
+	/**
+	 * Record the time a control connection handshake took.
+	 *
+	 * @param nanos
+	 *            handshake time in nanoseconds
+	 */
+	void recordControlHandshake(long nanos) {
+		controlTimes.get().record(nanos);
+	}
+
+	/**
+	 * Return the configured cipher suites for Apache FtpServer to enable.
+	 * When cipher suites were requested they are enabled by the contexts of
+	 * this configuration instead, so none are returned.
+	 *
+	 * @return the cipher suites of the delegate or null
+	 */
+	@Override
+	public String[] getEnabledCipherSuites() {
+		return cipherSuites == null ? delegate.getEnabledCipherSuites() : null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ClientAuth getClientAuth() {
+		return delegate.getClientAuth();
+	}
+
+	/**
+	 * @return whether data connections may or must resume sessions
+	 */
+	public TlsSessionReuse getSessionReuse() {
+		return sessionReuse;
+	}
+
+	/**
+	 * Return the number of completed data connection handshakes that created
+	 * a new session. Handshakes are counted asynchronously, shortly after
+	 * they complete.
+	 *
+	 * @return the number of full data connection handshakes
+	 */
+	public long getFullHandshakes() {
+		return fullHandshakes.get();
+	}
+
+	/**
+	 * Return the number of completed data connection handshakes that resumed
+	 * a cached session. Handshakes are counted asynchronously, shortly after
+	 * they complete.
+	 *
+	 * @return the number of resumed data connection handshakes
+	 */
+	public long getResumedHandshakes() {
+		return resumedHandshakes.get();
+	}
+
+	/**
+	 * Return the times control connection handshakes took, from the first
+	 * bytes received from the client until the server finished the
+	 * handshake.
+	 *
+	 * @return snapshot of the control connection handshake times in
+	 *         nanoseconds
+	 */
+	public LatencyHistogram getControlHandshakeTimes() {
+		return controlTimes.get().getSnapshot();
+	}
+
+	/**
+	 * Return the times data connection handshakes took, from the creation of
+	 * the TLS socket on the accepted connection until the handshake
+	 * completed. Handshakes are recorded asynchronously, shortly after they
+	 * complete.
+	 *
+	 * @return snapshot of the data connection handshake times in nanoseconds
+	 */
+	public LatencyHistogram getDataHandshakeTimes() {
+		return dataTimes.get().getSnapshot();
+	}
+
+	/**
+	 * @return protocols enabled on every connection or null for the JVM
+	 *         defaults; known once the server has started
+	 */
+	public String[] getEnabledProtocols() {
+		String[] names = enabledProtocols;
+		return names == null ? null : names.clone();
+	}
+
+	/**
+	 * Forget the handshakes counted and timed so far, e.g. after warming up.
+	 */
+	public void resetStatistics() {
+		fullHandshakes.set(0);
+		resumedHandshakes.set(0);
+		controlTimes.set(new ConcurrentLatencyHistogram());
+		dataTimes.set(new ConcurrentLatencyHistogram());
+	}
+
+}
@@ -0,0 +1,285 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.tls;
+
+import java.nio.ByteBuffer;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSession;
+
+/**
+ * Server side engine that delegates to a JSSE engine and reports how long its
+ * initial handshake took, from the first bytes received from the client until
+ * the handshake has finished, to a {@link SessionCachingSslConfiguration}.
+ * MINA drives each engine from one session at a time, so the timing state
+ * needs no synchronization.
+ *
+ * @author drothauser
+ *
+ */
+final class TimedSslEngine
+        extends SSLEngine {
+
+	/**
+	 * The JSSE engine.
+	 */
+	private final SSLEngine delegate;
+
+	/**
+	 * Configuration recording the handshake time.
+	 */
+	private final SessionCachingSslConfiguration configuration;
+
+	/**
+	 * Time the first handshake bytes were received, 0 before.
+	 */
+	private long started;
+
+	/**
+	 * Whether the handshake time has been recorded.
+	 */
+	private boolean recorded;
+
+	/**
+	 * Constructor for TimedSslEngine.
+	 *
+	 * @param delegate
+	 *            the JSSE engine
+	 * @param configuration
+	 *            configuration recording the handshake time
+	 */
+	TimedSslEngine(SSLEngine delegate,
+	    SessionCachingSslConfiguration configuration) {
+		super(delegate.getPeerHost(), delegate.getPeerPort());
+		this.delegate = delegate;
+		this.configuration = configuration;
+	}
+
+	/**
+	 * Record the handshake time once a result reports the handshake finished.
+	 *
+	 * @param result
+	 *            result of a wrap or unwrap
+	 * @return the result
+	 */
+	private SSLEngineResult check(SSLEngineResult result) {
+		if (!recorded && started != 0
+		    && result.getHandshakeStatus()
+		        == SSLEngineResult.HandshakeStatus.FINISHED) {
+			recorded = true;
+			configuration.recordControlHandshake(System.nanoTime() - started);
+		}
+		return result;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public SSLEngineResult wrap(ByteBuffer[] srcs, int offset, int length,
+	    ByteBuffer dst) throws SSLException {
+		return check(delegate.wrap(srcs, offset, length, dst));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public SSLEngineResult unwrap(ByteBuffer src, ByteBuffer[] dsts,
+	    int offset, int length) throws SSLException {
+		long now = System.nanoTime();
+		SSLEngineResult result = delegate.unwrap(src, dsts, offset, length);
+		if (started == 0 && result.bytesConsumed() > 0) {
+			started = now;
+		}
+		return check(result);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Runnable getDelegatedTask() {
+		return delegate.getDelegatedTask();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void closeInbound() throws SSLException {
+		delegate.closeInbound();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isInboundDone() {
+		return delegate.isInboundDone();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void closeOutbound() {
+		delegate.closeOutbound();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isOutboundDone() {
+		return delegate.isOutboundDone();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String[] getSupportedCipherSuites() {
+		return delegate.getSupportedCipherSuites();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String[] getEnabledCipherSuites() {
+		return delegate.getEnabledCipherSuites();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setEnabledCipherSuites(String[] suites) {
+		delegate.setEnabledCipherSuites(suites);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String[] getSupportedProtocols() {
+		return delegate.getSupportedProtocols();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String[] getEnabledProtocols() {
+		return delegate.getEnabledProtocols();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setEnabledProtocols(String[] protocols) {
+		delegate.setEnabledProtocols(protocols);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public SSLSession getSession() {
+		return delegate.getSession();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public SSLSession getHandshakeSession() {
+		return delegate.getHandshakeSession();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void beginHandshake() throws SSLException {
+		delegate.beginHandshake();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public SSLEngineResult.HandshakeStatus getHandshakeStatus() {
+		return delegate.getHandshakeStatus();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setUseClientMode(boolean mode) {
+		delegate.setUseClientMode(mode);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean getUseClientMode() {
+		return delegate.getUseClientMode();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setNeedClientAuth(boolean need) {
+		delegate.setNeedClientAuth(need);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean getNeedClientAuth() {
+		return delegate.getNeedClientAuth();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setWantClientAuth(boolean want) {
+		delegate.setWantClientAuth(want);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean getWantClientAuth() {
+		return delegate.getWantClientAuth();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setEnableSessionCreation(boolean flag) {
+		delegate.setEnableSessionCreation(flag);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean getEnableSessionCreation() {
+		return delegate.getEnableSessionCreation();
+	}
+
+}
@@ -0,0 +1,79 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.tls;
+
+/**
+ * Named sets of TLS protocols and cipher suites for the FTPS test server.
+ * Protocols and cipher suites the running JVM does not support are left out
+ * when the server applies a profile.
+ *
+ * @author drothauser
+ *
+ */
+public enum TlsProfile {
+
+	/**
+	 * TLS 1.3 and 1.2 with AES-128-GCM and ChaCha20-Poly1305 only, the
+	 * cheapest modern handshakes and records.
+	 */
+	FAST(new String[] {"TLSv1.3", "TLSv1.2" }, new String[] {
+	    "TLS_AES_128_GCM_SHA256", "TLS_CHACHA20_POLY1305_SHA256",
+	    "TLS_ECDHE_ECDSA_WITH_AES_128_GCM_SHA256",
+	    "TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256",
+	    "TLS_ECDHE_ECDSA_WITH_CHACHA20_POLY1305_SHA256",
+	    "TLS_ECDHE_RSA_WITH_CHACHA20_POLY1305_SHA256" }),
+
+	/**
+	 * Every protocol from TLS 1.0 to 1.3 with the JVM's default cipher
+	 * suites, for old clients. The JVM may still refuse TLS 1.0 and 1.1
+	 * through its jdk.tls.disabledAlgorithms security property.
+	 */
+	COMPAT(new String[] {"TLSv1.3", "TLSv1.2", "TLSv1.1", "TLSv1" }, null),
+
+	/**
+	 * TLS 1.3 only with its AEAD cipher suites, strongest first.
+	 */
+	STRICT(new String[] {"TLSv1.3" }, new String[] {"TLS_AES_256_GCM_SHA384",
+	    "TLS_AES_128_GCM_SHA256", "TLS_CHACHA20_POLY1305_SHA256" });
+
+	/**
+	 * Protocols in order of preference.
+	 */
+	private final String[] protocols;
+
+	/**
+	 * Cipher suites in order of preference or null for the JVM defaults.
+	 */
+	private final String[] cipherSuites;
+
+	/**
+	 * Constructor for TlsProfile.
+	 *
+	 * @param protocols
+	 *            protocols in order of preference
+	 * @param cipherSuites
+	 *            cipher suites in order of preference or null for the JVM
+	 *            defaults
+	 */
+	private TlsProfile(String[] protocols, String[] cipherSuites) {
+		this.protocols = protocols;
+		this.cipherSuites = cipherSuites;
+	}
+
+	/**
+	 * @return protocols in order of preference
+	 */
+	public String[] getProtocols() {
+		return protocols.clone();
+	}
+
+	/**
+	 * @return cipher suites in order of preference or null for the JVM
+	 *         defaults
+	 */
+	public String[] getCipherSuites() {
+		return cipherSuites == null ? null : cipherSuites.clone();
+	}
+
+}
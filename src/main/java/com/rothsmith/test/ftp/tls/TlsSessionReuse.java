@@ -0,0 +1,34 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.tls;
+
+/**
+ * Whether the TLS data connections of an FTPS server resume the TLS session
+ * of their control connection instead of performing a full handshake.
+ * 
+ * @author drothauser
+ * 
+ */
+public enum TlsSessionReuse {
+
+	/**
+	 * Every connection gets a TLS context of its own, so every data
+	 * connection performs a full handshake. This is how Apache FtpServer
+	 * behaves out of the box.
+	 */
+	DISABLED,
+
+	/**
+	 * Control and data connections share one TLS session cache; clients that
+	 * offer a cached session resume it, others perform a full handshake.
+	 */
+	ALLOWED,
+
+	/**
+	 * Like {@link #ALLOWED}, but data connections that do not resume a
+	 * cached session are refused, as vsftpd's require_ssl_reuse does.
+	 */
+	REQUIRED
+
+}
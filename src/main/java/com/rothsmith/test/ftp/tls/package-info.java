@@ -0,0 +1,9 @@
+/**
+ * TLS support for the FTPS test server: a shared TLS session cache for the
+ * control and data connections of a server, control over whether data
+ * connections may or must resume the session of their control connection,
+ * named protocol and cipher suite profiles and handshake timing.
+ * 
+ * @author drothauser
+ */
+package com.rothsmith.test.ftp.tls;
@@ -0,0 +1,68 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.wan;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serializes transmissions over a link of fixed bandwidth: each transmission
+ * starts when the previous one has gone through and takes as long as its
+ * size requires.
+ * 
+ * @author drothauser
+ * 
+ */
+final class BandwidthLimiter {
+
+	/**
+	 * Nanoseconds per second.
+	 */
+	private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+	/**
+	 * Bandwidth in bytes per second, {@link WanEmulation#UNLIMITED} for none.
+	 */
+	private final long bytesPerSecond;
+
+	/**
+	 * When the link is free again, in {@link System#nanoTime()} terms.
+	 */
+	private final AtomicLong freeAt = new AtomicLong(System.nanoTime());
+
+	/**
+	 * Constructor for BandwidthLimiter.
+	 * 
+	 * @param bytesPerSecond
+	 *            bandwidth in bytes per second or
+	 *            {@link WanEmulation#UNLIMITED}
+	 */
+	BandwidthLimiter(long bytesPerSecond) {
+		this.bytesPerSecond = bytesPerSecond;
+	}
+
+	/**
+	 * Reserve the link for a transmission starting no earlier than now.
+	 * 
+	 * @param now
+	 *            current {@link System#nanoTime()}
+	 * @param bytes
+	 *            size of the transmission
+	 * @return when the transmission has gone through
+	 */
+	long reserve(long now, int bytes) {
+		if (bytesPerSecond <= WanEmulation.UNLIMITED) {
+			return now;
+		}
+		long duration = bytes * NANOS_PER_SECOND / bytesPerSecond;
+		while (true) {
+			long free = freeAt.get();
+			long done = Math.max(free - now, 0) + now + duration;
+			if (freeAt.compareAndSet(free, done)) {
+				return done;
+			}
+		}
+	}
+
+}
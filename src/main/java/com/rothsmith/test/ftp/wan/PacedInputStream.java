@@ -0,0 +1,62 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.wan;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream that lets data through no faster than a {@link WanPath}
+ * allows.
+ * 
+ * @author drothauser
+ * 
+ */
+class PacedInputStream
+        extends FilterInputStream {
+
+	/**
+	 * The path the data travels.
+	 */
+	private final WanPath path;
+
+	/**
+	 * Constructor for PacedInputStream.
+	 * 
+	 * @param in
+	 *            the stream to pace
+	 * @param path
+	 *            the path the data travels
+	 */
+	PacedInputStream(InputStream in, WanPath path) {
+		super(in);
+		this.path = path;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int read() throws IOException {
+		int value = super.read();
+		if (value >= 0) {
+			path.pace(1);
+		}
+		return value;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		int count = super.read(b, off, len);
+		if (count > 0) {
+			path.pace(count);
+		}
+		return count;
+	}
+
+}
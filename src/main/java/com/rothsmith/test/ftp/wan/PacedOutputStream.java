@@ -0,0 +1,56 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.wan;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Output stream that lets data through no faster than a {@link WanPath}
+ * allows.
+ * 
+ * @author drothauser
+ * 
+ */
+class PacedOutputStream
+        extends FilterOutputStream {
+
+	/**
+	 * The path the data travels.
+	 */
+	private final WanPath path;
+
+	/**
+	 * Constructor for PacedOutputStream.
+	 * 
+	 * @param out
+	 *            the stream to pace
+	 * @param path
+	 *            the path the data travels
+	 */
+	PacedOutputStream(OutputStream out, WanPath path) {
+		super(out);
+		this.path = path;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void write(int b) throws IOException {
+		path.pace(1);
+		out.write(b);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		path.pace(len);
+		out.write(b, off, len);
+	}
+
+}
@@ -0,0 +1,123 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.wan;
+
+/**
+ * Settings of an emulated wide area network link between a test server and
+ * its clients. A 50 ms, 10 Mbit/s link is
+ * 
+ * <pre>
+ * WanEmulation wan = new WanEmulation();
+ * wan.setLatencyMillis(25);
+ * wan.setSessionBytesPerSecond(10 * 1000 * 1000 / 8);
+ * </pre>
+ * 
+ * @author drothauser
+ * 
+ */
+public class WanEmulation {
+
+	/**
+	 * Bandwidth value meaning no cap.
+	 */
+	public static final long UNLIMITED = 0;
+
+	/**
+	 * One way delay in milliseconds.
+	 */
+	private int latencyMillis;
+
+	/**
+	 * Largest random delay in milliseconds added to the latency.
+	 */
+	private int jitterMillis;
+
+	/**
+	 * Bandwidth cap per session and direction in bytes per second.
+	 */
+	private long sessionBytesPerSecond = UNLIMITED;
+
+	/**
+	 * Bandwidth cap shared by all sessions per direction in bytes per second.
+	 */
+	private long globalBytesPerSecond = UNLIMITED;
+
+	/**
+	 * @return one way delay in milliseconds; a round trip takes twice as long
+	 */
+	public int getLatencyMillis() {
+		return latencyMillis;
+	}
+
+	/**
+	 * @param latencyMillis
+	 *            one way delay in milliseconds; a round trip takes twice as
+	 *            long
+	 */
+	public void setLatencyMillis(int latencyMillis) {
+		this.latencyMillis = latencyMillis;
+	}
+
+	/**
+	 * @return largest random delay in milliseconds added to the latency
+	 */
+	public int getJitterMillis() {
+		return jitterMillis;
+	}
+
+	/**
+	 * @param jitterMillis
+	 *            largest random delay in milliseconds added to the latency;
+	 *            data is never reordered
+	 */
+	public void setJitterMillis(int jitterMillis) {
+		this.jitterMillis = jitterMillis;
+	}
+
+	/**
+	 * @return bandwidth cap per session and direction in bytes per second or
+	 *         {@link #UNLIMITED}
+	 */
+	public long getSessionBytesPerSecond() {
+		return sessionBytesPerSecond;
+	}
+
+	/**
+	 * @param sessionBytesPerSecond
+	 *            bandwidth cap per session and direction in bytes per second
+	 *            or {@link #UNLIMITED}
+	 */
+	public void setSessionBytesPerSecond(long sessionBytesPerSecond) {
+		this.sessionBytesPerSecond = sessionBytesPerSecond;
+	}
+
+	/**
+	 * @return bandwidth cap shared by all sessions per direction in bytes per
+	 *         second or {@link #UNLIMITED}
+	 */
+	public long getGlobalBytesPerSecond() {
+		return globalBytesPerSecond;
+	}
+
+	/**
+	 * @param globalBytesPerSecond
+	 *            bandwidth cap shared by all sessions per direction in bytes
+	 *            per second or {@link #UNLIMITED}
+	 */
+	public void setGlobalBytesPerSecond(long globalBytesPerSecond) {
+		this.globalBytesPerSecond = globalBytesPerSecond;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return "WanEmulation [latencyMillis=" + latencyMillis
+		    + ", jitterMillis=" + jitterMillis + ", sessionBytesPerSecond="
+		    + sessionBytesPerSecond + ", globalBytesPerSecond="
+		    + globalBytesPerSecond + "]";
+	}
+
+}
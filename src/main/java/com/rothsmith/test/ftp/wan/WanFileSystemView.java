@@ -0,0 +1,133 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.wan;
+
+import org.apache.ftpserver.ftplet.FileSystemView;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.FtpFile;
+
+/**
+ * File system view of one FTP session whose files are transferred over the
+ * session's {@link WanPath}s.
+ * 
+ * @author drothauser
+ * 
+ */
+class WanFileSystemView
+        implements FileSystemView {
+
+	/**
+	 * The view wrapped.
+	 */
+	private final FileSystemView view;
+
+	/**
+	 * The emulated link.
+	 */
+	private final WanLink link;
+
+	/**
+	 * Upload path of the session.
+	 */
+	private final WanPath inbound;
+
+	/**
+	 * Download path of the session.
+	 */
+	private final WanPath outbound;
+
+	/**
+	 * Constructor for WanFileSystemView.
+	 * 
+	 * @param view
+	 *            the view wrapped
+	 * @param link
+	 *            the emulated link
+	 */
+	WanFileSystemView(FileSystemView view, WanLink link) {
+		this.view = view;
+		this.link = link;
+		inbound = link.createInboundPath();
+		outbound = link.createOutboundPath();
+	}
+
+	/**
+	 * @param file
+	 *            a file of the wrapped view
+	 * @return the file transferred over the session's paths
+	 */
+	FtpFile wrap(FtpFile file) {
+		return file == null ? null : new WanFtpFile(file, this);
+	}
+
+	/**
+	 * @return the emulated link
+	 */
+	WanLink getLink() {
+		return link;
+	}
+
+	/**
+	 * @return upload path of the session
+	 */
+	WanPath getInbound() {
+		return inbound;
+	}
+
+	/**
+	 * @return download path of the session
+	 */
+	WanPath getOutbound() {
+		return outbound;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public FtpFile getHomeDirectory() throws FtpException {
+		return wrap(view.getHomeDirectory());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public FtpFile getWorkingDirectory() throws FtpException {
+		return wrap(view.getWorkingDirectory());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean changeWorkingDirectory(String dir) throws FtpException {
+		return view.changeWorkingDirectory(dir);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public FtpFile getFile(String file) throws FtpException {
+		return wrap(view.getFile(file));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isRandomAccessible() throws FtpException {
+		return view.isRandomAccessible();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void dispose() {
+		view.dispose();
+	}
+
+}
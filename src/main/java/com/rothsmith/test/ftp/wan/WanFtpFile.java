@@ -0,0 +1,242 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.wan;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ftpserver.ftplet.FtpFile;
+
+/**
+ * File whose content is transferred over the {@link WanPath}s of its FTP
+ * session.
+ * 
+ * @author drothauser
+ * 
+ */
+class WanFtpFile
+        implements FtpFile {
+
+	/**
+	 * The file wrapped.
+	 */
+	private final FtpFile file;
+
+	/**
+	 * View of the session.
+	 */
+	private final WanFileSystemView view;
+
+	/**
+	 * Constructor for WanFtpFile.
+	 * 
+	 * @param file
+	 *            the file wrapped
+	 * @param view
+	 *            view of the session
+	 */
+	WanFtpFile(FtpFile file, WanFileSystemView view) {
+		this.file = file;
+		this.view = view;
+	}
+
+	/**
+	 * Open the file for a download, paying a round trip for the data
+	 * connection.
+	 * 
+	 * @param offset
+	 *            {@inheritDoc}
+	 * @return {@inheritDoc}
+	 * @throws IOException
+	 *             {@inheritDoc}
+	 */
+	@Override
+	public InputStream createInputStream(long offset) throws IOException {
+		view.getLink().sleepRoundTrip();
+		InputStream in = file.createInputStream(offset);
+		return new PacedInputStream(in, view.getOutbound());
+	}
+
+	/**
+	 * Open the file for an upload, paying a round trip for the data
+	 * connection.
+	 * 
+	 * @param offset
+	 *            {@inheritDoc}
+	 * @return {@inheritDoc}
+	 * @throws IOException
+	 *             {@inheritDoc}
+	 */
+	@Override
+	public OutputStream createOutputStream(long offset) throws IOException {
+		view.getLink().sleepRoundTrip();
+		OutputStream out = file.createOutputStream(offset);
+		return new PacedOutputStream(out, view.getInbound());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean move(FtpFile destination) {
+		return file.move(destination instanceof WanFtpFile
+		    ? ((WanFtpFile) destination).file : destination);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<FtpFile> listFiles() {
+		List<FtpFile> files = file.listFiles();
+		if (files == null) {
+			return null;
+		}
+		List<FtpFile> wrapped = new ArrayList<FtpFile>(files.size());
+		for (FtpFile each : files) {
+			wrapped.add(view.wrap(each));
+		}
+		return wrapped;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getAbsolutePath() {
+		return file.getAbsolutePath();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getName() {
+		return file.getName();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isHidden() {
+		return file.isHidden();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isDirectory() {
+		return file.isDirectory();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isFile() {
+		return file.isFile();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean doesExist() {
+		return file.doesExist();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isReadable() {
+		return file.isReadable();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isWritable() {
+		return file.isWritable();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isRemovable() {
+		return file.isRemovable();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getOwnerName() {
+		return file.getOwnerName();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getGroupName() {
+		return file.getGroupName();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getLinkCount() {
+		return file.getLinkCount();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getLastModified() {
+		return file.getLastModified();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean setLastModified(long time) {
+		return file.setLastModified(time);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getSize() {
+		return file.getSize();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean mkdir() {
+		return file.mkdir();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean delete() {
+		return file.delete();
+	}
+
+}
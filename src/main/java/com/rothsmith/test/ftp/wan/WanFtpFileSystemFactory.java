@@ -0,0 +1,62 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.wan;
+
+import org.apache.ftpserver.ftplet.FileSystemFactory;
+import org.apache.ftpserver.ftplet.FileSystemView;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.User;
+
+/**
+ * File system of an FTP server whose file transfers pass an emulated link:
+ * opening a file for transfer costs a round trip, like setting up a data
+ * connection, and the data is paced to the session and global bandwidth
+ * caps. Every login gets its own session paths.
+ * 
+ * @author drothauser
+ * 
+ */
+public class WanFtpFileSystemFactory
+        implements FileSystemFactory {
+
+	/**
+	 * File system the files are kept in.
+	 */
+	private final FileSystemFactory fileSystem;
+
+	/**
+	 * The emulated link.
+	 */
+	private final WanLink link;
+
+	/**
+	 * Constructor for WanFtpFileSystemFactory.
+	 * 
+	 * @param fileSystem
+	 *            file system the files are kept in
+	 * @param link
+	 *            the emulated link
+	 */
+	public WanFtpFileSystemFactory(FileSystemFactory fileSystem, WanLink link) {
+		this.fileSystem = fileSystem;
+		this.link = link;
+	}
+
+	/**
+	 * @return file system the files are kept in
+	 */
+	public FileSystemFactory getFileSystem() {
+		return fileSystem;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public FileSystemView createFileSystemView(User user) throws FtpException {
+		return new WanFileSystemView(fileSystem.createFileSystemView(user),
+		    link);
+	}
+
+}
@@ -0,0 +1,51 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.wan;
+
+import java.io.IOException;
+
+import org.apache.ftpserver.ftplet.DefaultFtplet;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.FtpRequest;
+import org.apache.ftpserver.ftplet.FtpSession;
+import org.apache.ftpserver.ftplet.FtpletResult;
+
+/**
+ * Ftplet that delays every FTP command by a round trip of a {@link WanLink},
+ * emulating the latency of the control connection. FTP commands are answered
+ * one at a time, so this is what a client sees over a real link.
+ * 
+ * @author drothauser
+ * 
+ */
+public class WanFtplet
+        extends DefaultFtplet {
+
+	/**
+	 * The emulated link.
+	 */
+	private final WanLink link;
+
+	/**
+	 * Constructor for WanFtplet.
+	 * 
+	 * @param link
+	 *            the emulated link
+	 */
+	public WanFtplet(WanLink link) {
+		super();
+		this.link = link;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public FtpletResult beforeCommand(FtpSession session, FtpRequest request)
+	        throws FtpException, IOException {
+		link.sleepRoundTrip();
+		return FtpletResult.DEFAULT;
+	}
+
+}
@@ -0,0 +1,136 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.wan;
+
+import org.apache.sshd.common.io.IoHandler;
+import org.apache.sshd.common.io.IoSession;
+import org.apache.sshd.common.util.Buffer;
+import org.apache.sshd.common.util.Readable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hands the SSH sessions a {@link WanIoSession} instead of the socket session
+ * and delays the data received from the client on the session's inbound
+ * {@link WanPath}.
+ * 
+ * @author drothauser
+ * 
+ */
+class WanIoHandler
+        implements IoHandler {
+
+	/**
+	 * SLF4J Logger for WanIoHandler.
+	 */
+	private static final Logger LOGGER = LoggerFactory
+	    .getLogger(WanIoHandler.class);
+
+	/**
+	 * Attribute of the socket session holding its {@link WanIoSession}.
+	 */
+	private static final String WAN_SESSION = WanIoSession.class.getName();
+
+	/**
+	 * Handler of the SSH server.
+	 */
+	private final IoHandler handler;
+
+	/**
+	 * The emulated link.
+	 */
+	private final WanLink link;
+
+	/**
+	 * Constructor for WanIoHandler.
+	 * 
+	 * @param handler
+	 *            handler of the SSH server
+	 * @param link
+	 *            the emulated link
+	 */
+	WanIoHandler(IoHandler handler, WanLink link) {
+		this.handler = handler;
+		this.link = link;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
+	public void sessionCreated(IoSession session) throws Exception {
+		WanIoSession wanSession = new WanIoSession(session, link);
+		session.setAttribute(WAN_SESSION, wanSession);
+		handler.sessionCreated(wanSession);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
+	public void sessionClosed(IoSession session) throws Exception {
+		final WanIoSession wanSession = wanSession(session);
+		wanSession.getInbound().send(0, new Runnable() {
+			@Override
+			public void run() {
+				try {
+					handler.sessionClosed(wanSession);
+				} catch (Exception e) { // NOPMD handlers throw Exception
+					LOGGER.warn("Could not close SSH session: " + e, e);
+				}
+			}
+		});
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
+	public void exceptionCaught(IoSession session, Throwable cause)
+	        throws Exception {
+		handler.exceptionCaught(wanSession(session), cause);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
+	public void messageReceived(IoSession session, Readable message)
+	        throws Exception {
+		final WanIoSession wanSession = wanSession(session);
+		// the transport reuses its read buffer, so keep a copy
+		byte[] data = new byte[message.available()];
+		message.getRawBytes(data, 0, data.length);
+		final Buffer copy = new Buffer(data);
+		wanSession.getInbound().send(data.length, new Runnable() {
+			@Override
+			public void run() {
+				try {
+					handler.messageReceived(wanSession, copy);
+				} catch (Exception e) { // NOPMD handlers throw Exception
+					try {
+						handler.exceptionCaught(wanSession, e);
+					} catch (Exception nested) { // NOPMD
+						LOGGER.warn("Could not handle SSH error: " + nested,
+						    nested);
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * @param session
+	 *            socket session
+	 * @return its {@link WanIoSession}
+	 */
+	private static WanIoSession wanSession(IoSession session) {
+		return (WanIoSession) session.getAttribute(WAN_SESSION);
+	}
+
+}
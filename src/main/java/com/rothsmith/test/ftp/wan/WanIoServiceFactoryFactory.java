@@ -0,0 +1,79 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.wan;
+
+import org.apache.sshd.common.FactoryManager;
+import org.apache.sshd.common.future.CloseFuture;
+import org.apache.sshd.common.io.DefaultIoServiceFactoryFactory;
+import org.apache.sshd.common.io.IoAcceptor;
+import org.apache.sshd.common.io.IoConnector;
+import org.apache.sshd.common.io.IoHandler;
+import org.apache.sshd.common.io.IoServiceFactory;
+import org.apache.sshd.common.io.IoServiceFactoryFactory;
+
+/**
+ * Transport of an SSH server over an emulated link: every accepted
+ * connection is slowed down by a {@link WanLink}, so the key exchange,
+ * authentication, SFTP and SCP all see its latency and bandwidth. Install it
+ * with {@code SshServer.setIoServiceFactoryFactory} before the server starts.
+ * Outgoing client connections are not affected.
+ * 
+ * @author drothauser
+ * 
+ */
+public class WanIoServiceFactoryFactory
+        implements IoServiceFactoryFactory {
+
+	/**
+	 * The emulated link.
+	 */
+	private final WanLink link;
+
+	/**
+	 * Constructor for WanIoServiceFactoryFactory.
+	 * 
+	 * @param link
+	 *            the emulated link
+	 */
+	public WanIoServiceFactoryFactory(WanLink link) {
+		this.link = link;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public IoServiceFactory create(FactoryManager manager) {
+		final IoServiceFactory transport =
+		    new DefaultIoServiceFactoryFactory().create(manager);
+		return new IoServiceFactory() {
+
+			@Override
+			public IoAcceptor createAcceptor(IoHandler handler) {
+				return transport.createAcceptor(new WanIoHandler(handler, link));
+			}
+
+			@Override
+			public IoConnector createConnector(IoHandler handler) {
+				return transport.createConnector(handler);
+			}
+
+			@Override
+			public CloseFuture close(boolean immediately) {
+				return transport.close(immediately);
+			}
+
+			@Override
+			public boolean isClosed() {
+				return transport.isClosed();
+			}
+
+			@Override
+			public boolean isClosing() {
+				return transport.isClosing();
+			}
+		};
+	}
+
+}
@@ -0,0 +1,229 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.wan;
+
+import java.net.SocketAddress;
+
+import org.apache.sshd.common.SshException;
+import org.apache.sshd.common.future.CloseFuture;
+import org.apache.sshd.common.future.DefaultCloseFuture;
+import org.apache.sshd.common.future.DefaultSshFuture;
+import org.apache.sshd.common.future.SshFutureListener;
+import org.apache.sshd.common.io.IoService;
+import org.apache.sshd.common.io.IoSession;
+import org.apache.sshd.common.io.IoWriteFuture;
+import org.apache.sshd.common.util.Buffer;
+
+/**
+ * Socket session of an SSH server whose writes are delayed on the session's
+ * outbound {@link WanPath}. A graceful close waits for the delayed writes.
+ * 
+ * @author drothauser
+ * 
+ */
+class WanIoSession
+        implements IoSession {
+
+	/**
+	 * The socket session.
+	 */
+	private final IoSession session;
+
+	/**
+	 * Client to server path.
+	 */
+	private final WanPath inbound;
+
+	/**
+	 * Server to client path.
+	 */
+	private final WanPath outbound;
+
+	/**
+	 * Constructor for WanIoSession.
+	 * 
+	 * @param session
+	 *            the socket session
+	 * @param link
+	 *            the emulated link
+	 */
+	WanIoSession(IoSession session, WanLink link) {
+		this.session = session;
+		inbound = link.createInboundPath();
+		outbound = link.createOutboundPath();
+	}
+
+	/**
+	 * @return client to server path
+	 */
+	WanPath getInbound() {
+		return inbound;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public IoWriteFuture write(Buffer buffer) {
+		byte[] data = new byte[buffer.available()];
+		System.arraycopy(buffer.array(), buffer.rpos(), data, 0, data.length);
+		final Buffer copy = new Buffer(data);
+		final WriteFuture future = new WriteFuture(null);
+		outbound.send(data.length, new Runnable() {
+			@Override
+			public void run() {
+				session.write(copy).addListener(
+				    new SshFutureListener<IoWriteFuture>() {
+					    @Override
+					    public void operationComplete(IoWriteFuture written) {
+						    future.setValue(written.isWritten() ? Boolean.TRUE
+						        : written.getException());
+					    }
+				    });
+			}
+		});
+		return future;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public CloseFuture close(boolean immediately) {
+		if (immediately) {
+			return session.close(true);
+		}
+		final CloseFuture future = new DefaultCloseFuture(null);
+		outbound.send(0, new Runnable() {
+			@Override
+			public void run() {
+				session.close(false).addListener(
+				    new SshFutureListener<CloseFuture>() {
+					    @Override
+					    public void operationComplete(CloseFuture closed) {
+						    future.setClosed();
+					    }
+				    });
+			}
+		});
+		return future;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isClosed() {
+		return session.isClosed();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isClosing() {
+		return session.isClosing();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getId() {
+		return session.getId();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Object getAttribute(Object key) {
+		return session.getAttribute(key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Object setAttribute(Object key, Object value) {
+		return session.setAttribute(key, value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public SocketAddress getRemoteAddress() {
+		return session.getRemoteAddress();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public SocketAddress getLocalAddress() {
+		return session.getLocalAddress();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public IoService getService() {
+		return session.getService();
+	}
+
+	/**
+	 * Write future completed once the delayed write has been done.
+	 */
+	private static final class WriteFuture
+	        extends DefaultSshFuture<IoWriteFuture>
+	        implements IoWriteFuture {
+
+		/**
+		 * Constructor for WriteFuture.
+		 * 
+		 * @param lock
+		 *            object to synchronize on
+		 */
+		WriteFuture(Object lock) {
+			super(lock);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void verify() throws SshException {
+			try {
+				await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new SshException("Interrupted", e);
+			}
+			if (!isWritten()) {
+				throw new SshException("Write failed", getException());
+			}
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean isWritten() {
+			return Boolean.TRUE.equals(getValue());
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Throwable getException() {
+			Object value = getValue();
+			return value instanceof Throwable ? (Throwable) value : null;
+		}
+
+	}
+
+}
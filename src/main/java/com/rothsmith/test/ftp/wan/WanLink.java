@@ -0,0 +1,172 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.wan;
+
+import java.io.InterruptedIOException;
+import java.util.Random;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The emulated link of one server: the bandwidth shared by all its sessions,
+ * the latency and the threads that deliver delayed data. Each session gets
+ * its own {@link WanPath} per direction.
+ * 
+ * @author drothauser
+ * 
+ */
+public class WanLink {
+
+	/**
+	 * Threads delivering delayed data.
+	 */
+	private static final int DELIVERY_THREADS = 4;
+
+	/**
+	 * Seconds an idle delivery thread is kept.
+	 */
+	private static final long KEEP_ALIVE_SECONDS = 5;
+
+	/**
+	 * Numbers the delivery threads of all links.
+	 */
+	private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+	/**
+	 * Link settings.
+	 */
+	private final WanEmulation settings;
+
+	/**
+	 * Bandwidth of the client to server direction shared by all sessions.
+	 */
+	private final BandwidthLimiter globalInbound;
+
+	/**
+	 * Bandwidth of the server to client direction shared by all sessions.
+	 */
+	private final BandwidthLimiter globalOutbound;
+
+	/**
+	 * Source of the jitter.
+	 */
+	private final Random random = new Random();
+
+	/**
+	 * Delivers delayed data.
+	 */
+	private final ScheduledThreadPoolExecutor scheduler;
+
+	/**
+	 * Constructor for WanLink.
+	 * 
+	 * @param settings
+	 *            link settings
+	 */
+	public WanLink(WanEmulation settings) {
+		this.settings = settings;
+		globalInbound =
+		    new BandwidthLimiter(settings.getGlobalBytesPerSecond());
+		globalOutbound =
+		    new BandwidthLimiter(settings.getGlobalBytesPerSecond());
+		scheduler =
+		    new ScheduledThreadPoolExecutor(DELIVERY_THREADS,
+		        new ThreadFactory() {
+			        @Override
+			        public Thread newThread(Runnable runnable) {
+				        Thread thread =
+				            new Thread(runnable, "wan-delivery-"
+				                + THREAD_NUMBER.incrementAndGet());
+				        thread.setDaemon(true);
+				        return thread;
+			        }
+		        });
+		scheduler.setKeepAliveTime(KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+		scheduler.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * @return link settings
+	 */
+	public WanEmulation getSettings() {
+		return settings;
+	}
+
+	/**
+	 * @return a new client to server path of one session
+	 */
+	public WanPath createInboundPath() {
+		return new WanPath(this, globalInbound, new BandwidthLimiter(
+		    settings.getSessionBytesPerSecond()));
+	}
+
+	/**
+	 * @return a new server to client path of one session
+	 */
+	public WanPath createOutboundPath() {
+		return new WanPath(this, globalOutbound, new BandwidthLimiter(
+		    settings.getSessionBytesPerSecond()));
+	}
+
+	/**
+	 * @return the one way latency plus a random jitter in nanoseconds
+	 */
+	long nextLatencyNanos() {
+		long latency = TimeUnit.MILLISECONDS.toNanos(settings.getLatencyMillis());
+		int jitter = settings.getJitterMillis();
+		if (jitter > 0) {
+			int jitterMicros =
+			    random.nextInt((int) TimeUnit.MILLISECONDS.toMicros(jitter) + 1);
+			latency += TimeUnit.MICROSECONDS.toNanos(jitterMicros);
+		}
+		return latency;
+	}
+
+	/**
+	 * Block the calling thread for a round trip, i.e. twice the latency.
+	 * 
+	 * @throws InterruptedIOException
+	 *             if the thread was interrupted
+	 */
+	public void sleepRoundTrip() throws InterruptedIOException {
+		sleepUntil(System.nanoTime() + nextLatencyNanos() + nextLatencyNanos());
+	}
+
+	/**
+	 * Run an action at a given time.
+	 * 
+	 * @param action
+	 *            the action
+	 * @param at
+	 *            when, in {@link System#nanoTime()} terms
+	 */
+	void schedule(Runnable action, long at) {
+		scheduler.schedule(action, at - System.nanoTime(),
+		    TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Block the calling thread until a given time.
+	 * 
+	 * @param at
+	 *            when, in {@link System#nanoTime()} terms
+	 * @throws InterruptedIOException
+	 *             if the thread was interrupted
+	 */
+	static void sleepUntil(long at) throws InterruptedIOException {
+		long remaining = at - System.nanoTime();
+		while (remaining > 0) {
+			try {
+				TimeUnit.NANOSECONDS.sleep(remaining);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted by WAN emulation");
+			}
+			remaining = at - System.nanoTime();
+		}
+	}
+
+}
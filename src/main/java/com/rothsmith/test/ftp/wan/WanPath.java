@@ -0,0 +1,194 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.wan;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * One direction of one session over an emulated link. Data is held back for
+ * as long as the session and the link bandwidth require plus the latency, and
+ * is delivered in the order it was sent.
+ * 
+ * @author drothauser
+ * 
+ */
+public class WanPath {
+
+	/**
+	 * SLF4J Logger for WanPath.
+	 */
+	private static final Logger LOGGER = LoggerFactory.getLogger(WanPath.class);
+
+	/**
+	 * The link.
+	 */
+	private final WanLink link;
+
+	/**
+	 * Bandwidth shared by all sessions.
+	 */
+	private final BandwidthLimiter global;
+
+	/**
+	 * Bandwidth of this session.
+	 */
+	private final BandwidthLimiter session;
+
+	/**
+	 * Guards the delivery queue.
+	 */
+	private final Object lock = new Object();
+
+	/**
+	 * Actions waiting for delivery, in delivery order.
+	 */
+	private final Queue<Delivery> deliveries = new ArrayDeque<Delivery>();
+
+	/**
+	 * When the last queued action is delivered.
+	 */
+	private long lastDelivery = System.nanoTime();
+
+	/**
+	 * Whether a thread is delivering.
+	 */
+	private boolean delivering;
+
+	/**
+	 * Constructor for WanPath.
+	 * 
+	 * @param link
+	 *            the link
+	 * @param global
+	 *            bandwidth shared by all sessions
+	 * @param session
+	 *            bandwidth of this session
+	 */
+	WanPath(WanLink link, BandwidthLimiter global, BandwidthLimiter session) {
+		this.link = link;
+		this.global = global;
+		this.session = session;
+	}
+
+	/**
+	 * Deliver data asynchronously once it has passed the link, e.g. by
+	 * writing it to a socket. Actions are run in the order they were sent.
+	 * 
+	 * @param bytes
+	 *            size of the data
+	 * @param action
+	 *            delivers the data
+	 */
+	public void send(int bytes, Runnable action) {
+		long now = System.nanoTime();
+		long transmitted = transmit(now, bytes);
+		long at;
+		synchronized (lock) {
+			at = transmitted + link.nextLatencyNanos();
+			if (at - lastDelivery < 0) {
+				at = lastDelivery;
+			}
+			lastDelivery = at;
+			deliveries.add(new Delivery(at, action));
+		}
+		link.schedule(new Runnable() {
+			@Override
+			public void run() {
+				deliver();
+			}
+		}, at);
+	}
+
+	/**
+	 * Block the calling thread until data has passed the bandwidth caps, for
+	 * streams whose latency is paid once up front.
+	 * 
+	 * @param bytes
+	 *            size of the data
+	 * @throws InterruptedIOException
+	 *             if the thread was interrupted
+	 */
+	public void pace(int bytes) throws InterruptedIOException {
+		WanLink.sleepUntil(transmit(System.nanoTime(), bytes));
+	}
+
+	/**
+	 * Reserve both bandwidth caps.
+	 * 
+	 * @param now
+	 *            current {@link System#nanoTime()}
+	 * @param bytes
+	 *            size of the data
+	 * @return when the data has passed the link
+	 */
+	private long transmit(long now, int bytes) {
+		long sessionDone = session.reserve(now, bytes);
+		long globalDone = global.reserve(now, bytes);
+		return globalDone - sessionDone > 0 ? globalDone : sessionDone;
+	}
+
+	/**
+	 * Run the actions that are due, one thread at a time and in order.
+	 */
+	private void deliver() {
+		synchronized (lock) {
+			if (delivering) {
+				return;
+			}
+			delivering = true;
+		}
+		while (true) {
+			Delivery next;
+			synchronized (lock) {
+				next = deliveries.peek();
+				if (next == null || next.at - System.nanoTime() > 0) {
+					delivering = false;
+					return;
+				}
+				deliveries.remove();
+			}
+			try {
+				next.action.run();
+			} catch (RuntimeException e) {
+				LOGGER.warn("Delayed delivery failed: " + e, e);
+			}
+		}
+	}
+
+	/**
+	 * An action and when to run it.
+	 */
+	private static final class Delivery {
+
+		/**
+		 * When to run the action, in {@link System#nanoTime()} terms.
+		 */
+		private final long at;
+
+		/**
+		 * The action.
+		 */
+		private final Runnable action;
+
+		/**
+		 * Constructor for Delivery.
+		 * 
+		 * @param at
+		 *            when to run the action
+		 * @param action
+		 *            the action
+		 */
+		Delivery(long at, Runnable action) {
+			this.at = at;
+			this.action = action;
+		}
+
+	}
+
+}
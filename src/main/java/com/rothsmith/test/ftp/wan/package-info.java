@@ -0,0 +1,7 @@
+/**
+ * WAN emulation for the FTP test servers: latency, jitter and bandwidth caps
+ * so that clients can be tuned against realistic links on one machine.
+ * 
+ * @author drothauser
+ */
+package com.rothsmith.test.ftp.wan;
@@ -0,0 +1,105 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.integration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Results of all jobs of an {@link IntegrationBatch} run, in the order the
+ * jobs finished, and the wall time of the whole run.
+ *
+ * @author drothauser
+ *
+ */
+public final class BatchSummary {
+
+	/**
+	 * Results in the order the jobs finished.
+	 */
+	private final List<JobResult> results;
+
+	/**
+	 * Wall time of the whole run in milliseconds.
+	 */
+	private final long wallMillis;
+
+	/**
+	 * Constructor for BatchSummary.
+	 *
+	 * @param results
+	 *            results in the order the jobs finished
+	 * @param wallMillis
+	 *            wall time of the whole run in milliseconds
+	 */
+	BatchSummary(List<JobResult> results, long wallMillis) {
+		this.results =
+		    Collections.unmodifiableList(new ArrayList<JobResult>(results));
+		this.wallMillis = wallMillis;
+	}
+
+	/**
+	 * @return results in the order the jobs finished
+	 */
+	public List<JobResult> getResults() {
+		return results;
+	}
+
+	/**
+	 * @return results of the jobs that did not succeed
+	 */
+	public List<JobResult> getFailures() {
+		List<JobResult> failures = new ArrayList<JobResult>();
+		for (JobResult result : results) {
+			if (!result.isSuccess()) {
+				failures.add(result);
+			}
+		}
+		return failures;
+	}
+
+	/**
+	 * @return whether every job succeeded
+	 */
+	public boolean isSuccess() {
+		return getFailures().isEmpty();
+	}
+
+	/**
+	 * @return wall time of the whole run in milliseconds
+	 */
+	public long getWallMillis() {
+		return wallMillis;
+	}
+
+	/**
+	 * @return sum of the wall times of the jobs in milliseconds, i.e. how long
+	 *         the jobs would have taken one after another
+	 */
+	public long getJobMillis() {
+		long millis = 0;
+		for (JobResult result : results) {
+			millis += result.getWallMillis();
+		}
+		return millis;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(results.size()).append(" jobs, ")
+		    .append(getFailures().size()).append(" failed, ")
+		    .append(wallMillis).append(" ms (").append(getJobMillis())
+		    .append(" ms of jobs)");
+		for (JobResult result : results) {
+			sb.append('\n').append(result);
+		}
+		return sb.toString();
+	}
+
+}
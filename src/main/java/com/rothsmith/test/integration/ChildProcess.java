@@ -0,0 +1,474 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.integration;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * A command started in the background by
+ * {@link IntegrationTestUtils#launch(List, java.io.File, ProcessOptions)}.
+ * Instead of sleeping until a server started this way is probably up, wait
+ * for the line it prints once it is:
+ *
+ * <pre>
+ * ChildProcess server = IntegrationTestUtils.launch(cmdList, workingDir,
+ *     new ProcessOptions());
+ * server.awaitOutput(&quot;Started SSH Server&quot;, 30, TimeUnit.SECONDS);
+ * ...
+ * server.stop();
+ * </pre>
+ *
+ * A pattern matches a line if it is found anywhere in it. The last lines
+ * printed before the wait started are matched too, as many as the tail size
+ * of the options. The process keeps running until it exits or is stopped;
+ * the timeout of the options does not apply.
+ *
+ * @author drothauser
+ *
+ */
+public final class ChildProcess
+        implements Closeable {
+
+	/**
+	 * Number of the next exit watcher thread.
+	 */
+	private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+	/**
+	 * The command and its arguments.
+	 */
+	private final List<String> cmdList;
+
+	/**
+	 * The running process.
+	 */
+	private final Process process;
+
+	/**
+	 * Receives every line as well, may be null.
+	 */
+	private final LineSink sink;
+
+	/**
+	 * Maximum number of recent lines kept for waits that start late.
+	 */
+	private final int tailLines;
+
+	/**
+	 * Time the process was started in milliseconds.
+	 */
+	private final long startTime;
+
+	/**
+	 * Guards the recent lines, the waiters and the exited flag.
+	 */
+	private final Object lock = new Object();
+
+	/**
+	 * Last lines of both streams, oldest first.
+	 */
+	private final Deque<Line> recent = new ArrayDeque<Line>();
+
+	/**
+	 * Waits for a matching line.
+	 */
+	private final List<Waiter> waiters = new ArrayList<Waiter>();
+
+	/**
+	 * Result, completed once the process has exited.
+	 */
+	private final CompletableFuture<ProcessResult> exit =
+	    new CompletableFuture<ProcessResult>();
+
+	/**
+	 * Whether the output has ended.
+	 */
+	private boolean exited;
+
+	/**
+	 * Constructor for ChildProcess. Starts reading the output of the process.
+	 *
+	 * @param cmdList
+	 *            the command and its arguments
+	 * @param process
+	 *            the started process
+	 * @param options
+	 *            line sink and tail size
+	 */
+	ChildProcess(List<String> cmdList, Process process,
+	    ProcessOptions options) {
+		this.cmdList = cmdList;
+		this.process = process;
+		this.sink = options.getSink();
+		this.tailLines = options.getTailLines();
+		this.startTime = System.currentTimeMillis();
+		final long start = System.nanoTime();
+		LineSink matcher = new LineSink() {
+			@Override
+			public void line(ProcessStream stream, String line) {
+				matchLine(stream, line);
+			}
+		};
+		final OutputDrainer stdout =
+		    new OutputDrainer(process.getInputStream(), ProcessStream.STDOUT,
+		        matcher, tailLines);
+		final OutputDrainer stderr =
+		    new OutputDrainer(process.getErrorStream(), ProcessStream.STDERR,
+		        matcher, tailLines);
+		stdout.start();
+		stderr.start();
+		Thread watcher = new Thread("process-exit-"
+		    + THREAD_NUMBER.incrementAndGet()) {
+			@Override
+			public void run() {
+				awaitExit(start, stdout, stderr);
+			}
+		};
+		watcher.setDaemon(true);
+		watcher.start();
+	}
+
+	/**
+	 * Wait for a line matching a regular expression.
+	 *
+	 * @param regex
+	 *            regular expression found in the line
+	 * @param streams
+	 *            streams to match, none for both
+	 * @return a future completed with the first matching line, or completed
+	 *         exceptionally with an {@link IOException} if the process exits
+	 *         first
+	 */
+	public CompletableFuture<String> awaitOutput(String regex,
+	    ProcessStream... streams) {
+		return register(regex, streams).future;
+	}
+
+	/**
+	 * Wait for a line matching a regular expression.
+	 *
+	 * @param regex
+	 *            regular expression found in the line
+	 * @param timeout
+	 *            maximum time to wait
+	 * @param unit
+	 *            unit of the timeout
+	 * @param streams
+	 *            streams to match, none for both
+	 * @return the first matching line
+	 * @throws IOException
+	 *             if the process exits before printing a matching line
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 * @throws TimeoutException
+	 *             if no matching line was printed in time
+	 */
+	public String awaitOutput(String regex, long timeout, TimeUnit unit,
+	    ProcessStream... streams) throws IOException, InterruptedException,
+	        TimeoutException {
+		Waiter waiter = register(regex, streams);
+		try {
+			return waiter.future.get(timeout, unit);
+		} catch (ExecutionException e) {
+			throw new IOException(e.getCause().getMessage(), e.getCause());
+		} finally {
+			synchronized (lock) {
+				waiters.remove(waiter);
+			}
+		}
+	}
+
+	/**
+	 * @return whether the process is still running
+	 */
+	public boolean isAlive() {
+		return process.isAlive();
+	}
+
+	/**
+	 * @return the running process
+	 */
+	public Process getProcess() {
+		return process;
+	}
+
+	/**
+	 * @return time the process was started in milliseconds
+	 */
+	public long getStartTime() {
+		return startTime;
+	}
+
+	/**
+	 * @return a future completed with the result once the process has exited
+	 *         and its output has been read
+	 */
+	public CompletableFuture<ProcessResult> onExit() {
+		return exit;
+	}
+
+	/**
+	 * Wait for the process to exit by itself.
+	 *
+	 * @param timeout
+	 *            maximum time to wait
+	 * @param unit
+	 *            unit of the timeout
+	 * @return exit code, timings and the last lines of output
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 * @throws TimeoutException
+	 *             if the process is still running
+	 */
+	public ProcessResult waitFor(long timeout, TimeUnit unit)
+	        throws InterruptedException, TimeoutException {
+		try {
+			return exit.get(timeout, unit);
+		} catch (ExecutionException e) {
+			// the result is never completed exceptionally
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	/**
+	 * Stop the process, forcibly if it does not terminate within two
+	 * seconds, and wait for it to exit.
+	 *
+	 * @return exit code, timings and the last lines of output
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 */
+	public ProcessResult stop() throws InterruptedException {
+		IntegrationTestUtils.kill(process);
+		try {
+			return exit.get();
+		} catch (ExecutionException e) {
+			// the result is never completed exceptionally
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	/**
+	 * Stop the process. See {@link #stop()}.
+	 *
+	 * @throws IOException
+	 *             if interrupted while waiting
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			stop();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted stopping "
+			    + cmdList);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return "ChildProcess" + cmdList;
+	}
+
+	/**
+	 * Add a waiter, completed at once if a recent line matches.
+	 *
+	 * @param regex
+	 *            regular expression found in the line
+	 * @param streams
+	 *            streams to match, none for both
+	 * @return the waiter
+	 */
+	private Waiter register(String regex, ProcessStream... streams) {
+		Waiter waiter = new Waiter(Pattern.compile(regex), streams);
+		synchronized (lock) {
+			for (Line line : recent) {
+				if (waiter.matches(line.stream, line.text)) {
+					waiter.future.complete(line.text);
+					return waiter;
+				}
+			}
+			if (exited) {
+				waiter.future.completeExceptionally(waiter.exited());
+			} else {
+				waiters.add(waiter);
+			}
+		}
+		return waiter;
+	}
+
+	/**
+	 * Keep a line and complete the waiters it matches.
+	 *
+	 * @param stream
+	 *            stream the line was read from
+	 * @param text
+	 *            the line
+	 */
+	private void matchLine(ProcessStream stream, String text) {
+		List<Waiter> matched = new ArrayList<Waiter>();
+		synchronized (lock) {
+			if (tailLines > 0) {
+				if (recent.size() >= tailLines) {
+					recent.removeFirst();
+				}
+				recent.addLast(new Line(stream, text));
+			}
+			for (Iterator<Waiter> it = waiters.iterator(); it.hasNext();) {
+				Waiter waiter = it.next();
+				if (waiter.matches(stream, text)) {
+					it.remove();
+					matched.add(waiter);
+				}
+			}
+		}
+		for (Waiter waiter : matched) {
+			waiter.future.complete(text);
+		}
+		if (sink != null) {
+			sink.line(stream, text);
+		}
+	}
+
+	/**
+	 * Wait for the process to exit and its output to end, then fail the
+	 * remaining waiters and complete the result. Runs on the exit watcher
+	 * thread.
+	 *
+	 * @param start
+	 *            {@link System#nanoTime()} at start
+	 * @param stdout
+	 *            drainer of standard output
+	 * @param stderr
+	 *            drainer of standard error
+	 */
+	private void awaitExit(long start, OutputDrainer stdout,
+	    OutputDrainer stderr) {
+		try {
+			process.waitFor();
+			long elapsedMillis =
+			    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			stdout.join(IntegrationTestUtils.DRAIN_MILLIS);
+			stderr.join(IntegrationTestUtils.DRAIN_MILLIS);
+			List<Waiter> failed;
+			synchronized (lock) {
+				exited = true;
+				failed = new ArrayList<Waiter>(waiters);
+				waiters.clear();
+			}
+			for (Waiter waiter : failed) {
+				waiter.future.completeExceptionally(waiter.exited());
+			}
+			exit.complete(new ProcessResult(process.exitValue(), false,
+			    startTime, elapsedMillis, stdout, stderr));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * A line of output.
+	 */
+	private static final class Line {
+
+		/**
+		 * Stream the line was read from.
+		 */
+		private final ProcessStream stream;
+
+		/**
+		 * The line.
+		 */
+		private final String text;
+
+		/**
+		 * Constructor for Line.
+		 *
+		 * @param stream
+		 *            stream the line was read from
+		 * @param text
+		 *            the line
+		 */
+		Line(ProcessStream stream, String text) {
+			this.stream = stream;
+			this.text = text;
+		}
+	}
+
+	/**
+	 * A wait for a matching line.
+	 */
+	private final class Waiter {
+
+		/**
+		 * Pattern found in the line.
+		 */
+		private final Pattern pattern;
+
+		/**
+		 * Streams matched.
+		 */
+		private final Set<ProcessStream> streams;
+
+		/**
+		 * Completed with the matching line.
+		 */
+		private final CompletableFuture<String> future =
+		    new CompletableFuture<String>();
+
+		/**
+		 * Constructor for Waiter.
+		 *
+		 * @param pattern
+		 *            pattern found in the line
+		 * @param streams
+		 *            streams matched, none for both
+		 */
+		Waiter(Pattern pattern, ProcessStream... streams) {
+			this.pattern = pattern;
+			this.streams =
+			    streams.length == 0 ? EnumSet.allOf(ProcessStream.class)
+			        : EnumSet.copyOf(Arrays.asList(streams));
+		}
+
+		/**
+		 * @param stream
+		 *            stream the line was read from
+		 * @param text
+		 *            the line
+		 * @return whether the line matches
+		 */
+		boolean matches(ProcessStream stream, String text) {
+			return streams.contains(stream) && pattern.matcher(text).find();
+		}
+
+		/**
+		 * @return the error the wait fails with when the process exits first
+		 */
+		IOException exited() {
+			return new IOException(cmdList + " exited before printing a line"
+			    + " matching " + pattern);
+		}
+	}
+
+}
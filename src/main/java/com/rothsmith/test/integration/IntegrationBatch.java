@@ -0,0 +1,209 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.integration;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs many {@link IntegrationJob}s in parallel, each with
+ * {@link IntegrationTestUtils#runIntegrationTest(List, java.io.File, ProcessOptions)}
+ * :
+ *
+ * <pre>
+ * IntegrationBatch batch = new IntegrationBatch();
+ * BatchSummary summary = batch.run(jobs, new JobListener() {
+ *     public void completed(JobResult result) {
+ *         LOGGER.info(result.toString());
+ *     }
+ * });
+ * assertTrue(summary.toString(), summary.isSuccess());
+ * </pre>
+ *
+ * At most one job per processor runs at a time unless the parallelism is
+ * set. Jobs start in the order given, except that a job waits while another
+ * job using one of its resources runs and the jobs behind it may start
+ * first.
+ *
+ * @author drothauser
+ *
+ */
+public class IntegrationBatch {
+
+	/**
+	 * SLF4J Logger for IntegrationBatch.
+	 */
+	private static final Logger LOGGER = LoggerFactory
+	    .getLogger(IntegrationBatch.class);
+
+	/**
+	 * Number of the next batch thread.
+	 */
+	private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+	/**
+	 * Maximum number of jobs running at a time.
+	 */
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * @return maximum number of jobs running at a time
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * @param parallelism
+	 *            maximum number of jobs running at a time, by default the
+	 *            number of processors
+	 */
+	public void setParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException(
+			    "Parallelism must be positive: " + parallelism);
+		}
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Run the jobs and wait for all of them to finish. If the calling thread
+	 * is interrupted the running commands are killed and the jobs that have
+	 * not started are not run.
+	 *
+	 * @param jobs
+	 *            the jobs
+	 * @param listener
+	 *            receives each result as soon as its job has finished, may be
+	 *            null
+	 * @return the results of all jobs
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for the jobs
+	 */
+	public BatchSummary run(List<IntegrationJob> jobs, JobListener listener)
+	        throws InterruptedException {
+		long start = System.nanoTime();
+		List<IntegrationJob> pending = new LinkedList<IntegrationJob>(jobs);
+		Set<String> busy = new HashSet<String>();
+		BlockingQueue<JobResult> completed =
+		    new LinkedBlockingQueue<JobResult>();
+		List<JobResult> results = new ArrayList<JobResult>();
+		ExecutorService executor = createExecutor();
+		int running = 0;
+		try {
+			while (!pending.isEmpty() || running > 0) {
+				Iterator<IntegrationJob> it = pending.iterator();
+				while (running < parallelism && it.hasNext()) {
+					IntegrationJob job = it.next();
+					if (Collections.disjoint(busy, job.getResources())) {
+						it.remove();
+						busy.addAll(job.getResources());
+						executor.execute(new JobTask(job, completed));
+						running++;
+					}
+				}
+				JobResult result = completed.take();
+				running--;
+				busy.removeAll(result.getJob().getResources());
+				results.add(result);
+				LOGGER.info("Finished " + result);
+				if (listener != null) {
+					listener.completed(result);
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		return new BatchSummary(results,
+		    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+	}
+
+	/**
+	 * @return a pool of daemon threads, one per job that may run at a time
+	 */
+	private ExecutorService createExecutor() {
+		return Executors.newFixedThreadPool(parallelism, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread =
+				    new Thread(runnable, "integration-batch-"
+				        + THREAD_NUMBER.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Runs one job and queues its result.
+	 */
+	private static final class JobTask
+	        implements Runnable {
+
+		/**
+		 * The job.
+		 */
+		private final IntegrationJob job;
+
+		/**
+		 * Queue of results of finished jobs.
+		 */
+		private final BlockingQueue<JobResult> completed;
+
+		/**
+		 * Constructor for JobTask.
+		 *
+		 * @param job
+		 *            the job
+		 * @param completed
+		 *            queue of results of finished jobs
+		 */
+		JobTask(IntegrationJob job, BlockingQueue<JobResult> completed) {
+			this.job = job;
+			this.completed = completed;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void run() {
+			long startTime = System.currentTimeMillis();
+			long start = System.nanoTime();
+			ProcessResult result = null;
+			Exception error = null;
+			try {
+				result =
+				    IntegrationTestUtils.runIntegrationTest(job.getCmdList(),
+				        job.getWorkingDir(), job.getOptions());
+			} catch (IOException e) {
+				LOGGER.error("Could not run " + job + ": " + e, e);
+				error = e;
+			} catch (RuntimeException e) {
+				// the batch waits for a result of every job
+				LOGGER.error("Could not run " + job + ": " + e, e);
+				error = e;
+			}
+			completed.add(new JobResult(job, result, error, startTime,
+			    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+		}
+	}
+
+}
@@ -0,0 +1,127 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.integration;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A command run by an {@link IntegrationBatch}. Jobs that name the same
+ * resource, e.g. a database schema or a fixed port they both use, never run
+ * at the same time.
+ *
+ * @author drothauser
+ *
+ */
+public class IntegrationJob {
+
+	/**
+	 * Name of the job in results and logs.
+	 */
+	private final String name;
+
+	/**
+	 * The command to run and its arguments.
+	 */
+	private final List<String> cmdList;
+
+	/**
+	 * The directory that the command will be run from.
+	 */
+	private final File workingDir;
+
+	/**
+	 * Timeout, line sink and tail size of the command.
+	 */
+	private ProcessOptions options = new ProcessOptions();
+
+	/**
+	 * Resources the job uses exclusively.
+	 */
+	private Set<String> resources = Collections.emptySet();
+
+	/**
+	 * Constructor for IntegrationJob.
+	 *
+	 * @param name
+	 *            name of the job in results and logs
+	 * @param cmdList
+	 *            the command to run and its arguments
+	 * @param workingDir
+	 *            the directory that the command will be run from
+	 */
+	public IntegrationJob(String name, List<String> cmdList, File workingDir) {
+		this.name = name;
+		this.cmdList = new ArrayList<String>(cmdList);
+		this.workingDir = workingDir;
+	}
+
+	/**
+	 * @return name of the job in results and logs
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the command to run and its arguments
+	 */
+	public List<String> getCmdList() {
+		return Collections.unmodifiableList(cmdList);
+	}
+
+	/**
+	 * @return the directory that the command will be run from
+	 */
+	public File getWorkingDir() {
+		return workingDir;
+	}
+
+	/**
+	 * @return timeout, line sink and tail size of the command
+	 */
+	public ProcessOptions getOptions() {
+		return options;
+	}
+
+	/**
+	 * @param options
+	 *            timeout, line sink and tail size of the command
+	 */
+	public void setOptions(ProcessOptions options) {
+		this.options = options;
+	}
+
+	/**
+	 * @return resources the job uses exclusively
+	 */
+	public Set<String> getResources() {
+		return resources;
+	}
+
+	/**
+	 * @param resources
+	 *            resources the job uses exclusively; jobs naming the same
+	 *            resource run one after another
+	 */
+	public void setResources(String... resources) {
+		this.resources =
+		    Collections.unmodifiableSet(new LinkedHashSet<String>(Arrays
+		        .asList(resources)));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return name;
+	}
+
+}
@@ -5,9 +5,12 @@ package com.rothsmith.test.integration;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.lang.management.ManagementFactory;
 import java.lang.management.RuntimeMXBean;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -28,6 +31,19 @@ public final class IntegrationTestUtils {
 	private static final Logger LOGGER = LoggerFactory
 	    .getLogger(IntegrationTestUtils.class);
 
+	/**
+	 * Time a process that was asked to terminate gets before it is killed
+	 * forcibly, in milliseconds.
+	 */
+	private static final long KILL_GRACE_MILLIS = 2000;
+
+	/**
+	 * Time to wait for the output streams to end once the process has exited,
+	 * in milliseconds. They stay open while processes the child started keep
+	 * running.
+	 */
+	static final long DRAIN_MILLIS = 2000;
+
 	/**
 	 * Private constructor to thwart instantiation of a utility class.
 	 */
@@ -70,32 +86,140 @@ public final class IntegrationTestUtils {
 
 	/**
 	 * This method runs a command using the information in the cmdList
-	 * parameter.
+	 * parameter. Its output is logged line by line as it is produced.
 	 * 
 	 * @param cmdList
 	 *            A {@link List} containing the command to run and its
 	 *            arguments.
 	 * @param workingDir
 	 *            The directory that the command will be run from.
-	 * @return 0 if successful, otherwise 1
+	 * @return the exit code of the command
 	 * @throws IOException
 	 *             possible I/O error
 	 */
 	public static int runIntegrationTest(List<String> cmdList,
 	    File workingDir) throws IOException {
 
+		return runIntegrationTest(cmdList, workingDir, new ProcessOptions())
+		    .getExitCode();
+	}
+
+	/**
+	 * Run a command and wait for it to exit. Standard output and standard
+	 * error are read concurrently while the command runs, so it never blocks
+	 * on a full pipe, and each line is logged and passed to the sink of the
+	 * options as soon as it is read. Only the last lines of each stream are
+	 * kept in memory. A command that runs longer than the timeout of the
+	 * options is killed.
+	 * <p>
+	 * Only the command itself is killed on timeout; processes it started of
+	 * its own, e.g. the JVM started by a batch file, keep running. The output
+	 * is read for at most two more seconds after the command exits.
+	 * 
+	 * @param cmdList
+	 *            the command to run and its arguments
+	 * @param workingDir
+	 *            the directory that the command will be run from
+	 * @param options
+	 *            timeout, line sink and tail size
+	 * @return exit code, timings and the last lines of output
+	 * @throws IOException
+	 *             if the command could not be started or waiting for it was
+	 *             interrupted
+	 */
+	public static ProcessResult runIntegrationTest(List<String> cmdList,
+	    File workingDir, ProcessOptions options) throws IOException {
+
 		String[] cmdArray = cmdList.toArray(new String[cmdList.size()]);
 
+		long startTime = System.currentTimeMillis();
+		long start = System.nanoTime();
 		Process p = Runtime.getRuntime().exec(cmdArray, null, workingDir);
+		IOUtils.closeQuietly(p.getOutputStream());
+		OutputDrainer stdout =
+		    new OutputDrainer(p.getInputStream(), ProcessStream.STDOUT,
+		        options.getSink(), options.getTailLines());
+		OutputDrainer stderr =
+		    new OutputDrainer(p.getErrorStream(), ProcessStream.STDERR,
+		        options.getSink(), options.getTailLines());
+		stdout.start();
+		stderr.start();
 
-		List<String> lines = IOUtils.readLines(p.getInputStream());
-		List<String> errlines = IOUtils.readLines(p.getErrorStream());
-		LOGGER.info("stdout:\n" + StringUtils.join(lines, '\n'));
-		String errtext = StringUtils.join(errlines, '\n');
-		if (!StringUtils.isBlank(errtext)) {
-			LOGGER.error("stderr:\n" + errtext);
+		boolean timedOut = false;
+		try {
+			if (options.getTimeoutMillis() > 0) {
+				timedOut =
+				    !p.waitFor(options.getTimeoutMillis(),
+				        TimeUnit.MILLISECONDS);
+			} else {
+				p.waitFor();
+			}
+			if (timedOut) {
+				LOGGER.error("Killing " + cmdList + " after "
+				    + options.getTimeoutMillis() + " ms");
+				kill(p);
+			}
+			long elapsedMillis =
+			    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			if (!stdout.join(DRAIN_MILLIS) || !stderr.join(DRAIN_MILLIS)) {
+				LOGGER.warn("Output of " + cmdList
+				    + " is still open after it exited");
+			}
+			return new ProcessResult(p.isAlive() ? -1 : p.exitValue(),
+			    timedOut, startTime, elapsedMillis, stdout, stderr);
+		} catch (InterruptedException e) {
+			kill(p);
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted running " + cmdList);
+		}
+	}
+
+	/**
+	 * Start a command in the background and return at once, e.g. to start a
+	 * server and wait for the line it prints once it is up with
+	 * {@link ChildProcess#awaitOutput(String, long, TimeUnit, ProcessStream...)}
+	 * . Its output is read, logged and passed to the sink of the options like
+	 * that of {@link #runIntegrationTest(List, File, ProcessOptions)}. The
+	 * command runs until it exits or is stopped; the timeout of the options
+	 * does not apply.
+	 * 
+	 * @param cmdList
+	 *            the command to run and its arguments
+	 * @param workingDir
+	 *            the directory that the command will be run from
+	 * @param options
+	 *            line sink and tail size
+	 * @return the running command
+	 * @throws IOException
+	 *             if the command could not be started
+	 */
+	public static ChildProcess launch(List<String> cmdList, File workingDir,
+	    ProcessOptions options) throws IOException {
+
+		String[] cmdArray = cmdList.toArray(new String[cmdList.size()]);
+
+		Process p = Runtime.getRuntime().exec(cmdArray, null, workingDir);
+		IOUtils.closeQuietly(p.getOutputStream());
+		return new ChildProcess(new ArrayList<String>(cmdList), p, options);
+	}
+
+	/**
+	 * Ask a process to terminate and kill it forcibly if it does not.
+	 * 
+	 * @param p
+	 *            the process
+	 */
+	static void kill(Process p) {
+		p.destroy();
+		try {
+			if (!p.waitFor(KILL_GRACE_MILLIS, TimeUnit.MILLISECONDS)) {
+				p.destroyForcibly().waitFor(KILL_GRACE_MILLIS,
+				    TimeUnit.MILLISECONDS);
+			}
+		} catch (InterruptedException e) {
+			p.destroyForcibly();
+			Thread.currentThread().interrupt();
 		}
-		return p.exitValue();
 	}
 
 }
@@ -0,0 +1,24 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.integration;
+
+/**
+ * Receives the result of each job of an {@link IntegrationBatch} as soon as
+ * the job has finished. Results are delivered one at a time on the thread
+ * that runs the batch, so a listener need not be thread safe.
+ *
+ * @author drothauser
+ *
+ */
+public interface JobListener {
+
+	/**
+	 * Receive the result of a finished job.
+	 *
+	 * @param result
+	 *            the result
+	 */
+	void completed(JobResult result);
+
+}
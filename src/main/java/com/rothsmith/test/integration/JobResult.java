@@ -0,0 +1,122 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.integration;
+
+/**
+ * Outcome of an {@link IntegrationJob}: the result of its process, or the
+ * error that kept it from running, and when and how long it ran.
+ *
+ * @author drothauser
+ *
+ */
+public final class JobResult {
+
+	/**
+	 * The job.
+	 */
+	private final IntegrationJob job;
+
+	/**
+	 * Result of the process or null if it could not be run.
+	 */
+	private final ProcessResult result;
+
+	/**
+	 * Error that kept the process from running or null.
+	 */
+	private final Exception error;
+
+	/**
+	 * Time the job was started in milliseconds.
+	 */
+	private final long startTime;
+
+	/**
+	 * Wall time of the job in milliseconds.
+	 */
+	private final long wallMillis;
+
+	/**
+	 * Constructor for JobResult.
+	 *
+	 * @param job
+	 *            the job
+	 * @param result
+	 *            result of the process or null if it could not be run
+	 * @param error
+	 *            error that kept the process from running or null
+	 * @param startTime
+	 *            time the job was started in milliseconds
+	 * @param wallMillis
+	 *            wall time of the job in milliseconds
+	 */
+	JobResult(IntegrationJob job, ProcessResult result, Exception error,
+	    long startTime, long wallMillis) {
+		this.job = job;
+		this.result = result;
+		this.error = error;
+		this.startTime = startTime;
+		this.wallMillis = wallMillis;
+	}
+
+	/**
+	 * @return the job
+	 */
+	public IntegrationJob getJob() {
+		return job;
+	}
+
+	/**
+	 * @return result of the process or null if it could not be run
+	 */
+	public ProcessResult getResult() {
+		return result;
+	}
+
+	/**
+	 * @return error that kept the process from running or null
+	 */
+	public Exception getError() {
+		return error;
+	}
+
+	/**
+	 * @return time the job was started in milliseconds
+	 */
+	public long getStartTime() {
+		return startTime;
+	}
+
+	/**
+	 * @return wall time of the job in milliseconds
+	 */
+	public long getWallMillis() {
+		return wallMillis;
+	}
+
+	/**
+	 * @return whether the process ran and exited with 0 before its timeout
+	 */
+	public boolean isSuccess() {
+		return result != null && result.getExitCode() == 0
+		    && !result.isTimedOut();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		String outcome;
+		if (result == null) {
+			outcome = "error=" + error;
+		} else if (result.isTimedOut()) {
+			outcome = "timed out";
+		} else {
+			outcome = "exitCode=" + result.getExitCode();
+		}
+		return job + " " + outcome + " " + wallMillis + " ms";
+	}
+
+}
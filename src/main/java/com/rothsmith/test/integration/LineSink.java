@@ -0,0 +1,26 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.integration;
+
+/**
+ * Receives the output of a child process line by line as it is produced.
+ * Standard output and standard error are read by separate threads, so a sink
+ * may be called by two threads at once.
+ *
+ * @author drothauser
+ *
+ */
+public interface LineSink {
+
+	/**
+	 * Receive a line of output.
+	 *
+	 * @param stream
+	 *            the stream the line was read from
+	 * @param line
+	 *            the line without its line terminator
+	 */
+	void line(ProcessStream stream, String line);
+
+}
@@ -0,0 +1,201 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.integration;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads one output stream of a child process on its own thread so that the
+ * child never blocks on a full pipe. Every line is logged, standard output
+ * at INFO and standard error at ERROR, passed to the sink and kept in a tail
+ * of bounded size.
+ *
+ * @author drothauser
+ *
+ */
+final class OutputDrainer
+        implements Runnable {
+
+	/**
+	 * SLF4J Logger, the one output was always logged to.
+	 */
+	private static final Logger LOGGER = LoggerFactory
+	    .getLogger(IntegrationTestUtils.class);
+
+	/**
+	 * Number of the next drainer thread.
+	 */
+	private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+	/**
+	 * Stream read.
+	 */
+	private final InputStream in;
+
+	/**
+	 * Which stream is read.
+	 */
+	private final ProcessStream stream;
+
+	/**
+	 * Receives every line, may be null.
+	 */
+	private final LineSink sink;
+
+	/**
+	 * Maximum number of lines in the tail.
+	 */
+	private final int tailLines;
+
+	/**
+	 * Guards the tail and the line count.
+	 */
+	private final Object lock = new Object();
+
+	/**
+	 * Last lines read.
+	 */
+	private final Deque<String> tail = new ArrayDeque<String>();
+
+	/**
+	 * Thread reading the stream.
+	 */
+	private final Thread thread;
+
+	/**
+	 * Number of lines read.
+	 */
+	private long lines;
+
+	/**
+	 * Constructor for OutputDrainer.
+	 *
+	 * @param in
+	 *            stream to read
+	 * @param stream
+	 *            which stream is read
+	 * @param sink
+	 *            receives every line, may be null
+	 * @param tailLines
+	 *            maximum number of lines kept in the tail
+	 */
+	OutputDrainer(InputStream in, ProcessStream stream, LineSink sink,
+	    int tailLines) {
+		this.in = in;
+		this.stream = stream;
+		this.sink = sink;
+		this.tailLines = tailLines;
+		this.thread =
+		    new Thread(this, "process-" + stream.name().toLowerCase(Locale.US)
+		        + "-" + THREAD_NUMBER.incrementAndGet());
+		thread.setDaemon(true);
+	}
+
+	/**
+	 * Start reading.
+	 */
+	void start() {
+		thread.start();
+	}
+
+	/**
+	 * Wait for the end of the stream. The stream may stay open after the
+	 * child has exited if the child left processes of its own running.
+	 *
+	 * @param millis
+	 *            time to wait in milliseconds
+	 * @return whether the end of the stream was reached
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 */
+	boolean join(long millis) throws InterruptedException {
+		thread.join(millis);
+		return !thread.isAlive();
+	}
+
+	/**
+	 * @return the last lines read, oldest first
+	 */
+	List<String> getTail() {
+		synchronized (lock) {
+			return new ArrayList<String>(tail);
+		}
+	}
+
+	/**
+	 * @return the number of lines read
+	 */
+	long getLines() {
+		synchronized (lock) {
+			return lines;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void run() {
+		BufferedReader reader =
+		    new BufferedReader(new InputStreamReader(in,
+		        Charset.defaultCharset()));
+		try {
+			String line = reader.readLine();
+			while (line != null) {
+				accept(line);
+				line = reader.readLine();
+			}
+		} catch (IOException e) {
+			LOGGER.debug("Stopped reading " + stream + ": " + e);
+		} finally {
+			IOUtils.closeQuietly(reader);
+		}
+	}
+
+	/**
+	 * Log, forward and keep a line.
+	 *
+	 * @param line
+	 *            the line
+	 */
+	private void accept(String line) {
+		if (stream == ProcessStream.STDERR) {
+			LOGGER.error("stderr: " + line);
+		} else {
+			LOGGER.info("stdout: " + line);
+		}
+		if (sink != null) {
+			try {
+				sink.line(stream, line);
+			} catch (RuntimeException e) {
+				// keep draining so the child does not block
+				LOGGER.warn("Line sink failed: " + e, e);
+			}
+		}
+		synchronized (lock) {
+			lines++;
+			if (tailLines > 0) {
+				if (tail.size() == tailLines) {
+					tail.removeFirst();
+				}
+				tail.addLast(line);
+			}
+		}
+	}
+
+}
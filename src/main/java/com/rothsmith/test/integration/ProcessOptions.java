@@ -0,0 +1,84 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.integration;
+
+/**
+ * Options of a child process run by
+ * {@link IntegrationTestUtils#runIntegrationTest(java.util.List, java.io.File, ProcessOptions)}
+ * .
+ *
+ * @author drothauser
+ *
+ */
+public class ProcessOptions {
+
+	/**
+	 * Default number of last lines of each stream kept in the result.
+	 */
+	public static final int DEFAULT_TAIL_LINES = 100;
+
+	/**
+	 * Time the process may run in milliseconds, 0 for no limit.
+	 */
+	private long timeoutMillis;
+
+	/**
+	 * Receives every line of output, may be null.
+	 */
+	private LineSink sink;
+
+	/**
+	 * Number of last lines of each stream kept in the result.
+	 */
+	private int tailLines = DEFAULT_TAIL_LINES;
+
+	/**
+	 * @return time the process may run in milliseconds, 0 for no limit
+	 */
+	public long getTimeoutMillis() {
+		return timeoutMillis;
+	}
+
+	/**
+	 * @param timeoutMillis
+	 *            time the process may run in milliseconds before it is
+	 *            killed, 0 for no limit
+	 */
+	public void setTimeoutMillis(long timeoutMillis) {
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	/**
+	 * @return receives every line of output, may be null
+	 */
+	public LineSink getSink() {
+		return sink;
+	}
+
+	/**
+	 * @param sink
+	 *            receives every line of output as it is read, in addition
+	 *            to the log; null for none
+	 */
+	public void setSink(LineSink sink) {
+		this.sink = sink;
+	}
+
+	/**
+	 * @return number of last lines of each stream kept in the result
+	 */
+	public int getTailLines() {
+		return tailLines;
+	}
+
+	/**
+	 * @param tailLines
+	 *            number of last lines of each stream kept in the result; the
+	 *            rest of the output is only logged and passed to the sink
+	 */
+	public void setTailLines(int tailLines) {
+		this.tailLines = tailLines;
+	}
+
+}
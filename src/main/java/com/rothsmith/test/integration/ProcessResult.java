@@ -0,0 +1,152 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.integration;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a child process run by
+ * {@link IntegrationTestUtils#runIntegrationTest(java.util.List, java.io.File, ProcessOptions)}
+ * : its exit code, how long it ran and the last lines of its output.
+ *
+ * @author drothauser
+ *
+ */
+public final class ProcessResult {
+
+	/**
+	 * Exit code of the process.
+	 */
+	private final int exitCode;
+
+	/**
+	 * Whether the process was killed because it ran too long.
+	 */
+	private final boolean timedOut;
+
+	/**
+	 * Time the process was started in milliseconds.
+	 */
+	private final long startTime;
+
+	/**
+	 * Time from start to exit in milliseconds.
+	 */
+	private final long elapsedMillis;
+
+	/**
+	 * Last lines of standard output.
+	 */
+	private final List<String> stdoutTail;
+
+	/**
+	 * Last lines of standard error.
+	 */
+	private final List<String> stderrTail;
+
+	/**
+	 * Number of lines of standard output.
+	 */
+	private final long stdoutLines;
+
+	/**
+	 * Number of lines of standard error.
+	 */
+	private final long stderrLines;
+
+	/**
+	 * Constructor for ProcessResult.
+	 *
+	 * @param exitCode
+	 *            exit code of the process
+	 * @param timedOut
+	 *            whether the process was killed because it ran too long
+	 * @param startTime
+	 *            time the process was started in milliseconds
+	 * @param elapsedMillis
+	 *            time from start to exit in milliseconds
+	 * @param stdout
+	 *            drainer of standard output
+	 * @param stderr
+	 *            drainer of standard error
+	 */
+	ProcessResult(int exitCode, boolean timedOut, long startTime,
+	    long elapsedMillis, OutputDrainer stdout, OutputDrainer stderr) {
+		this.exitCode = exitCode;
+		this.timedOut = timedOut;
+		this.startTime = startTime;
+		this.elapsedMillis = elapsedMillis;
+		this.stdoutTail = Collections.unmodifiableList(stdout.getTail());
+		this.stderrTail = Collections.unmodifiableList(stderr.getTail());
+		this.stdoutLines = stdout.getLines();
+		this.stderrLines = stderr.getLines();
+	}
+
+	/**
+	 * @return exit code of the process
+	 */
+	public int getExitCode() {
+		return exitCode;
+	}
+
+	/**
+	 * @return whether the process was killed because it ran too long
+	 */
+	public boolean isTimedOut() {
+		return timedOut;
+	}
+
+	/**
+	 * @return time the process was started in milliseconds
+	 */
+	public long getStartTime() {
+		return startTime;
+	}
+
+	/**
+	 * @return time from start to exit in milliseconds
+	 */
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	/**
+	 * @return last lines of standard output, oldest first
+	 */
+	public List<String> getStdoutTail() {
+		return stdoutTail;
+	}
+
+	/**
+	 * @return last lines of standard error, oldest first
+	 */
+	public List<String> getStderrTail() {
+		return stderrTail;
+	}
+
+	/**
+	 * @return number of lines of standard output
+	 */
+	public long getStdoutLines() {
+		return stdoutLines;
+	}
+
+	/**
+	 * @return number of lines of standard error
+	 */
+	public long getStderrLines() {
+		return stderrLines;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return "ProcessResult[exitCode=" + exitCode + ",timedOut=" + timedOut
+		    + ",elapsedMillis=" + elapsedMillis + "]";
+	}
+
+}
@@ -0,0 +1,24 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.integration;
+
+/**
+ * Output streams of a child process.
+ *
+ * @author drothauser
+ *
+ */
+public enum ProcessStream {
+
+	/**
+	 * Standard output.
+	 */
+	STDOUT,
+
+	/**
+	 * Standard error.
+	 */
+	STDERR
+
+}
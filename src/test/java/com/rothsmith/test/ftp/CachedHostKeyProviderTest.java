@@ -0,0 +1,77 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.security.KeyPair;
+
+import org.apache.sshd.common.KeyPairProvider;
+import org.junit.Test;
+
+import com.rothsmith.test.ftp.CachedHostKeyProvider.Algorithm;
+
+/**
+ * Tests for {@link CachedHostKeyProvider}.
+ *
+ * @author drothauser
+ *
+ */
+public class CachedHostKeyProviderTest {
+
+	/**
+	 * Test that every provider of an algorithm serves the same key pair.
+	 *
+	 * @throws FtpTestException
+	 *             possible error generating a key
+	 */
+	@Test
+	public void testKeyPairIsShared() throws FtpTestException {
+
+		CachedHostKeyProvider.preload(Algorithm.RSA_1024);
+		KeyPair first =
+		    new CachedHostKeyProvider(Algorithm.RSA_1024).loadKeys()
+		        .iterator().next();
+		KeyPair second =
+		    new CachedHostKeyProvider(Algorithm.RSA_1024).loadKeys()
+		        .iterator().next();
+		assertSame(first, second);
+		assertSame(first, CachedHostKeyProvider.getKeyPair(Algorithm.RSA_1024));
+	}
+
+	/**
+	 * Test the SSH key types reported for RSA and ECDSA keys.
+	 */
+	@Test
+	public void testKeyTypes() {
+
+		assertEquals(KeyPairProvider.SSH_RSA,
+		    new CachedHostKeyProvider().getKeyTypes());
+		assertEquals(KeyPairProvider.ECDSA_SHA2_NISTP256,
+		    new CachedHostKeyProvider(Algorithm.ECDSA_256).getKeyTypes());
+	}
+
+	/**
+	 * Test that starting a server does not write a host key file to the
+	 * current working directory.
+	 *
+	 * @throws FtpTestException
+	 *             possible error starting or stopping the server
+	 */
+	@Test
+	public void testNoHostKeyFile() throws FtpTestException {
+
+		SFtpTestServer sshServer =
+		    new SFtpTestServer(SFtpTestServer.DEFAULT_HOST,
+		        SFtpTestServer.EPHEMERAL_PORT, "remote-username");
+		sshServer.setHostKeyAlgorithm(Algorithm.ECDSA_256);
+		sshServer.startServer();
+		sshServer.stopServer();
+		assertFalse(new File("hostkey.ser").exists());
+	}
+
+}
@@ -0,0 +1,193 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPConnectionClosedException;
+import org.apache.commons.net.ftp.FTPReply;
+import org.junit.Test;
+
+import com.rothsmith.test.ftp.metrics.FtpsMetricsSnapshot;
+import com.rothsmith.test.ftp.metrics.FtpsSessionMetrics;
+
+/**
+ * Tests for the {@link FtpsTestServer} connection limits.
+ *
+ * @author drothauser
+ *
+ */
+public class FtpsConnectionLimitsTest {
+
+	/**
+	 * Number of concurrent sessions opened, well above the old fixed limit.
+	 */
+	private static final int SESSIONS = 200;
+
+	/**
+	 * Test holding many concurrent sessions on a server configured from
+	 * properties.
+	 *
+	 * @throws Exception
+	 *             possible error
+	 */
+	@Test
+	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
+	public void testManyConcurrentSessions() throws Exception {
+
+		FtpsTestServer server =
+		    FtpsTestUtils.createTestFtpsServer("ftpstest-limits.properties");
+		server.startServer();
+		List<FTPClient> clients = new ArrayList<FTPClient>();
+		try {
+			for (int i = 0; i < SESSIONS; i++) {
+				clients.add(login(server.getPort()));
+			}
+			for (FTPClient client : clients) {
+				assertTrue(client.sendNoOp());
+			}
+		} finally {
+			disconnect(clients);
+			server.stopServer();
+		}
+	}
+
+	/**
+	 * Test that logins beyond the configured maximum are refused.
+	 *
+	 * @throws Exception
+	 *             possible error
+	 */
+	@Test
+	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
+	public void testMaxLoginsEnforced() throws Exception {
+
+		FtpsTestServerConfig config = new FtpsTestServerConfig();
+		config.setMaxLogins(2);
+		config.setLoginFailureDelay(0);
+		FtpsTestServer server = FtpsTestFixture.createServer(config);
+		server.startServer();
+		List<FTPClient> clients = new ArrayList<FTPClient>();
+		try {
+			clients.add(login(server.getPort()));
+			clients.add(login(server.getPort()));
+			FTPClient refused = new FTPClient();
+			clients.add(refused);
+			refused.connect("localhost", server.getPort());
+			try {
+				refused.login(FtpsTestFixture.USER, FtpsTestFixture.PASSWORD);
+				fail("Login beyond the maximum should be refused");
+			} catch (FTPConnectionClosedException e) {
+				assertEquals(FTPReply.SERVICE_NOT_AVAILABLE,
+				    refused.getReplyCode());
+			}
+		} finally {
+			disconnect(clients);
+			server.stopServer();
+		}
+	}
+
+	/**
+	 * Test that passive data connections use the configured port range and
+	 * that a PASV command finding no free port is recorded as a failed data
+	 * connection setup of its session.
+	 *
+	 * @throws Exception
+	 *             possible error
+	 */
+	@Test
+	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
+	public void testPassivePortRange() throws Exception {
+
+		int passivePort;
+		ServerSocket socket = new ServerSocket(0);
+		try {
+			passivePort = socket.getLocalPort();
+		} finally {
+			socket.close();
+		}
+		FtpsTestServerConfig config = new FtpsTestServerConfig();
+		config.setPassivePorts(String.valueOf(passivePort));
+		config.setPassiveAddress("localhost");
+		FtpsTestServer server = FtpsTestFixture.createServer(config);
+		server.startServer();
+		List<FTPClient> clients = new ArrayList<FTPClient>();
+		try {
+			clients.add(login(server.getPort()));
+			assertEquals(FTPReply.ENTERING_PASSIVE_MODE, clients.get(0).pasv());
+			assertEquals(Collections.singleton(passivePort),
+			    server.getPassivePorts());
+			clients.add(login(server.getPort()));
+			assertEquals(FTPReply.CANNOT_OPEN_DATA_CONNECTION, clients.get(1)
+			    .pasv());
+			// the server records a command after replying to it, so wait for
+			// the reply to a later command of each session
+			for (FTPClient client : clients) {
+				assertTrue(client.sendNoOp());
+			}
+
+			FtpsMetricsSnapshot snapshot = server.getMetrics();
+			assertEquals(2, snapshot.getDataConnections().getCount());
+			assertEquals(1, snapshot.getDataConnections().getFailures());
+			assertTrue(snapshot.getDataConnectionConcurrency().getMax() >= 1);
+			List<FtpsSessionMetrics> sessions = snapshot.getSessions();
+			assertEquals(2, sessions.size());
+			for (FtpsSessionMetrics session : sessions) {
+				assertEquals(FtpsTestFixture.USER, session.getUser());
+				assertTrue(session.isOpen());
+				assertEquals(1, session.getDataConnections());
+				assertTrue(session.getDataConnectionMaxNanos() > 0);
+			}
+			assertEquals(0, sessions.get(0).getDataConnectionFailures());
+			assertEquals(1, sessions.get(1).getDataConnectionFailures());
+		} finally {
+			disconnect(clients);
+			server.stopServer();
+		}
+	}
+
+	/**
+	 * Open a logged in plain FTP session.
+	 *
+	 * @param port
+	 *            server port
+	 * @return the logged in client
+	 * @throws IOException
+	 *             possible connection error
+	 */
+	private static FTPClient login(int port) throws IOException {
+		FTPClient client = new FTPClient();
+		client.connect("localhost", port);
+		assertTrue(client.login(FtpsTestFixture.USER,
+		    FtpsTestFixture.PASSWORD));
+		return client;
+	}
+
+	/**
+	 * Disconnect clients, ignoring errors.
+	 *
+	 * @param clients
+	 *            clients to disconnect
+	 */
+	private static void disconnect(List<FTPClient> clients) {
+		for (FTPClient client : clients) {
+			try {
+				client.disconnect();
+			} catch (IOException e) {
+				// best effort clean up
+				continue;
+			}
+		}
+	}
+
+}
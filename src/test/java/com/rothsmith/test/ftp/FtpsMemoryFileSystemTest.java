@@ -0,0 +1,244 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.apache.commons.net.ftp.FTP;
+import org.apache.commons.net.ftp.FTPSClient;
+import org.apache.commons.net.util.TrustManagerUtils;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.rothsmith.properties.PropertyFileInitializer;
+import com.rothsmith.test.ftp.checksum.UploadChecksum;
+import com.rothsmith.test.ftp.events.FileEvent;
+import com.rothsmith.test.ftp.memfs.GeneratedContent;
+import com.rothsmith.test.ftp.memfs.MemoryFileSystem;
+
+/**
+ * Tests for {@link FtpsTestServer} serving an in-memory file system.
+ *
+ * @author drothauser
+ *
+ */
+public class FtpsMemoryFileSystemTest {
+
+	/**
+	 * FTPS test properties file selecting the in-memory file system.
+	 */
+	private static final String FTPS_PROPERTIES = "ftpstest-memory.properties";
+
+	/**
+	 * Lease on the shared test FTPS server.
+	 */
+	private static TestServerLease<FtpsTestServer> lease;
+
+	/**
+	 * Test FTPS Server instance.
+	 */
+	private static FtpsTestServer ftpsTestServer;
+
+	/**
+	 * Lease the shared test FTPS server, starting it if needed.
+	 *
+	 * @throws FtpTestException
+	 *             possible error
+	 */
+	@BeforeClass
+	public static void setUpBeforeClass() throws FtpTestException {
+
+		lease = TestServerRegistry.getDefault().leaseFtpsServer(FTPS_PROPERTIES);
+		ftpsTestServer = lease.getServer();
+	}
+
+	/**
+	 * Test storing, retrieving and deleting a file.
+	 *
+	 * @throws IOException
+	 *             possible I/O error
+	 */
+	@Test
+	public void testStoreRetrieve() throws IOException {
+
+		MemoryFileSystem fileSystem = ftpsTestServer.getMemoryFileSystem();
+		assertNotNull("Server should use the in-memory file system",
+		    fileSystem);
+
+		Properties properties =
+		    PropertyFileInitializer.initPropertiesClasspath(FTPS_PROPERTIES);
+		int port = ftpsTestServer.getPort();
+
+		FTPSClient ftpsClient = new FTPSClient();
+		ftpsClient.setTrustManager(TrustManagerUtils
+		    .getAcceptAllTrustManager());
+		ftpsClient.connect((String) properties.get("ftp.server"), port);
+		assertTrue(ftpsClient.login((String) properties.get("ftp.user"),
+		    (String) properties.get("ftp.password")));
+		ftpsClient.execPBSZ(0);
+		ftpsClient.execPROT("P");
+		ftpsClient.enterLocalPassiveMode();
+		ftpsClient.setFileType(FTP.BINARY_FILE_TYPE);
+
+		byte[] data = new byte[100000];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) (i % 253);
+		}
+		assertTrue(ftpsClient.makeDirectory("out"));
+		assertTrue(ftpsClient.storeFile("out/data.bin",
+		    new ByteArrayInputStream(data)));
+		assertEquals(data.length, fileSystem.lookup("/out/data.bin")
+		    .getSize());
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		assertTrue(ftpsClient.retrieveFile("out/data.bin", out));
+		assertArrayEquals(data, out.toByteArray());
+
+		assertTrue(ftpsClient.deleteFile("out/data.bin"));
+		assertNull(fileSystem.lookup("/out/data.bin"));
+
+		ftpsClient.logout();
+		ftpsClient.disconnect();
+	}
+
+	/**
+	 * Test retrieving the generated file declared in the properties, whole and
+	 * from a restart offset, verified by checksum.
+	 *
+	 * @throws Exception
+	 *             possible error
+	 */
+	@Test
+	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
+	public void testRetrieveGeneratedFile() throws Exception {
+
+		GeneratedContent content = new GeneratedContent(7, 256 * 1024);
+		Properties properties =
+		    PropertyFileInitializer.initPropertiesClasspath(FTPS_PROPERTIES);
+
+		FTPSClient ftpsClient = new FTPSClient();
+		ftpsClient.setTrustManager(TrustManagerUtils
+		    .getAcceptAllTrustManager());
+		ftpsClient.connect((String) properties.get("ftp.server"),
+		    ftpsTestServer.getPort());
+		assertTrue(ftpsClient.login((String) properties.get("ftp.user"),
+		    (String) properties.get("ftp.password")));
+		ftpsClient.execPBSZ(0);
+		ftpsClient.execPROT("P");
+		ftpsClient.enterLocalPassiveMode();
+		ftpsClient.setFileType(FTP.BINARY_FILE_TYPE);
+
+		DigestOutputStream out =
+		    new DigestOutputStream(NullOutputStream.NULL_OUTPUT_STREAM,
+		        MessageDigest.getInstance("SHA-256"));
+		assertTrue(ftpsClient.retrieveFile("generated/256k.bin", out));
+		assertArrayEquals(content.digest("SHA-256"), out.getMessageDigest()
+		    .digest());
+
+		int offset = 100003;
+		ByteArrayOutputStream rest = new ByteArrayOutputStream();
+		ftpsClient.setRestartOffset(offset);
+		assertTrue(ftpsClient.retrieveFile("generated/256k.bin", rest));
+		byte[] expected = new byte[(int) content.getSize() - offset];
+		content.read(offset, expected, 0, expected.length);
+		assertArrayEquals(expected, rest.toByteArray());
+
+		assertFalse("Generated files must be read-only",
+		    ftpsClient.storeFile("generated/256k.bin",
+		        new ByteArrayInputStream(new byte[1])));
+
+		ftpsClient.logout();
+		ftpsClient.disconnect();
+	}
+
+	/**
+	 * Test that the server checksums a stored file as it arrives, continues
+	 * the checksums when the file is appended to, and reports the upload,
+	 * rename and delete.
+	 *
+	 * @throws Exception
+	 *             possible error
+	 */
+	@Test
+	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
+	public void testUploadChecksums() throws Exception {
+
+		byte[] data = new byte[100000];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) (i % 241);
+		}
+		byte[] sha256 = MessageDigest.getInstance("SHA-256").digest(data);
+		Properties properties =
+		    PropertyFileInitializer.initPropertiesClasspath(FTPS_PROPERTIES);
+
+		FTPSClient ftpsClient = new FTPSClient();
+		ftpsClient.setTrustManager(TrustManagerUtils
+		    .getAcceptAllTrustManager());
+		ftpsClient.connect((String) properties.get("ftp.server"),
+		    ftpsTestServer.getPort());
+		assertTrue(ftpsClient.login((String) properties.get("ftp.user"),
+		    (String) properties.get("ftp.password")));
+		ftpsClient.execPBSZ(0);
+		ftpsClient.execPROT("P");
+		ftpsClient.enterLocalPassiveMode();
+		ftpsClient.setFileType(FTP.BINARY_FILE_TYPE);
+
+		assertTrue(ftpsClient.storeFile("checksummed.bin",
+		    new ByteArrayInputStream(data)));
+		assertEquals(data.length, ftpsTestServer.awaitTransfer(
+		    "/checksummed.bin", 10, TimeUnit.SECONDS).getBytes());
+		UploadChecksum checksum =
+		    ftpsTestServer.getUploadChecksums().get("/checksummed.bin");
+		assertEquals(data.length, checksum.getBytes());
+		assertArrayEquals(sha256, checksum.getSha256());
+
+		int half = data.length / 2;
+		assertTrue(ftpsClient.storeFile("appended.bin",
+		    new ByteArrayInputStream(data, 0, half)));
+		assertTrue(ftpsClient.appendFile("appended.bin",
+		    new ByteArrayInputStream(data, half, data.length - half)));
+		UploadChecksum appended =
+		    ftpsTestServer.getUploadChecksums().get("/appended.bin");
+		assertTrue(appended.isSequential());
+		assertEquals(data.length, appended.getBytes());
+		assertArrayEquals(sha256, appended.getSha256());
+		assertEquals(checksum.getCrc32c(), appended.getCrc32c());
+
+		assertTrue(ftpsClient.deleteFile("checksummed.bin"));
+		assertEquals(FileEvent.Type.DELETED, ftpsTestServer.awaitFile(
+		    "/checksummed.bin", 10, TimeUnit.SECONDS).getType());
+		assertTrue(ftpsClient.rename("appended.bin", "renamed.bin"));
+		assertEquals("/appended.bin", ftpsTestServer.awaitFile(
+		    "/renamed.bin", 10, TimeUnit.SECONDS, FileEvent.Type.RENAMED)
+		    .getPath());
+		assertTrue(ftpsClient.deleteFile("renamed.bin"));
+		ftpsClient.logout();
+		ftpsClient.disconnect();
+	}
+
+	/**
+	 * Release the shared server after finished with all testing.
+	 */
+	@AfterClass
+	public static void tearDownAfterClass() {
+
+		lease.release();
+	}
+
+}
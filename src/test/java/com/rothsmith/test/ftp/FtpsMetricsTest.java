@@ -0,0 +1,98 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+
+import org.junit.Test;
+
+import com.rothsmith.test.ftp.load.FtpsLoadClient;
+import com.rothsmith.test.ftp.metrics.CommandMetrics;
+import com.rothsmith.test.ftp.metrics.FtpsMetricsSnapshot;
+
+/**
+ * Tests for the server side metrics of {@link FtpsTestServer}.
+ *
+ * @author drothauser
+ *
+ */
+public class FtpsMetricsTest {
+
+	/**
+	 * Size of the file transferred.
+	 */
+	private static final int FILE_SIZE = 10000;
+
+	/**
+	 * Test the metrics of one upload and one download, in process and through
+	 * JMX.
+	 *
+	 * @throws Exception
+	 *             possible error
+	 */
+	@Test
+	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
+	public void testTransferMetrics() throws Exception {
+
+		FtpsTestServer server =
+		    FtpsTestUtils.createTestFtpsServer("ftpstest-memory.properties");
+		server.startServer();
+		try {
+			FtpsLoadClient client =
+			    new FtpsLoadClient("localhost", server.getPort(), "user",
+			        "password");
+			client.connect();
+			try {
+				client.put("metrics.bin", new byte[FILE_SIZE]);
+				assertEquals(FILE_SIZE, client.get("metrics.bin"));
+			} finally {
+				client.disconnect();
+			}
+
+			FtpsMetricsSnapshot snapshot = server.getMetrics();
+			assertEquals(FILE_SIZE, snapshot.getBytesIn());
+			assertEquals(FILE_SIZE, snapshot.getBytesOut());
+			assertEquals(1, snapshot.getTotalSessions());
+			CommandMetrics stor = snapshot.getCommand("STOR");
+			assertEquals(1, stor.getCount());
+			assertEquals(0, stor.getFailures());
+			assertTrue(stor.getMaxNanos() > 0);
+			assertEquals(1, snapshot.getCommand("RETR").getCount());
+			assertEquals(2, snapshot.getDataConnections().getCount());
+			assertEquals(1, snapshot.getCommand("USER").getCount());
+			assertEquals(0, snapshot.getCommand("DELE").getCount());
+
+			MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+			ObjectName objectName = server.getMetricsObjectName();
+			assertNotNull(objectName);
+			assertEquals(Long.valueOf(FILE_SIZE),
+			    mbeanServer.getAttribute(objectName, "BytesIn"));
+			assertEquals(Long.valueOf(2),
+			    mbeanServer.getAttribute(objectName, "DataConnectionCount"));
+			assertTrue(mbeanServer.getAttribute(objectName, "CommandCounts")
+			    instanceof TabularData);
+
+			server.resetMetrics();
+			snapshot = server.getMetrics();
+			assertEquals(0, snapshot.getBytesIn());
+			assertEquals(0, snapshot.getCommand("STOR").getCount());
+			Map<String, CommandMetrics> commands = snapshot.getCommands();
+			assertTrue(commands.isEmpty());
+		} finally {
+			server.stopServer();
+		}
+		assertNull(server.getMetricsObjectName());
+	}
+
+}
@@ -0,0 +1,121 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.net.ftp.FTP;
+import org.apache.commons.net.ftp.FTPSClient;
+import org.apache.ftpserver.ftplet.FileSystemFactory;
+
+import com.rothsmith.test.ftp.memfs.MemoryFtpFileSystemFactory;
+
+/**
+ * FTPS server and client set up shared by the tests that need an
+ * {@link FtpsTestServer} with their own tuning options: the test certificate,
+ * one user and an in-memory file system unless another is given.
+ *
+ * @author drothauser
+ *
+ */
+final class FtpsTestFixture {
+
+	/**
+	 * User of the test servers.
+	 */
+	static final String USER = "user";
+
+	/**
+	 * Password of {@link #USER}.
+	 */
+	static final String PASSWORD = "password";
+
+	/**
+	 * Maximum time to wait for a count in milliseconds.
+	 */
+	private static final long COUNT_TIMEOUT = 5000;
+
+	/**
+	 * Pause between checks of a count in milliseconds.
+	 */
+	private static final long COUNT_INTERVAL = 10;
+
+	/**
+	 * Not instantiated.
+	 */
+	private FtpsTestFixture() {
+	}
+
+	/**
+	 * @param config
+	 *            server tuning options
+	 * @return a new server with an in-memory file system
+	 * @throws FtpTestException
+	 *             possible error creating the server
+	 */
+	static FtpsTestServer createServer(FtpsTestServerConfig config)
+	        throws FtpTestException {
+		return createServer(new MemoryFtpFileSystemFactory(), config);
+	}
+
+	/**
+	 * @param fileSystem
+	 *            file system of the server
+	 * @param config
+	 *            server tuning options
+	 * @return a new server on an ephemeral port
+	 * @throws FtpTestException
+	 *             possible error creating the server
+	 */
+	static FtpsTestServer createServer(FileSystemFactory fileSystem,
+	    FtpsTestServerConfig config) throws FtpTestException {
+		return new FtpsTestServer(FtpsTestServer.EPHEMERAL_PORT, "JKS",
+		    FileUtils.toFile(ClassLoader.getSystemResource("testcert.jks"))
+		        .getAbsolutePath(), "changeit", USER, PASSWORD, "/",
+		    fileSystem, config);
+	}
+
+	/**
+	 * Log in and protect the data connections.
+	 *
+	 * @param client
+	 *            a connected client
+	 * @throws IOException
+	 *             possible error
+	 */
+	static void login(FTPSClient client) throws IOException {
+		assertTrue(client.login(USER, PASSWORD));
+		client.execPBSZ(0);
+		client.execPROT("P");
+		client.setFileType(FTP.BINARY_FILE_TYPE);
+		client.enterLocalPassiveMode();
+	}
+
+	/**
+	 * Wait until a count the server updates after replying has reached a
+	 * number.
+	 *
+	 * @param count
+	 *            the count
+	 * @param expected
+	 *            number to wait for
+	 * @throws InterruptedException
+	 *             if interrupted
+	 */
+	static void awaitCount(LongSupplier count, long expected)
+	        throws InterruptedException {
+		long deadline = System.currentTimeMillis() + COUNT_TIMEOUT;
+		while (count.getAsLong() < expected
+		    && System.currentTimeMillis() < deadline) {
+			TimeUnit.MILLISECONDS.sleep(COUNT_INTERVAL);
+		}
+		assertTrue(count.getAsLong() >= expected);
+	}
+
+}
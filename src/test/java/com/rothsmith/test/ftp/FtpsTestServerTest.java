@@ -13,7 +13,6 @@ import java.util.Properties;
 
 import javax.net.ssl.KeyManager;
 
-import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.commons.net.ftp.FTPClient;
 import org.apache.commons.net.ftp.FTPFile;
 import org.apache.commons.net.ftp.FTPSClient;
@@ -97,8 +96,7 @@ public class FtpsTestServerTest {
 		FTPSClient ftpsClient = new FTPSClient();
 
 		String ftpServer = (String) properties.get("ftp.server");
-		int port =
-		    NumberUtils.createInteger((String) properties.get("ftp.port"));
+		int port = ftpsTestServer.getPort();
 		String user = (String) properties.get("ftp.user");
 		String password = (String) properties.get("ftp.password");
 		String storeType = (String) properties.get("keystore.type");
@@ -0,0 +1,234 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.function.LongSupplier;
+
+import org.apache.commons.net.ftp.FTPSClient;
+import org.apache.commons.net.util.TrustManagerUtils;
+import org.junit.Test;
+
+import com.rothsmith.test.ftp.tls.SessionCachingSslConfiguration;
+import com.rothsmith.test.ftp.tls.TlsProfile;
+
+/**
+ * Tests for the TLS profiles, protocol and cipher suite lists and handshake
+ * timing of the {@link FtpsTestServer}.
+ *
+ * @author drothauser
+ *
+ */
+public class FtpsTlsProfileTest {
+
+	/**
+	 * Content of the uploaded test file.
+	 */
+	private static final byte[] CONTENT = "profile".getBytes();
+
+	/**
+	 * Cipher suite enabled on the server.
+	 */
+	private static final String AES_128 =
+	    "TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256";
+
+	/**
+	 * Cipher suite not enabled on the server.
+	 */
+	private static final String AES_256 =
+	    "TLS_ECDHE_RSA_WITH_AES_256_GCM_SHA384";
+
+	/**
+	 * Test that the strict profile refuses TLS 1.2 clients, serves TLS 1.3
+	 * clients and times their handshakes.
+	 *
+	 * @throws Exception
+	 *             possible error
+	 */
+	@Test
+	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
+	public void testStrictProfile() throws Exception {
+
+		FtpsTestServerConfig config = new FtpsTestServerConfig();
+		config.setSslProfile(TlsProfile.STRICT);
+		FtpsTestServer server = FtpsTestFixture.createServer(config);
+		server.startServer();
+		try {
+			assertArrayEquals(new String[] {"TLSv1.3" }, server
+			    .getSslConfiguration().getEnabledProtocols());
+			assertFalse("TLS 1.2 must be refused",
+			    canConnect(server, new String[] {"TLSv1.2" }, null));
+
+			// the default cipher suites of a client lack the TLS 1.3 ones
+			// when jdk.tls.client.protocols leaves TLS 1.3 out
+			FTPSClient client =
+			    createClient(new String[] {"TLSv1.3" }, new String[] {
+			        "TLS_AES_128_GCM_SHA256" });
+			client.connect("localhost", server.getPort());
+			try {
+				FtpsTestFixture.login(client);
+				assertTrue(client.storeFile("strict.txt",
+				    new ByteArrayInputStream(CONTENT)));
+				assertArrayEquals(new String[] {"strict.txt" },
+				    client.listNames());
+			} finally {
+				client.disconnect();
+			}
+			SessionCachingSslConfiguration ssl = server.getSslConfiguration();
+			assertTrue(ssl.getControlHandshakeTimes().getCount() >= 1);
+			assertTrue(ssl.getControlHandshakeTimes().getMin() > 0);
+			awaitDataHandshakes(ssl, 2);
+			assertTrue(ssl.getDataHandshakeTimes().getMin() > 0);
+
+			server.resetMetrics();
+			assertEquals(0, ssl.getControlHandshakeTimes().getCount());
+			assertEquals(0, ssl.getDataHandshakeTimes().getCount());
+		} finally {
+			server.stopServer();
+		}
+	}
+
+	/**
+	 * Test that explicit cipher suites override those of the profile.
+	 *
+	 * @throws Exception
+	 *             possible error
+	 */
+	@Test
+	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
+	public void testExplicitCipherSuites() throws Exception {
+
+		FtpsTestServerConfig config = new FtpsTestServerConfig();
+		config.setSslProfile(TlsProfile.COMPAT);
+		config.setSslProtocols("TLSv1.2");
+		config.setSslCipherSuites(AES_128);
+		FtpsTestServer server = FtpsTestFixture.createServer(config);
+		server.startServer();
+		try {
+			assertFalse("A suite not enabled must be refused", canConnect(
+			    server, null, new String[] {AES_256 }));
+
+			FTPSClient client =
+			    createClient(null, new String[] {AES_256, AES_128 });
+			client.connect("localhost", server.getPort());
+			try {
+				FtpsTestFixture.login(client);
+				assertTrue(client.storeFile("suite.txt",
+				    new ByteArrayInputStream(CONTENT)));
+			} finally {
+				client.disconnect();
+			}
+			awaitDataHandshakes(server.getSslConfiguration(), 1);
+		} finally {
+			server.stopServer();
+		}
+	}
+
+	/**
+	 * Test that a server whose protocols are all unsupported cannot be
+	 * created.
+	 *
+	 * @throws FtpTestException
+	 *             expected error
+	 */
+	@Test(expected = FtpTestException.class)
+	public void testUnsupportedProtocols() throws FtpTestException {
+
+		FtpsTestServerConfig config = new FtpsTestServerConfig();
+		config.setSslProtocols("SSLv1");
+		FtpsTestFixture.createServer(config);
+	}
+
+	/**
+	 * Test the TLS properties read by {@link FtpsTestUtils}: the protocols
+	 * override those of the profile and unsupported ones are left out.
+	 *
+	 * @throws FtpTestException
+	 *             possible error
+	 */
+	@Test
+	public void testProperties() throws FtpTestException {
+
+		FtpsTestServer server =
+		    FtpsTestUtils.createTestFtpsServer("ftpstest-tls.properties");
+		assertArrayEquals(new String[] {"TLSv1.2" }, server
+		    .getSslConfiguration().getEnabledProtocols());
+	}
+
+	/**
+	 * @param protocols
+	 *            protocols to enable or null for the defaults
+	 * @param cipherSuites
+	 *            cipher suites to enable or null for the defaults
+	 * @return an explicit FTPS client trusting the expired test certificate
+	 */
+	private static FTPSClient createClient(String[] protocols,
+	    String[] cipherSuites) {
+		FTPSClient client = new FTPSClient(false);
+		client.setTrustManager(TrustManagerUtils.getAcceptAllTrustManager());
+		if (protocols != null) {
+			client.setEnabledProtocols(protocols);
+		}
+		if (cipherSuites != null) {
+			client.setEnabledCipherSuites(cipherSuites);
+		}
+		return client;
+	}
+
+	/**
+	 * @param server
+	 *            a running server
+	 * @param protocols
+	 *            protocols to enable or null for the defaults
+	 * @param cipherSuites
+	 *            cipher suites to enable or null for the defaults
+	 * @return whether the client could connect and log in
+	 */
+	private static boolean canConnect(FtpsTestServer server,
+	    String[] protocols, String[] cipherSuites) {
+		FTPSClient client = createClient(protocols, cipherSuites);
+		try {
+			client.connect("localhost", server.getPort());
+			return client.login(FtpsTestFixture.USER,
+			    FtpsTestFixture.PASSWORD);
+		} catch (IOException e) {
+			return false;
+		} finally {
+			try {
+				client.disconnect();
+			} catch (IOException e) {
+				// the handshake failed, the connection is gone
+			}
+		}
+	}
+
+	/**
+	 * Wait until the server has timed a number of data connection
+	 * handshakes.
+	 *
+	 * @param ssl
+	 *            TLS configuration of the server
+	 * @param handshakes
+	 *            number of handshakes to wait for
+	 * @throws InterruptedException
+	 *             if interrupted
+	 */
+	private static void awaitDataHandshakes(
+	    final SessionCachingSslConfiguration ssl, int handshakes)
+	        throws InterruptedException {
+		FtpsTestFixture.awaitCount(new LongSupplier() {
+			@Override
+			public long getAsLong() {
+				return ssl.getDataHandshakeTimes().getCount();
+			}
+		}, handshakes);
+	}
+
+}
@@ -0,0 +1,316 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.security.GeneralSecurityException;
+import java.util.function.LongSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManager;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.net.ftp.FTPReply;
+import org.apache.commons.net.ftp.FTPSClient;
+import org.apache.commons.net.util.TrustManagerUtils;
+import org.junit.Test;
+
+import com.rothsmith.test.ftp.tls.SessionCachingSslConfiguration;
+import com.rothsmith.test.ftp.tls.TlsSessionReuse;
+
+/**
+ * Tests for implicit FTPS and TLS session reuse on the data connections of
+ * the {@link FtpsTestServer}.
+ *
+ * @author drothauser
+ *
+ */
+public class FtpsTlsSessionTest {
+
+	/**
+	 * Content of the uploaded test file.
+	 */
+	private static final byte[] CONTENT = "resumed".getBytes();
+
+	/**
+	 * Port of a PASV reply.
+	 */
+	private static final Pattern PASV_PORT = Pattern
+	    .compile("\\d+,\\d+,\\d+,\\d+,(\\d+),(\\d+)");
+
+	/**
+	 * Bits to shift the high byte of a PASV port.
+	 */
+	private static final int BYTE_BITS = 8;
+
+	/**
+	 * The client context is shared by all connections so that its session
+	 * cache holds the control connection's session.
+	 */
+	private static SSLContext clientContext;
+
+	/**
+	 * Test a transfer over implicit FTPS.
+	 *
+	 * @throws Exception
+	 *             possible error
+	 */
+	@Test
+	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
+	public void testImplicitSsl() throws Exception {
+
+		FtpsTestServerConfig config = new FtpsTestServerConfig();
+		config.setImplicitSsl(true);
+		FtpsTestServer server = FtpsTestFixture.createServer(config);
+		server.startServer();
+		try {
+			FTPSClient client = new FTPSClient(true);
+			client.setTrustManager(TrustManagerUtils.getAcceptAllTrustManager());
+			client.connect("localhost", server.getPort());
+			try {
+				FtpsTestFixture.login(client);
+				assertTrue(client.storeFile("implicit.txt",
+				    new ByteArrayInputStream(CONTENT)));
+				assertArrayEquals(new String[] {"implicit.txt" },
+				    client.listNames());
+			} finally {
+				client.disconnect();
+			}
+			awaitHandshakes(server.getSslConfiguration(), 2);
+		} finally {
+			server.stopServer();
+		}
+	}
+
+	/**
+	 * Test that data connections resuming the control connection's session
+	 * are accepted and others refused when session reuse is required.
+	 *
+	 * @throws Exception
+	 *             possible error
+	 */
+	@Test
+	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
+	public void testSessionReuseRequired() throws Exception {
+
+		FtpsTestServerConfig config = new FtpsTestServerConfig();
+		config.setSslSessionReuse(TlsSessionReuse.REQUIRED);
+		config.setSslSessionCacheSize(100);
+		config.setSslSessionTimeout(60);
+		FtpsTestServer server = FtpsTestFixture.createServer(config);
+		server.startServer();
+		try {
+			FTPSClient client = new FTPSClient(false);
+			client.setTrustManager(TrustManagerUtils.getAcceptAllTrustManager());
+			client.connect("localhost", server.getPort());
+			try {
+				FtpsTestFixture.login(client);
+				boolean stored;
+				try {
+					stored =
+					    client.storeFile("new-session.txt",
+					        new ByteArrayInputStream(CONTENT));
+				} catch (IOException e) {
+					stored = false;
+				}
+				assertFalse("A full data handshake must be refused", stored);
+			} finally {
+				client.disconnect();
+			}
+
+			client = new FTPSClient(false, createClientContext());
+			client.connect("localhost", server.getPort());
+			try {
+				FtpsTestFixture.login(client);
+				storeResumed(client, "resumed.txt");
+				assertEquals("resumed.txt", listResumed(client));
+			} finally {
+				client.disconnect();
+			}
+			awaitHandshakes(server.getSslConfiguration(), 2);
+			assertEquals(2, server.getSslConfiguration().getResumedHandshakes());
+			assertEquals(0, server.getSslConfiguration().getFullHandshakes());
+		} finally {
+			server.stopServer();
+		}
+	}
+
+	/**
+	 * Test that every data connection performs a full handshake when session
+	 * reuse is disabled, even if the client offers its session.
+	 *
+	 * @throws Exception
+	 *             possible error
+	 */
+	@Test
+	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
+	public void testSessionReuseDisabled() throws Exception {
+
+		FtpsTestServerConfig config = new FtpsTestServerConfig();
+		config.setSslSessionReuse(TlsSessionReuse.DISABLED);
+		FtpsTestServer server = FtpsTestFixture.createServer(config);
+		server.startServer();
+		try {
+			FTPSClient client = new FTPSClient(false, createClientContext());
+			client.connect("localhost", server.getPort());
+			try {
+				FtpsTestFixture.login(client);
+				assertTrue(client.storeFile("full.txt",
+				    new ByteArrayInputStream(CONTENT)));
+				assertEquals("full.txt", listResumed(client));
+			} finally {
+				client.disconnect();
+			}
+			awaitHandshakes(server.getSslConfiguration(), 2);
+			assertEquals(0, server.getSslConfiguration().getResumedHandshakes());
+		} finally {
+			server.stopServer();
+		}
+	}
+
+	/**
+	 * Upload the test content over a data connection resuming the control
+	 * connection's session.
+	 *
+	 * @param client
+	 *            a logged in client
+	 * @param path
+	 *            file to store
+	 * @throws IOException
+	 *             possible error
+	 * @throws GeneralSecurityException
+	 *             possible TLS error
+	 */
+	private static void storeResumed(FTPSClient client, String path)
+	        throws IOException, GeneralSecurityException {
+		SSLSocket data = openResumed(client, "STOR " + path);
+		try {
+			data.getOutputStream().write(CONTENT);
+		} finally {
+			data.close();
+		}
+		assertTrue(client.completePendingCommand());
+	}
+
+	/**
+	 * List the file names over a data connection resuming the control
+	 * connection's session.
+	 *
+	 * @param client
+	 *            a logged in client
+	 * @return the listing
+	 * @throws IOException
+	 *             possible error
+	 * @throws GeneralSecurityException
+	 *             possible TLS error
+	 */
+	private static String listResumed(FTPSClient client) throws IOException,
+	        GeneralSecurityException {
+		SSLSocket data = openResumed(client, "NLST");
+		String names;
+		try {
+			names = IOUtils.toString(data.getInputStream()).trim();
+		} finally {
+			data.close();
+		}
+		assertTrue(client.completePendingCommand());
+		return names;
+	}
+
+	/**
+	 * Open a passive data connection for a command. Its TLS layer sees the
+	 * control connection's host and port, so that the client offers the
+	 * control connection's session for resumption.
+	 *
+	 * @param client
+	 *            a logged in client
+	 * @param command
+	 *            the transfer command
+	 * @return the data connection after its handshake
+	 * @throws IOException
+	 *             possible error
+	 * @throws GeneralSecurityException
+	 *             possible TLS error
+	 */
+	private static SSLSocket openResumed(FTPSClient client, String command)
+	        throws IOException, GeneralSecurityException {
+		assertEquals(FTPReply.ENTERING_PASSIVE_MODE, client.pasv());
+		Matcher matcher = PASV_PORT.matcher(client.getReplyString());
+		assertTrue(matcher.find());
+		int port =
+		    (Integer.parseInt(matcher.group(1)) << BYTE_BITS)
+		        + Integer.parseInt(matcher.group(2));
+		final int controlPort = client.getRemotePort();
+		Socket plain = new Socket(client.getRemoteAddress(), port) {
+
+			/**
+			 * The client caches sessions by the peer host and the port of the
+			 * underlying socket.
+			 * 
+			 * @return the control connection port
+			 */
+			@Override
+			public int getPort() {
+				return controlPort;
+			}
+		};
+		assertTrue(FTPReply.isPositivePreliminary(client.sendCommand(command)));
+		SSLSocket data =
+		    (SSLSocket) createClientContext().getSocketFactory()
+		        .createSocket(plain,
+		            client.getRemoteAddress().getHostAddress(), controlPort,
+		            true);
+		data.startHandshake();
+		return data;
+	}
+
+	/**
+	 * Wait until the server has counted a number of data connection
+	 * handshakes.
+	 *
+	 * @param ssl
+	 *            TLS configuration of the server
+	 * @param handshakes
+	 *            number of handshakes to wait for
+	 * @throws InterruptedException
+	 *             if interrupted
+	 */
+	private static void awaitHandshakes(
+	    final SessionCachingSslConfiguration ssl, int handshakes)
+	        throws InterruptedException {
+		FtpsTestFixture.awaitCount(new LongSupplier() {
+			@Override
+			public long getAsLong() {
+				return ssl.getFullHandshakes() + ssl.getResumedHandshakes();
+			}
+		}, handshakes);
+	}
+
+	/**
+	 * @return a TLS 1.2 client context trusting the expired test certificate
+	 * @throws GeneralSecurityException
+	 *             possible error
+	 */
+	private static synchronized SSLContext createClientContext()
+	        throws GeneralSecurityException {
+		if (clientContext == null) {
+			clientContext = SSLContext.getInstance("TLSv1.2");
+			clientContext.init(null,
+			    new TrustManager[] {TrustManagerUtils
+			        .getAcceptAllTrustManager() }, null);
+		}
+		return clientContext;
+	}
+
+}
@@ -0,0 +1,274 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.Properties;
+
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.sshd.common.NamedFactory;
+import org.junit.Test;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import com.jcraft.jsch.SocketFactory;
+import com.rothsmith.test.ftp.memfs.MemorySshFileSystemFactory;
+
+/**
+ * Tests for the algorithm profiles and compression of the
+ * {@link SFtpTestServer}.
+ *
+ * @author drothauser
+ *
+ */
+public class SFtpAlgorithmProfileTest {
+
+	/**
+	 * SFTP user.
+	 */
+	private static final String USER = "remote-username";
+
+	/**
+	 * Size of the uploaded file in bytes.
+	 */
+	private static final int SIZE = 1024 * 1024;
+
+	/**
+	 * Shared JSch instance.
+	 */
+	private static final JSch JSCH = new JSch();
+
+	/**
+	 * Test that the fast profile offers its algorithms only.
+	 *
+	 * @throws Exception
+	 *             possible error
+	 */
+	@Test
+	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
+	public void testFastProfile() throws Exception {
+
+		SFtpTestServer server =
+		    createServer(SshAlgorithmProfile.FAST, SshCompression.NONE);
+		server.startServer();
+		try {
+			// arcfour128 is left out where the JVM has disabled RC4
+			String ciphers =
+			    NamedFactory.Utils.getNames(server.getSshd()
+			        .getCipherFactories());
+			assertTrue(ciphers, "aes128-ctr".equals(ciphers)
+			    || "aes128-ctr,arcfour128".equals(ciphers));
+			assertEquals("hmac-md5,hmac-sha1", NamedFactory.Utils
+			    .getNames(server.getSshd().getMacFactories()));
+			assertTrue(upload(server, new Properties()) > 0);
+
+			Properties config = new Properties();
+			config.put("mac.s2c", "hmac-sha2-256");
+			config.put("mac.c2s", "hmac-sha2-256");
+			assertFalse("A MAC not offered must be refused",
+			    canConnect(server, config));
+		} finally {
+			server.stopServer();
+		}
+	}
+
+	/**
+	 * Test that the strict profile refuses CBC ciphers.
+	 *
+	 * @throws Exception
+	 *             possible error
+	 */
+	@Test
+	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
+	public void testStrictProfile() throws Exception {
+
+		SFtpTestServer server =
+		    createServer(SshAlgorithmProfile.DEFAULT, SshCompression.NONE);
+		server.setAlgorithmProfile(SshAlgorithmProfile.STRICT);
+		server.startServer();
+		try {
+			Properties config = new Properties();
+			config.put("cipher.s2c", "aes128-cbc");
+			config.put("cipher.c2s", "aes128-cbc");
+			assertFalse("A CBC cipher must be refused",
+			    canConnect(server, config));
+			assertTrue(canConnect(server, new Properties()));
+		} finally {
+			server.stopServer();
+		}
+	}
+
+	/**
+	 * Test that zlib and delayed zlib compression shrink a compressible file
+	 * on the wire.
+	 *
+	 * @throws Exception
+	 *             possible error
+	 */
+	@Test
+	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
+	public void testCompression() throws Exception {
+
+		for (SshCompression compression : SshCompression.values()) {
+			SFtpTestServer server =
+			    createServer(SshAlgorithmProfile.DEFAULT, compression);
+			server.startServer();
+			try {
+				Properties config = new Properties();
+				config.put("compression.s2c", compression.getName());
+				config.put("compression.c2s", compression.getName());
+				long sent = upload(server, config);
+				if (compression == SshCompression.NONE) {
+					assertTrue(compression + " sent " + sent, sent > SIZE);
+				} else {
+					assertTrue(compression + " sent " + sent, sent < SIZE / 10);
+				}
+			} finally {
+				server.stopServer();
+			}
+		}
+	}
+
+	/**
+	 * Test that a client without compression is refused by a server that
+	 * compresses.
+	 *
+	 * @throws Exception
+	 *             possible error
+	 */
+	@Test
+	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
+	public void testCompressionRequired() throws Exception {
+
+		SFtpTestServer server =
+		    createServer(SshAlgorithmProfile.DEFAULT, SshCompression.NONE);
+		server.setCompression(SshCompression.ZLIB);
+		server.startServer();
+		try {
+			assertFalse(canConnect(server, new Properties()));
+		} finally {
+			server.stopServer();
+		}
+	}
+
+	/**
+	 * @param algorithms
+	 *            algorithm profile of the server
+	 * @param compression
+	 *            compression of the server
+	 * @return a new server with an in-memory file system
+	 */
+	private static SFtpTestServer createServer(SshAlgorithmProfile algorithms,
+	    SshCompression compression) {
+		return new SFtpTestServer(SFtpTestServer.DEFAULT_HOST,
+		    SFtpTestServer.EPHEMERAL_PORT, USER,
+		    new MemorySshFileSystemFactory(), algorithms, compression);
+	}
+
+	/**
+	 * @param server
+	 *            a running server
+	 * @param config
+	 *            JSch options
+	 * @return whether the client could connect and log in
+	 */
+	private static boolean canConnect(SFtpTestServer server,
+	    Properties config) {
+		try {
+			Session session = connect(server, config, null);
+			session.disconnect();
+			return true;
+		} catch (JSchException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Upload a compressible file.
+	 *
+	 * @param server
+	 *            a running server
+	 * @param config
+	 *            JSch options
+	 * @return bytes the client sent to the server over the whole session
+	 * @throws Exception
+	 *             possible error
+	 */
+	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
+	private static long upload(SFtpTestServer server, Properties config)
+	        throws Exception {
+		final CountingOutputStream[] sent = new CountingOutputStream[1];
+		Session session = connect(server, config, new SocketFactory() {
+
+			@Override
+			public Socket createSocket(String host, int port)
+			        throws IOException {
+				return new Socket(host, port);
+			}
+
+			@Override
+			public InputStream getInputStream(Socket socket)
+			        throws IOException {
+				return socket.getInputStream();
+			}
+
+			@Override
+			public OutputStream getOutputStream(Socket socket)
+			        throws IOException {
+				sent[0] = new CountingOutputStream(socket.getOutputStream());
+				return sent[0];
+			}
+		});
+		try {
+			ChannelSftp sftp = (ChannelSftp) session.openChannel("sftp");
+			sftp.connect();
+			byte[] data = new byte[SIZE];
+			Arrays.fill(data, (byte) 'x');
+			sftp.put(new ByteArrayInputStream(data), "data.txt");
+			assertEquals(SIZE, sftp.lstat("data.txt").getSize());
+			sftp.disconnect();
+		} finally {
+			session.disconnect();
+		}
+		return sent[0].getByteCount();
+	}
+
+	/**
+	 * @param server
+	 *            a running server
+	 * @param config
+	 *            JSch options
+	 * @param socketFactory
+	 *            factory of the client socket or null for the default
+	 * @return a connected and authenticated session
+	 * @throws JSchException
+	 *             possible error
+	 */
+	private static Session connect(SFtpTestServer server, Properties config,
+	    SocketFactory socketFactory) throws JSchException {
+		Session session =
+		    JSCH.getSession(USER, SFtpTestServer.DEFAULT_HOST,
+		        server.getPort());
+		config.put("StrictHostKeyChecking", "no");
+		session.setConfig(config);
+		session.setPassword("remote-password");
+		if (socketFactory != null) {
+			session.setSocketFactory(socketFactory);
+		}
+		session.connect();
+		return session;
+	}
+
+}
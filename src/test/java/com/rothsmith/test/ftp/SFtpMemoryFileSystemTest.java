@@ -0,0 +1,332 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.Hashtable;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.ChannelSftp.LsEntry;
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.Session;
+import com.jcraft.jsch.SftpException;
+import com.rothsmith.test.ftp.checksum.UploadChecksum;
+import com.rothsmith.test.ftp.events.FileEvent;
+import com.rothsmith.test.ftp.memfs.GeneratedContent;
+import com.rothsmith.test.ftp.memfs.MemoryFile;
+import com.rothsmith.test.ftp.memfs.MemoryFileSystem;
+import com.rothsmith.test.ftp.memfs.MemorySnapshot;
+import com.rothsmith.test.ftp.memfs.MemorySshFileSystemFactory;
+
+/**
+ * Tests for {@link SFtpTestServer} serving an in-memory file system.
+ *
+ * @author drothauser
+ *
+ */
+public class SFtpMemoryFileSystemTest {
+
+	/**
+	 * SFTP user.
+	 */
+	private static final String USER = "remote-username";
+
+	/**
+	 * In-memory file system served by the test server.
+	 */
+	private static MemoryFileSystem fileSystem;
+
+	/**
+	 * Test SFTP Server instance.
+	 */
+	private static SFtpTestServer sshServer;
+
+	/**
+	 * Start the test SFTP server with an in-memory file system.
+	 *
+	 * @throws Exception
+	 *             possible error
+	 */
+	@BeforeClass
+	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
+	public static void setUpBeforeClass() throws Exception {
+
+		fileSystem =
+		    new MemoryFileSystem(MemoryFileSystem.StorageType.DIRECT,
+		        16 * 1024 * 1024);
+		sshServer =
+		    new SFtpTestServer(SFtpTestServer.DEFAULT_HOST,
+		        SFtpTestServer.EPHEMERAL_PORT, USER,
+		        new MemorySshFileSystemFactory(fileSystem));
+		sshServer.setUploadChecksums(true);
+		sshServer.startServer();
+	}
+
+	/**
+	 * Test uploading, listing, downloading, renaming and removing a file.
+	 *
+	 * @throws Exception
+	 *             possible error
+	 */
+	@Test
+	@SuppressWarnings({ "PMD.SignatureDeclareThrowsException", "unchecked" })
+	public void testPutGetRemove() throws Exception {
+
+		JSch jsch = new JSch();
+		Hashtable<String, String> config = // NOPMD Jsch needs Hashtable
+		    new Hashtable<String, String>();
+		config.put("StrictHostKeyChecking", "no");
+		JSch.setConfig(config);
+
+		Session session =
+		    jsch.getSession(USER, "localhost", sshServer.getPort());
+		session.setPassword("remote-password");
+		session.connect();
+		ChannelSftp sftp = (ChannelSftp) session.openChannel("sftp");
+		sftp.connect();
+
+		byte[] data = new byte[200000];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) (i % 251);
+		}
+		sftp.mkdir("in");
+		sftp.put(new ByteArrayInputStream(data), "in/data.bin");
+
+		MemoryFile file = (MemoryFile) fileSystem.lookup("/in/data.bin");
+		assertEquals(data.length, file.getSize());
+
+		Vector<LsEntry> dirlist = sftp.ls("in"); // NOPMD ls returns Vector
+		assertEquals(1, dirlist.size());
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		sftp.get("in/data.bin", out);
+		assertArrayEquals(data, out.toByteArray());
+
+		sftp.rename("in/data.bin", "in/renamed.bin");
+		sftp.rm("in/renamed.bin");
+		assertNull(fileSystem.lookup("/in/renamed.bin"));
+
+		sftp.disconnect();
+		session.disconnect();
+	}
+
+	/**
+	 * Test downloading a generated file, verified by checksum, without the
+	 * file ever being stored.
+	 *
+	 * @throws Exception
+	 *             possible error
+	 */
+	@Test
+	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
+	public void testGeneratedFileDownload() throws Exception {
+
+		GeneratedContent content = new GeneratedContent(7, 64L * 1024 * 1024);
+		fileSystem.mkdirs("/generated");
+		fileSystem.createGeneratedFile("/generated/64m.bin",
+		    content.getSize(), content.getSeed());
+
+		Session session =
+		    new JSch().getSession(USER, "localhost", sshServer.getPort());
+		Properties config = new Properties();
+		config.put("StrictHostKeyChecking", "no");
+		session.setConfig(config);
+		session.setPassword("remote-password");
+		session.connect();
+		ChannelSftp sftp = (ChannelSftp) session.openChannel("sftp");
+		sftp.connect();
+
+		assertEquals(content.getSize(), sftp.lstat("generated/64m.bin")
+		    .getSize());
+		DigestOutputStream out =
+		    new DigestOutputStream(NullOutputStream.NULL_OUTPUT_STREAM,
+		        MessageDigest.getInstance("SHA-256"));
+		sftp.get("generated/64m.bin", out);
+		assertArrayEquals(content.digest("SHA-256"), out.getMessageDigest()
+		    .digest());
+		assertEquals(0, fileSystem.getUsedBytes());
+
+		sftp.disconnect();
+		session.disconnect();
+	}
+
+	/**
+	 * Test that the server checksums an upload as it arrives, and continues
+	 * the checksums when the upload is resumed.
+	 *
+	 * @throws Exception
+	 *             possible error
+	 */
+	@Test
+	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
+	public void testUploadChecksums() throws Exception {
+
+		byte[] data = new byte[1024 * 1024];
+		new Random(11).nextBytes(data);
+		byte[] sha256 = MessageDigest.getInstance("SHA-256").digest(data);
+
+		Session session =
+		    new JSch().getSession(USER, "localhost", sshServer.getPort());
+		Properties config = new Properties();
+		config.put("StrictHostKeyChecking", "no");
+		session.setConfig(config);
+		session.setPassword("remote-password");
+		session.connect();
+		ChannelSftp sftp = (ChannelSftp) session.openChannel("sftp");
+		sftp.connect();
+
+		sftp.put(new ByteArrayInputStream(data), "checksummed.bin");
+		UploadChecksum checksum =
+		    sshServer.getUploadChecksums().get("/checksummed.bin");
+		assertEquals(data.length, checksum.getBytes());
+		assertArrayEquals(sha256, checksum.getSha256());
+
+		int half = data.length / 2;
+		sftp.put(new ByteArrayInputStream(data, 0, half), "resumed.bin");
+		sftp.put(new ByteArrayInputStream(data, half, data.length - half),
+		    "resumed.bin", ChannelSftp.APPEND);
+		UploadChecksum resumed =
+		    sshServer.getUploadChecksums().get("/resumed.bin");
+		assertTrue(resumed.isSequential());
+		assertEquals(data.length, resumed.getBytes());
+		assertArrayEquals(sha256, resumed.getSha256());
+		assertEquals(checksum.getCrc32c(), resumed.getCrc32c());
+
+		sftp.rm("checksummed.bin");
+		sftp.rm("resumed.bin");
+		sftp.disconnect();
+		session.disconnect();
+	}
+
+	/**
+	 * Test waiting for an upload, a rename and a delete to complete.
+	 *
+	 * @throws Exception
+	 *             possible error
+	 */
+	@Test
+	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
+	public void testAwaitTransfer() throws Exception {
+
+		final byte[] data = new byte[300000];
+		new Random(13).nextBytes(data);
+		CompletableFuture<FileEvent> transfer =
+		    sshServer.awaitTransfer("/awaited/data.bin");
+		assertFalse(transfer.isDone());
+
+		Session session =
+		    new JSch().getSession(USER, "localhost", sshServer.getPort());
+		Properties config = new Properties();
+		config.put("StrictHostKeyChecking", "no");
+		session.setConfig(config);
+		session.setPassword("remote-password");
+		session.connect();
+		final ChannelSftp sftp = (ChannelSftp) session.openChannel("sftp");
+		sftp.connect();
+		sftp.mkdir("awaited");
+
+		Thread uploader = new Thread() {
+			@Override
+			public void run() {
+				try {
+					sftp.put(new ByteArrayInputStream(data),
+					    "awaited/data.bin");
+					sftp.rename("awaited/data.bin", "awaited/renamed.bin");
+					sftp.rm("awaited/renamed.bin");
+				} catch (SftpException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		};
+		uploader.start();
+		FileEvent uploaded = transfer.get(30, TimeUnit.SECONDS);
+		assertEquals(data.length, uploaded.getBytes());
+		FileEvent renamed =
+		    sshServer.awaitFile("/awaited/renamed.bin", 30, TimeUnit.SECONDS,
+		        FileEvent.Type.RENAMED, FileEvent.Type.DELETED);
+		assertEquals("/awaited/data.bin", renamed.getPath());
+		assertEquals(FileEvent.Type.DELETED,
+		    sshServer.awaitFile("/awaited/renamed.bin", 30, TimeUnit.SECONDS,
+		        FileEvent.Type.DELETED).getType());
+		uploader.join();
+
+		sftp.disconnect();
+		session.disconnect();
+	}
+
+	/**
+	 * Test that a restore puts back fixture files changed, added and deleted
+	 * by a client.
+	 *
+	 * @throws Exception
+	 *             possible error
+	 */
+	@Test
+	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
+	public void testSnapshotRestore() throws Exception {
+
+		assertEquals(fileSystem, sshServer.getMemoryFileSystem());
+		fileSystem.mkdirs("/fixture");
+		byte[] data = "POLICY-0000001,FL,AUTO\n".getBytes("US-ASCII");
+		fileSystem.getOrCreateFile("/fixture/policies.csv").write(0, data, 0,
+		    data.length);
+		fileSystem.getOrCreateFile("/fixture/old.csv");
+		MemorySnapshot snapshot = sshServer.snapshot();
+
+		Session session =
+		    new JSch().getSession(USER, "localhost", sshServer.getPort());
+		Properties config = new Properties();
+		config.put("StrictHostKeyChecking", "no");
+		session.setConfig(config);
+		session.setPassword("remote-password");
+		session.connect();
+		ChannelSftp sftp = (ChannelSftp) session.openChannel("sftp");
+		sftp.connect();
+		sftp.put(new ByteArrayInputStream(new byte[] { 'x' }),
+		    "fixture/policies.csv");
+		sftp.put(new ByteArrayInputStream(data), "fixture/new.csv");
+		sftp.rm("fixture/old.csv");
+
+		sshServer.restore(snapshot);
+		assertEquals(2, sftp.ls("fixture").size());
+		assertEquals(0, sftp.lstat("fixture/old.csv").getSize());
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		sftp.get("fixture/policies.csv", out);
+		assertArrayEquals(data, out.toByteArray());
+		sftp.disconnect();
+		session.disconnect();
+	}
+
+	/**
+	 * Stop server after finished with all testing.
+	 *
+	 * @throws FtpTestException
+	 *             possible error shutting down the SFTP server
+	 */
+	@AfterClass
+	public static void tearDownAfterClass() throws FtpTestException {
+
+		sshServer.stopServer();
+	}
+
+}
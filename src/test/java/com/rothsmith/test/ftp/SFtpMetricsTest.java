@@ -0,0 +1,116 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Hashtable;
+
+import org.junit.Test;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.Session;
+import com.jcraft.jsch.SftpException;
+import com.rothsmith.test.ftp.memfs.MemorySshFileSystemFactory;
+import com.rothsmith.test.ftp.metrics.CommandMetrics;
+import com.rothsmith.test.ftp.metrics.SftpMetricsSnapshot;
+import com.rothsmith.test.ftp.metrics.SftpSessionMetrics;
+
+/**
+ * Tests for the server side SFTP metrics of {@link SFtpTestServer}.
+ *
+ * @author drothauser
+ *
+ */
+public class SFtpMetricsTest {
+
+	/**
+	 * SFTP user.
+	 */
+	private static final String USER = "metrics-user";
+
+	/**
+	 * Size of the file transferred, several SFTP requests worth.
+	 */
+	private static final int FILE_SIZE = 300000;
+
+	/**
+	 * Test the metrics of an upload, a download and a failed request.
+	 *
+	 * @throws Exception
+	 *             possible error
+	 */
+	@Test
+	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
+	public void testTransferMetrics() throws Exception {
+
+		SFtpTestServer server =
+		    new SFtpTestServer(SFtpTestServer.DEFAULT_HOST,
+		        SFtpTestServer.EPHEMERAL_PORT, USER,
+		        new MemorySshFileSystemFactory());
+		server.startServer();
+		try {
+			JSch jsch = new JSch();
+			Hashtable<String, String> config = // NOPMD Jsch needs Hashtable
+			    new Hashtable<String, String>();
+			config.put("StrictHostKeyChecking", "no");
+			JSch.setConfig(config);
+			Session session =
+			    jsch.getSession(USER, "localhost", server.getPort());
+			session.setPassword("any");
+			session.connect();
+			ChannelSftp sftp = (ChannelSftp) session.openChannel("sftp");
+			sftp.connect();
+
+			sftp.put(new ByteArrayInputStream(new byte[FILE_SIZE]),
+			    "metrics.bin");
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			sftp.get("metrics.bin", out);
+			assertEquals(FILE_SIZE, out.size());
+			try {
+				sftp.stat("missing.bin");
+				fail("stat of a missing file should fail");
+			} catch (SftpException e) {
+				assertEquals(ChannelSftp.SSH_FX_NO_SUCH_FILE, e.id);
+			}
+
+			SftpMetricsSnapshot snapshot = server.getMetrics();
+			assertEquals(FILE_SIZE, snapshot.getBytesWritten());
+			assertEquals(FILE_SIZE, snapshot.getBytesRead());
+			CommandMetrics write = snapshot.getOperation("WRITE");
+			assertTrue(write.getCount() > 1);
+			assertEquals(0, write.getFailures());
+			assertTrue(write.getLatencies().getP99() > 0);
+			assertEquals(2, snapshot.getOperation("OPEN").getCount());
+			assertEquals(1, snapshot.getOperation("STAT").getFailures());
+			assertEquals(0, snapshot.getOperation("RMDIR").getCount());
+			assertTrue(snapshot.getDepths().getMin() >= 1);
+			assertEquals(1, snapshot.getSessions().size());
+			SftpSessionMetrics sessionMetrics = snapshot.getSessions().get(0);
+			assertEquals(USER, sessionMetrics.getUser());
+			assertTrue(sessionMetrics.isOpen());
+			assertEquals(snapshot.getDepths().getCount(),
+			    sessionMetrics.getRequests());
+
+			sftp.disconnect();
+			session.disconnect();
+
+			server.resetMetrics();
+			snapshot = server.getMetrics();
+			assertTrue(snapshot.getOperations().isEmpty());
+			for (SftpSessionMetrics each : snapshot.getSessions()) {
+				assertFalse(each.getBytesWritten() > 0);
+			}
+		} finally {
+			server.stopServer();
+		}
+	}
+
+}
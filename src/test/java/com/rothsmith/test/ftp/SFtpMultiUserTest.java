@@ -0,0 +1,176 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.util.Hashtable;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import com.rothsmith.test.ftp.memfs.MemoryFileSystem;
+import com.rothsmith.test.ftp.memfs.MemorySshFileSystemFactory;
+
+/**
+ * Tests for {@link SFtpTestServer} serving many users with isolated homes.
+ *
+ * @author drothauser
+ *
+ */
+public class SFtpMultiUserTest {
+
+	/**
+	 * Number of generated users.
+	 */
+	private static final int USER_COUNT = 2000;
+
+	/**
+	 * Password of the generated users.
+	 */
+	private static final String PASSWORD = "secret";
+
+	/**
+	 * In-memory file system served by the test server.
+	 */
+	private static MemoryFileSystem fileSystem;
+
+	/**
+	 * Test SFTP Server instance.
+	 */
+	private static SFtpTestServer sshServer;
+
+	/**
+	 * Start the test SFTP server with generated users.
+	 *
+	 * @throws FtpTestException
+	 *             possible error
+	 */
+	@BeforeClass
+	public static void setUpBeforeClass() throws FtpTestException {
+
+		Hashtable<String, String> config = // NOPMD Jsch needs Hashtable
+		    new Hashtable<String, String>();
+		config.put("StrictHostKeyChecking", "no");
+		JSch.setConfig(config);
+
+		fileSystem = new MemoryFileSystem();
+		sshServer =
+		    new SFtpTestServer(SFtpTestServer.DEFAULT_HOST,
+		        SFtpTestServer.EPHEMERAL_PORT, "remote-username",
+		        new MemorySshFileSystemFactory(fileSystem));
+		sshServer.addUsers("load", USER_COUNT, PASSWORD);
+		sshServer.startServer();
+	}
+
+	/**
+	 * Test that users get isolated home directories.
+	 *
+	 * @throws Exception
+	 *             possible error
+	 */
+	@Test
+	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
+	public void testIsolatedHomes() throws Exception {
+
+		assertEquals(USER_COUNT + 1, sshServer.getUserCount());
+
+		Session session = connect("load7", PASSWORD);
+		ChannelSftp sftp = (ChannelSftp) session.openChannel("sftp");
+		sftp.connect();
+		sftp.put(new ByteArrayInputStream(new byte[] { 1, 2, 3 }), "data.bin");
+		sftp.disconnect();
+		session.disconnect();
+		assertNotNull(fileSystem.lookup("/load7/data.bin"));
+
+		session = connect("load8", PASSWORD);
+		sftp = (ChannelSftp) session.openChannel("sftp");
+		sftp.connect();
+		assertEquals("/", sftp.pwd());
+		assertEquals(0, sftp.ls(".").size());
+		sftp.disconnect();
+		session.disconnect();
+		assertNull(fileSystem.lookup("/load8/data.bin"));
+	}
+
+	/**
+	 * Test that passwords are checked and that users can be added and removed
+	 * while the server runs.
+	 *
+	 * @throws Exception
+	 *             possible error
+	 */
+	@Test
+	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
+	public void testChangeUsersAtRuntime() throws Exception {
+
+		assertLoginFails("load9", "wrong");
+
+		sshServer.addUser("late", "late-password");
+		connect("late", "late-password").disconnect();
+
+		sshServer.removeUser("late");
+		assertLoginFails("late", "late-password");
+	}
+
+	/**
+	 * Log in with a password.
+	 *
+	 * @param user
+	 *            user id
+	 * @param password
+	 *            password
+	 * @return the connected session
+	 * @throws JSchException
+	 *             possible login error
+	 */
+	private static Session connect(String user, String password)
+	        throws JSchException {
+
+		Session session =
+		    new JSch().getSession(user, "localhost", sshServer.getPort());
+		session.setPassword(password);
+		session.connect();
+		return session;
+	}
+
+	/**
+	 * Assert that a login is rejected.
+	 *
+	 * @param user
+	 *            user id
+	 * @param password
+	 *            password
+	 */
+	private static void assertLoginFails(String user, String password) {
+		try {
+			connect(user, password).disconnect();
+			fail("Login should fail for " + user);
+		} catch (JSchException e) {
+			assertEquals("Auth fail", e.getMessage());
+		}
+	}
+
+	/**
+	 * Stop server after finished with all testing.
+	 *
+	 * @throws FtpTestException
+	 *             possible error shutting down the SFTP server
+	 */
+	@AfterClass
+	public static void tearDownAfterClass() throws FtpTestException {
+
+		sshServer.stopServer();
+	}
+
+}
@@ -44,11 +44,6 @@ public class SFtpTestServerTest {
 	private static final Logger LOGGER = LoggerFactory
 	    .getLogger(SFtpTestServerTest.class);
 
-	/**
-	 * SFTP/SSH Port.
-	 */
-	private static final int SFTP_PORT = 22;
-
 	// START SNIPPET: sftp-server-setup
 
 	/**
@@ -66,7 +61,9 @@ public class SFtpTestServerTest {
 	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
 	public static void setUpBeforeClass() throws Exception {
 
-		sshServer = new SFtpTestServer("remote-username");
+		sshServer =
+		    new SFtpTestServer(SFtpTestServer.DEFAULT_HOST,
+		        SFtpTestServer.EPHEMERAL_PORT, "remote-username");
 		sshServer.startServer();
 
 		SshServer sshd = sshServer.getSshd();
@@ -90,7 +87,7 @@ public class SFtpTestServerTest {
 		String user = "remote-username";
 		String password = "remote-password";
 		String server = "localhost";
-		int port = SFTP_PORT;
+		int port = sshServer.getPort();
 
 		try {
 
@@ -157,7 +154,7 @@ public class SFtpTestServerTest {
 		String user = "remote-username";
 		String password = "remote-password";
 		String server = "localhost";
-		int port = SFTP_PORT;
+		int port = sshServer.getPort();
 
 		String privateKeyfile = "testid_rsa.key";
 		String passphrase = "password";
@@ -229,7 +226,7 @@ public class SFtpTestServerTest {
 		String user = "bogus";
 		String password = "remote-password";
 		String server = "localhost";
-		int port = SFTP_PORT;
+		int port = sshServer.getPort();
 
 		JSch jsch = new JSch();
 
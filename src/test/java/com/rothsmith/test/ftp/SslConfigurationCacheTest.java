@@ -0,0 +1,81 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.ftpserver.ssl.SslConfiguration;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link SslConfigurationCache}.
+ *
+ * @author drothauser
+ *
+ */
+public class SslConfigurationCacheTest {
+
+	/**
+	 * Path of the test keystore.
+	 */
+	private String keystorePath;
+
+	/**
+	 * Locate the test keystore and start with an empty cache.
+	 */
+	@Before
+	public void setUp() {
+
+		File keystore =
+		    FileUtils.toFile(ClassLoader.getSystemResource("testcert.jks"));
+		keystorePath = keystore.getAbsolutePath();
+		SslConfigurationCache.clear();
+	}
+
+	/**
+	 * Test that the keystore is loaded once per path, type and password.
+	 */
+	@Test
+	public void testHitsAndMisses() {
+
+		SslConfiguration first =
+		    SslConfigurationCache.getSslConfiguration("JKS", keystorePath,
+		        "changeit");
+		SslConfiguration second =
+		    SslConfigurationCache.getSslConfiguration("JKS", keystorePath,
+		        "changeit");
+		assertSame(first, second);
+		assertEquals(1, SslConfigurationCache.getMissCount());
+		assertEquals(1, SslConfigurationCache.getHitCount());
+
+		SslConfiguration lowerCaseType =
+		    SslConfigurationCache.getSslConfiguration("jks", keystorePath,
+		        "changeit");
+		assertNotSame(first, lowerCaseType);
+		assertEquals(2, SslConfigurationCache.getMissCount());
+		assertEquals(2, SslConfigurationCache.size());
+	}
+
+	/**
+	 * Test that servers built from the same properties share the keystore.
+	 *
+	 * @throws FtpTestException
+	 *             possible error configuring the servers
+	 */
+	@Test
+	public void testServersShareConfiguration() throws FtpTestException {
+
+		FtpsTestUtils.createTestFtpsServer("ftpstest.properties");
+		FtpsTestUtils.createTestFtpsServer("ftpstest.properties");
+		assertEquals(1, SslConfigurationCache.getMissCount());
+		assertEquals(1, SslConfigurationCache.getHitCount());
+	}
+
+}
@@ -0,0 +1,264 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link TestServerRegistry}.
+ *
+ * @author drothauser
+ *
+ */
+public class TestServerRegistryTest {
+
+	/**
+	 * Idle grace period used by the tests in milliseconds.
+	 */
+	private static final long GRACE_MILLIS = 200;
+
+	/**
+	 * How long to wait for a grace period to run out in milliseconds.
+	 */
+	private static final long WAIT_MILLIS = 1000;
+
+	/**
+	 * Registry under test.
+	 */
+	private TestServerRegistry registry;
+
+	/**
+	 * Create a registry with a short grace period.
+	 */
+	@Before
+	public void setUp() {
+		registry = new TestServerRegistry(GRACE_MILLIS);
+	}
+
+	/**
+	 * Stop whatever the test left running.
+	 */
+	@After
+	public void tearDown() {
+		registry.shutdown();
+	}
+
+	/**
+	 * Test that leases of one key share a server that is started once and
+	 * stopped after the grace period.
+	 *
+	 * @throws Exception
+	 *             possible error
+	 */
+	@Test
+	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
+	public void testLeasesShareServer() throws Exception {
+
+		CountingFactory factory = new CountingFactory();
+		TestServerLease<FakeServer> first = registry.lease("fake", factory);
+		TestServerLease<FakeServer> second = registry.lease("fake", factory);
+		assertSame(first.getServer(), second.getServer());
+		assertEquals(1, factory.created);
+
+		first.release();
+		first.release();
+		Thread.sleep(WAIT_MILLIS);
+		assertTrue(second.getServer().running);
+
+		second.release();
+		Thread.sleep(WAIT_MILLIS);
+		assertFalse(second.getServer().running);
+		assertEquals(0, registry.size());
+	}
+
+	/**
+	 * Test that a server leased again within the grace period keeps running
+	 * and one leased after it is a new server.
+	 *
+	 * @throws Exception
+	 *             possible error
+	 */
+	@Test
+	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
+	public void testReleaseAndLeaseAgain() throws Exception {
+
+		CountingFactory factory = new CountingFactory();
+		TestServerLease<FakeServer> first = registry.lease("fake", factory);
+		first.release();
+		TestServerLease<FakeServer> second = registry.lease("fake", factory);
+		assertSame(first.getServer(), second.getServer());
+		Thread.sleep(WAIT_MILLIS);
+		assertTrue(second.getServer().running);
+
+		second.release();
+		Thread.sleep(WAIT_MILLIS);
+		TestServerLease<FakeServer> third = registry.lease("fake", factory);
+		assertNotSame(first.getServer(), third.getServer());
+		assertEquals(2, factory.created);
+		third.release();
+	}
+
+	/**
+	 * Test that a server failing half way through its start is stopped and
+	 * not kept.
+	 *
+	 * @throws InterruptedException
+	 *             possible interruption
+	 */
+	@Test
+	public void testLeaseStartFailure() throws InterruptedException {
+
+		final FakeServer server = new FakeServer();
+		server.failStart = true;
+		try {
+			registry.lease("failing", new TestServerFactory<FakeServer>() {
+				@Override
+				public FakeServer createServer() {
+					return server;
+				}
+			});
+			fail("The lease must fail when the server does not start");
+		} catch (FtpTestException e) {
+			assertFalse(server.running);
+		}
+		Thread.sleep(WAIT_MILLIS);
+		assertEquals(0, registry.size());
+	}
+
+	/**
+	 * Test that an unchecked exception from the factory gives back the lease,
+	 * so that the key can be leased again.
+	 *
+	 * @throws Exception
+	 *             possible error
+	 */
+	@Test
+	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
+	public void testLeaseFactoryFailure() throws Exception {
+
+		try {
+			registry.lease("failing", new TestServerFactory<FakeServer>() {
+				@Override
+				public FakeServer createServer() {
+					throw new IllegalArgumentException("Bad configuration");
+				}
+			});
+			fail("The lease must fail when the factory throws");
+		} catch (IllegalArgumentException e) {
+			assertEquals("Bad configuration", e.getMessage());
+		}
+		Thread.sleep(WAIT_MILLIS);
+		assertEquals(0, registry.size());
+
+		CountingFactory factory = new CountingFactory();
+		TestServerLease<FakeServer> lease = registry.lease("failing", factory);
+		assertTrue(lease.getServer().running);
+		lease.release();
+	}
+
+	/**
+	 * Test leasing a real FTPS server by properties file.
+	 *
+	 * @throws FtpTestException
+	 *             possible error starting the server
+	 */
+	@Test
+	public void testLeaseFtpsServer() throws FtpTestException {
+
+		TestServerLease<FtpsTestServer> first =
+		    registry.leaseFtpsServer("ftpstest-memory.properties");
+		TestServerLease<FtpsTestServer> second =
+		    registry.leaseFtpsServer("ftpstest-memory.properties");
+		assertSame(first.getServer(), second.getServer());
+		assertTrue(first.getServer().getPort() > 0);
+		first.release();
+		second.release();
+	}
+
+	/**
+	 * Server that only records whether it is running.
+	 */
+	private static final class FakeServer
+	        implements TestServer {
+
+		/**
+		 * Whether the server is running.
+		 */
+		private volatile boolean running;
+
+		/**
+		 * Whether the start fails after the server started running.
+		 */
+		private boolean failStart;
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void startServer() throws FtpTestException {
+			running = true;
+			if (failStart) {
+				throw new FtpTestException("Start failed");
+			}
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void stopServer() {
+			running = false;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean stopServer(long timeout, TimeUnit unit) {
+			running = false;
+			return true;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int getPort() {
+			return 0;
+		}
+	}
+
+	/**
+	 * Factory that counts the servers it creates.
+	 */
+	private static final class CountingFactory
+	        implements TestServerFactory<FakeServer> {
+
+		/**
+		 * Number of servers created.
+		 */
+		private int created;
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public FakeServer createServer() {
+			created++;
+			return new FakeServer();
+		}
+	}
+
+}
@@ -0,0 +1,174 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.util.Properties;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.Session;
+import com.rothsmith.test.ftp.memfs.MemorySshFileSystemFactory;
+
+/**
+ * Tests for {@link TestServers}.
+ *
+ * @author drothauser
+ *
+ */
+public class TestServersTest {
+
+	/**
+	 * SFTP user.
+	 */
+	private static final String USER = "remote-username";
+
+	/**
+	 * Test starting an SFTP and two FTPS servers in parallel and stopping
+	 * them fast while a client is connected.
+	 *
+	 * @throws Exception
+	 *             possible error
+	 */
+	@Test
+	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
+	public void testStartAllStopAll() throws Exception {
+
+		SFtpTestServer sftpServer = createSftpServer();
+		FtpsTestServer ftpsServer = createFtpsServer();
+		FtpsTestServer otherFtpsServer = createFtpsServer();
+
+		TestServers.startAll(sftpServer, ftpsServer, otherFtpsServer).get(30,
+		    TimeUnit.SECONDS);
+		// a stopped FTPS server no longer knows its port
+		int[] ports =
+		    { sftpServer.getPort(), ftpsServer.getPort(),
+		        otherFtpsServer.getPort() };
+		for (int port : ports) {
+			assertTrue(accepts(port));
+		}
+
+		Session session =
+		    new JSch().getSession(USER, "localhost", sftpServer.getPort());
+		Properties config = new Properties();
+		config.put("StrictHostKeyChecking", "no");
+		session.setConfig(config);
+		session.setPassword("remote-password");
+		session.connect();
+
+		long start = System.nanoTime();
+		assertTrue(TestServers.stopAll(2, TimeUnit.SECONDS, sftpServer,
+		    ftpsServer, otherFtpsServer).get(10, TimeUnit.SECONDS));
+		assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+		for (int port : ports) {
+			assertFalse(accepts(port));
+		}
+		session.disconnect();
+	}
+
+	/**
+	 * Test that the servers started are stopped again when another server
+	 * cannot start.
+	 *
+	 * @throws Exception
+	 *             possible error
+	 */
+	@Test
+	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
+	public void testStartAllFailure() throws Exception {
+
+		SFtpTestServer sftpServer = createSftpServer();
+		final FtpTestException failure = new FtpTestException("broken");
+		TestServer broken = new TestServer() {
+
+			@Override
+			public void startServer() throws FtpTestException {
+				throw failure;
+			}
+
+			@Override
+			public void stopServer() {
+				// never started
+			}
+
+			@Override
+			public boolean stopServer(long timeout, TimeUnit unit) {
+				return true;
+			}
+
+			@Override
+			public int getPort() {
+				return 0;
+			}
+		};
+
+		try {
+			TestServers.startAll(sftpServer, broken).join();
+			fail("Expected the start to fail");
+		} catch (CompletionException e) {
+			assertSame(failure, e.getCause());
+		}
+		assertFalse(accepts(sftpServer.getPort()));
+	}
+
+	/**
+	 * Test the asynchronous start and stop of one server.
+	 *
+	 * @throws Exception
+	 *             possible error
+	 */
+	@Test
+	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
+	public void testStartStop() throws Exception {
+
+		FtpsTestServer server = createFtpsServer();
+		assertSame(server, server.start().get(30, TimeUnit.SECONDS));
+		int port = server.getPort();
+		assertTrue(accepts(port));
+		server.stop().get(30, TimeUnit.SECONDS);
+		assertFalse(accepts(port));
+	}
+
+	/**
+	 * @return a new SFTP server with an in-memory file system
+	 */
+	private static SFtpTestServer createSftpServer() {
+		return new SFtpTestServer(SFtpTestServer.DEFAULT_HOST,
+		    SFtpTestServer.EPHEMERAL_PORT, USER,
+		    new MemorySshFileSystemFactory());
+	}
+
+	/**
+	 * @return a new FTPS server with an in-memory file system
+	 * @throws FtpTestException
+	 *             possible error creating the server
+	 */
+	private static FtpsTestServer createFtpsServer() throws FtpTestException {
+		return FtpsTestFixture.createServer(new FtpsTestServerConfig());
+	}
+
+	/**
+	 * @param port
+	 *            a local port
+	 * @return whether a connection to the port is accepted
+	 */
+	private static boolean accepts(int port) {
+		try {
+			new Socket("localhost", port).close();
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+}
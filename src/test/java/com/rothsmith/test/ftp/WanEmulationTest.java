@@ -0,0 +1,161 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Hashtable;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.Session;
+import com.rothsmith.test.ftp.load.FtpsLoadClient;
+import com.rothsmith.test.ftp.memfs.MemoryFtpFileSystemFactory;
+import com.rothsmith.test.ftp.memfs.MemorySshFileSystemFactory;
+import com.rothsmith.test.ftp.wan.WanEmulation;
+
+/**
+ * Tests for the WAN emulation of the test servers. Only lower bounds of the
+ * elapsed times are checked, so that slow build machines do not fail them.
+ *
+ * @author drothauser
+ *
+ */
+public class WanEmulationTest {
+
+	/**
+	 * One way latency in milliseconds.
+	 */
+	private static final int LATENCY_MILLIS = 50;
+
+	/**
+	 * Bandwidth per session in bytes per second.
+	 */
+	private static final int BYTES_PER_SECOND = 128 * 1024;
+
+	/**
+	 * Test latency and bandwidth of SFTP requests.
+	 *
+	 * @throws Exception
+	 *             possible error
+	 */
+	@Test
+	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
+	public void testSftp() throws Exception {
+
+		SFtpTestServer server =
+		    new SFtpTestServer(SFtpTestServer.DEFAULT_HOST,
+		        SFtpTestServer.EPHEMERAL_PORT, SFtpTestServer.DEFAULT_USER,
+		        new MemorySshFileSystemFactory());
+		server.setWanEmulation(createWanEmulation());
+		server.startServer();
+		try {
+			JSch jsch = new JSch();
+			Hashtable<String, String> config = // NOPMD Jsch needs Hashtable
+			    new Hashtable<String, String>();
+			config.put("StrictHostKeyChecking", "no");
+			JSch.setConfig(config);
+			Session session =
+			    jsch.getSession(SFtpTestServer.DEFAULT_USER, "localhost",
+			        server.getPort());
+			session.setPassword("any");
+			session.connect();
+			ChannelSftp sftp = (ChannelSftp) session.openChannel("sftp");
+			sftp.connect();
+
+			long start = System.nanoTime();
+			sftp.pwd();
+			sftp.ls("/");
+			assertAtLeast(2 * 2 * LATENCY_MILLIS, start);
+
+			byte[] data = new byte[BYTES_PER_SECOND];
+			start = System.nanoTime();
+			sftp.put(new ByteArrayInputStream(data), "wan.bin");
+			assertAtLeast(TimeUnit.SECONDS.toMillis(1) * 9 / 10, start);
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			sftp.get("wan.bin", out);
+			assertArrayEquals(data, out.toByteArray());
+
+			sftp.disconnect();
+			session.disconnect();
+		} finally {
+			server.stopServer();
+		}
+	}
+
+	/**
+	 * Test latency and bandwidth of FTPS commands and transfers.
+	 *
+	 * @throws Exception
+	 *             possible error
+	 */
+	@Test
+	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
+	public void testFtps() throws Exception {
+
+		FtpsTestServerConfig config = new FtpsTestServerConfig();
+		config.setWanEmulation(createWanEmulation());
+		MemoryFtpFileSystemFactory fileSystem =
+		    new MemoryFtpFileSystemFactory();
+		FtpsTestServer server =
+		    FtpsTestFixture.createServer(fileSystem, config);
+		server.startServer();
+		try {
+			assertEquals(fileSystem.getFileSystem(),
+			    server.getMemoryFileSystem());
+			FtpsLoadClient client =
+			    new FtpsLoadClient("localhost", server.getPort(),
+			        FtpsTestFixture.USER, FtpsTestFixture.PASSWORD);
+			client.connect();
+			try {
+				long start = System.nanoTime();
+				client.ls("/");
+				assertAtLeast(2 * 2 * LATENCY_MILLIS, start);
+
+				start = System.nanoTime();
+				client.put("wan.bin", new byte[BYTES_PER_SECOND]);
+				assertAtLeast(TimeUnit.SECONDS.toMillis(1) * 9 / 10, start);
+				assertEquals(BYTES_PER_SECOND, client.get("wan.bin"));
+			} finally {
+				client.disconnect();
+			}
+		} finally {
+			server.stopServer();
+		}
+	}
+
+	/**
+	 * @return the emulated link of the tests
+	 */
+	private static WanEmulation createWanEmulation() {
+		WanEmulation wan = new WanEmulation();
+		wan.setLatencyMillis(LATENCY_MILLIS);
+		wan.setJitterMillis(LATENCY_MILLIS / 5);
+		wan.setSessionBytesPerSecond(BYTES_PER_SECOND);
+		return wan;
+	}
+
+	/**
+	 * Assert that at least the given time has passed.
+	 *
+	 * @param millis
+	 *            minimum time in milliseconds
+	 * @param start
+	 *            {@link System#nanoTime()} at the start
+	 */
+	private static void assertAtLeast(long millis, long start) {
+		long elapsed =
+		    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		assertTrue("Took " + elapsed + " ms, expected at least " + millis,
+		    elapsed >= millis);
+	}
+
+}
@@ -0,0 +1,74 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.checksum;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link Crc32c}.
+ *
+ * @author drothauser
+ *
+ */
+public class Crc32cTest {
+
+	/**
+	 * Test the check values of the CRC-32C catalogue and RFC 3720.
+	 *
+	 * @throws Exception
+	 *             possible error
+	 */
+	@Test
+	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
+	public void testKnownValues() throws Exception {
+
+		Crc32c crc = new Crc32c();
+		assertEquals(0, crc.getValue());
+
+		byte[] check = "123456789".getBytes("US-ASCII");
+		crc.update(check, 0, check.length);
+		assertEquals(0xE3069283L, crc.getValue());
+
+		crc.reset();
+		crc.update(new byte[32], 0, 32);
+		assertEquals(0x8A9136AAL, crc.getValue());
+
+		byte[] ones = new byte[32];
+		Arrays.fill(ones, (byte) 0xff);
+		crc.reset();
+		crc.update(ones, 0, ones.length);
+		assertEquals(0x62A8AB43L, crc.getValue());
+	}
+
+	/**
+	 * Test that bulk, byte by byte and split updates agree.
+	 */
+	@Test
+	public void testUpdates() {
+
+		byte[] data = new byte[1000];
+		new Random(3).nextBytes(data);
+		for (int len : new int[] { 0, 1, 7, 8, 9, 63, 1000 }) {
+			Crc32c bulk = new Crc32c();
+			bulk.update(data, 0, len);
+			Crc32c single = new Crc32c();
+			for (int i = 0; i < len; i++) {
+				single.update(data[i]);
+			}
+			assertEquals("length " + len, bulk.getValue(), single.getValue());
+
+			Crc32c split = new Crc32c();
+			split.update(data, 0, len / 3);
+			Crc32c copy = new Crc32c(split);
+			copy.update(data, len / 3, len - len / 3);
+			assertEquals("length " + len, bulk.getValue(), copy.getValue());
+		}
+	}
+
+}
@@ -0,0 +1,108 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.checksum;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link UploadChecksums}.
+ *
+ * @author drothauser
+ *
+ */
+public class UploadChecksumsTest {
+
+	/**
+	 * Path uploaded to.
+	 */
+	private static final String PATH = "/in/data.bin";
+
+	/**
+	 * Test a whole upload, a resumed upload and a write at another offset.
+	 *
+	 * @throws Exception
+	 *             possible error
+	 */
+	@Test
+	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
+	public void testUploads() throws Exception {
+
+		byte[] data = new byte[100000];
+		new Random(5).nextBytes(data);
+		UploadChecksums checksums = new UploadChecksums();
+		checksums.setEnabled(true);
+		assertNull(checksums.get(PATH));
+
+		// whole file in one upload
+		ByteArrayOutputStream file = new ByteArrayOutputStream();
+		OutputStream out = checksums.wrap(PATH, 0, file);
+		out.write(data, 0, 1);
+		out.write(data, 1, data.length - 1);
+		assertNull("Checksums are published on close", checksums.get(PATH));
+		out.close();
+		assertArrayEquals(data, file.toByteArray());
+		assertChecksums(data, checksums.get(PATH));
+
+		// interrupted and resumed at the end
+		out = checksums.wrap(PATH, 0, new ByteArrayOutputStream());
+		out.write(data, 0, 40000);
+		out.close();
+		out = checksums.wrap(PATH, 40000, new ByteArrayOutputStream());
+		out.write(data, 40000, data.length - 40000);
+		out.close();
+		assertChecksums(data, checksums.get(PATH));
+
+		// written at another offset
+		out = checksums.wrap(PATH, 50000, new ByteArrayOutputStream());
+		out.write(data, 0, 10);
+		out.close();
+		UploadChecksum checksum = checksums.get(PATH);
+		assertFalse(checksum.isSequential());
+		assertEquals(data.length + 10, checksum.getBytes());
+		assertNull(checksum.getSha256());
+		assertEquals(-1, checksum.getCrc32c());
+
+		assertEquals(1, checksums.getAll().size());
+		checksums.clear();
+		assertTrue(checksums.getAll().isEmpty());
+
+		checksums.setEnabled(false);
+		ByteArrayOutputStream plain = new ByteArrayOutputStream();
+		assertSame(plain, checksums.wrap(PATH, 0, plain));
+	}
+
+	/**
+	 * @param data
+	 *            content uploaded
+	 * @param checksum
+	 *            checksums of the upload
+	 * @throws Exception
+	 *             possible error
+	 */
+	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
+	private static void assertChecksums(byte[] data, UploadChecksum checksum)
+	        throws Exception {
+		assertEquals(PATH, checksum.getPath());
+		assertTrue(checksum.isSequential());
+		assertEquals(data.length, checksum.getBytes());
+		assertArrayEquals(MessageDigest.getInstance("SHA-256").digest(data),
+		    checksum.getSha256());
+		Crc32c crc = new Crc32c();
+		crc.update(data, 0, data.length);
+		assertEquals(crc.getValue(), checksum.getCrc32c());
+	}
+
+}
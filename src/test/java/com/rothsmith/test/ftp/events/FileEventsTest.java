@@ -0,0 +1,123 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.events;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link FileEvents}.
+ *
+ * @author drothauser
+ *
+ */
+public class FileEventsTest {
+
+	/**
+	 * Path of the file.
+	 */
+	private static final String PATH = "/in/data.bin";
+
+	/**
+	 * New path of the file.
+	 */
+	private static final String TARGET = "/done/data.bin";
+
+	/**
+	 * Test that futures complete on the events they wait for, and at once on
+	 * the latest event of their path.
+	 *
+	 * @throws Exception
+	 *             possible error
+	 */
+	@Test
+	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
+	public void testAwait() throws Exception {
+
+		FileEvents events = new FileEvents();
+		CompletableFuture<FileEvent> uploaded =
+		    events.await(PATH, FileEvent.Type.UPLOADED);
+		CompletableFuture<FileEvent> deleted =
+		    events.await(PATH, FileEvent.Type.DELETED);
+		CompletableFuture<FileEvent> arrived = events.await(TARGET);
+		assertFalse(uploaded.isDone());
+
+		FileEvent upload =
+		    new FileEvent(FileEvent.Type.UPLOADED, PATH, null, 42);
+		events.fire(upload);
+		assertSame(upload, uploaded.getNow(null));
+		assertEquals(42, uploaded.getNow(null).getBytes());
+		assertFalse(deleted.isDone());
+		assertFalse(arrived.isDone());
+		assertSame(upload, events.await(PATH, FileEvent.Type.UPLOADED)
+		    .getNow(null));
+
+		FileEvent rename =
+		    new FileEvent(FileEvent.Type.RENAMED, PATH, TARGET, -1);
+		events.fire(rename);
+		assertSame(rename, arrived.getNow(null));
+		assertSame(rename, events.getLatest(PATH));
+		assertSame(rename, events.getLatest(TARGET));
+		assertFalse("The latest event is no longer the upload", events
+		    .await(PATH, FileEvent.Type.UPLOADED).isDone());
+
+		events.fire(new FileEvent(FileEvent.Type.DELETED, TARGET, null, -1));
+		assertFalse(deleted.isDone());
+
+		events.clear();
+		assertNull(events.getLatest(TARGET));
+	}
+
+	/**
+	 * Test that the blocking variant returns the event or times out.
+	 *
+	 * @throws Exception
+	 *             possible error
+	 */
+	@Test
+	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
+	public void testAwaitTimeout() throws Exception {
+
+		final FileEvents events = new FileEvents();
+		long start = System.nanoTime();
+		try {
+			events.await(PATH, 100, TimeUnit.MILLISECONDS,
+			    FileEvent.Type.UPLOADED);
+			fail("Expected a timeout");
+		} catch (TimeoutException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains(PATH));
+		}
+		assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS
+		    .toNanos(100));
+
+		Thread uploader = new Thread() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(50);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				events.fire(new FileEvent(FileEvent.Type.UPLOADED, PATH,
+				    null, 1));
+			}
+		};
+		uploader.start();
+		FileEvent event =
+		    events.await(PATH, 10, TimeUnit.SECONDS, FileEvent.Type.UPLOADED);
+		assertEquals(FileEvent.Type.UPLOADED, event.getType());
+		uploader.join();
+	}
+
+}
@@ -0,0 +1,113 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.load;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link LatencyHistogram}.
+ *
+ * @author drothauser
+ *
+ */
+public class LatencyHistogramTest {
+
+	/**
+	 * Test percentiles of small values, which are counted exactly.
+	 */
+	@Test
+	public void testExactPercentiles() {
+
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 1; i <= 100; i++) {
+			histogram.record(i);
+		}
+		assertEquals(100, histogram.getCount());
+		assertEquals(50, histogram.getP50());
+		assertEquals(99, histogram.getP99());
+		assertEquals(100, histogram.getP999());
+		assertEquals(1, histogram.getMin());
+		assertEquals(100, histogram.getMax());
+		assertEquals(50, histogram.getMean());
+	}
+
+	/**
+	 * Test that large values are reported within the histogram's precision
+	 * and that histograms add up.
+	 */
+	@Test
+	public void testLargeValuesAndAdd() {
+
+		LatencyHistogram first = new LatencyHistogram();
+		LatencyHistogram second = new LatencyHistogram();
+		for (long i = 1; i <= 1000; i++) {
+			first.record(i * 1000000);
+			second.record(i * 1000000 + 500000);
+		}
+		first.add(second);
+		assertEquals(2000, first.getCount());
+
+		long p50 = first.getP50();
+		assertTrue("p50 " + p50, p50 >= 500000000 && p50 <= 510000000);
+		long p999 = first.getP999();
+		assertTrue("p999 " + p999, p999 >= 999000000 && p999 <= 1000500000);
+		assertEquals(1000500000, first.getPercentile(1000000));
+	}
+
+	/**
+	 * Test that every bucket's highest value maps back to the bucket.
+	 */
+	@Test
+	public void testBucketBoundaries() {
+
+		long[] values = { 0, 127, 128, 129, 255, 256, 1000, 123456789L,
+		    Long.MAX_VALUE };
+		for (long value : values) {
+			int index = LatencyHistogram.indexOf(value);
+			long highest = LatencyHistogram.highestValueOf(index);
+			assertTrue(value + " <= " + highest, value <= highest);
+			assertEquals(index, LatencyHistogram.indexOf(highest));
+		}
+	}
+
+	/**
+	 * Test an empty histogram.
+	 */
+	@Test
+	public void testEmpty() {
+
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getP99());
+		assertEquals(0, histogram.getMin());
+		assertEquals(0, histogram.getMean());
+	}
+
+	/**
+	 * Test that a concurrent histogram snapshot matches a plain histogram
+	 * recording the same values.
+	 */
+	@Test
+	public void testConcurrentSnapshot() {
+
+		LatencyHistogram expected = new LatencyHistogram();
+		ConcurrentLatencyHistogram concurrent = new ConcurrentLatencyHistogram();
+		for (long value = 1; value < 1000000; value = value * 3 + 1) {
+			expected.record(value);
+			concurrent.record(value);
+		}
+		LatencyHistogram snapshot = concurrent.getSnapshot();
+		assertEquals(expected.getCount(), snapshot.getCount());
+		assertEquals(expected.getSum(), snapshot.getSum());
+		assertEquals(expected.getMin(), snapshot.getMin());
+		assertEquals(expected.getMax(), snapshot.getMax());
+		assertEquals(expected.getP50(), snapshot.getP50());
+		assertEquals(expected.getP99(), snapshot.getP99());
+		assertEquals(0, new ConcurrentLatencyHistogram().getSnapshot()
+		    .getCount());
+	}
+
+}
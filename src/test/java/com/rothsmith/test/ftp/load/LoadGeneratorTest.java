@@ -0,0 +1,117 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.load;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.rothsmith.test.ftp.FtpsTestServer;
+import com.rothsmith.test.ftp.SFtpTestServer;
+import com.rothsmith.test.ftp.TestServerLease;
+import com.rothsmith.test.ftp.TestServerRegistry;
+import com.rothsmith.test.ftp.memfs.MemoryFileSystem;
+import com.rothsmith.test.ftp.memfs.MemorySshFileSystemFactory;
+
+/**
+ * Tests for {@link LoadGenerator}.
+ *
+ * @author drothauser
+ *
+ */
+public class LoadGeneratorTest {
+
+	/**
+	 * Number of concurrent workers.
+	 */
+	private static final int CONCURRENCY = 4;
+
+	/**
+	 * Operations per worker.
+	 */
+	private static final int OPERATIONS = 50;
+
+	/**
+	 * Test a load run against an SFTP server.
+	 *
+	 * @throws Exception
+	 *             possible error
+	 */
+	@Test
+	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
+	public void testSFtpLoad() throws Exception {
+
+		MemoryFileSystem fileSystem = new MemoryFileSystem();
+		SFtpTestServer sshServer =
+		    new SFtpTestServer(SFtpTestServer.DEFAULT_HOST,
+		        SFtpTestServer.EPHEMERAL_PORT, "load",
+		        new MemorySshFileSystemFactory(fileSystem));
+		sshServer.startServer();
+		try {
+			LoadGenerator generator =
+			    new LoadGenerator(SFtpLoadClient.factory("localhost",
+			        sshServer.getPort(), "load", "password"));
+			LoadReport report = run(generator);
+			assertEquals(0, fileSystem.list("/").size());
+			assertTrue(report.getLatencies(LoadOperation.CONNECT)
+			    .getCount() > 0);
+		} finally {
+			sshServer.stopServer();
+		}
+	}
+
+	/**
+	 * Test a load run against an FTPS server.
+	 *
+	 * @throws Exception
+	 *             possible error
+	 */
+	@Test
+	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
+	public void testFtpsLoad() throws Exception {
+
+		TestServerLease<FtpsTestServer> lease =
+		    TestServerRegistry.getDefault().leaseFtpsServer(
+		        "ftpstest-memory.properties");
+		try {
+			LoadGenerator generator =
+			    new LoadGenerator(FtpsLoadClient.factory("localhost", lease
+			        .getServer().getPort(), "user", "password"));
+			generator.setWeight(LoadOperation.CONNECT, 0);
+			run(generator);
+		} finally {
+			lease.release();
+		}
+	}
+
+	/**
+	 * Run a small load and check the report.
+	 *
+	 * @param generator
+	 *            the configured generator
+	 * @return the load report
+	 * @throws Exception
+	 *             possible error
+	 */
+	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
+	private static LoadReport run(LoadGenerator generator) throws Exception {
+
+		generator.setConcurrency(CONCURRENCY);
+		generator.setOperationsPerWorker(OPERATIONS);
+		generator.setFileSizes(1, 1024, 64 * 1024);
+		generator.setSeed(42);
+		LoadReport report = generator.run();
+
+		assertEquals(0, report.getErrorCount());
+		assertEquals(CONCURRENCY * OPERATIONS, report.getOperationCount());
+		assertTrue(report.getLatencies(LoadOperation.PUT).getCount() > 0);
+		assertTrue(report.getTotalLatencies().getP999() >= report
+		    .getTotalLatencies().getP50());
+		assertTrue(report.getOperationsPerSecond() > 0);
+		assertTrue(report.getBytesTransferred() > 0);
+		return report;
+	}
+
+}
@@ -0,0 +1,238 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.memfs;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+/**
+ * Tests for {@link MemoryFileSystem}.
+ *
+ * @author drothauser
+ *
+ */
+@SuppressWarnings("PMD.AvoidDuplicateLiterals")
+public class MemoryFileSystemTest {
+
+	/**
+	 * Test path normalization.
+	 */
+	@Test
+	public void testNormalize() {
+
+		assertEquals("/", MemoryFileSystem.normalize(""));
+		assertEquals("/", MemoryFileSystem.normalize("/.."));
+		assertEquals("/a/c", MemoryFileSystem.normalize("a/./b/../c/"));
+		assertEquals("/a/b", MemoryFileSystem.normalize("\\a\\b"));
+		assertEquals("/home/x", MemoryFileSystem.resolve("/home", "x"));
+		assertEquals("/x", MemoryFileSystem.resolve("/home", "/x"));
+		assertEquals("/home/x", MemoryFileSystem.join("/home", "/x"));
+		assertEquals("/home", MemoryFileSystem.join("/home", "/../.."));
+	}
+
+	/**
+	 * Test creating, moving and deleting nodes.
+	 *
+	 * @throws IOException
+	 *             possible I/O error
+	 */
+	@Test
+	public void testTreeOperations() throws IOException {
+
+		MemoryFileSystem fs = new MemoryFileSystem();
+		fs.mkdirs("/a/b");
+		assertTrue(fs.lookup("/a/b").isDirectory());
+		assertFalse("parent must exist", fs.mkdir("/x/y"));
+		assertTrue(fs.createFile("/a/b/f.txt") != null);
+		assertNull("file already exists", fs.createFile("/a/b/f.txt"));
+
+		assertFalse("directory not empty", fs.delete("/a/b"));
+		assertTrue(fs.move("/a/b/f.txt", "/a/g.txt"));
+		assertNull(fs.lookup("/a/b/f.txt"));
+		assertEquals("/a/g.txt", fs.lookup("/a/g.txt").getPath());
+		assertEquals(2, fs.list("/a").size());
+
+		assertTrue(fs.delete("/a/b"));
+		assertTrue(fs.delete("/a/g.txt"));
+		assertTrue(fs.list("/a").isEmpty());
+	}
+
+	/**
+	 * Test reading and writing across chunk boundaries with both storage
+	 * types.
+	 *
+	 * @throws IOException
+	 *             possible I/O error
+	 */
+	@Test
+	public void testReadWrite() throws IOException {
+
+		for (MemoryFileSystem.StorageType type : MemoryFileSystem.StorageType
+		    .values()) {
+			MemoryFileSystem fs =
+			    new MemoryFileSystem(type, MemoryFileSystem.UNLIMITED);
+			MemoryFile file = fs.getOrCreateFile("/data.bin");
+
+			byte[] data = new byte[MemoryFile.CHUNK_SIZE * 3 + 17];
+			for (int i = 0; i < data.length; i++) {
+				data[i] = (byte) i;
+			}
+			OutputStream out = file.newOutputStream(0);
+			out.write(data, 0, 100);
+			out.write(data, 100, data.length - 100);
+			out.close();
+			assertEquals(data.length, file.getSize());
+
+			InputStream in = file.newInputStream(0);
+			assertArrayEquals(data, IOUtils.toByteArray(in));
+
+			file.truncate(10);
+			assertEquals(10, file.getSize());
+			file.write(20, data, 0, 1);
+			byte[] gap = new byte[21];
+			assertEquals(21, file.read(0, gap, 0, gap.length));
+			assertEquals(0, gap[15]);
+
+			assertTrue(fs.delete("/data.bin"));
+			assertEquals(0, fs.getUsedBytes());
+		}
+	}
+
+	/**
+	 * Test that the memory cap is enforced.
+	 *
+	 * @throws IOException
+	 *             expected when the cap is exceeded
+	 */
+	@Test(expected = IOException.class)
+	public void testCapacityExceeded() throws IOException {
+
+		MemoryFileSystem fs =
+		    new MemoryFileSystem(MemoryFileSystem.StorageType.HEAP, 1024);
+		MemoryFile file = fs.getOrCreateFile("/big.bin");
+		file.write(0, new byte[2048], 0, 2048);
+	}
+
+	/**
+	 * Test that generated files are deterministic, readable at any position,
+	 * read-only and take no content memory.
+	 *
+	 * @throws Exception
+	 *             possible error
+	 */
+	@Test
+	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
+	public void testGeneratedFile() throws Exception {
+
+		MemoryFileSystem fs =
+		    new MemoryFileSystem(MemoryFileSystem.StorageType.HEAP, 1024);
+		long size = 8L * 1024 * 1024 * 1024;
+		GeneratedFile file = fs.createGeneratedFile("/huge.bin", size, 42);
+		assertEquals(size, fs.lookup("/huge.bin").getSize());
+		assertEquals(0, fs.getUsedBytes());
+		assertNull(fs.createGeneratedFile("/huge.bin", 1, 1));
+		assertNull(fs.createGeneratedFile("/missing/huge.bin", 1, 1));
+
+		byte[] head = new byte[1000];
+		assertEquals(head.length, file.read(0, head, 0, head.length));
+		byte[] same = new byte[head.length];
+		new GeneratedContent(42, size).read(0, same, 0, same.length);
+		assertArrayEquals(head, same);
+		new GeneratedContent(43, size).read(0, same, 0, same.length);
+		assertFalse(Arrays.equals(head, same));
+
+		byte[] middle = new byte[100];
+		InputStream in = file.newInputStream(333);
+		IOUtils.readFully(in, middle);
+		for (int i = 0; i < middle.length; i++) {
+			assertEquals(head[333 + i], middle[i]);
+		}
+
+		byte[] tail = new byte[10];
+		assertEquals(3, file.read(size - 3, tail, 0, tail.length));
+		assertEquals(-1, file.read(size, tail, 0, tail.length));
+
+		GeneratedContent small = new GeneratedContent(7, 200000);
+		fs.createGeneratedFile("/small.bin", small.getSize(), small.getSeed());
+		MessageDigest digest = MessageDigest.getInstance("SHA-256");
+		digest.update(IOUtils.toByteArray(((MemoryFile) fs
+		    .lookup("/small.bin")).newInputStream(0)));
+		assertArrayEquals(small.digest("SHA-256"), digest.digest());
+
+		try {
+			file.newOutputStream(0).write(1);
+			fail("Generated files must be read-only");
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains("read-only"));
+		}
+		assertTrue(fs.move("/huge.bin", "/renamed.bin"));
+		assertTrue(fs.delete("/renamed.bin"));
+		assertEquals(0, fs.getUsedBytes());
+	}
+
+	/**
+	 * Test that a snapshot keeps its content while the file system changes,
+	 * can be restored more than once and shares content until it is written.
+	 *
+	 * @throws IOException
+	 *             possible I/O error
+	 */
+	@Test
+	public void testSnapshotRestore() throws IOException {
+
+		MemoryFileSystem fs = new MemoryFileSystem();
+		fs.mkdirs("/fixtures/in");
+		byte[] data = new byte[MemoryFile.CHUNK_SIZE * 2 + 5];
+		Arrays.fill(data, (byte) 'a');
+		MemoryFile file = fs.getOrCreateFile("/fixtures/in/data.bin");
+		file.write(0, data, 0, data.length);
+		fs.createGeneratedFile("/fixtures/huge.bin", 1L << 32, 1);
+		long used = fs.getUsedBytes();
+
+		MemorySnapshot snapshot = fs.snapshot();
+		assertEquals(used, fs.getUsedBytes());
+
+		// the written chunk is copied, the snapshot keeps the old one
+		file.write(1, new byte[] { 'b' }, 0, 1);
+		assertEquals(used, fs.getUsedBytes());
+		fs.getOrCreateFile("/fixtures/in/new.txt").write(0, data, 0, 3);
+		assertTrue(fs.delete("/fixtures/huge.bin"));
+
+		for (int i = 0; i < 2; i++) {
+			fs.restore(snapshot);
+			assertEquals(used, fs.getUsedBytes());
+			assertNull(fs.lookup("/fixtures/in/new.txt"));
+			assertEquals(1L << 32, fs.lookup("/fixtures/huge.bin").getSize());
+			MemoryFile restored =
+			    (MemoryFile) fs.lookup("/fixtures/in/data.bin");
+			assertArrayEquals(data,
+			    IOUtils.toByteArray(restored.newInputStream(0)));
+			restored.truncate(0);
+			restored.write(MemoryFile.CHUNK_SIZE, data, 0, 1);
+		}
+
+		fs.clear();
+		assertEquals(0, fs.getUsedBytes());
+		try {
+			new MemoryFileSystem().restore(snapshot);
+			fail("A snapshot of another file system must be refused");
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage().contains("another file system"));
+		}
+	}
+
+}
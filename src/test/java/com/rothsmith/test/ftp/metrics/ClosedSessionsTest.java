@@ -0,0 +1,55 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link ClosedSessions}.
+ *
+ * @author drothauser
+ *
+ */
+public class ClosedSessionsTest {
+
+	/**
+	 * Test that only the most recently closed sessions are kept and that open
+	 * sessions are never dropped.
+	 */
+	@Test
+	public void testClosed() {
+		Map<Long, String> sessions = new TreeMap<Long, String>();
+		for (long id = 1; id <= 5; id++) {
+			sessions.put(id, "session-" + id);
+		}
+		ClosedSessions closed = new ClosedSessions(sessions, 2);
+
+		closed.closed(2);
+		closed.closed(4);
+		assertEquals(5, sessions.size());
+
+		closed.closed(1);
+		assertEquals(4, sessions.size());
+		assertFalse(sessions.containsKey(2L));
+
+		closed.closed(5);
+		assertEquals(3, sessions.size());
+		assertFalse(sessions.containsKey(4L));
+		assertTrue(sessions.containsKey(1L));
+		assertTrue(sessions.containsKey(3L));
+		assertTrue(sessions.containsKey(5L));
+
+		closed.clear();
+		closed.closed(3);
+		assertEquals(3, sessions.size());
+	}
+
+}
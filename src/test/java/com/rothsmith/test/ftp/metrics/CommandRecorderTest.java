@@ -0,0 +1,54 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.metrics;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link CommandRecorder}.
+ *
+ * @author drothauser
+ *
+ */
+public class CommandRecorderTest {
+
+	/**
+	 * Test that commands not known are all recorded as
+	 * {@link CommandRecorder#UNKNOWN}.
+	 */
+	@Test
+	public void testUnknownCommands() {
+		CommandRecorder recorder =
+		    new CommandRecorder(Arrays.asList("RETR", "STOR"));
+		recorder.record("STOR", 100, false);
+		recorder.record("XYZ1", 200, true);
+		recorder.record("XYZ2", 300, false);
+
+		assertEquals(2, recorder.getMetrics().size());
+		assertEquals(1, recorder.getMetrics("STOR").getCount());
+		CommandMetrics unknown = recorder.getMetrics(CommandRecorder.UNKNOWN);
+		assertEquals(2, unknown.getCount());
+		assertEquals(1, unknown.getFailures());
+		assertEquals(0, recorder.getMetrics("XYZ1").getCount());
+	}
+
+	/**
+	 * Test that without known commands every command is recorded under its
+	 * own name.
+	 */
+	@Test
+	public void testAnyCommand() {
+		CommandRecorder recorder = new CommandRecorder();
+		recorder.record("OPEN", 100, false);
+		recorder.record("READ", 200, false);
+
+		assertEquals(2, recorder.getMetrics().size());
+		assertEquals(1, recorder.getMetrics("READ").getCount());
+	}
+
+}
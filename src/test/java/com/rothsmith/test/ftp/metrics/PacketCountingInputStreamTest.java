@@ -0,0 +1,94 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.ftp.metrics;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link PacketCountingInputStream}.
+ *
+ * @author drothauser
+ *
+ */
+public class PacketCountingInputStreamTest {
+
+	/**
+	 * Payload size of the large test packet, bigger than the initial buffer.
+	 */
+	private static final int LARGE_PACKET = 20000;
+
+	/**
+	 * Test counting packets that have arrived while reading them one by one.
+	 *
+	 * @throws Exception
+	 *             possible error
+	 */
+	@Test
+	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
+	public void testCountsArrivedPackets() throws Exception {
+
+		PipedOutputStream client = new PipedOutputStream();
+		PacketCountingInputStream in =
+		    new PacketCountingInputStream(new PipedInputStream(client,
+		        LARGE_PACKET * 2));
+		byte[] packets = packets(3, LARGE_PACKET, 5);
+		client.write(packets, 0, packets.length - 1);
+		assertEquals(2, in.getArrivedPackets());
+
+		DataInputStream reader = new DataInputStream(in);
+		ByteArrayOutputStream read = new ByteArrayOutputStream();
+		for (int size : new int[] { 3, LARGE_PACKET }) {
+			assertEquals(size, reader.readInt());
+			byte[] payload = new byte[size];
+			reader.readFully(payload);
+			new DataOutputStream(read).writeInt(size);
+			read.write(payload);
+		}
+		assertEquals(2, in.getArrivedPackets());
+
+		client.write(packets, packets.length - 1, 1);
+		client.close();
+		assertEquals(3, in.getArrivedPackets());
+		assertEquals(5, reader.readInt());
+		byte[] payload = new byte[5];
+		reader.readFully(payload);
+		new DataOutputStream(read).writeInt(5);
+		read.write(payload);
+		assertEquals(-1, in.read());
+		assertArrayEquals(packets, read.toByteArray());
+	}
+
+	/**
+	 * Build length prefixed packets with distinct content.
+	 *
+	 * @param sizes
+	 *            payload sizes
+	 * @return the packets
+	 * @throws Exception
+	 *             possible error
+	 */
+	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
+	private static byte[] packets(int... sizes) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		int next = 0;
+		for (int size : sizes) {
+			out.writeInt(size);
+			for (int i = 0; i < size; i++) {
+				out.write(next++);
+			}
+		}
+		return bytes.toByteArray();
+	}
+
+}
@@ -0,0 +1,66 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.integration;
+
+/**
+ * Child process started by the tests of {@link IntegrationTestUtils}.
+ * Arguments:
+ * <ul>
+ * <li>output &lt;lines&gt; &lt;exit code&gt;: write the lines to standard
+ * error, then to standard output, and exit</li>
+ * <li>sleep &lt;millis&gt;: sleep and exit</li>
+ * <li>serve &lt;millis&gt;: sleep, print a startup line and sleep a minute
+ * more, like a server</li>
+ * </ul>
+ *
+ * @author drothauser
+ *
+ */
+public final class ChildMain {
+
+	/**
+	 * Text making each line long enough to fill a pipe quickly.
+	 */
+	private static final String PADDING =
+	    "................................................................";
+
+	/**
+	 * How long a server runs after it has started in milliseconds.
+	 */
+	private static final long SERVE_MILLIS = 60000;
+
+	/**
+	 * Main class.
+	 */
+	private ChildMain() {
+	}
+
+	/**
+	 * @param args
+	 *            the mode and its arguments
+	 * @throws InterruptedException
+	 *             if interrupted while sleeping
+	 */
+	@SuppressWarnings("PMD.SystemPrintln")
+	public static void main(String[] args) throws InterruptedException {
+		if ("output".equals(args[0])) {
+			int lines = Integer.parseInt(args[1]);
+			for (int i = 0; i < lines; i++) {
+				System.err.println("err " + i + PADDING);
+			}
+			for (int i = 0; i < lines; i++) {
+				System.out.println("out " + i + PADDING);
+			}
+			System.exit(Integer.parseInt(args[2]));
+		} else if ("sleep".equals(args[0])) {
+			Thread.sleep(Long.parseLong(args[1]));
+		} else if ("serve".equals(args[0])) {
+			System.out.println("Starting");
+			Thread.sleep(Long.parseLong(args[1]));
+			System.err.println("Started SSH Server on port 2222");
+			Thread.sleep(SERVE_MILLIS);
+		}
+	}
+
+}
@@ -0,0 +1,102 @@
+/*
+ * (c) 2013 FCCI Insurance Group All Rights Reserved.
+ */
+package com.rothsmith.test.integration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link IntegrationBatch}.
+ *
+ * @author drothauser
+ *
+ */
+public class IntegrationBatchTest {
+
+	/**
+	 * Test that jobs run in parallel, that jobs sharing a resource do not
+	 * overlap and that every result is delivered and summarized.
+	 *
+	 * @throws InterruptedException
+	 *             possible interruption
+	 */
+	@Test
+	public void testRun() throws InterruptedException {
+
+		List<IntegrationJob> jobs = new ArrayList<IntegrationJob>();
+		for (int i = 0; i < 3; i++) {
+			jobs.add(createJob("sleep-" + i, "sleep", "1000"));
+		}
+		IntegrationJob first = createJob("db-1", "sleep", "500");
+		first.setResources("db");
+		IntegrationJob second = createJob("db-2", "sleep", "500");
+		second.setResources("db", "port-8080");
+		jobs.add(first);
+		jobs.add(second);
+		jobs.add(createJob("failing", "output", "1", "3"));
+		jobs.add(new IntegrationJob("missing", Arrays
+		    .asList("no-such-command-xyz"), new File(".")));
+
+		final Map<String, JobResult> delivered =
+		    new HashMap<String, JobResult>();
+		IntegrationBatch batch = new IntegrationBatch();
+		batch.setParallelism(8);
+		BatchSummary summary = batch.run(jobs, new JobListener() {
+			@Override
+			public void completed(JobResult result) {
+				delivered.put(result.getJob().getName(), result);
+			}
+		});
+
+		assertEquals(jobs.size(), delivered.size());
+		assertEquals(jobs.size(), summary.getResults().size());
+		assertFalse(summary.isSuccess());
+		assertEquals(2, summary.getFailures().size());
+		assertEquals(3,
+		    delivered.get("failing").getResult().getExitCode());
+		assertNull(delivered.get("missing").getResult());
+		assertNotNull(delivered.get("missing").getError());
+		assertTrue(delivered.get("sleep-0").isSuccess());
+
+		JobResult db1 = delivered.get("db-1");
+		JobResult db2 = delivered.get("db-2");
+		assertTrue(summary.toString(),
+		    db2.getStartTime() >= db1.getStartTime() + db1.getWallMillis()
+		        || db1.getStartTime() >= db2.getStartTime()
+		            + db2.getWallMillis());
+		assertTrue(summary.toString(),
+		    summary.getWallMillis() < summary.getJobMillis());
+	}
+
+	/**
+	 * @param name
+	 *            name of the job
+	 * @param args
+	 *            arguments of {@link ChildMain}
+	 * @return a job running {@link ChildMain} in a new JVM
+	 */
+	private static IntegrationJob createJob(String name, String... args) {
+		List<String> cmdList = new ArrayList<String>();
+		cmdList.add(new File(System.getProperty("java.home"), "bin/java")
+		    .getPath());
+		cmdList.add("-cp");
+		cmdList.add(System.getProperty("java.class.path"));
+		cmdList.add(ChildMain.class.getName());
+		cmdList.addAll(Arrays.asList(args));
+		return new IntegrationJob(name, cmdList, new File("."));
+	}
+
+}
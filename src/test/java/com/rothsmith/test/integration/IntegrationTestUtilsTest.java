@@ -5,11 +5,20 @@ package com.rothsmith.test.integration;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -106,4 +115,141 @@ public class IntegrationTestUtilsTest {
 		assertEquals(1, exitValue);
 	}
 
+	/**
+	 * Test that a child filling the standard error pipe before it writes
+	 * standard output does not block, and that the sink sees every line while
+	 * the result keeps the last ones only.
+	 * 
+	 * @throws IOException
+	 *             possible I/O error
+	 */
+	@Test
+	public void testRunIntegrationTestOutput() throws IOException {
+
+		final Map<ProcessStream, AtomicLong> counts =
+		    new ConcurrentHashMap<ProcessStream, AtomicLong>();
+		counts.put(ProcessStream.STDOUT, new AtomicLong());
+		counts.put(ProcessStream.STDERR, new AtomicLong());
+		ProcessOptions options = new ProcessOptions();
+		options.setTailLines(3);
+		options.setTimeoutMillis(60000);
+		options.setSink(new LineSink() {
+			@Override
+			public void line(ProcessStream stream, String line) {
+				counts.get(stream).incrementAndGet();
+			}
+		});
+
+		ProcessResult result =
+		    IntegrationTestUtils.runIntegrationTest(
+		        javaCommand("output", "5000", "3"), new File("."), options);
+
+		assertEquals(3, result.getExitCode());
+		assertFalse(result.isTimedOut());
+		assertEquals(5000, result.getStdoutLines());
+		assertEquals(5000, result.getStderrLines());
+		assertEquals(5000, counts.get(ProcessStream.STDERR).get());
+		assertEquals(5000, counts.get(ProcessStream.STDOUT).get());
+		assertEquals(3, result.getStderrTail().size());
+		assertTrue(result.getStderrTail().get(2).startsWith("err 4999."));
+		assertTrue(result.getStdoutTail().get(0).startsWith("out 4997."));
+	}
+
+	/**
+	 * Test that a child running longer than the timeout is killed.
+	 * 
+	 * @throws IOException
+	 *             possible I/O error
+	 */
+	@Test
+	public void testRunIntegrationTestTimeout() throws IOException {
+
+		ProcessOptions options = new ProcessOptions();
+		options.setTimeoutMillis(500);
+
+		ProcessResult result =
+		    IntegrationTestUtils.runIntegrationTest(
+		        javaCommand("sleep", "60000"), new File("."), options);
+
+		assertTrue(result.isTimedOut());
+		assertTrue(result.toString(), result.getElapsedMillis() < 30000);
+		assertFalse(0 == result.getExitCode());
+	}
+
+	/**
+	 * Test that a launched child keeps running after its readiness line has
+	 * been matched and that a late wait still sees the line.
+	 * 
+	 * @throws Exception
+	 *             possible error
+	 */
+	@Test
+	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
+	public void testLaunch() throws Exception {
+
+		ChildProcess server =
+		    IntegrationTestUtils.launch(javaCommand("serve", "300"),
+		        new File("."), new ProcessOptions());
+		try {
+			CompletableFuture<String> started =
+			    server.awaitOutput("Started SSH Server", ProcessStream.STDERR);
+			assertFalse(started.isDone());
+			assertTrue(server.awaitOutput("on port (\\d+)", 30,
+			    TimeUnit.SECONDS).endsWith("2222"));
+			assertTrue(started.isDone());
+			assertTrue(server.isAlive());
+			assertTrue(server.awaitOutput("^Starting$").isDone());
+			try {
+				server.awaitOutput("Started", 200, TimeUnit.MILLISECONDS,
+				    ProcessStream.STDOUT);
+				fail("No such line was printed to stdout");
+			} catch (TimeoutException e) {
+				assertTrue(server.isAlive());
+			}
+		} finally {
+			ProcessResult result = server.stop();
+			assertFalse(server.isAlive());
+			assertEquals(1, result.getStdoutLines());
+		}
+	}
+
+	/**
+	 * Test that a wait fails as soon as the child exits without printing the
+	 * line.
+	 * 
+	 * @throws Exception
+	 *             possible error
+	 */
+	@Test
+	@SuppressWarnings("PMD.SignatureDeclareThrowsException")
+	public void testLaunchExited() throws Exception {
+
+		ChildProcess child =
+		    IntegrationTestUtils.launch(javaCommand("output", "1", "3"),
+		        new File("."), new ProcessOptions());
+		try {
+			child.awaitOutput("Started", 60, TimeUnit.SECONDS);
+			fail("The child exited without printing the line");
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains("exited"));
+		}
+		assertEquals(3, child.waitFor(30, TimeUnit.SECONDS).getExitCode());
+	}
+
+	/**
+	 * @param args
+	 *            arguments of {@link ChildMain}
+	 * @return a command running {@link ChildMain} in a new JVM
+	 */
+	private static List<String> javaCommand(String... args) {
+		List<String> cmdList = new ArrayList<String>();
+		cmdList.add(new File(System.getProperty("java.home"), "bin/java")
+		    .getPath());
+		cmdList.add("-cp");
+		cmdList.add(System.getProperty("java.class.path"));
+		cmdList.add(ChildMain.class.getName());
+		cmdList.addAll(Arrays.asList(args));
+		return cmdList;
+	}
+
 }